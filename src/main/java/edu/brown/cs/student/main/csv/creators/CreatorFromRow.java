@@ -12,7 +12,8 @@ import java.util.List;
 public interface CreatorFromRow<T> {
 
   /**
-   * A method to convert a row into an object of type T.
+   * A method to convert a row into an object of type T. When CSVParser parses in parallel, this is
+   * called from several threads at once, always after setRowSize.
    *
    * @param row The list of Strings to convert into the specified type.
    * @return An object of type T.
@@ -27,4 +28,17 @@ public interface CreatorFromRow<T> {
    * @param length The length of the first row of the CSV file as parsed in CSVParser.
    */
   void setRowSize(int length);
+
+  /**
+   * A method used by Parser to ask which columns the creator needs, so the cells in the others are
+   * never trimmed or copied. Each row is then handed to "create" with just those cells, in the
+   * order listed, and "setRowSize" is given the number listed. Since the creator no longer sees
+   * whole rows, the parser itself rejects rows whose width differs from the first row's.
+   *
+   * @return The distinct indexes of the columns to keep, or null (the default) to keep every
+   *     column.
+   */
+  default int[] columns() {
+    return null;
+  }
 }
@@ -0,0 +1,48 @@
+package edu.brown.cs.student.main.csv.creators;
+
+import edu.brown.cs.student.main.csv.exceptions.FactoryFailureException;
+import edu.brown.cs.student.main.csv.utilities.CSVRow;
+import java.util.List;
+
+/**
+ * An implementation of CreatorFromRow that converts each row into a primitive double[], so numeric
+ * files are loaded without boxing a single number. Rows from a memory-mapped CSVParser are CSVRows,
+ * whose cells are parsed straight from their bytes without becoming Strings.
+ */
+public class DoubleArrayCreator implements CreatorFromRow<double[]> {
+  private int length;
+
+  /** A constructor to initialize the length field before being updated by CSVParser. */
+  public DoubleArrayCreator() {
+    this.length = 0;
+  }
+
+  /** An implementation of create as defined in CreatorFromRow. */
+  @Override
+  public double[] create(List<String> row) throws FactoryFailureException {
+    if (row.size() != this.length) {
+      throw new FactoryFailureException("Incorrect Number of Items:", row);
+    }
+    double[] result = new double[this.length];
+    try {
+      if (row instanceof CSVRow cells) {
+        for (int i = 0; i < result.length; i++) {
+          result[i] = cells.getDouble(i);
+        }
+      } else {
+        for (int i = 0; i < result.length; i++) {
+          result[i] = Double.parseDouble(row.get(i));
+        }
+      }
+    } catch (NumberFormatException e) {
+      throw new FactoryFailureException("Not a number:", row);
+    }
+    return result;
+  }
+
+  /** An implementation of setRowSize as defined in CreatorFromRow. */
+  @Override
+  public void setRowSize(int length) {
+    this.length = length;
+  }
+}
@@ -10,10 +10,22 @@ import java.util.List;
  */
 public class SearcherCreator implements CreatorFromRow<ArrayList<String>> {
   private int length;
+  private final int[] columns; // The columns to keep, or null to keep every column.
 
   /** A constructor to initialize the length field before being updated by CSVParser. */
   public SearcherCreator() {
+    this(null);
+  }
+
+  /**
+   * An alternate constructor that keeps only the given columns of each row, so a CSVSearcher can
+   * load a few columns of a very wide file.
+   *
+   * @param columns The indexes of the columns to keep, in the order to keep them, or null for all.
+   */
+  public SearcherCreator(int[] columns) {
     this.length = 0;
+    this.columns = (columns == null) ? null : columns.clone();
   }
 
   /** An implementation of setRowSize as defined in CreatorFromRow. */
@@ -30,4 +42,10 @@ public class SearcherCreator implements CreatorFromRow<ArrayList<String>> {
   public void setRowSize(int length) {
     this.length = length;
   }
+
+  /** An implementation of columns as defined in CreatorFromRow. */
+  @Override
+  public int[] columns() {
+    return (this.columns == null) ? null : this.columns.clone();
+  }
 }
@@ -0,0 +1,12 @@
+package edu.brown.cs.student.main.csv.exceptions;
+
+/**
+ * Exception thrown when a search needs a column of a type it does not have, such as a range search
+ * of a text column.
+ */
+public class ColumnTypeException extends Exception {
+
+  public ColumnTypeException(String message) {
+    super(message);
+  }
+}
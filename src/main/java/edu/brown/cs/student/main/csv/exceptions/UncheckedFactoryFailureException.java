@@ -0,0 +1,27 @@
+package edu.brown.cs.student.main.csv.exceptions;
+
+/**
+ * Wraps a FactoryFailureException so it can escape an Iterator or Stream, in the same way
+ * UncheckedIOException wraps an IOException.
+ */
+public class UncheckedFactoryFailureException extends RuntimeException {
+
+  /**
+   * The constructor passes the message and cause up to super().
+   *
+   * @param cause The FactoryFailureException being wrapped.
+   */
+  public UncheckedFactoryFailureException(FactoryFailureException cause) {
+    super(cause.getMessage(), cause);
+  }
+
+  /**
+   * Returns the wrapped exception.
+   *
+   * @return The FactoryFailureException that caused this exception.
+   */
+  @Override
+  public synchronized FactoryFailureException getCause() {
+    return (FactoryFailureException) super.getCause();
+  }
+}
@@ -0,0 +1,57 @@
+package edu.brown.cs.student.main.csv.index;
+
+/**
+ * Folds strings to a key so that two strings have the same key exactly when String.equalsIgnoreCase
+ * says they are equal. Each code point is mapped to the lower case of its upper case, which is the
+ * comparison equalsIgnoreCase makes, so the rule does not depend on the default locale.
+ *
+ * <p>The rules follow Character's locale-independent mappings. Unlike String.toLowerCase(), a
+ * Turkish default locale does not turn "I" into a dotless "ı", so "TITLE" always folds to "title".
+ * Each code point folds to exactly one code point, so multi-character casings are not applied: "ß"
+ * does not match "SS". Letters with several lower-case forms share a key, such as "Σ", "σ" and "ς".
+ * Values are folded once when a DictionaryColumn is finished and a search folds its target once.
+ */
+public class CaseFolding {
+
+  /** CaseFolding only has static methods. */
+  private CaseFolding() {}
+
+  /**
+   * Folds a string to its case-insensitive key.
+   *
+   * @param value is the string to fold.
+   * @return the folded key, which is the same object when the string is already folded.
+   */
+  public static String fold(String value) {
+    int length = value.length();
+    int i = 0;
+    // Skip the prefix that is already folded, which is often the whole string.
+    while (i < length) {
+      int c = value.codePointAt(i);
+      if (foldCodePoint(c) != c) {
+        break;
+      }
+      i += Character.charCount(c);
+    }
+    if (i == length) {
+      return value;
+    }
+    StringBuilder folded = new StringBuilder(length).append(value, 0, i);
+    while (i < length) {
+      int c = value.codePointAt(i);
+      folded.appendCodePoint(foldCodePoint(c));
+      i += Character.charCount(c);
+    }
+    return folded.toString();
+  }
+
+  /**
+   * Folds a single code point.
+   *
+   * @param c is the code point to fold.
+   * @return the lower case of its upper case.
+   */
+  static int foldCodePoint(int c) {
+    return Character.toLowerCase(Character.toUpperCase(c));
+  }
+}
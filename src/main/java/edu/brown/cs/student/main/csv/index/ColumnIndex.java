@@ -0,0 +1,216 @@
+package edu.brown.cs.student.main.csv.index;
+
+import edu.brown.cs.student.main.csv.storage.DictionaryColumn;
+import edu.brown.cs.student.main.csv.storage.SnapshotReader;
+import edu.brown.cs.student.main.csv.storage.SnapshotWriter;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A hash index over one DictionaryColumn, mapping each case-folded value to the rows holding it.
+ * The rows for every key are stored back to back in one int array, in row order, so a lookup costs
+ * one hash probe plus the number of matching rows.
+ */
+public class ColumnIndex {
+  private static final int[] NO_ROWS = new int[0];
+  private final Map<String, Integer> keyIds; // Each folded value's position in offsets.
+  private final int[] offsets; // Where each key's rows start in rows, plus a final end offset.
+  private final int[] rows; // The rows of every key, grouped by key.
+
+  /**
+   * Constructor builds the index with a counting sort of the column's rows by folded value.
+   *
+   * @param column is the finished column to index.
+   */
+  public ColumnIndex(DictionaryColumn column) {
+    // Distinct values that fold to the same key share one key id.
+    this.keyIds = new HashMap<>();
+    int[] keyOfCode = assignKeyIds(column, this.keyIds);
+
+    // Count the rows of each key, then place each row after the rows counted before it.
+    this.offsets = new int[this.keyIds.size() + 1];
+    for (int row = 0; row < column.size(); row++) {
+      this.offsets[keyOfCode[column.code(row)] + 1]++;
+    }
+    for (int key = 0; key < this.keyIds.size(); key++) {
+      this.offsets[key + 1] += this.offsets[key];
+    }
+    int[] next = Arrays.copyOf(this.offsets, this.keyIds.size());
+    this.rows = new int[column.size()];
+    for (int row = 0; row < column.size(); row++) {
+      this.rows[next[keyOfCode[column.code(row)]]++] = row;
+    }
+  }
+
+  /**
+   * Constructor restores an index written by writeTo. Key ids are assigned in the same order as
+   * when the index was built, so only the offsets and rows need to be stored.
+   *
+   * @param column is the column the index was built over.
+   * @param offsets are the stored offsets.
+   * @param rows are the stored rows.
+   */
+  private ColumnIndex(DictionaryColumn column, int[] offsets, int[] rows) {
+    this.keyIds = new HashMap<>();
+    assignKeyIds(column, this.keyIds);
+    this.offsets = offsets;
+    this.rows = rows;
+  }
+
+  /**
+   * Reads an index written by writeTo.
+   *
+   * @param in is the snapshot to read from.
+   * @param column is the restored column the index was built over.
+   * @return the restored index.
+   */
+  public static ColumnIndex readFrom(SnapshotReader in, DictionaryColumn column) {
+    int[] offsets = in.readInts(in.readInt());
+    return new ColumnIndex(column, offsets, in.readInts(column.size()));
+  }
+
+  /**
+   * Writes the index to a snapshot.
+   *
+   * @param out is the snapshot to write to.
+   * @throws IOException if the snapshot cannot be written.
+   */
+  public void writeTo(SnapshotWriter out) throws IOException {
+    out.writeInt(this.offsets.length);
+    out.writeInts(this.offsets, this.offsets.length);
+    out.writeInts(this.rows, this.rows.length);
+  }
+
+  /**
+   * Finds every row whose value equals the given value, ignoring case.
+   *
+   * @param value is the trimmed value to look up.
+   * @return the matching rows in ascending order, which may be empty.
+   */
+  public int[] rowsMatching(String value) {
+    return this.rowsMatching(value, 0, Integer.MAX_VALUE);
+  }
+
+  /**
+   * Finds the first rows at or after a given row whose value equals the given value, ignoring case.
+   * The starting point is found with a binary search, so a page costs the same wherever it starts.
+   *
+   * @param value is the trimmed value to look up.
+   * @param fromRow is the first row that may be returned.
+   * @param limit is the most rows to return.
+   * @return the matching rows in ascending order, which may be empty.
+   */
+  public int[] rowsMatching(String value, int fromRow, int limit) {
+    Integer key = this.keyIds.get(CaseFolding.fold(value));
+    return (key == null) ? NO_ROWS : this.rowsOfKey(key, fromRow, limit);
+  }
+
+  /**
+   * Finds the id of a folded value, for the other indexes of the package.
+   *
+   * @param key is a value already folded with CaseFolding.fold.
+   * @return the key's id, or -1 if no row holds it.
+   */
+  int keyId(String key) {
+    Integer id = this.keyIds.get(key);
+    return (id == null) ? -1 : id;
+  }
+
+  /** Returns the number of distinct folded values, whose ids run from 0 up to it. */
+  int keyCount() {
+    return this.keyIds.size();
+  }
+
+  /**
+   * Counts the rows holding a key.
+   *
+   * @param key is the key id.
+   * @return the number of rows.
+   */
+  int keyRowCount(int key) {
+    return this.offsets[key + 1] - this.offsets[key];
+  }
+
+  /**
+   * Copies every row holding a key into an array, in ascending order.
+   *
+   * @param key is the key id.
+   * @param into is the array to copy into.
+   * @param at is where in the array to start.
+   * @return the position after the last row copied.
+   */
+  int copyRows(int key, int[] into, int at) {
+    int count = this.keyRowCount(key);
+    System.arraycopy(this.rows, this.offsets[key], into, at, count);
+    return at + count;
+  }
+
+  /**
+   * Copies a run of the rows holding a key into an array, in ascending order.
+   *
+   * @param key is the key id.
+   * @param skip is the number of the key's rows to pass over first.
+   * @param count is the number of rows to copy.
+   * @param into is the array to copy into.
+   * @param at is where in the array to start.
+   * @return the position after the last row copied.
+   */
+  int copyRows(int key, int skip, int count, int[] into, int at) {
+    System.arraycopy(this.rows, this.offsets[key] + skip, into, at, count);
+    return at + count;
+  }
+
+  /**
+   * Finds the first row holding a key.
+   *
+   * @param key is the key id.
+   * @return the lowest row holding it.
+   */
+  int firstRow(int key) {
+    return this.rows[this.offsets[key]];
+  }
+
+  /**
+   * Finds the first rows at or after a given row that hold a key.
+   *
+   * @param key is the key id.
+   * @param fromRow is the first row that may be returned.
+   * @param limit is the most rows to return.
+   * @return the matching rows in ascending order, which may be empty.
+   */
+  int[] rowsOfKey(int key, int fromRow, int limit) {
+    int end = this.offsets[key + 1];
+    int start = Arrays.binarySearch(this.rows, this.offsets[key], end, fromRow);
+    start = (start < 0) ? -start - 1 : start;
+    return Arrays.copyOfRange(this.rows, start, (int) Math.min(end, (long) start + limit));
+  }
+
+  /**
+   * Estimates the heap used by the index.
+   *
+   * @return the estimated size in bytes.
+   */
+  public long estimatedBytes() {
+    // Each map entry is roughly a node, a boxed id and the key (often shared with the column).
+    return 32 + 4L * (this.offsets.length + this.rows.length) + 64L * this.keyIds.size();
+  }
+
+  /**
+   * Gives each distinct folded value in the column an id, in order of code.
+   *
+   * @param column is the finished column.
+   * @param keyIds is the empty map to fill with each folded value's id.
+   * @return the key id of each code.
+   */
+  private static int[] assignKeyIds(DictionaryColumn column, Map<String, Integer> keyIds) {
+    int[] keyOfCode = new int[column.distinctCount()];
+    for (int code = 0; code < keyOfCode.length; code++) {
+      String key = column.foldedKey(code);
+      Integer id = keyIds.putIfAbsent(key, keyIds.size());
+      keyOfCode[code] = (id == null) ? keyIds.size() - 1 : id;
+    }
+    return keyOfCode;
+  }
+}
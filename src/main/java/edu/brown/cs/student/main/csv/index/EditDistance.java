@@ -0,0 +1,74 @@
+package edu.brown.cs.student.main.csv.index;
+
+/**
+ * Measures the Levenshtein distance from one target string to many others, giving up on any that
+ * are further than a maximum. Only the diagonal band of the table that can stay within the maximum
+ * is filled, a row at a time, and the comparison stops once a whole row is past it, so checking a
+ * far string costs little. The two rows are reused between comparisons.
+ */
+final class EditDistance {
+  private final String target; // The string every distance is measured from.
+  private final int max; // The largest distance that is measured exactly.
+  private int[] previous; // The previous row of the table.
+  private int[] current; // The row of the table being filled.
+
+  /**
+   * The constructor stores the target and the maximum.
+   *
+   * @param target is the string to measure from.
+   * @param max is the largest distance to measure exactly.
+   */
+  EditDistance(String target, int max) {
+    this.target = target;
+    this.max = max;
+    this.previous = new int[target.length() + 1];
+    this.current = new int[target.length() + 1];
+  }
+
+  /**
+   * Measures the fewest single-character insertions, deletions and substitutions that turn a string
+   * into the target.
+   *
+   * @param other is the string to measure.
+   * @return the distance, or max + 1 if it is more than max.
+   */
+  int to(String other) {
+    int m = this.target.length();
+    int n = other.length();
+    int over = this.max + 1;
+    if (Math.abs(m - n) > this.max) {
+      return over;
+    }
+    for (int j = 0; j <= m; j++) {
+      this.previous[j] = j;
+    }
+    for (int i = 1; i <= n; i++) {
+      int from = Math.max(1, i - this.max);
+      int to = Math.min(m, i + this.max);
+      this.current[0] = i;
+      if (from > 1) {
+        this.current[from - 1] = over;
+      }
+      int smallest = (from == 1) ? i : over;
+      char c = other.charAt(i - 1);
+      for (int j = from; j <= to; j++) {
+        int cost = (this.target.charAt(j - 1) == c) ? 0 : 1;
+        int cell =
+            Math.min(
+                this.previous[j - 1] + cost, Math.min(this.previous[j], this.current[j - 1]) + 1);
+        this.current[j] = Math.min(cell, over);
+        smallest = Math.min(smallest, this.current[j]);
+      }
+      if (to < m) {
+        this.current[to + 1] = over;
+      }
+      if (smallest > this.max) {
+        return over;
+      }
+      int[] swap = this.previous;
+      this.previous = this.current;
+      this.current = swap;
+    }
+    return Math.min(this.previous[m], over);
+  }
+}
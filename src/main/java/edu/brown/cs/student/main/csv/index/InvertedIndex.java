@@ -0,0 +1,447 @@
+package edu.brown.cs.student.main.csv.index;
+
+import edu.brown.cs.student.main.csv.storage.ColumnarTable;
+import edu.brown.cs.student.main.csv.storage.DictionaryColumn;
+import edu.brown.cs.student.main.csv.storage.SnapshotReader;
+import edu.brown.cs.student.main.csv.storage.SnapshotWriter;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * An inverted index over every column of a ColumnarTable, mapping each case-folded value to the
+ * rows that hold it in any column. Each key's posting list is sorted, holds each row once, and is
+ * stored as variable-length gaps between row ids, so most postings take a single byte. Every
+ * SKIP_INTERVAL postings, a list has a skip entry holding the row before that posting and where the
+ * posting starts, so a page deep into a long list is decoded from the nearest entry, not the start.
+ */
+public class InvertedIndex {
+  private static final int SKIP_INTERVAL = 128; // The postings between a list's skip entries.
+  private final Map<String, Integer> keyIds; // Each folded value's position in offsets.
+  private final int[] offsets; // Where each key's postings start in postings, plus an end offset.
+  private final byte[] postings; // Every posting list, gap-encoded, grouped by key.
+  private final int[] skipStarts; // Where each key's skip entries start, plus an end offset.
+  private final int[] skipRows; // The row before each skip entry's posting, grouped by key.
+  private final int[] skipPositions; // Where each skip entry's posting starts in postings.
+
+  /**
+   * Constructor builds the index in two passes over the table: one to size each posting list and
+   * one to write it.
+   *
+   * @param table is the finished table to index.
+   */
+  public InvertedIndex(ColumnarTable table) {
+    // Map each column's codes to shared key ids, so equal folded values share one list.
+    this.keyIds = new HashMap<>();
+    int[][] keyOfCode = assignKeyIds(table, this.keyIds);
+
+    // First pass: the encoded size and posting count of each key's list. lastRow skips a row's
+    // repeated values.
+    int keys = this.keyIds.size();
+    int[] lastRow = new int[keys];
+    Arrays.fill(lastRow, -1);
+    int[] counts = new int[keys];
+    this.offsets = new int[keys + 1];
+    for (int row = 0; row < table.rowCount(); row++) {
+      for (int j = 0; j < table.width(); j++) {
+        int key = keyOfCode[j][table.column(j).code(row)];
+        if (lastRow[key] != row) {
+          this.offsets[key + 1] += gapSize(row - lastRow[key]);
+          counts[key]++;
+          lastRow[key] = row;
+        }
+      }
+    }
+    for (int key = 0; key < keys; key++) {
+      this.offsets[key + 1] += this.offsets[key];
+    }
+    this.skipStarts = skipStarts(counts);
+    this.skipRows = new int[this.skipStarts[keys]];
+    this.skipPositions = new int[this.skipStarts[keys]];
+
+    // Second pass: write each row's gap from the previous row in the same list.
+    this.postings = new byte[this.offsets[keys]];
+    int[] next = Arrays.copyOf(this.offsets, keys);
+    Arrays.fill(lastRow, -1);
+    Arrays.fill(counts, 0);
+    for (int row = 0; row < table.rowCount(); row++) {
+      for (int j = 0; j < table.width(); j++) {
+        int key = keyOfCode[j][table.column(j).code(row)];
+        if (lastRow[key] != row) {
+          next[key] = this.writePosting(key, next[key], counts[key]++, lastRow[key], row);
+          lastRow[key] = row;
+        }
+      }
+    }
+  }
+
+  /**
+   * Constructor restores an index written by writeTo. Key ids are assigned in the same order as
+   * when the index was built, so only the offsets, postings and skip entries need to be stored.
+   *
+   * @param table is the table the index was built over.
+   * @param offsets are the stored offsets.
+   * @param postings are the stored postings.
+   * @param skipStarts are the stored offsets of each key's skip entries.
+   * @param skipRows are the stored rows of the skip entries.
+   * @param skipPositions are the stored positions of the skip entries.
+   */
+  private InvertedIndex(
+      ColumnarTable table,
+      int[] offsets,
+      byte[] postings,
+      int[] skipStarts,
+      int[] skipRows,
+      int[] skipPositions) {
+    this.keyIds = new HashMap<>();
+    assignKeyIds(table, this.keyIds);
+    this.offsets = offsets;
+    this.postings = postings;
+    this.skipStarts = skipStarts;
+    this.skipRows = skipRows;
+    this.skipPositions = skipPositions;
+  }
+
+  /**
+   * Constructor builds an index over a table that extends the table of an existing index with more
+   * rows. Key ids are assigned over the whole table, as for a new index, and each old posting list
+   * and its skip entries are copied across whole, so only the new rows' gaps are encoded.
+   *
+   * @param base is the index over the table's first rows.
+   * @param table is the finished, extended table.
+   * @param fromRow is the first row base did not index.
+   */
+  private InvertedIndex(InvertedIndex base, ColumnarTable table, int fromRow) {
+    this.keyIds = new HashMap<>();
+    int[][] keyOfCode = assignKeyIds(table, this.keyIds);
+    int keys = this.keyIds.size();
+
+    // Find each old list, its length, and the last row in it and its posting count, under the
+    // key's new id.
+    int[] baseKeys = new int[keys];
+    Arrays.fill(baseKeys, -1);
+    int[] baseLength = new int[keys];
+    int[] lastRow = new int[keys];
+    Arrays.fill(lastRow, -1);
+    int[] counts = new int[keys];
+    for (Map.Entry<String, Integer> entry : base.keyIds.entrySet()) {
+      int key = this.keyIds.get(entry.getKey());
+      int baseKey = entry.getValue();
+      baseKeys[key] = baseKey;
+      baseLength[key] = base.offsets[baseKey + 1] - base.offsets[baseKey];
+      long tail = base.tail(baseKey);
+      lastRow[key] = (int) tail;
+      counts[key] = (int) (tail >>> 32);
+    }
+
+    // First pass: the size and count of each old list plus the new rows' gaps.
+    int[] baseLastRow = Arrays.copyOf(lastRow, keys);
+    int[] baseCounts = Arrays.copyOf(counts, keys);
+    this.offsets = new int[keys + 1];
+    for (int key = 0; key < keys; key++) {
+      this.offsets[key + 1] = baseLength[key];
+    }
+    for (int row = fromRow; row < table.rowCount(); row++) {
+      for (int j = 0; j < table.width(); j++) {
+        int key = keyOfCode[j][table.column(j).code(row)];
+        if (lastRow[key] != row) {
+          this.offsets[key + 1] += gapSize(row - lastRow[key]);
+          counts[key]++;
+          lastRow[key] = row;
+        }
+      }
+    }
+    for (int key = 0; key < keys; key++) {
+      this.offsets[key + 1] += this.offsets[key];
+    }
+    this.skipStarts = skipStarts(counts);
+    this.skipRows = new int[this.skipStarts[keys]];
+    this.skipPositions = new int[this.skipStarts[keys]];
+
+    // Second pass: copy each old list and its skip entries, moved to where the list now starts,
+    // then write the new rows' gaps after it.
+    this.postings = new byte[this.offsets[keys]];
+    int[] next = new int[keys];
+    for (int key = 0; key < keys; key++) {
+      next[key] = this.offsets[key] + baseLength[key];
+      int baseKey = baseKeys[key];
+      if (baseKey < 0) {
+        continue;
+      }
+      int baseStart = base.offsets[baseKey];
+      System.arraycopy(base.postings, baseStart, this.postings, this.offsets[key], baseLength[key]);
+      int skip = this.skipStarts[key];
+      for (int s = base.skipStarts[baseKey]; s < base.skipStarts[baseKey + 1]; s++, skip++) {
+        this.skipRows[skip] = base.skipRows[s];
+        this.skipPositions[skip] = base.skipPositions[s] - baseStart + this.offsets[key];
+      }
+    }
+    lastRow = baseLastRow;
+    counts = baseCounts;
+    for (int row = fromRow; row < table.rowCount(); row++) {
+      for (int j = 0; j < table.width(); j++) {
+        int key = keyOfCode[j][table.column(j).code(row)];
+        if (lastRow[key] != row) {
+          next[key] = this.writePosting(key, next[key], counts[key]++, lastRow[key], row);
+          lastRow[key] = row;
+        }
+      }
+    }
+  }
+
+  /**
+   * Builds an index over a table that extends the indexed table with more rows, leaving this index
+   * unchanged. The existing posting lists are copied rather than rebuilt.
+   *
+   * @param table is the finished, extended table.
+   * @param fromRow is the first row this index does not cover.
+   * @return the index over the whole extended table.
+   */
+  public InvertedIndex extend(ColumnarTable table, int fromRow) {
+    return new InvertedIndex(this, table, fromRow);
+  }
+
+  /**
+   * Reads an index written by writeTo.
+   *
+   * @param in is the snapshot to read from.
+   * @param table is the restored table the index was built over.
+   * @return the restored index.
+   */
+  public static InvertedIndex readFrom(SnapshotReader in, ColumnarTable table) {
+    int[] offsets = in.readInts(in.readInt());
+    byte[] postings = in.readBytes(offsets[offsets.length - 1]);
+    int[] skipStarts = in.readInts(offsets.length);
+    int skips = skipStarts[skipStarts.length - 1];
+    return new InvertedIndex(
+        table, offsets, postings, skipStarts, in.readInts(skips), in.readInts(skips));
+  }
+
+  /**
+   * Writes the index to a snapshot.
+   *
+   * @param out is the snapshot to write to.
+   * @throws IOException if the snapshot cannot be written.
+   */
+  public void writeTo(SnapshotWriter out) throws IOException {
+    out.writeInt(this.offsets.length);
+    out.writeInts(this.offsets, this.offsets.length);
+    out.writeBytes(this.postings, this.postings.length);
+    out.writeInts(this.skipStarts, this.skipStarts.length);
+    out.writeInts(this.skipRows, this.skipRows.length);
+    out.writeInts(this.skipPositions, this.skipPositions.length);
+  }
+
+  /**
+   * Finds every row holding the given value in any column, ignoring case.
+   *
+   * @param value is the trimmed value to look up.
+   * @return the matching rows in ascending order, which may be empty.
+   */
+  public int[] rowsMatching(String value) {
+    return this.rowsMatching(value, 0, Integer.MAX_VALUE);
+  }
+
+  /**
+   * Finds the first rows at or after a given row holding the given value in any column, ignoring
+   * case. Decoding starts from the last skip entry before the row and stops once the limit is
+   * reached, so each page costs about the same however deep into the list it starts.
+   *
+   * @param value is the trimmed value to look up.
+   * @param fromRow is the first row that may be returned.
+   * @param limit is the most rows to return.
+   * @return the matching rows in ascending order, which may be empty.
+   */
+  public int[] rowsMatching(String value, int fromRow, int limit) {
+    Integer key = this.keyIds.get(CaseFolding.fold(value));
+    if (key == null) {
+      return new int[0];
+    }
+    int start = this.offsets[key];
+    int row = -1;
+    int skip = this.skipBefore(key, fromRow);
+    if (skip >= 0) {
+      start = this.skipPositions[skip];
+      row = this.skipRows[skip];
+    }
+    int end = this.offsets[key + 1];
+    // Every gap takes at least one byte, so the list has at most as many rows as bytes.
+    int[] rows = new int[Math.min(end - start, limit)];
+    int count = 0;
+    int gap = 0;
+    int shift = 0;
+    for (int i = start; i < end && count < rows.length; i++) {
+      byte b = this.postings[i];
+      gap |= (b & 0x7f) << shift;
+      shift += 7;
+      if (b >= 0) {
+        row += gap;
+        if (row >= fromRow) {
+          rows[count++] = row;
+        }
+        gap = 0;
+        shift = 0;
+      }
+    }
+    return Arrays.copyOf(rows, count);
+  }
+
+  /**
+   * Estimates the heap used by the index.
+   *
+   * @return the estimated size in bytes.
+   */
+  public long estimatedBytes() {
+    return 48
+        + 4L * this.offsets.length
+        + this.postings.length
+        + 4L * (this.skipStarts.length + this.skipRows.length + this.skipPositions.length)
+        + 64L * this.keyIds.size();
+  }
+
+  /**
+   * Finds the last skip entry of a key whose row comes before a given row, so decoding can start
+   * there without passing over any row at or after it.
+   *
+   * @param key is the key id.
+   * @param fromRow is the first row that may be returned.
+   * @return the skip entry, or -1 if the list must be decoded from its start.
+   */
+  private int skipBefore(int key, int fromRow) {
+    int low = this.skipStarts[key];
+    int high = this.skipStarts[key + 1] - 1;
+    int found = -1;
+    while (low <= high) {
+      int middle = (low + high) >>> 1;
+      if (this.skipRows[middle] < fromRow) {
+        found = middle;
+        low = middle + 1;
+      } else {
+        high = middle - 1;
+      }
+    }
+    return found;
+  }
+
+  /**
+   * Decodes the end of a key's posting list, from its last skip entry, to find the last row in it
+   * and how many postings it has.
+   *
+   * @param key is the key id.
+   * @return the posting count in the high 32 bits and the last row in the low 32 bits.
+   */
+  private long tail(int key) {
+    int start = this.offsets[key];
+    int row = -1;
+    int count = 0;
+    int skips = this.skipStarts[key + 1] - this.skipStarts[key];
+    if (skips > 0) {
+      start = this.skipPositions[this.skipStarts[key + 1] - 1];
+      row = this.skipRows[this.skipStarts[key + 1] - 1];
+      count = skips * SKIP_INTERVAL;
+    }
+    int gap = 0;
+    int shift = 0;
+    for (int i = start; i < this.offsets[key + 1]; i++) {
+      byte b = this.postings[i];
+      gap |= (b & 0x7f) << shift;
+      if (b >= 0) {
+        row += gap;
+        count++;
+        gap = 0;
+        shift = 0;
+      } else {
+        shift += 7;
+      }
+    }
+    return ((long) count << 32) | row;
+  }
+
+  /**
+   * Finds where each key's skip entries start, given how many postings each key's list has. A list
+   * has an entry for each posting past the first whose position is a multiple of SKIP_INTERVAL.
+   *
+   * @param counts are the posting counts, by key id.
+   * @return the start of each key's entries, plus an end offset.
+   */
+  private static int[] skipStarts(int[] counts) {
+    int[] starts = new int[counts.length + 1];
+    for (int key = 0; key < counts.length; key++) {
+      starts[key + 1] = starts[key] + (counts[key] - 1) / SKIP_INTERVAL;
+    }
+    return starts;
+  }
+
+  /**
+   * Gives each distinct folded value in the table an id, in order of first appearance by column and
+   * then by code.
+   *
+   * @param table is the finished table.
+   * @param keyIds is the empty map to fill with each folded value's id.
+   * @return the key id of each code, by column.
+   */
+  private static int[][] assignKeyIds(ColumnarTable table, Map<String, Integer> keyIds) {
+    int[][] keyOfCode = new int[table.width()][];
+    for (int j = 0; j < table.width(); j++) {
+      DictionaryColumn column = table.column(j);
+      keyOfCode[j] = new int[column.distinctCount()];
+      for (int code = 0; code < keyOfCode[j].length; code++) {
+        String key = column.foldedKey(code);
+        Integer id = keyIds.putIfAbsent(key, keyIds.size());
+        keyOfCode[j][code] = (id == null) ? keyIds.size() - 1 : id;
+      }
+    }
+    return keyOfCode;
+  }
+
+  /**
+   * Returns the number of bytes a gap takes, seven bits per byte.
+   *
+   * @param gap is the positive gap to encode.
+   * @return the encoded size.
+   */
+  private static int gapSize(int gap) {
+    int size = 1;
+    while ((gap >>>= 7) != 0) {
+      size++;
+    }
+    return size;
+  }
+
+  /**
+   * Writes a posting as its gap from the previous row in the list, first recording a skip entry if
+   * the posting's position in the list calls for one.
+   *
+   * @param key is the key id.
+   * @param position is where to write the posting.
+   * @param index is the posting's position in the list.
+   * @param previousRow is the previous row in the list, or -1 if there is none.
+   * @param row is the row to write.
+   * @return the position after the posting.
+   */
+  private int writePosting(int key, int position, int index, int previousRow, int row) {
+    if (index > 0 && index % SKIP_INTERVAL == 0) {
+      int skip = this.skipStarts[key] + index / SKIP_INTERVAL - 1;
+      this.skipRows[skip] = previousRow;
+      this.skipPositions[skip] = position;
+    }
+    return this.writeGap(position, row - previousRow);
+  }
+
+  /**
+   * Writes a gap seven bits at a time, low bits first, setting the high bit on all but the last.
+   *
+   * @param position is where to write the gap.
+   * @param gap is the positive gap to encode.
+   * @return the position after the gap.
+   */
+  private int writeGap(int position, int gap) {
+    while ((gap & ~0x7f) != 0) {
+      this.postings[position++] = (byte) ((gap & 0x7f) | 0x80);
+      gap >>>= 7;
+    }
+    this.postings[position++] = (byte) gap;
+    return position;
+  }
+}
@@ -0,0 +1,240 @@
+package edu.brown.cs.student.main.csv.index;
+
+import edu.brown.cs.student.main.csv.storage.ColumnType;
+import edu.brown.cs.student.main.csv.storage.DictionaryColumn;
+import java.util.Arrays;
+
+/**
+ * A sorted index over one numeric DictionaryColumn, for range searches. Each distinct value is
+ * parsed once into a double, stored by its dictionary code, and the column's rows are grouped by
+ * number in ascending order, with each group's rows in row order. A range is found with two binary
+ * searches over the sorted distinct numbers, so a search never parses or compares a row's value.
+ * Empty cells have no number and are in no range.
+ */
+public class NumericIndex {
+  private static final int[] NO_ROWS = new int[0];
+  private final DictionaryColumn column; // The column the index was built over.
+  private final double[] numberOfCode; // The number each code stands for, or NaN if empty.
+  private final int[] groupOfCode; // The position of each code's number in numbers, or -1.
+  private final double[] numbers; // The distinct numbers, in ascending order.
+  private final int[] offsets; // Where each number's rows start in rows, plus a final end offset.
+  private final int[] rows; // The rows with a number, grouped by number in ascending order.
+  private final boolean integral; // Whether every number is a whole number.
+
+  /**
+   * Constructor parses the column's distinct values, sorts them, and places each row with a
+   * counting sort by its number.
+   *
+   * @param column is the finished column to index, whose type is INTEGER or DECIMAL.
+   */
+  public NumericIndex(DictionaryColumn column) {
+    this.column = column;
+    this.numberOfCode = new double[column.distinctCount()];
+    double[] sorted = new double[column.distinctCount()];
+    int count = 0;
+    for (int code = 0; code < this.numberOfCode.length; code++) {
+      String value = column.value(code);
+      // Adding zero turns -0.0 into 0.0, so both fall in the same group.
+      this.numberOfCode[code] = value.isBlank() ? Double.NaN : ColumnType.parse(value) + 0.0;
+      if (!Double.isNaN(this.numberOfCode[code])) {
+        sorted[count++] = this.numberOfCode[code];
+      }
+    }
+
+    // Values written differently, such as "1,000" and "1000", share one group.
+    Arrays.sort(sorted, 0, count);
+    int distinct = 0;
+    for (int i = 0; i < count; i++) {
+      if (distinct == 0 || sorted[i] != sorted[distinct - 1]) {
+        sorted[distinct++] = sorted[i];
+      }
+    }
+    this.numbers = Arrays.copyOf(sorted, distinct);
+    this.integral = Arrays.stream(this.numbers).allMatch(number -> number == Math.rint(number));
+    this.groupOfCode = new int[this.numberOfCode.length];
+    for (int code = 0; code < this.groupOfCode.length; code++) {
+      double number = this.numberOfCode[code];
+      this.groupOfCode[code] =
+          Double.isNaN(number) ? -1 : Arrays.binarySearch(this.numbers, number);
+    }
+
+    // Count the rows of each group, then place each row after the rows counted before it.
+    this.offsets = new int[distinct + 1];
+    for (int row = 0; row < column.size(); row++) {
+      int group = this.groupOfCode[column.code(row)];
+      if (group >= 0) {
+        this.offsets[group + 1]++;
+      }
+    }
+    for (int group = 0; group < distinct; group++) {
+      this.offsets[group + 1] += this.offsets[group];
+    }
+    int[] next = Arrays.copyOf(this.offsets, distinct);
+    this.rows = new int[this.offsets[distinct]];
+    for (int row = 0; row < column.size(); row++) {
+      int group = this.groupOfCode[column.code(row)];
+      if (group >= 0) {
+        this.rows[next[group]++] = row;
+      }
+    }
+  }
+
+  /**
+   * Finds the first rows at or after a given row whose number is between min and max, inclusive.
+   * The groups in the range are found by binary search. A range of one number is already in row
+   * order. A wider range either has its rows sorted, or, when it holds so many rows that sorting
+   * them would cost more than reading the column, is found by checking each row's code from fromRow
+   * until enough rows are found.
+   *
+   * @param min is the smallest number to match, or negative infinity for no lower bound.
+   * @param max is the largest number to match, or positive infinity for no upper bound.
+   * @param fromRow is the first row that may be returned.
+   * @param limit is the most rows to return.
+   * @return the matching rows in ascending order, which may be empty.
+   */
+  public int[] rowsBetween(double min, double max, int fromRow, int limit) {
+    int first = firstAtLeast(this.numbers, min);
+    int last = firstAbove(this.numbers, max);
+    if (first >= last) {
+      return NO_ROWS;
+    }
+    int start = this.offsets[first];
+    int end = this.offsets[last];
+    int matches = end - start;
+    int remaining = this.column.size() - Math.max(fromRow, 0);
+    if (last - first == 1) {
+      return page(this.rows, start, end, fromRow, limit);
+    }
+    if ((long) matches * (32 - Integer.numberOfLeadingZeros(matches)) <= remaining) {
+      int[] sorted = Arrays.copyOfRange(this.rows, start, end);
+      Arrays.sort(sorted);
+      return page(sorted, 0, sorted.length, fromRow, limit);
+    }
+
+    // Too many rows match to sort them, so read the codes in row order instead.
+    boolean[] inRange = new boolean[this.groupOfCode.length];
+    for (int code = 0; code < inRange.length; code++) {
+      inRange[code] = this.groupOfCode[code] >= first && this.groupOfCode[code] < last;
+    }
+    int count = 0;
+    int[] found = new int[Math.min(limit, Math.min(matches, 64))];
+    for (int row = Math.max(fromRow, 0); row < this.column.size() && count < limit; row++) {
+      if (inRange[this.column.code(row)]) {
+        if (count == found.length) {
+          found = Arrays.copyOf(found, (int) Math.min(limit, 2L * count));
+        }
+        found[count++] = row;
+      }
+    }
+    return Arrays.copyOf(found, count);
+  }
+
+  /**
+   * Finds every row whose number is between min and max, inclusive, as a bitmap. The rows of the
+   * groups in the range are set as bits in the order they are stored, so they need not be sorted.
+   *
+   * @param min is the smallest number to match, or negative infinity for no lower bound.
+   * @param max is the largest number to match, or positive infinity for no upper bound.
+   * @return the matching rows.
+   */
+  public RowBitmap bitmapBetween(double min, double max) {
+    int first = firstAtLeast(this.numbers, min);
+    int last = firstAbove(this.numbers, max);
+    if (first >= last) {
+      return RowBitmap.of(NO_ROWS);
+    }
+    if (last - first == 1) {
+      return RowBitmap.of(Arrays.copyOfRange(this.rows, this.offsets[first], this.offsets[last]));
+    }
+    long[] words = new long[(this.column.size() + 63) >>> 6];
+    for (int i = this.offsets[first]; i < this.offsets[last]; i++) {
+      words[this.rows[i] >>> 6] |= 1L << this.rows[i];
+    }
+    return RowBitmap.fromWords(words);
+  }
+
+  /**
+   * Returns the number a code of the column stands for, so a column can be read as numbers without
+   * parsing it.
+   *
+   * @param code is the dictionary code.
+   * @return the number, or NaN if the code's value is empty.
+   */
+  public double number(int code) {
+    return this.numberOfCode[code];
+  }
+
+  /** Returns whether every number in the column is a whole number. */
+  public boolean integral() {
+    return this.integral;
+  }
+
+  /**
+   * Estimates the heap used by the index, not counting the column it was built over.
+   *
+   * @return the estimated size in bytes.
+   */
+  public long estimatedBytes() {
+    return 48
+        + 8L * (this.numberOfCode.length + this.numbers.length)
+        + 4L * (this.groupOfCode.length + this.offsets.length + this.rows.length);
+  }
+
+  /**
+   * A helper method that cuts the rows at or after fromRow out of a run of rows in ascending order.
+   *
+   * @param rows holds the run.
+   * @param start is where the run starts.
+   * @param end is where the run ends.
+   * @param fromRow is the first row that may be returned.
+   * @param limit is the most rows to return.
+   * @return a copy of at most limit rows of the run.
+   */
+  private static int[] page(int[] rows, int start, int end, int fromRow, int limit) {
+    int from = Arrays.binarySearch(rows, start, end, fromRow);
+    from = (from < 0) ? -from - 1 : from;
+    return Arrays.copyOfRange(rows, from, (int) Math.min(end, (long) from + limit));
+  }
+
+  /**
+   * A helper method that finds the first number at least a bound.
+   *
+   * @param numbers are the distinct numbers, in ascending order.
+   * @param bound is the bound.
+   * @return the position of the first number at least bound, or numbers.length if there is none.
+   */
+  private static int firstAtLeast(double[] numbers, double bound) {
+    int low = 0;
+    int high = numbers.length;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (numbers[mid] < bound) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * A helper method that finds the first number above a bound.
+   *
+   * @param numbers are the distinct numbers, in ascending order.
+   * @param bound is the bound.
+   * @return the position of the first number above bound, or numbers.length if there is none.
+   */
+  private static int firstAbove(double[] numbers, double bound) {
+    int low = 0;
+    int high = numbers.length;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (numbers[mid] <= bound) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+}
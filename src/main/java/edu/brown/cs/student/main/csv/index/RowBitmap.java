@@ -0,0 +1,509 @@
+package edu.brown.cs.student.main.csv.index;
+
+import java.util.Arrays;
+
+/**
+ * An immutable compressed set of row ids, laid out like a Roaring bitmap. Rows are split by their
+ * high 16 bits into chunks of 65536, and each chunk that holds rows has one container: a sorted
+ * array of the rows' low 16 bits while it holds at most 4096 rows, and a 65536-bit bitmap
+ * otherwise. A sparse set therefore costs two bytes a row and a dense one an eighth of a byte, and
+ * set operations work chunk by chunk with the cheapest method for each pair of containers.
+ */
+public final class RowBitmap {
+  private static final int ARRAY_MAX = 4096; // The most rows an array container holds.
+  private static final int WORDS = 1 << 10; // The longs in a bitmap container.
+  private static final RowBitmap EMPTY = new RowBitmap(new char[0], new Container[0], 0);
+  private final char[] keys; // The high 16 bits of each chunk with rows, ascending.
+  private final Container[] containers; // The rows of each chunk.
+  private final int count; // The number of chunks with rows.
+
+  /**
+   * The constructor stores the chunks, which the arrays may have room for more of.
+   *
+   * @param keys are the high 16 bits of each chunk, ascending.
+   * @param containers are the rows of each chunk, none of them empty.
+   * @param count is the number of chunks.
+   */
+  private RowBitmap(char[] keys, Container[] containers, int count) {
+    this.keys = keys;
+    this.containers = containers;
+    this.count = count;
+  }
+
+  /**
+   * Builds a bitmap of the given rows.
+   *
+   * @param rows are distinct non-negative row ids in ascending order.
+   * @return the bitmap of those rows.
+   */
+  public static RowBitmap of(int[] rows) {
+    char[] keys = new char[(rows.length == 0) ? 0 : (rows[rows.length - 1] >>> 16) + 1];
+    Container[] containers = new Container[keys.length];
+    int count = 0;
+    for (int start = 0; start < rows.length; ) {
+      int high = rows[start] >>> 16;
+      int end = start;
+      while (end < rows.length && rows[end] >>> 16 == high) {
+        end++;
+      }
+      char[] values = new char[end - start];
+      for (int i = start; i < end; i++) {
+        values[i - start] = (char) rows[i];
+      }
+      keys[count] = (char) high;
+      containers[count++] = new ArrayContainer(values, values.length).normalize();
+      start = end;
+    }
+    return new RowBitmap(keys, containers, count);
+  }
+
+  /**
+   * Builds a bitmap from a plain bit set, such as one filled in from rows found out of order.
+   *
+   * @param words holds bit (row % 64) of word (row / 64) set for each row in the bitmap.
+   * @return the bitmap of those rows.
+   */
+  public static RowBitmap fromWords(long[] words) {
+    int chunks = (words.length + WORDS - 1) / WORDS;
+    char[] keys = new char[chunks];
+    Container[] containers = new Container[chunks];
+    int count = 0;
+    for (int high = 0; high < chunks; high++) {
+      long[] chunk = Arrays.copyOfRange(words, high * WORDS, (high + 1) * WORDS);
+      int cardinality = 0;
+      for (long word : chunk) {
+        cardinality += Long.bitCount(word);
+      }
+      if (cardinality > 0) {
+        keys[count] = (char) high;
+        containers[count++] = new BitmapContainer(chunk, cardinality).normalize();
+      }
+    }
+    return new RowBitmap(keys, containers, count);
+  }
+
+  /**
+   * Builds a bitmap of every row from 0 up to, but not including, an end.
+   *
+   * @param end is the number of rows.
+   * @return the bitmap of those rows.
+   */
+  public static RowBitmap range(int end) {
+    if (end <= 0) {
+      return EMPTY;
+    }
+    int chunks = ((end - 1) >>> 16) + 1;
+    char[] keys = new char[chunks];
+    Container[] containers = new Container[chunks];
+    for (int high = 0; high < chunks; high++) {
+      int rows = Math.min(1 << 16, end - (high << 16));
+      long[] words = new long[WORDS];
+      Arrays.fill(words, 0, rows >>> 6, -1L);
+      if ((rows & 63) != 0) {
+        words[rows >>> 6] = (1L << (rows & 63)) - 1;
+      }
+      keys[high] = (char) high;
+      containers[high] = new BitmapContainer(words, rows).normalize();
+    }
+    return new RowBitmap(keys, containers, chunks);
+  }
+
+  /**
+   * Returns the rows in both this bitmap and another.
+   *
+   * @param other is the other bitmap.
+   * @return the intersection.
+   */
+  public RowBitmap and(RowBitmap other) {
+    int size = Math.min(this.count, other.count);
+    char[] keys = new char[size];
+    Container[] containers = new Container[size];
+    int count = 0;
+    for (int i = 0, j = 0; i < this.count && j < other.count; ) {
+      if (this.keys[i] < other.keys[j]) {
+        i++;
+      } else if (this.keys[i] > other.keys[j]) {
+        j++;
+      } else {
+        Container both = this.containers[i].and(other.containers[j]);
+        if (both.cardinality() > 0) {
+          keys[count] = this.keys[i];
+          containers[count++] = both;
+        }
+        i++;
+        j++;
+      }
+    }
+    return new RowBitmap(keys, containers, count);
+  }
+
+  /**
+   * Returns the rows in either this bitmap or another.
+   *
+   * @param other is the other bitmap.
+   * @return the union.
+   */
+  public RowBitmap or(RowBitmap other) {
+    int size = this.count + other.count;
+    char[] keys = new char[size];
+    Container[] containers = new Container[size];
+    int count = 0;
+    int i = 0;
+    int j = 0;
+    while (i < this.count || j < other.count) {
+      if (j == other.count || (i < this.count && this.keys[i] < other.keys[j])) {
+        keys[count] = this.keys[i];
+        containers[count++] = this.containers[i++];
+      } else if (i == this.count || this.keys[i] > other.keys[j]) {
+        keys[count] = other.keys[j];
+        containers[count++] = other.containers[j++];
+      } else {
+        keys[count] = this.keys[i];
+        containers[count++] = this.containers[i++].or(other.containers[j++]);
+      }
+    }
+    return new RowBitmap(keys, containers, count);
+  }
+
+  /**
+   * Returns the rows in this bitmap that are not in another.
+   *
+   * @param other is the other bitmap.
+   * @return the difference.
+   */
+  public RowBitmap andNot(RowBitmap other) {
+    char[] keys = new char[this.count];
+    Container[] containers = new Container[this.count];
+    int count = 0;
+    for (int i = 0, j = 0; i < this.count; i++) {
+      while (j < other.count && other.keys[j] < this.keys[i]) {
+        j++;
+      }
+      Container rest =
+          (j < other.count && other.keys[j] == this.keys[i])
+              ? this.containers[i].andNot(other.containers[j])
+              : this.containers[i];
+      if (rest.cardinality() > 0) {
+        keys[count] = this.keys[i];
+        containers[count++] = rest;
+      }
+    }
+    return new RowBitmap(keys, containers, count);
+  }
+
+  /**
+   * Returns the number of rows in the bitmap.
+   *
+   * @return the cardinality.
+   */
+  public long cardinality() {
+    long rows = 0;
+    for (int i = 0; i < this.count; i++) {
+      rows += this.containers[i].cardinality();
+    }
+    return rows;
+  }
+
+  /**
+   * Lists the first rows of the bitmap at or after a given row. Chunks before the row's are skipped
+   * without being read.
+   *
+   * @param fromRow is the first row that may be returned.
+   * @param limit is the most rows to return.
+   * @return the rows in ascending order.
+   */
+  public int[] rows(int fromRow, int limit) {
+    int from = Math.max(fromRow, 0);
+    int[] rows = new int[(int) Math.min(limit, Math.min(this.cardinality(), 1 << 16))];
+    int found = 0;
+    for (int i = 0; i < this.count && found < limit; i++) {
+      int base = this.keys[i] << 16;
+      if (base + 0xFFFF < from) {
+        continue;
+      }
+      Container container = this.containers[i];
+      for (int low = container.next(Math.max(from - base, 0));
+          low >= 0 && found < limit;
+          low = container.next(low + 1)) {
+        if (found == rows.length) {
+          rows = Arrays.copyOf(rows, (int) Math.min(limit, 2L * found));
+        }
+        rows[found++] = base | low;
+      }
+    }
+    return Arrays.copyOf(rows, found);
+  }
+
+  /**
+   * Estimates the heap used by the bitmap.
+   *
+   * @return the estimated size in bytes.
+   */
+  public long estimatedBytes() {
+    long bytes = 32 + 6L * this.keys.length;
+    for (int i = 0; i < this.count; i++) {
+      bytes += this.containers[i].estimatedBytes();
+    }
+    return bytes;
+  }
+
+  /** The rows of one chunk, as the low 16 bits of each row. */
+  private abstract static class Container {
+    /** Returns the number of rows in the container. */
+    abstract int cardinality();
+
+    /**
+     * Checks whether the container holds a row.
+     *
+     * @param low is the low 16 bits of the row.
+     * @return whether the row is in the container.
+     */
+    abstract boolean contains(int low);
+
+    /**
+     * Finds the first row in the container at or after a given one.
+     *
+     * @param low is the low 16 bits of the row to start from.
+     * @return the low 16 bits of the first row at or after low, or -1 if there is none.
+     */
+    abstract int next(int low);
+
+    /** Returns the rows in both containers. */
+    abstract Container and(Container other);
+
+    /** Returns the rows in either container. */
+    abstract Container or(Container other);
+
+    /** Returns the rows in this container that are not in the other. */
+    abstract Container andNot(Container other);
+
+    /** Estimates the heap used by the container. */
+    abstract long estimatedBytes();
+
+    /** Returns the container in its cheaper form for its cardinality. */
+    abstract Container normalize();
+  }
+
+  /** A container of at most ARRAY_MAX rows, as their sorted low 16 bits. */
+  private static final class ArrayContainer extends Container {
+    private final char[] values; // The rows' low 16 bits, ascending.
+    private final int size; // The number of values in use.
+
+    /**
+     * Constructor stores the values.
+     *
+     * @param values holds the rows' low 16 bits, ascending.
+     * @param size is the number of values in use.
+     */
+    ArrayContainer(char[] values, int size) {
+      this.values = values;
+      this.size = size;
+    }
+
+    @Override
+    int cardinality() {
+      return this.size;
+    }
+
+    @Override
+    boolean contains(int low) {
+      return Arrays.binarySearch(this.values, 0, this.size, (char) low) >= 0;
+    }
+
+    @Override
+    int next(int low) {
+      if (low > 0xFFFF) {
+        return -1;
+      }
+      int i = Arrays.binarySearch(this.values, 0, this.size, (char) low);
+      i = (i < 0) ? -i - 1 : i;
+      return (i < this.size) ? this.values[i] : -1;
+    }
+
+    @Override
+    Container and(Container other) {
+      if (other instanceof ArrayContainer array && array.size < this.size) {
+        return array.and(this);
+      }
+      return this.filter(other, true);
+    }
+
+    @Override
+    Container or(Container other) {
+      if (other instanceof BitmapContainer) {
+        return other.or(this);
+      }
+      ArrayContainer array = (ArrayContainer) other;
+      char[] merged = new char[this.size + array.size];
+      int count = 0;
+      int i = 0;
+      int j = 0;
+      while (i < this.size || j < array.size) {
+        char next;
+        if (j == array.size || (i < this.size && this.values[i] < array.values[j])) {
+          next = this.values[i++];
+        } else if (i == this.size || this.values[i] > array.values[j]) {
+          next = array.values[j++];
+        } else {
+          next = this.values[i++];
+          j++;
+        }
+        merged[count++] = next;
+      }
+      return new ArrayContainer(merged, count).normalize();
+    }
+
+    @Override
+    Container andNot(Container other) {
+      return this.filter(other, false);
+    }
+
+    @Override
+    long estimatedBytes() {
+      return 32 + 2L * this.values.length;
+    }
+
+    @Override
+    Container normalize() {
+      if (this.size <= ARRAY_MAX) {
+        return this;
+      }
+      long[] words = new long[WORDS];
+      for (int i = 0; i < this.size; i++) {
+        words[this.values[i] >>> 6] |= 1L << this.values[i];
+      }
+      return new BitmapContainer(words, this.size);
+    }
+
+    /**
+     * A helper method that keeps the values another container does, or does not, hold.
+     *
+     * @param other is the other container.
+     * @param keep is whether to keep the values other holds, rather than those it doesn't.
+     * @return the kept values.
+     */
+    private Container filter(Container other, boolean keep) {
+      char[] kept = new char[this.size];
+      int count = 0;
+      for (int i = 0; i < this.size; i++) {
+        if (other.contains(this.values[i]) == keep) {
+          kept[count++] = this.values[i];
+        }
+      }
+      return new ArrayContainer(kept, count);
+    }
+  }
+
+  /** A container of more than ARRAY_MAX rows, as one bit per row of the chunk. */
+  private static final class BitmapContainer extends Container {
+    private final long[] words; // Bit low of the container is set if row low is in it.
+    private final int cardinality; // The number of bits set.
+
+    /**
+     * Constructor stores the bits.
+     *
+     * @param words are the WORDS longs of bits.
+     * @param cardinality is the number of bits set.
+     */
+    BitmapContainer(long[] words, int cardinality) {
+      this.words = words;
+      this.cardinality = cardinality;
+    }
+
+    @Override
+    int cardinality() {
+      return this.cardinality;
+    }
+
+    @Override
+    boolean contains(int low) {
+      return (this.words[low >>> 6] & (1L << low)) != 0;
+    }
+
+    @Override
+    int next(int low) {
+      int word = low >>> 6;
+      if (word >= WORDS) {
+        return -1;
+      }
+      long bits = this.words[word] & (-1L << low);
+      while (bits == 0) {
+        if (++word == WORDS) {
+          return -1;
+        }
+        bits = this.words[word];
+      }
+      return (word << 6) + Long.numberOfTrailingZeros(bits);
+    }
+
+    @Override
+    Container and(Container other) {
+      if (other instanceof ArrayContainer) {
+        return other.and(this);
+      }
+      long[] words = this.words.clone();
+      int cardinality = 0;
+      for (int i = 0; i < WORDS; i++) {
+        words[i] &= ((BitmapContainer) other).words[i];
+        cardinality += Long.bitCount(words[i]);
+      }
+      return new BitmapContainer(words, cardinality).normalize();
+    }
+
+    @Override
+    Container or(Container other) {
+      long[] words = this.words.clone();
+      if (other instanceof ArrayContainer array) {
+        for (int i = 0; i < array.size; i++) {
+          words[array.values[i] >>> 6] |= 1L << array.values[i];
+        }
+      } else {
+        for (int i = 0; i < WORDS; i++) {
+          words[i] |= ((BitmapContainer) other).words[i];
+        }
+      }
+      int cardinality = 0;
+      for (long word : words) {
+        cardinality += Long.bitCount(word);
+      }
+      return new BitmapContainer(words, cardinality);
+    }
+
+    @Override
+    Container andNot(Container other) {
+      long[] words = this.words.clone();
+      if (other instanceof ArrayContainer array) {
+        for (int i = 0; i < array.size; i++) {
+          words[array.values[i] >>> 6] &= ~(1L << array.values[i]);
+        }
+      } else {
+        for (int i = 0; i < WORDS; i++) {
+          words[i] &= ~((BitmapContainer) other).words[i];
+        }
+      }
+      int cardinality = 0;
+      for (long word : words) {
+        cardinality += Long.bitCount(word);
+      }
+      return new BitmapContainer(words, cardinality).normalize();
+    }
+
+    @Override
+    long estimatedBytes() {
+      return 32 + 8L * WORDS;
+    }
+
+    @Override
+    Container normalize() {
+      if (this.cardinality > ARRAY_MAX) {
+        return this;
+      }
+      char[] values = new char[this.cardinality];
+      int count = 0;
+      for (int low = this.next(0); low >= 0; low = this.next(low + 1)) {
+        values[count++] = (char) low;
+      }
+      return new ArrayContainer(values, count);
+    }
+  }
+}
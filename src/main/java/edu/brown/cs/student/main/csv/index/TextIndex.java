@@ -0,0 +1,712 @@
+package edu.brown.cs.student.main.csv.index;
+
+import edu.brown.cs.student.main.csv.storage.DictionaryColumn;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.PriorityQueue;
+
+/**
+ * An index over the distinct values of one DictionaryColumn, for prefix and substring searches that
+ * ignore case. It is built on the column's ColumnIndex and works with its folded keys rather than
+ * rows. The keys are kept in sorted order, so the keys starting with a prefix are one run found by
+ * binary search. Each key is also listed under every trigram (run of three characters) it contains,
+ * so the keys containing a substring of three or more characters are found by intersecting the
+ * lists of the substring's trigrams and checking only the keys left. A shorter substring is looked
+ * for among the distinct trigrams first, so one that appears nowhere costs no pass over the keys.
+ * The same lists narrow a fuzzy search to the keys sharing enough of a value's trigrams to be
+ * within its edit distance, and only those are measured. The rows of the matching keys are then
+ * read from the ColumnIndex. For suggestions, a segment tree over the sorted keys holds the key
+ * with the most rows in each range, so the most common keys with a prefix are found without reading
+ * its whole run.
+ */
+public class TextIndex {
+  /** The largest edit distance a fuzzy search may allow. */
+  public static final int MAX_DISTANCE = 3;
+
+  private static final int[] NO_ROWS = new int[0];
+  private final DictionaryColumn column; // The column the index was built over.
+  private final ColumnIndex index; // The column's ColumnIndex, which holds each key's rows.
+  private final String[] keys; // The folded value of each key id.
+  private final int[] keyOfCode; // The key id of each dictionary code.
+  private final int[] sorted; // The key ids in ascending order of their keys.
+  private final GramTable gramIds; // Each trigram's position in gramOffsets.
+  private final int[] gramOffsets; // Where each trigram's keys start in gramKeys, plus an end.
+  private final int[] gramKeys; // The ids of the keys holding each trigram, ascending by trigram.
+  private final int[] shortKeys; // The ids of the keys too short to hold a trigram.
+  private final int[] codeOfKey; // The first dictionary code of each key id, to show it by.
+  private final int[] busiest; // A segment tree of the position in sorted with the most rows.
+
+  /**
+   * Constructor sorts the column's keys and lists each under its trigrams, with a counting sort of
+   * the (trigram, key) pairs by trigram.
+   *
+   * @param column is the finished column to index.
+   * @param index is the column's ColumnIndex.
+   */
+  public TextIndex(DictionaryColumn column, ColumnIndex index) {
+    this.column = column;
+    this.index = index;
+    this.keys = new String[index.keyCount()];
+    this.keyOfCode = new int[column.distinctCount()];
+    for (int code = 0; code < this.keyOfCode.length; code++) {
+      this.keyOfCode[code] = index.keyId(column.foldedKey(code));
+      this.keys[this.keyOfCode[code]] = column.foldedKey(code);
+    }
+
+    // The keys are distinct, so sorting them and looking up each one's id sorts the ids.
+    String[] inOrder = this.keys.clone();
+    Arrays.sort(inOrder);
+    this.sorted = new int[inOrder.length];
+    for (int i = 0; i < inOrder.length; i++) {
+      this.sorted[i] = index.keyId(inOrder[i]);
+    }
+
+    // Count each trigram once per key, then place each key after the keys counted before it.
+    this.gramIds = new GramTable();
+    int[] counts = new int[16];
+    int[] lastKey = new int[16];
+    int shortKeys = 0;
+    for (int key = 0; key < this.keys.length; key++) {
+      String text = this.keys[key];
+      shortKeys += (text.length() < 3) ? 1 : 0;
+      for (int i = 0; i + 3 <= text.length(); i++) {
+        int gram = this.gramIds.add(gram(text, i));
+        if (gram == counts.length) {
+          counts = Arrays.copyOf(counts, 2 * gram);
+          lastKey = Arrays.copyOf(lastKey, 2 * gram);
+        }
+        if (counts[gram] == 0 || lastKey[gram] != key) {
+          counts[gram]++;
+          lastKey[gram] = key;
+        }
+      }
+    }
+    int grams = this.gramIds.size;
+    this.gramOffsets = new int[grams + 1];
+    for (int gram = 0; gram < grams; gram++) {
+      this.gramOffsets[gram + 1] = this.gramOffsets[gram] + counts[gram];
+    }
+    int[] next = Arrays.copyOf(this.gramOffsets, grams);
+    this.gramKeys = new int[this.gramOffsets[grams]];
+    for (int key = 0; key < this.keys.length; key++) {
+      String text = this.keys[key];
+      for (int i = 0; i + 3 <= text.length(); i++) {
+        int gram = this.gramIds.find(gram(text, i));
+        if (next[gram] == this.gramOffsets[gram] || this.gramKeys[next[gram] - 1] != key) {
+          this.gramKeys[next[gram]++] = key;
+        }
+      }
+    }
+    this.shortKeys = new int[shortKeys];
+    for (int key = 0, i = 0; key < this.keys.length; key++) {
+      if (this.keys[key].length() < 3) {
+        this.shortKeys[i++] = key;
+      }
+    }
+
+    // Leaves hold each sorted position, and each parent the busier of its two children.
+    this.codeOfKey = new int[this.keys.length];
+    for (int code = this.keyOfCode.length - 1; code >= 0; code--) {
+      this.codeOfKey[this.keyOfCode[code]] = code;
+    }
+    int n = this.sorted.length;
+    this.busiest = new int[2 * n];
+    for (int i = 0; i < n; i++) {
+      this.busiest[n + i] = i;
+    }
+    for (int i = n - 1; i > 0; i--) {
+      this.busiest[i] = this.busier(this.busiest[2 * i], this.busiest[2 * i + 1]);
+    }
+  }
+
+  /**
+   * Finds the first rows at or after a given row whose value starts with a prefix, ignoring case.
+   *
+   * @param prefix is the trimmed prefix to look for.
+   * @param fromRow is the first row that may be returned.
+   * @param limit is the most rows to return.
+   * @return the matching rows in ascending order, which may be empty.
+   */
+  public int[] rowsWithPrefix(String prefix, int fromRow, int limit) {
+    return this.rowsOfKeys(this.keysWithPrefix(CaseFolding.fold(prefix)), fromRow, limit);
+  }
+
+  /**
+   * Finds the first rows at or after a given row whose value contains a substring, ignoring case.
+   *
+   * @param substring is the trimmed substring to look for.
+   * @param fromRow is the first row that may be returned.
+   * @param limit is the most rows to return.
+   * @return the matching rows in ascending order, which may be empty.
+   */
+  public int[] rowsContaining(String substring, int fromRow, int limit) {
+    String key = CaseFolding.fold(substring);
+    int[] candidates = this.candidates(key);
+    if (candidates == null || candidates.length > this.keys.length / 8) {
+      return this.scanContaining(key, candidates, fromRow, limit);
+    }
+    int count = 0;
+    for (int candidate : candidates) {
+      if (this.keys[candidate].contains(key)) {
+        candidates[count++] = candidate;
+      }
+    }
+    return this.rowsOfKeys(Arrays.copyOf(candidates, count), fromRow, limit);
+  }
+
+  /**
+   * Finds the rows whose value is within an edit distance of a value, ignoring case, ranked by that
+   * distance and then by the first row holding the value, with each value's rows in row order. The
+   * results are ranked rather than in row order, so pages are cut by position in the ranking.
+   *
+   * @param value is the trimmed value to look for.
+   * @param maxDistance is the most single-character edits a matching value may be from it.
+   * @param from is the position in the ranking of the first row that may be returned.
+   * @param limit is the most rows to return.
+   * @return the matching rows in ranked order, which may be empty.
+   */
+  public int[] rowsWithin(String value, int maxDistance, int from, int limit) {
+    int[] ranked = this.keysWithin(CaseFolding.fold(value), maxDistance);
+    long total = 0;
+    for (int key : ranked) {
+      total += this.index.keyRowCount(key);
+    }
+    int[] found = new int[(int) Math.max(0, Math.min(limit, total - Math.max(from, 0)))];
+    long position = 0;
+    int count = 0;
+    for (int i = 0; i < ranked.length && count < found.length; i++) {
+      int rows = this.index.keyRowCount(ranked[i]);
+      if (position + rows > from) {
+        int skip = (int) Math.max(0, from - position);
+        int take = Math.min(rows - skip, found.length - count);
+        count = this.index.copyRows(ranked[i], skip, take, found, count);
+      }
+      position += rows;
+    }
+    return found;
+  }
+
+  /**
+   * Finds the keys starting with a prefix, ignoring case, that the most rows hold. The prefix's run
+   * of sorted keys is split around its busiest key, found in the segment tree, and each part is
+   * queued by its own busiest key, so only about two ranges per key returned are searched.
+   *
+   * @param prefix is the prefix to look for.
+   * @param limit is the most keys to return.
+   * @return the ids of the matching keys, by descending row count and then in key order.
+   */
+  public int[] mostCommonWithPrefix(String prefix, int limit) {
+    String key = CaseFolding.fold(prefix);
+    int low = this.firstSorted(key, false);
+    int high = this.firstSorted(key, true);
+    int[] found = new int[Math.max(0, Math.min(limit, high - low))];
+    if (found.length == 0) {
+      return found;
+    }
+    // Each queued range is {its busiest position, its start, its end}.
+    PriorityQueue<int[]> ranges =
+        new PriorityQueue<>((a, b) -> (this.busier(a[0], b[0]) == a[0]) ? -1 : 1);
+    ranges.add(new int[] {this.busiest(low, high), low, high});
+    for (int i = 0; i < found.length; i++) {
+      int[] range = ranges.poll();
+      found[i] = this.sorted[range[0]];
+      if (range[1] < range[0]) {
+        ranges.add(new int[] {this.busiest(range[1], range[0]), range[1], range[0]});
+      }
+      if (range[0] + 1 < range[2]) {
+        ranges.add(new int[] {this.busiest(range[0] + 1, range[2]), range[0] + 1, range[2]});
+      }
+    }
+    return found;
+  }
+
+  /**
+   * Returns the value a key is shown by, which is the first of the column's values that fold to it.
+   *
+   * @param key is the key id.
+   * @return the value.
+   */
+  public String keyValue(int key) {
+    return this.column.value(this.codeOfKey[key]);
+  }
+
+  /**
+   * Counts the rows holding a key.
+   *
+   * @param key is the key id.
+   * @return the number of rows.
+   */
+  public int keyRows(int key) {
+    return this.index.keyRowCount(key);
+  }
+
+  /**
+   * Estimates the heap used by the index, not counting the column or its ColumnIndex.
+   *
+   * @return the estimated size in bytes.
+   */
+  public long estimatedBytes() {
+    return 64
+        + 4L * (this.keys.length + this.keyOfCode.length + this.sorted.length)
+        + 4L * (this.gramOffsets.length + this.gramKeys.length + this.shortKeys.length)
+        + 4L * (this.codeOfKey.length + this.busiest.length)
+        + this.gramIds.estimatedBytes();
+  }
+
+  /**
+   * A helper method that finds the keys starting with a prefix, as the run of sorted keys from the
+   * first key at least the prefix.
+   *
+   * @param prefix is the folded prefix.
+   * @return the ids of the matching keys.
+   */
+  private int[] keysWithPrefix(String prefix) {
+    return Arrays.copyOfRange(
+        this.sorted, this.firstSorted(prefix, false), this.firstSorted(prefix, true));
+  }
+
+  /**
+   * A helper method that binary searches the sorted keys for either end of a prefix's run. Keys
+   * before the run sort below the prefix, and keys after it neither sort below it nor start with
+   * it.
+   *
+   * @param prefix is the folded prefix.
+   * @param past is whether to find the end of the run rather than its start.
+   * @return the position in sorted of the first key at or past that end.
+   */
+  private int firstSorted(String prefix, boolean past) {
+    int low = 0;
+    int high = this.sorted.length;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      String key = this.keys[this.sorted[mid]];
+      if (key.compareTo(prefix) < 0 || (past && key.startsWith(prefix))) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * A helper method that finds the sorted position with the most rows in a range, reading the
+   * segment tree from the leaves up.
+   *
+   * @param from is the first position of the range.
+   * @param to is the position after the range, which is not empty.
+   * @return the busiest position, the first of any tied.
+   */
+  private int busiest(int from, int to) {
+    int n = this.sorted.length;
+    int best = from;
+    for (int left = from + n, right = to + n; left < right; left >>= 1, right >>= 1) {
+      if ((left & 1) == 1) {
+        best = this.busier(best, this.busiest[left++]);
+      }
+      if ((right & 1) == 1) {
+        best = this.busier(best, this.busiest[--right]);
+      }
+    }
+    return best;
+  }
+
+  /**
+   * A helper method that picks the sorted position whose key more rows hold.
+   *
+   * @param a is one position.
+   * @param b is the other position.
+   * @return the position with more rows, or the earlier one if they tie.
+   */
+  private int busier(int a, int b) {
+    int rowsA = this.index.keyRowCount(this.sorted[a]);
+    int rowsB = this.index.keyRowCount(this.sorted[b]);
+    return (rowsA > rowsB || (rowsA == rowsB && a <= b)) ? a : b;
+  }
+
+  /**
+   * A helper method that finds the keys that may contain a substring. For a substring of three or
+   * more characters, these are the keys holding all of its trigrams, intersecting the shortest
+   * lists first. A shorter substring is looked for in the distinct trigrams instead.
+   *
+   * @param substring is the folded substring.
+   * @return the ids of the candidate keys in ascending order, or null if any key may hold it.
+   */
+  private int[] candidates(String substring) {
+    int[] candidates;
+    if (substring.isEmpty()) {
+      candidates = null;
+    } else if (substring.length() < 3) {
+      candidates = this.shortCandidates(substring);
+    } else {
+      int[] grams = new int[substring.length() - 2];
+      for (int i = 0; i < grams.length; i++) {
+        grams[i] = this.gramIds.find(gram(substring, i));
+        if (grams[i] < 0) {
+          return NO_ROWS;
+        }
+      }
+      Integer[] order = Arrays.stream(grams).distinct().boxed().toArray(Integer[]::new);
+      Arrays.sort(order, Comparator.comparingInt(gram -> this.gramSize(gram)));
+      candidates =
+          Arrays.copyOfRange(
+              this.gramKeys, this.gramOffsets[order[0]], this.gramOffsets[order[0] + 1]);
+      for (int i = 1; i < order.length && candidates.length > 0; i++) {
+        candidates = this.intersect(candidates, order[i]);
+      }
+    }
+    return candidates;
+  }
+
+  /**
+   * A helper method that finds the keys within an edit distance of a value, ranked. Each edit
+   * changes at most three of the value's trigrams, so a key within maxDistance edits holds all but
+   * 3 * maxDistance of its distinct trigrams, and only keys listed under that many of them are
+   * measured. A value too short for that to rule out any key is measured against every key whose
+   * length is close enough, which EditDistance checks first.
+   *
+   * @param target is the folded value.
+   * @param maxDistance is the most edits a matching key may be from it.
+   * @return the ids of the matching keys, by distance and then by first row.
+   */
+  private int[] keysWithin(String target, int maxDistance) {
+    if (maxDistance == 0) {
+      int key = this.index.keyId(target);
+      return (key < 0) ? NO_ROWS : new int[] {key};
+    }
+    long[] packed = new long[Math.max(0, target.length() - 2)];
+    for (int i = 0; i < packed.length; i++) {
+      packed[i] = gram(target, i);
+    }
+    long[] distinct = Arrays.stream(packed).distinct().toArray();
+    int needed = distinct.length - 3 * maxDistance;
+
+    // Count how many of the value's trigrams each key holds, keeping those reaching needed.
+    int[] candidates = null;
+    int count = this.keys.length;
+    if (needed > 0) {
+      int[] shared = new int[this.keys.length];
+      candidates = new int[16];
+      count = 0;
+      for (long packedGram : distinct) {
+        int gram = this.gramIds.find(packedGram);
+        if (gram < 0) {
+          continue;
+        }
+        for (int j = this.gramOffsets[gram]; j < this.gramOffsets[gram + 1]; j++) {
+          if (++shared[this.gramKeys[j]] == needed) {
+            if (count == candidates.length) {
+              candidates = Arrays.copyOf(candidates, 2 * count);
+            }
+            candidates[count++] = this.gramKeys[j];
+          }
+        }
+      }
+    }
+
+    // Measure the candidates, packing each match's distance above its first row to rank them.
+    EditDistance distance = new EditDistance(target, maxDistance);
+    long[] matches = new long[16];
+    int found = 0;
+    for (int i = 0; i < count; i++) {
+      int key = (candidates == null) ? i : candidates[i];
+      int edits = distance.to(this.keys[key]);
+      if (edits <= maxDistance) {
+        if (found == matches.length) {
+          matches = Arrays.copyOf(matches, 2 * found);
+        }
+        matches[found++] = ((long) edits << 32) | this.index.firstRow(key);
+      }
+    }
+    Arrays.sort(matches, 0, found);
+    int[] ranked = new int[found];
+    for (int i = 0; i < found; i++) {
+      ranked[i] = this.keyOfCode[this.column.code((int) matches[i])];
+    }
+    return ranked;
+  }
+
+  /**
+   * A helper method that finds the first rows at or after a given row containing a substring that
+   * too many keys may hold to check them all first. Rows are read in order, and each candidate key
+   * is checked the first time one of its rows is read, so a common substring stops as soon as the
+   * page is full.
+   *
+   * @param substring is the folded substring.
+   * @param candidates are the ids of the keys that may hold it, or null if any key may.
+   * @param fromRow is the first row that may be returned.
+   * @param limit is the most rows to return.
+   * @return the matching rows in ascending order, which may be empty.
+   */
+  private int[] scanContaining(String substring, int[] candidates, int fromRow, int limit) {
+    byte[] verdicts = new byte[this.keys.length]; // 0 if unchecked, 1 if it matches, 2 if not.
+    if (candidates != null) {
+      Arrays.fill(verdicts, (byte) 2);
+      for (int candidate : candidates) {
+        verdicts[candidate] = 0;
+      }
+    }
+    int count = 0;
+    int[] found = new int[Math.min(limit, 64)];
+    for (int row = Math.max(fromRow, 0); row < this.column.size() && count < limit; row++) {
+      int key = this.keyOfCode[this.column.code(row)];
+      if (verdicts[key] == 0) {
+        verdicts[key] = (byte) (this.keys[key].contains(substring) ? 1 : 2);
+      }
+      if (verdicts[key] == 1) {
+        if (count == found.length) {
+          found = Arrays.copyOf(found, (int) Math.min(limit, 2L * count));
+        }
+        found[count++] = row;
+      }
+    }
+    return Arrays.copyOf(found, count);
+  }
+
+  /**
+   * A helper method that lists the keys that may hold a substring of one or two characters: the
+   * keys too short for a trigram, and the keys of every trigram holding the substring.
+   *
+   * @param substring is the folded substring, one or two characters long.
+   * @return the candidate key ids in ascending order, or null if they are more than the keys.
+   */
+  private int[] shortCandidates(String substring) {
+    long listed = this.shortKeys.length;
+    int[] grams = new int[16];
+    int count = 0;
+    for (int slot = 0; slot < this.gramIds.grams.length; slot++) {
+      long gram = this.gramIds.grams[slot];
+      if (gram != GramTable.EMPTY && holds(gram, substring)) {
+        if (count == grams.length) {
+          grams = Arrays.copyOf(grams, 2 * count);
+        }
+        grams[count++] = this.gramIds.ids[slot];
+        listed += this.gramSize(this.gramIds.ids[slot]);
+        if (listed > this.keys.length) {
+          return null;
+        }
+      }
+    }
+    boolean[] marked = new boolean[this.keys.length];
+    for (int key : this.shortKeys) {
+      marked[key] = true;
+    }
+    for (int i = 0; i < count; i++) {
+      for (int j = this.gramOffsets[grams[i]]; j < this.gramOffsets[grams[i] + 1]; j++) {
+        marked[this.gramKeys[j]] = true;
+      }
+    }
+    int[] candidates = new int[(int) listed];
+    int found = 0;
+    for (int key = 0; key < marked.length; key++) {
+      if (marked[key]) {
+        candidates[found++] = key;
+      }
+    }
+    return Arrays.copyOf(candidates, found);
+  }
+
+  /**
+   * A helper method that keeps the keys that also hold a trigram, galloping through the trigram's
+   * list.
+   *
+   * @param keys are key ids in ascending order.
+   * @param gram is the trigram id.
+   * @return the keys that are also in the trigram's list, in ascending order.
+   */
+  private int[] intersect(int[] keys, int gram) {
+    int[] both = new int[keys.length];
+    int count = 0;
+    int j = this.gramOffsets[gram];
+    int end = this.gramOffsets[gram + 1];
+    for (int i = 0; i < keys.length && j < end; i++) {
+      // Gallop ahead to the key, so a short list costs little against a long one.
+      int step = 1;
+      while (j + step < end && this.gramKeys[j + step] < keys[i]) {
+        j += step;
+        step <<= 1;
+      }
+      int found = Arrays.binarySearch(this.gramKeys, j, Math.min(j + step + 1, end), keys[i]);
+      j = (found < 0) ? -found - 1 : found;
+      if (found >= 0) {
+        both[count++] = keys[i];
+      }
+    }
+    return Arrays.copyOf(both, count);
+  }
+
+  /**
+   * A helper method that returns the number of keys holding a trigram.
+   *
+   * @param gram is the trigram id.
+   * @return the length of the trigram's list.
+   */
+  private int gramSize(int gram) {
+    return this.gramOffsets[gram + 1] - this.gramOffsets[gram];
+  }
+
+  /**
+   * A helper method that finds the first rows at or after a given row holding any of some keys. The
+   * rows of a single key are already in row order. Rows of several keys are gathered and sorted,
+   * unless there are so many that sorting them would cost more than reading the column, in which
+   * case each row's code is checked from fromRow until enough rows are found.
+   *
+   * @param keys are the ids of the keys to match.
+   * @param fromRow is the first row that may be returned.
+   * @param limit is the most rows to return.
+   * @return the matching rows in ascending order, which may be empty.
+   */
+  private int[] rowsOfKeys(int[] keys, int fromRow, int limit) {
+    if (keys.length == 0) {
+      return NO_ROWS;
+    }
+    if (keys.length == 1) {
+      return this.index.rowsOfKey(keys[0], fromRow, limit);
+    }
+    long matches = 0;
+    for (int key : keys) {
+      matches += this.index.keyRowCount(key);
+    }
+    int remaining = this.column.size() - Math.max(fromRow, 0);
+    if (matches * (64 - Long.numberOfLeadingZeros(matches)) <= remaining) {
+      int[] rows = new int[(int) matches];
+      int at = 0;
+      for (int key : keys) {
+        at = this.index.copyRows(key, rows, at);
+      }
+      Arrays.sort(rows);
+      int from = Arrays.binarySearch(rows, fromRow);
+      from = (from < 0) ? -from - 1 : from;
+      return Arrays.copyOfRange(rows, from, (int) Math.min(rows.length, (long) from + limit));
+    }
+
+    // Too many rows match to sort them, so read the codes in row order instead.
+    boolean[] matching = new boolean[this.keys.length];
+    for (int key : keys) {
+      matching[key] = true;
+    }
+    int count = 0;
+    int[] found = new int[(int) Math.min(limit, Math.min(matches, 64))];
+    for (int row = Math.max(fromRow, 0); row < this.column.size() && count < limit; row++) {
+      if (matching[this.keyOfCode[this.column.code(row)]]) {
+        if (count == found.length) {
+          found = Arrays.copyOf(found, (int) Math.min(limit, 2L * count));
+        }
+        found[count++] = row;
+      }
+    }
+    return Arrays.copyOf(found, count);
+  }
+
+  /**
+   * A helper method that packs the three characters of a trigram into one number.
+   *
+   * @param text is the text holding the trigram.
+   * @param start is where the trigram starts.
+   * @return the trigram's characters, 16 bits each.
+   */
+  private static long gram(String text, int start) {
+    return ((long) text.charAt(start) << 32)
+        | ((long) text.charAt(start + 1) << 16)
+        | text.charAt(start + 2);
+  }
+
+  /**
+   * A helper method that checks whether a packed trigram holds a substring of one or two
+   * characters.
+   *
+   * @param gram is the packed trigram.
+   * @param substring is the substring.
+   * @return whether the trigram's characters hold the substring.
+   */
+  private static boolean holds(long gram, String substring) {
+    char first = (char) (gram >>> 32);
+    char second = (char) (gram >>> 16);
+    char third = (char) gram;
+    char c = substring.charAt(0);
+    if (substring.length() == 1) {
+      return first == c || second == c || third == c;
+    }
+    char d = substring.charAt(1);
+    return (first == c && second == d) || (second == c && third == d);
+  }
+
+  /** An open-addressing hash table numbering the distinct packed trigrams in order of arrival. */
+  private static final class GramTable {
+    private static final long EMPTY = -1; // No packed trigram is negative.
+    private long[] grams = new long[1 << 10]; // The trigram in each slot, or EMPTY.
+    private int[] ids = new int[1 << 10]; // The id of the trigram in each slot.
+    private int size; // The number of trigrams.
+
+    /** Constructor creates an empty table. */
+    private GramTable() {
+      Arrays.fill(this.grams, EMPTY);
+    }
+
+    /**
+     * Finds a trigram's id, numbering it if it is new.
+     *
+     * @param gram is the packed trigram.
+     * @return the trigram's id.
+     */
+    private int add(long gram) {
+      int slot = this.slot(gram);
+      if (this.grams[slot] != EMPTY) {
+        return this.ids[slot];
+      }
+      this.grams[slot] = gram;
+      this.ids[slot] = this.size++;
+      if (2 * this.size > this.grams.length) {
+        this.grow();
+      }
+      return this.size - 1;
+    }
+
+    /**
+     * Finds a trigram's id.
+     *
+     * @param gram is the packed trigram.
+     * @return the trigram's id, or -1 if it is not in the table.
+     */
+    private int find(long gram) {
+      int slot = this.slot(gram);
+      return (this.grams[slot] == EMPTY) ? -1 : this.ids[slot];
+    }
+
+    /** Estimates the heap used by the table. */
+    private long estimatedBytes() {
+      return 48 + 12L * this.grams.length;
+    }
+
+    /**
+     * A helper method that finds the slot holding a trigram, or the empty slot it would go in.
+     *
+     * @param gram is the packed trigram.
+     * @return the slot.
+     */
+    private int slot(long gram) {
+      int mask = this.grams.length - 1;
+      int slot = (int) (gram * 0x9E3779B97F4A7C15L >>> 32) & mask;
+      while (this.grams[slot] != EMPTY && this.grams[slot] != gram) {
+        slot = (slot + 1) & mask;
+      }
+      return slot;
+    }
+
+    /** A helper method that doubles the table, placing every trigram again. */
+    private void grow() {
+      long[] oldGrams = this.grams;
+      int[] oldIds = this.ids;
+      this.grams = new long[2 * oldGrams.length];
+      this.ids = new int[2 * oldGrams.length];
+      Arrays.fill(this.grams, EMPTY);
+      for (int slot = 0; slot < oldGrams.length; slot++) {
+        if (oldGrams[slot] != EMPTY) {
+          int next = this.slot(oldGrams[slot]);
+          this.grams[next] = oldGrams[slot];
+          this.ids[next] = oldIds[slot];
+        }
+      }
+    }
+  }
+}
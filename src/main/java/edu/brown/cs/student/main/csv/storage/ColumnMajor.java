@@ -0,0 +1,139 @@
+package edu.brown.cs.student.main.csv.storage;
+
+import edu.brown.cs.student.main.csv.exceptions.FactoryFailureException;
+import edu.brown.cs.student.main.csv.exceptions.UncheckedFactoryFailureException;
+import edu.brown.cs.student.main.csv.utilities.CSVParser;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.Iterator;
+
+/**
+ * Builds column-major primitive matrices from the rows of a numeric CSV, as parsed by an
+ * IntArrayCreator, LongArrayCreator or DoubleArrayCreator. Each row is copied into one growing
+ * array per column as soon as it is parsed, so only one row array is alive at a time and nothing is
+ * boxed. The matrix is indexed as matrix[column][row], which keeps each column contiguous for scans
+ * and aggregates.
+ */
+public final class ColumnMajor {
+  private static final int INITIAL_ROWS = 1024; // The rows each column has room for at first.
+
+  /** The class only has static methods. */
+  private ColumnMajor() {}
+
+  /**
+   * Parses every row into a column-major int matrix.
+   *
+   * @param parser The CSVParser built with an IntArrayCreator.
+   * @return The matrix, indexed as matrix[column][row], with no columns if the CSV is empty.
+   * @throws FactoryFailureException If a row is malformed or a cell is not an int.
+   * @throws IOException If the parser has issues while reading the file.
+   */
+  public static int[][] ints(CSVParser<int[]> parser) throws FactoryFailureException, IOException {
+    try {
+      Iterator<int[]> rows = parser.iterator();
+      int[][] columns = new int[0][];
+      int count = 0;
+      while (rows.hasNext()) {
+        int[] row = rows.next();
+        if (count == 0) {
+          columns = new int[row.length][INITIAL_ROWS];
+        } else if (count == columns[0].length) {
+          for (int c = 0; c < columns.length; c++) {
+            columns[c] = Arrays.copyOf(columns[c], 2 * count);
+          }
+        }
+        for (int c = 0; c < columns.length; c++) {
+          columns[c][count] = row[c];
+        }
+        count++;
+      }
+      for (int c = 0; c < columns.length; c++) {
+        columns[c] = Arrays.copyOf(columns[c], count);
+      }
+      return columns;
+    } catch (UncheckedFactoryFailureException e) {
+      throw e.getCause();
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+  }
+
+  /**
+   * Parses every row into a column-major long matrix.
+   *
+   * @param parser The CSVParser built with a LongArrayCreator.
+   * @return The matrix, indexed as matrix[column][row], with no columns if the CSV is empty.
+   * @throws FactoryFailureException If a row is malformed or a cell is not a long.
+   * @throws IOException If the parser has issues while reading the file.
+   */
+  public static long[][] longs(CSVParser<long[]> parser)
+      throws FactoryFailureException, IOException {
+    try {
+      Iterator<long[]> rows = parser.iterator();
+      long[][] columns = new long[0][];
+      int count = 0;
+      while (rows.hasNext()) {
+        long[] row = rows.next();
+        if (count == 0) {
+          columns = new long[row.length][INITIAL_ROWS];
+        } else if (count == columns[0].length) {
+          for (int c = 0; c < columns.length; c++) {
+            columns[c] = Arrays.copyOf(columns[c], 2 * count);
+          }
+        }
+        for (int c = 0; c < columns.length; c++) {
+          columns[c][count] = row[c];
+        }
+        count++;
+      }
+      for (int c = 0; c < columns.length; c++) {
+        columns[c] = Arrays.copyOf(columns[c], count);
+      }
+      return columns;
+    } catch (UncheckedFactoryFailureException e) {
+      throw e.getCause();
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+  }
+
+  /**
+   * Parses every row into a column-major double matrix.
+   *
+   * @param parser The CSVParser built with a DoubleArrayCreator.
+   * @return The matrix, indexed as matrix[column][row], with no columns if the CSV is empty.
+   * @throws FactoryFailureException If a row is malformed or a cell is not a number.
+   * @throws IOException If the parser has issues while reading the file.
+   */
+  public static double[][] doubles(CSVParser<double[]> parser)
+      throws FactoryFailureException, IOException {
+    try {
+      Iterator<double[]> rows = parser.iterator();
+      double[][] columns = new double[0][];
+      int count = 0;
+      while (rows.hasNext()) {
+        double[] row = rows.next();
+        if (count == 0) {
+          columns = new double[row.length][INITIAL_ROWS];
+        } else if (count == columns[0].length) {
+          for (int c = 0; c < columns.length; c++) {
+            columns[c] = Arrays.copyOf(columns[c], 2 * count);
+          }
+        }
+        for (int c = 0; c < columns.length; c++) {
+          columns[c][count] = row[c];
+        }
+        count++;
+      }
+      for (int c = 0; c < columns.length; c++) {
+        columns[c] = Arrays.copyOf(columns[c], count);
+      }
+      return columns;
+    } catch (UncheckedFactoryFailureException e) {
+      throw e.getCause();
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+  }
+}
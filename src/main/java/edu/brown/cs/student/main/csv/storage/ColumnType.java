@@ -0,0 +1,101 @@
+package edu.brown.cs.student.main.csv.storage;
+
+/**
+ * The type of a column, inferred from its distinct values once it is loaded. A column is numeric
+ * when every non-empty value is a number, written with an optional minus sign, optional commas
+ * between groups of three digits, and, for decimals, a fractional part, such as "2020", "-17" or
+ * "130,455.00". Empty cells are allowed in a numeric column, but a column with no numbers is text.
+ */
+public enum ColumnType {
+  /** Every non-empty value is a whole number. */
+  INTEGER,
+  /** Every non-empty value is a number, and at least one has a fractional part. */
+  DECIMAL,
+  /** Some value is not a number, or the column has no values. */
+  TEXT;
+
+  /**
+   * Infers the type of a finished column. Only the distinct values are read, and reading stops at
+   * the first one that is not a number, so text columns cost little to check.
+   *
+   * @param column is the finished column.
+   * @return the narrowest type that fits every value in the column.
+   */
+  public static ColumnType infer(DictionaryColumn column) {
+    ColumnType type = null;
+    for (int code = 0; code < column.distinctCount(); code++) {
+      String value = column.value(code).trim();
+      if (value.isEmpty()) {
+        continue;
+      }
+      ColumnType cell = of(value);
+      if (cell == TEXT) {
+        return TEXT;
+      }
+      type = (type == DECIMAL) ? DECIMAL : cell;
+    }
+    return (type == null) ? TEXT : type;
+  }
+
+  /**
+   * Parses a number written as infer expects, ignoring surrounding whitespace.
+   *
+   * @param value is the value to parse.
+   * @return the number, or NaN if the value is not one.
+   */
+  public static double parse(String value) {
+    String trimmed = value.trim();
+    if (of(trimmed) == TEXT) {
+      return Double.NaN;
+    }
+    return Double.parseDouble(trimmed.replace(",", ""));
+  }
+
+  /**
+   * Finds the type of a single trimmed value by checking its characters, so no exception is thrown
+   * for the many values that are not numbers.
+   *
+   * @param value is the trimmed, non-empty value.
+   * @return INTEGER or DECIMAL if the value is a number, TEXT otherwise.
+   */
+  private static ColumnType of(String value) {
+    int start = value.startsWith("-") ? 1 : 0;
+    int point = value.indexOf('.');
+    int end = (point < 0) ? value.length() : point;
+
+    // The whole part is digits, with commas only between groups of three.
+    int digits = 0; // The digits since the start or the last comma.
+    boolean grouped = false;
+    for (int i = start; i < end; i++) {
+      char c = value.charAt(i);
+      if (c == ',') {
+        if (digits == 0 || digits > 3 || (grouped && digits != 3)) {
+          return TEXT;
+        }
+        grouped = true;
+        digits = 0;
+      } else if (c >= '0' && c <= '9') {
+        digits++;
+      } else {
+        return TEXT;
+      }
+    }
+    if (digits == 0 || (grouped && digits != 3)) {
+      return TEXT;
+    }
+    if (end == value.length()) {
+      return INTEGER;
+    }
+
+    // The fractional part must be digits, and there must be at least one.
+    if (end + 1 == value.length()) {
+      return TEXT;
+    }
+    for (int i = end + 1; i < value.length(); i++) {
+      if (value.charAt(i) < '0' || value.charAt(i) > '9') {
+        return TEXT;
+      }
+    }
+    return DECIMAL;
+  }
+}
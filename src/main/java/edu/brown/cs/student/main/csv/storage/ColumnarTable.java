@@ -0,0 +1,230 @@
+package edu.brown.cs.student.main.csv.storage;
+
+import java.io.IOException;
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * A table of CSV rows stored column by column, with each column dictionary-encoded. Once finished,
+ * the table is never changed, so rows are handed out as read-only views over the columns rather
+ * than copies, and any number of threads may read them at once.
+ */
+public class ColumnarTable {
+  private final DictionaryColumn[] columns;
+  private int rowCount;
+
+  /**
+   * Constructor creates an empty table with the given number of columns.
+   *
+   * @param width is the number of columns in each row.
+   */
+  public ColumnarTable(int width) {
+    this.columns = new DictionaryColumn[width];
+    for (int i = 0; i < width; i++) {
+      this.columns[i] = new DictionaryColumn();
+    }
+    this.rowCount = 0;
+  }
+
+  /**
+   * Constructor restores a finished table from its columns.
+   *
+   * @param columns are the finished columns.
+   * @param rowCount is the number of rows in each column.
+   */
+  private ColumnarTable(DictionaryColumn[] columns, int rowCount) {
+    this.columns = columns;
+    this.rowCount = rowCount;
+  }
+
+  /**
+   * Reads a table written by writeTo. The table is already finished.
+   *
+   * @param in is the snapshot to read from.
+   * @return the restored table.
+   */
+  public static ColumnarTable readFrom(SnapshotReader in) {
+    DictionaryColumn[] columns = new DictionaryColumn[in.readInt()];
+    int rowCount = in.readInt();
+    for (int i = 0; i < columns.length; i++) {
+      columns[i] = DictionaryColumn.readFrom(in, rowCount);
+    }
+    return new ColumnarTable(columns, rowCount);
+  }
+
+  /**
+   * Writes the finished table to a snapshot, one column after another.
+   *
+   * @param out is the snapshot to write to.
+   * @throws IOException if the snapshot cannot be written.
+   */
+  public void writeTo(SnapshotWriter out) throws IOException {
+    out.writeInt(this.columns.length);
+    out.writeInt(this.rowCount);
+    for (DictionaryColumn column : this.columns) {
+      column.writeTo(out);
+    }
+  }
+
+  /**
+   * Returns a copy of the finished table that more rows can be added to, leaving this table
+   * unchanged, so it can keep being read while the copy grows.
+   *
+   * @return the reopened copy, which must be finished again once the rows are added.
+   */
+  public ColumnarTable reopen() {
+    DictionaryColumn[] reopened = new DictionaryColumn[this.columns.length];
+    for (int i = 0; i < reopened.length; i++) {
+      reopened[i] = this.columns[i].reopen();
+    }
+    return new ColumnarTable(reopened, this.rowCount);
+  }
+
+  /**
+   * Adds a row to the end of the table.
+   *
+   * @param row is the row to add, which must have one cell per column.
+   */
+  public void addRow(List<String> row) {
+    for (int i = 0; i < this.columns.length; i++) {
+      this.columns[i].add(row.get(i));
+    }
+    this.rowCount++;
+  }
+
+  /** Finishes building every column. No rows may be added afterwards. */
+  public void finish() {
+    for (DictionaryColumn column : this.columns) {
+      column.finish();
+    }
+  }
+
+  /**
+   * Returns the value in the given cell.
+   *
+   * @param row is the row of the cell.
+   * @param column is the column of the cell.
+   * @return the value of the cell.
+   */
+  public String get(int row, int column) {
+    return this.columns[column].get(row);
+  }
+
+  /**
+   * Returns a view of a single row, which reads its cells from the columns when they are asked for.
+   *
+   * @param row is the row to view.
+   * @return an unmodifiable List of the row's cells.
+   */
+  public List<String> row(int row) {
+    return new RowView(row);
+  }
+
+  /**
+   * Returns a view of every row of the finished table.
+   *
+   * @return an unmodifiable List of row views.
+   */
+  public List<List<String>> rows() {
+    return new RowsView(null);
+  }
+
+  /**
+   * Returns a view of the given rows of the finished table, in the order given.
+   *
+   * @param rows are the rows to view, which the view keeps and must not be changed.
+   * @return an unmodifiable List of row views.
+   */
+  public List<List<String>> rows(int[] rows) {
+    return new RowsView(rows);
+  }
+
+  /**
+   * Returns one column of the table.
+   *
+   * @param column is the index of the column.
+   * @return the column.
+   */
+  public DictionaryColumn column(int column) {
+    return this.columns[column];
+  }
+
+  /** Returns the number of rows in the table. */
+  public int rowCount() {
+    return this.rowCount;
+  }
+
+  /** Returns the number of columns in the table. */
+  public int width() {
+    return this.columns.length;
+  }
+
+  /**
+   * Estimates the heap used by the table.
+   *
+   * @return the estimated size in bytes.
+   */
+  public long estimatedBytes() {
+    long bytes = 16;
+    for (DictionaryColumn column : this.columns) {
+      bytes += 4 + column.estimatedBytes();
+    }
+    return bytes;
+  }
+
+  /** A read-only view of one row, with no copy of its cells. */
+  private class RowView extends AbstractList<String> implements RandomAccess {
+    private final int row;
+
+    /**
+     * Constructor stores the row being viewed.
+     *
+     * @param row is the row to view.
+     */
+    RowView(int row) {
+      this.row = row;
+    }
+
+    @Override
+    public String get(int column) {
+      return ColumnarTable.this.columns[column].get(this.row);
+    }
+
+    @Override
+    public int size() {
+      return ColumnarTable.this.columns.length;
+    }
+  }
+
+  /** A read-only view of a list of rows, which creates each row view when it is asked for. */
+  private class RowsView extends AbstractList<List<String>> implements RandomAccess {
+    private final int[] rows; // The rows in the view, or null for every row of the table.
+
+    /**
+     * Constructor stores the rows being viewed.
+     *
+     * @param rows are the rows to view, or null for every row.
+     */
+    RowsView(int[] rows) {
+      this.rows = rows;
+    }
+
+    @Override
+    public List<String> get(int index) {
+      if (this.rows == null) {
+        // Check the index now, since a row view only reads its cells later.
+        if (index < 0 || index >= ColumnarTable.this.rowCount) {
+          throw new IndexOutOfBoundsException(index);
+        }
+        return new RowView(index);
+      }
+      return new RowView(this.rows[index]);
+    }
+
+    @Override
+    public int size() {
+      return (this.rows == null) ? ColumnarTable.this.rowCount : this.rows.length;
+    }
+  }
+}
@@ -0,0 +1,214 @@
+package edu.brown.cs.student.main.csv.storage;
+
+import edu.brown.cs.student.main.csv.index.CaseFolding;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A dictionary-encoded column of a CSV. Each distinct string is stored once, and each row stores
+ * only the int code of its value, so repeated values such as town names, flags and years cost four
+ * bytes a row instead of a String and a pointer. Once finished, the column also keeps each distinct
+ * value's case-folded key and its hash, so case-insensitive searches never fold stored values.
+ */
+public class DictionaryColumn {
+  private List<String> dictionary; // The distinct values, indexed by code.
+  private Map<String, Integer> codesByValue; // Only used while the column is being built.
+  private int[] codes; // The code of each row's value.
+  private String[] foldedKeys; // The case-folded key of each code, set by finish.
+  private int[] foldedHashes; // The hash of each folded key, set by finish.
+  private int size; // The number of rows in the column.
+
+  /** Constructor initializes an empty column ready to have values added. */
+  public DictionaryColumn() {
+    this.dictionary = new ArrayList<>();
+    this.codesByValue = new HashMap<>();
+    this.codes = new int[16];
+    this.size = 0;
+  }
+
+  /**
+   * Adds a value as the next row of the column, reusing its code if the value has been seen before.
+   *
+   * @param value is the value to add.
+   */
+  public void add(String value) {
+    Integer code = this.codesByValue.get(value);
+    if (code == null) {
+      code = this.dictionary.size();
+      this.dictionary.add(value);
+      this.codesByValue.put(value, code);
+    }
+    if (this.size == this.codes.length) {
+      this.codes = Arrays.copyOf(this.codes, 2 * this.size);
+    }
+    this.codes[this.size++] = code;
+  }
+
+  /**
+   * Trims the column to its final size, folds each distinct value to its search key and drops the
+   * lookup map used while building it. Values that fold to the same key share one String. Keys
+   * folded before the column was reopened are kept. No values may be added afterwards.
+   */
+  public void finish() {
+    this.codes = Arrays.copyOf(this.codes, this.size);
+    this.dictionary = List.of(this.dictionary.toArray(new String[0]));
+    this.codesByValue = null;
+    int folded = 0;
+    if (this.foldedKeys == null) {
+      this.foldedKeys = new String[this.dictionary.size()];
+      this.foldedHashes = new int[this.dictionary.size()];
+    } else {
+      folded = this.foldedKeys.length;
+      this.foldedKeys = Arrays.copyOf(this.foldedKeys, this.dictionary.size());
+      this.foldedHashes = Arrays.copyOf(this.foldedHashes, this.dictionary.size());
+    }
+    Map<String, String> interned = new HashMap<>();
+    for (int code = folded; code < this.foldedKeys.length; code++) {
+      String key = CaseFolding.fold(this.dictionary.get(code));
+      String shared = interned.putIfAbsent(key, key);
+      this.foldedKeys[code] = (shared == null) ? key : shared;
+      this.foldedHashes[code] = this.foldedKeys[code].hashCode();
+    }
+  }
+
+  /**
+   * Returns a copy of the finished column that more values can be added to, leaving this column
+   * unchanged. The copy shares this column's Strings and folded keys, so only the codes and the
+   * lookup map are rebuilt.
+   *
+   * @return the reopened copy, which must be finished again once the values are added.
+   */
+  public DictionaryColumn reopen() {
+    DictionaryColumn column = new DictionaryColumn();
+    column.dictionary.addAll(this.dictionary);
+    column.codesByValue = new HashMap<>(2 * this.dictionary.size());
+    for (int code = 0; code < this.dictionary.size(); code++) {
+      column.codesByValue.put(this.dictionary.get(code), code);
+    }
+    column.codes = Arrays.copyOf(this.codes, Math.max(16, this.size));
+    column.size = this.size;
+    column.foldedKeys = this.foldedKeys;
+    column.foldedHashes = this.foldedHashes;
+    return column;
+  }
+
+  /**
+   * Reads a column written by writeTo, and finishes it.
+   *
+   * @param in is the snapshot to read from.
+   * @param rows is the number of rows in the column.
+   * @return the restored column.
+   */
+  public static DictionaryColumn readFrom(SnapshotReader in, int rows) {
+    DictionaryColumn column = new DictionaryColumn();
+    int distinct = in.readInt();
+    for (int code = 0; code < distinct; code++) {
+      column.dictionary.add(in.readString());
+    }
+    column.codes = in.readInts(rows);
+    column.size = rows;
+    column.finish();
+    return column;
+  }
+
+  /**
+   * Writes the column's distinct values and codes to a snapshot. The folded keys are not written,
+   * since finishing the restored column folds them again.
+   *
+   * @param out is the snapshot to write to.
+   * @throws IOException if the snapshot cannot be written.
+   */
+  public void writeTo(SnapshotWriter out) throws IOException {
+    out.writeInt(this.dictionary.size());
+    for (String value : this.dictionary) {
+      out.writeString(value);
+    }
+    out.writeInts(this.codes, this.size);
+  }
+
+  /**
+   * Returns the value of the given row.
+   *
+   * @param row is the row to get the value of.
+   * @return the value of that row.
+   */
+  public String get(int row) {
+    return this.dictionary.get(this.codes[row]);
+  }
+
+  /**
+   * Returns the dictionary code of the given row.
+   *
+   * @param row is the row to get the code of.
+   * @return the code of that row's value.
+   */
+  public int code(int row) {
+    return this.codes[row];
+  }
+
+  /**
+   * Returns the value a code stands for.
+   *
+   * @param code is the dictionary code.
+   * @return the distinct value with that code.
+   */
+  public String value(int code) {
+    return this.dictionary.get(code);
+  }
+
+  /**
+   * Returns the case-folded search key of a code's value. Only available after finish.
+   *
+   * @param code is the dictionary code.
+   * @return the value folded with CaseFolding.fold.
+   */
+  public String foldedKey(int code) {
+    return this.foldedKeys[code];
+  }
+
+  /**
+   * Returns the hash of a code's folded key, so a search can rule out most keys without comparing
+   * characters. Only available after finish.
+   *
+   * @param code is the dictionary code.
+   * @return the hashCode of foldedKey(code).
+   */
+  public int foldedHash(int code) {
+    return this.foldedHashes[code];
+  }
+
+  /** Returns the number of distinct values in the column. */
+  public int distinctCount() {
+    return this.dictionary.size();
+  }
+
+  /** Returns the number of rows in the column. */
+  public int size() {
+    return this.size;
+  }
+
+  /**
+   * Estimates the heap used by the column: four bytes per row plus each distinct String and its
+   * folded key, assuming compressed pointers and one byte per character.
+   *
+   * @return the estimated size in bytes.
+   */
+  public long estimatedBytes() {
+    long bytes = 16 + 4L * this.codes.length;
+    for (int code = 0; code < this.dictionary.size(); code++) {
+      // Reference, String header and fields, and the backing array with its header.
+      String value = this.dictionary.get(code);
+      bytes += 4 + 24 + 16 + value.length();
+      if (this.foldedKeys != null) {
+        // The key's reference and hash, plus the key itself when it differs from the value.
+        String key = this.foldedKeys[code];
+        bytes += 8 + ((key == value) ? 0 : 24 + 16 + key.length());
+      }
+    }
+    return bytes;
+  }
+}
@@ -0,0 +1,91 @@
+package edu.brown.cs.student.main.csv.storage;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads back a snapshot written by a SnapshotWriter, usually from a memory-mapped file. Int and
+ * byte arrays are copied out of the buffer in bulk. A truncated snapshot makes reads throw
+ * BufferUnderflowException.
+ */
+public class SnapshotReader {
+  private final ByteBuffer buffer;
+  private byte[] scratch; // Holds the bytes of a String while it is decoded.
+
+  /**
+   * Constructor reads from the given buffer, starting at its position.
+   *
+   * @param buffer is the buffer holding the snapshot.
+   */
+  public SnapshotReader(ByteBuffer buffer) {
+    this.buffer = buffer.order(ByteOrder.LITTLE_ENDIAN);
+    this.scratch = new byte[64];
+  }
+
+  /**
+   * Reads a boolean written as one byte.
+   *
+   * @return the value read.
+   */
+  public boolean readBoolean() {
+    return this.buffer.get() != 0;
+  }
+
+  /**
+   * Reads an int.
+   *
+   * @return the value read.
+   */
+  public int readInt() {
+    return this.buffer.getInt();
+  }
+
+  /**
+   * Reads a long.
+   *
+   * @return the value read.
+   */
+  public long readLong() {
+    return this.buffer.getLong();
+  }
+
+  /**
+   * Reads a String written as its UTF-8 length and bytes.
+   *
+   * @return the value read.
+   */
+  public String readString() {
+    int length = this.readInt();
+    if (length > this.scratch.length) {
+      this.scratch = new byte[Math.max(length, 2 * this.scratch.length)];
+    }
+    this.buffer.get(this.scratch, 0, length);
+    return new String(this.scratch, 0, length, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Reads an array of ints written without their count.
+   *
+   * @param length is the number of ints to read.
+   * @return the values read.
+   */
+  public int[] readInts(int length) {
+    int[] values = new int[length];
+    this.buffer.asIntBuffer().get(values);
+    this.buffer.position(this.buffer.position() + 4 * length);
+    return values;
+  }
+
+  /**
+   * Reads an array of bytes written without their count.
+   *
+   * @param length is the number of bytes to read.
+   * @return the values read.
+   */
+  public byte[] readBytes(int length) {
+    byte[] values = new byte[length];
+    this.buffer.get(values);
+    return values;
+  }
+}
@@ -0,0 +1,159 @@
+package edu.brown.cs.student.main.csv.storage;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Writes the binary snapshot of a loaded CSV to a file, for a SnapshotReader to read back. Values
+ * are written little-endian, the byte order of the machines the server runs on, through one buffer,
+ * so int arrays are copied into it in bulk rather than swapped a value at a time. Strings are
+ * written as their UTF-8 length followed by their bytes.
+ */
+public class SnapshotWriter implements Closeable {
+  private static final int BUFFER_SIZE = 1 << 16;
+  private final FileChannel channel;
+  private final ByteBuffer buffer;
+
+  /**
+   * Constructor creates or truncates the file at the given path.
+   *
+   * @param path is the file to write the snapshot to.
+   * @throws IOException if the file cannot be opened.
+   */
+  public SnapshotWriter(Path path) throws IOException {
+    this.channel =
+        FileChannel.open(
+            path,
+            StandardOpenOption.CREATE,
+            StandardOpenOption.TRUNCATE_EXISTING,
+            StandardOpenOption.WRITE);
+    this.buffer = ByteBuffer.allocate(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+  }
+
+  /**
+   * Writes a boolean as one byte.
+   *
+   * @param value is the value to write.
+   * @throws IOException if the file cannot be written.
+   */
+  public void writeBoolean(boolean value) throws IOException {
+    this.ensure(1);
+    this.buffer.put((byte) (value ? 1 : 0));
+  }
+
+  /**
+   * Writes an int.
+   *
+   * @param value is the value to write.
+   * @throws IOException if the file cannot be written.
+   */
+  public void writeInt(int value) throws IOException {
+    this.ensure(4);
+    this.buffer.putInt(value);
+  }
+
+  /**
+   * Writes a long.
+   *
+   * @param value is the value to write.
+   * @throws IOException if the file cannot be written.
+   */
+  public void writeLong(long value) throws IOException {
+    this.ensure(8);
+    this.buffer.putLong(value);
+  }
+
+  /**
+   * Writes a String as its UTF-8 length and bytes.
+   *
+   * @param value is the value to write.
+   * @throws IOException if the file cannot be written.
+   */
+  public void writeString(String value) throws IOException {
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    this.writeInt(bytes.length);
+    this.writeBytes(bytes, bytes.length);
+  }
+
+  /**
+   * Writes the first length values of an int array, without their count.
+   *
+   * @param values is the array to write from.
+   * @param length is the number of values to write.
+   * @throws IOException if the file cannot be written.
+   */
+  public void writeInts(int[] values, int length) throws IOException {
+    int written = 0;
+    while (written < length) {
+      this.ensure(4);
+      int count = Math.min(length - written, this.buffer.remaining() / 4);
+      this.buffer.asIntBuffer().put(values, written, count);
+      this.buffer.position(this.buffer.position() + 4 * count);
+      written += count;
+    }
+  }
+
+  /**
+   * Writes the first length bytes of a byte array, without their count.
+   *
+   * @param values is the array to write from.
+   * @param length is the number of bytes to write.
+   * @throws IOException if the file cannot be written.
+   */
+  public void writeBytes(byte[] values, int length) throws IOException {
+    int written = 0;
+    while (written < length) {
+      this.ensure(1);
+      int count = Math.min(length - written, this.buffer.remaining());
+      this.buffer.put(values, written, count);
+      written += count;
+    }
+  }
+
+  /**
+   * Writes out anything left in the buffer, forces the file to disk and closes it, so the snapshot
+   * is complete before it is moved into place.
+   *
+   * @throws IOException if the file cannot be written.
+   */
+  @Override
+  public void close() throws IOException {
+    try {
+      this.flush();
+      this.channel.force(false);
+    } finally {
+      this.channel.close();
+    }
+  }
+
+  /**
+   * Makes room in the buffer for the given number of bytes, writing it out if it is too full.
+   *
+   * @param bytes is the number of bytes needed, at most the buffer's size.
+   * @throws IOException if the file cannot be written.
+   */
+  private void ensure(int bytes) throws IOException {
+    if (this.buffer.remaining() < bytes) {
+      this.flush();
+    }
+  }
+
+  /**
+   * Writes the buffer out to the file and empties it.
+   *
+   * @throws IOException if the file cannot be written.
+   */
+  private void flush() throws IOException {
+    this.buffer.flip();
+    while (this.buffer.hasRemaining()) {
+      this.channel.write(this.buffer);
+    }
+    this.buffer.clear();
+  }
+}
@@ -0,0 +1,32 @@
+package edu.brown.cs.student.main.csv.utilities;
+
+/**
+ * Aggregate is a record of one function to compute over each group of rows in
+ * CSVSearcher.aggregate.
+ *
+ * @param function is the function to compute.
+ * @param column is the numeric column the function reads, or -1 for COUNT.
+ */
+public record Aggregate(Function function, int column) {
+
+  /**
+   * The functions an Aggregate can compute. COUNT counts the rows of a group. The others read the
+   * numbers in a numeric column, skipping empty cells, and have no value for a group with none.
+   */
+  public enum Function {
+    COUNT,
+    SUM,
+    MIN,
+    MAX,
+    AVG
+  }
+
+  /**
+   * Returns the aggregate that counts the rows of each group.
+   *
+   * @return a COUNT aggregate.
+   */
+  public static Aggregate count() {
+    return new Aggregate(Function.COUNT, -1);
+  }
+}
@@ -0,0 +1,319 @@
+package edu.brown.cs.student.main.csv.utilities;
+
+import edu.brown.cs.student.main.csv.exceptions.ColumnTypeException;
+import edu.brown.cs.student.main.csv.exceptions.InvalidIndexException;
+import edu.brown.cs.student.main.csv.index.RowBitmap;
+import edu.brown.cs.student.main.csv.storage.ColumnType;
+import edu.brown.cs.student.main.server.handlers.csvhandlers.exceptions.HeaderNotFoundException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Parses and evaluates a compound query over the columns of a CSVSearcher, such as {@code State=RI
+ * AND Year>=2021 AND NOT (Flag=no OR Flag="")}. Each predicate compares a column, given by index or
+ * header, with a value: = and != match the value ignoring case, through the column's ColumnIndex,
+ * and <, <=, > and >= match a range of a numeric column, through its NumericIndex. Each predicate
+ * resolves to a RowBitmap of its rows, and the bitmaps are combined with AND, OR and NOT, which
+ * bind in the order NOT, AND, OR unless parentheses say otherwise. Keywords are case-insensitive,
+ * and a column or value holding spaces, parentheses or operators is written in double quotes, with
+ * "" standing for a quote inside them. NOT and parentheses may nest at most MAX_DEPTH deep, so a
+ * hostile query cannot overflow the stack.
+ */
+final class BooleanQuery {
+  private static final int MAX_DEPTH = 100; // The most NOTs and parentheses that may nest.
+  private final CSVSearcher searcher; // The searcher whose rows are queried.
+  private final String query; // The query, for error messages.
+  private final List<Token> tokens; // The tokens of the query.
+  private int next; // The position of the next token to read.
+  private int depth; // The number of NOTs and parentheses around the next token.
+
+  /**
+   * The constructor splits the query into tokens.
+   *
+   * @param searcher The searcher whose rows are queried.
+   * @param query The query.
+   * @throws IllegalArgumentException If the query has an unclosed quote or a stray '!'.
+   */
+  BooleanQuery(CSVSearcher searcher, String query) {
+    this.searcher = searcher;
+    this.query = query;
+    this.tokens = tokenize(query);
+  }
+
+  /**
+   * Evaluates the query.
+   *
+   * @return The rows matching the query.
+   * @throws IllegalArgumentException If the query is not written as described, or nests too deep.
+   * @throws InvalidIndexException If a column index is not valid.
+   * @throws HeaderNotFoundException If a column header is not found.
+   * @throws ColumnTypeException If a column compared by <, <=, > or >= is not numeric.
+   */
+  RowBitmap evaluate() throws InvalidIndexException, HeaderNotFoundException, ColumnTypeException {
+    this.next = 0;
+    this.depth = 0;
+    RowBitmap rows = this.or();
+    if (this.next < this.tokens.size()) {
+      throw this.syntaxError("Expected AND, OR or the end of the query");
+    }
+    return rows;
+  }
+
+  /**
+   * A helper method that evaluates predicates joined by OR.
+   *
+   * @return The rows matching any of them.
+   */
+  private RowBitmap or()
+      throws InvalidIndexException, HeaderNotFoundException, ColumnTypeException {
+    RowBitmap rows = this.and();
+    while (this.keyword("OR")) {
+      rows = rows.or(this.and());
+    }
+    return rows;
+  }
+
+  /**
+   * A helper method that evaluates predicates joined by AND.
+   *
+   * @return The rows matching all of them.
+   */
+  private RowBitmap and()
+      throws InvalidIndexException, HeaderNotFoundException, ColumnTypeException {
+    RowBitmap rows = this.not();
+    while (this.keyword("AND")) {
+      rows = rows.and(this.not());
+    }
+    return rows;
+  }
+
+  /**
+   * A helper method that evaluates a predicate, a parenthesized query, or the negation of either.
+   *
+   * @return The rows matching it.
+   */
+  private RowBitmap not()
+      throws InvalidIndexException, HeaderNotFoundException, ColumnTypeException {
+    if (this.depth == MAX_DEPTH) {
+      throw this.syntaxError("NOT and parentheses nest more than " + MAX_DEPTH + " deep");
+    }
+    this.depth++;
+    try {
+      if (this.keyword("NOT")) {
+        return RowBitmap.range(this.searcher.rowCount()).andNot(this.not());
+      }
+      if (this.symbol("(")) {
+        RowBitmap rows = this.or();
+        if (!this.symbol(")")) {
+          throw this.syntaxError("Expected ')'");
+        }
+        return rows;
+      }
+      return this.predicate();
+    } finally {
+      this.depth--;
+    }
+  }
+
+  /**
+   * A helper method that evaluates a single comparison of a column with a value.
+   *
+   * @return The rows matching it.
+   */
+  private RowBitmap predicate()
+      throws InvalidIndexException, HeaderNotFoundException, ColumnTypeException {
+    String column = this.operand("a column");
+    Token operator = (this.next < this.tokens.size()) ? this.tokens.get(this.next) : null;
+    if (operator == null || operator.kind() != Kind.OPERATOR) {
+      throw this.syntaxError("Expected =, !=, <, <=, > or >= after " + column);
+    }
+    this.next++;
+    String value = this.operand("a value");
+    int index = this.columnIndex(column);
+    if (operator.text().equals("=") || operator.text().equals("!=")) {
+      RowBitmap rows = this.searcher.rowsEqual(index, value);
+      return operator.text().equals("=")
+          ? rows
+          : RowBitmap.range(this.searcher.rowCount()).andNot(rows);
+    }
+    double bound = ColumnType.parse(value);
+    if (Double.isNaN(bound)) {
+      throw new IllegalArgumentException(
+          "Value \"" + value + "\" compared with " + operator.text() + " must be a number!");
+    }
+    return switch (operator.text()) {
+      case "<" -> this.searcher.rowsBetween(index, Double.NEGATIVE_INFINITY, Math.nextDown(bound));
+      case "<=" -> this.searcher.rowsBetween(index, Double.NEGATIVE_INFINITY, bound);
+      case ">" -> this.searcher.rowsBetween(index, Math.nextUp(bound), Double.POSITIVE_INFINITY);
+      default -> this.searcher.rowsBetween(index, bound, Double.POSITIVE_INFINITY);
+    };
+  }
+
+  /**
+   * A helper method that reads a column or value, which is a word that is not a keyword or a quoted
+   * string.
+   *
+   * @param expected What the operand is, for the error message.
+   * @return The operand's text.
+   */
+  private String operand(String expected) {
+    Token token = (this.next < this.tokens.size()) ? this.tokens.get(this.next) : null;
+    if (token == null
+        || token.kind() == Kind.SYMBOL
+        || token.kind() == Kind.OPERATOR
+        || (token.kind() == Kind.WORD && isKeyword(token.text()))) {
+      throw this.syntaxError("Expected " + expected);
+    }
+    this.next++;
+    return token.text();
+  }
+
+  /**
+   * A helper method that reads a keyword if it is next.
+   *
+   * @param keyword The keyword, in upper case.
+   * @return Whether the keyword was read.
+   */
+  private boolean keyword(String keyword) {
+    if (this.next < this.tokens.size()
+        && this.tokens.get(this.next).kind() == Kind.WORD
+        && this.tokens.get(this.next).text().equalsIgnoreCase(keyword)) {
+      this.next++;
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * A helper method that reads a parenthesis if it is next.
+   *
+   * @param symbol The parenthesis.
+   * @return Whether the parenthesis was read.
+   */
+  private boolean symbol(String symbol) {
+    if (this.next < this.tokens.size()
+        && this.tokens.get(this.next).kind() == Kind.SYMBOL
+        && this.tokens.get(this.next).text().equals(symbol)) {
+      this.next++;
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * A helper method that finds a column given by its index, or otherwise by its header.
+   *
+   * @param column The column's index or header.
+   * @return The column's index, which may not be valid.
+   * @throws HeaderNotFoundException If the column is not an index and no header matches it.
+   */
+  private int columnIndex(String column) throws HeaderNotFoundException {
+    try {
+      return Integer.parseInt(column.trim());
+    } catch (NumberFormatException e) {
+      return this.searcher.getIndexFromHeader(column.trim());
+    }
+  }
+
+  /**
+   * A helper method that builds the error for a query that is not written as described.
+   *
+   * @param message What was expected.
+   * @return The error, naming where in the query it was found.
+   */
+  private IllegalArgumentException syntaxError(String message) {
+    int position =
+        (this.next < this.tokens.size())
+            ? this.tokens.get(this.next).position()
+            : this.query.length();
+    return new IllegalArgumentException(
+        message + " at position " + position + " of query \"" + this.query + "\"!");
+  }
+
+  /**
+   * A helper method that checks whether a word is a keyword.
+   *
+   * @param word The word.
+   * @return Whether it is AND, OR or NOT, ignoring case.
+   */
+  private static boolean isKeyword(String word) {
+    String upper = word.toUpperCase(Locale.ROOT);
+    return upper.equals("AND") || upper.equals("OR") || upper.equals("NOT");
+  }
+
+  /**
+   * A helper method that splits a query into words, quoted strings, parentheses and operators.
+   *
+   * @param query The query.
+   * @return The tokens, in order.
+   * @throws IllegalArgumentException If the query has an unclosed quote or a stray '!'.
+   */
+  private static List<Token> tokenize(String query) {
+    List<Token> tokens = new ArrayList<>();
+    int i = 0;
+    while (i < query.length()) {
+      char c = query.charAt(i);
+      int start = i;
+      if (Character.isWhitespace(c)) {
+        i++;
+      } else if (c == '(' || c == ')') {
+        tokens.add(new Token(Kind.SYMBOL, String.valueOf(c), start));
+        i++;
+      } else if (c == '=' || c == '<' || c == '>' || c == '!') {
+        i += (c != '=' && i + 1 < query.length() && query.charAt(i + 1) == '=') ? 2 : 1;
+        String operator = query.substring(start, i);
+        if (operator.equals("!")) {
+          throw new IllegalArgumentException(
+              "Expected != at position " + start + " of query \"" + query + "\"!");
+        }
+        tokens.add(new Token(Kind.OPERATOR, operator, start));
+      } else if (c == '"') {
+        StringBuilder text = new StringBuilder();
+        i++;
+        while (true) {
+          if (i == query.length()) {
+            throw new IllegalArgumentException(
+                "Unclosed quote at position " + start + " of query \"" + query + "\"!");
+          }
+          if (query.charAt(i) == '"') {
+            if (i + 1 < query.length() && query.charAt(i + 1) == '"') {
+              text.append('"');
+              i += 2;
+              continue;
+            }
+            i++;
+            break;
+          }
+          text.append(query.charAt(i++));
+        }
+        tokens.add(new Token(Kind.QUOTED, text.toString(), start));
+      } else {
+        while (i < query.length()
+            && "()=<>!\"".indexOf(query.charAt(i)) < 0
+            && !Character.isWhitespace(query.charAt(i))) {
+          i++;
+        }
+        tokens.add(new Token(Kind.WORD, query.substring(start, i), start));
+      }
+    }
+    return tokens;
+  }
+
+  /** The kinds of token in a query. */
+  private enum Kind {
+    WORD,
+    QUOTED,
+    SYMBOL,
+    OPERATOR
+  }
+
+  /**
+   * One token of a query.
+   *
+   * @param kind The kind of token.
+   * @param text The token's text, without quotes.
+   * @param position Where the token starts in the query.
+   */
+  private record Token(Kind kind, String text, int position) {}
+}
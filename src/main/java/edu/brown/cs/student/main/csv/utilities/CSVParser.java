@@ -2,72 +2,273 @@ package edu.brown.cs.student.main.csv.utilities;
 
 import edu.brown.cs.student.main.csv.creators.CreatorFromRow;
 import edu.brown.cs.student.main.csv.exceptions.FactoryFailureException;
+import edu.brown.cs.student.main.csv.exceptions.UncheckedFactoryFailureException;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
-import java.util.regex.Pattern;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
-/** A generic CSV parser class that parses a CSV file into an ArrayList of the specified type. */
+/**
+ * A generic CSV parser class that parses a CSV file into an ArrayList of the specified type. If the
+ * CreatorFromRow declares the columns it needs, only those cells are trimmed and handed to it.
+ */
 public class CSVParser<T> {
-  static final Pattern regexSplitCSVRow =
-      Pattern.compile(",(?=([^\\\"]*\\\"[^\\\"]*\\\")*(?![^\\\"]*\\\"))");
-  private final BufferedReader bufferedReader;
+  private final RowSource rowSource;
   private final CreatorFromRow<T> creatorFromRow;
+  private final Projection projection; // The columns the creator needs, or null for every column.
+  private int firstWidth = -1; // The width of the file's first row, once it is known.
+  private final Path path; // The mapped file, or null when parsing from a Reader or an offset.
+  private boolean firstRow = true; // Used to track size of first row.
+  private long parallelBytes = -1; // The bytes a parallel parse read, once it is done.
+  private boolean parallel; // Whether the mapped source was set aside for a parallel parse.
 
   /**
    * The constructor for CSVParser stores the BufferedReader and CreatorFromRow, for use when
-   * parsing the data from the Reader.
+   * parsing the data from the Reader. Rows are split with the default tokenizer engine.
    *
    * @param creatorFromRow A generic CreatorFromRow to be specified by the user.
    * @param reader A Java Reader to be wrapped in the BufferedReader and used to parse.
    */
   public CSVParser(CreatorFromRow<T> creatorFromRow, Reader reader) {
+    this(creatorFromRow, reader, ParseEngine.TOKENIZER);
+  }
+
+  /**
+   * An alternate constructor that also selects the engine used to split each row.
+   *
+   * @param creatorFromRow A generic CreatorFromRow to be specified by the user.
+   * @param reader A Java Reader to be wrapped in the BufferedReader and used to parse.
+   * @param engine The ParseEngine used to split each line into cells.
+   */
+  public CSVParser(CreatorFromRow<T> creatorFromRow, Reader reader, ParseEngine engine) {
+    this.creatorFromRow = creatorFromRow;
+    this.projection = Projection.of(creatorFromRow.columns());
+    this.rowSource = new ReaderRowSource(new BufferedReader(reader), engine, this.projection);
+    this.path = null;
+  }
+
+  /**
+   * An alternate constructor that memory-maps the file at the given path and parses its UTF-8 bytes
+   * directly. Rows are handed to the creator as CSVRows, whose cells only become Strings when the
+   * creator asks for them.
+   *
+   * @param creatorFromRow A generic CreatorFromRow to be specified by the user.
+   * @param path The path of the CSV file to parse.
+   * @throws IOException If the file cannot be opened or mapped.
+   */
+  public CSVParser(CreatorFromRow<T> creatorFromRow, Path path) throws IOException {
+    this.creatorFromRow = creatorFromRow;
+    this.projection = Projection.of(creatorFromRow.columns());
+    this.rowSource =
+        new MappedRowSource(
+            path, 0, Long.MAX_VALUE, MappedRowSource.DEFAULT_WINDOW_SIZE, this.projection);
+    this.path = path;
+  }
+
+  /**
+   * An alternate constructor that memory-maps the file at the given path and parses only the rows
+   * from a byte offset on, such as the rows appended since the file was last parsed. The offset
+   * must be the start of a row. Parsing from an offset is always sequential. With a projection, the
+   * file's first row is read too, so the rows from the offset are checked against its width.
+   *
+   * @param creatorFromRow A generic CreatorFromRow to be specified by the user.
+   * @param path The path of the CSV file to parse.
+   * @param start The file offset of the first row to parse.
+   * @throws IOException If the file cannot be opened or mapped.
+   */
+  public CSVParser(CreatorFromRow<T> creatorFromRow, Path path, long start) throws IOException {
     this.creatorFromRow = creatorFromRow;
-    this.bufferedReader = new BufferedReader(reader);
+    this.projection = Projection.of(creatorFromRow.columns());
+    this.rowSource =
+        new MappedRowSource(
+            path, start, Long.MAX_VALUE, MappedRowSource.DEFAULT_WINDOW_SIZE, this.projection);
+    this.path = null;
+    if (this.projection != null && start > 0) {
+      try (MappedRowSource first =
+          new MappedRowSource(
+              path, 0, start, MappedRowSource.DEFAULT_WINDOW_SIZE, this.projection)) {
+        if (first.nextRow() != null) {
+          this.firstWidth = first.width();
+        }
+      }
+    }
   }
 
   /**
-   * Uses the BufferedReader and CreatorFromRow to generate an ArrayList of the specified type with
-   * the data from the CSV file.
+   * Uses the row source and CreatorFromRow to generate an ArrayList of the specified type with the
+   * data from the CSV file.
    *
-   * @throws IOException If there is an error reading from the BufferedReader.
+   * @throws IOException If there is an error reading from the input.
    * @throws FactoryFailureException If there is an issue in any row of the CSV.
    * @return An ArrayList containing the parsed CSV data in the specified type.
    */
   public ArrayList<T> parse() throws IOException, FactoryFailureException {
     ArrayList<T> data = new ArrayList<>();
-    String line;
-    boolean firstRow = true; // Used to track size of first row.
-    while ((line = this.bufferedReader.readLine()) != null) {
-      String[] parsedRow = this.regexSplitCSVRow.split(line);
-      // Update the first row in the creator on the first loop.
-      if (firstRow) {
-        this.creatorFromRow.setRowSize(parsedRow.length);
-        firstRow = false;
+    List<String> parsedRow;
+    try {
+      while ((parsedRow = this.rowSource.nextRow()) != null) {
+        // Use the creator to add the new row to the data.
+        data.add(this.createRow(parsedRow));
       }
-      // Use the creator to add the new row to the data.
-      data.add(this.creatorFromRow.create(trimRow(parsedRow)));
+    } finally {
+      this.rowSource.close();
     }
-    this.bufferedReader.close();
     return data;
   }
 
   /**
-   * A helper method to trim the whitespace on each row element and convert the row from an Array to
-   * a List.
+   * Returns a lazy iterator that reads and creates one row at a time, so the file never has to be
+   * held in memory. The input is closed once the last row is read or a row fails. IOExceptions and
+   * FactoryFailureExceptions are rethrown wrapped in UncheckedIOException and
+   * UncheckedFactoryFailureException.
+   *
+   * @return An iterator over the created rows, in file order.
+   */
+  public Iterator<T> iterator() {
+    return new Iterator<>() {
+      private List<String> next; // The row read ahead for hasNext, if any.
+      private boolean done;
+
+      @Override
+      public boolean hasNext() {
+        if (this.next == null && !this.done) {
+          try {
+            this.next = CSVParser.this.rowSource.nextRow();
+          } catch (IOException e) {
+            this.finish();
+            throw new UncheckedIOException(e);
+          }
+          if (this.next == null) {
+            this.finish();
+          }
+        }
+        return this.next != null;
+      }
+
+      @Override
+      public T next() {
+        if (!this.hasNext()) {
+          throw new NoSuchElementException();
+        }
+        List<String> row = this.next;
+        this.next = null;
+        try {
+          return CSVParser.this.createRow(row);
+        } catch (FactoryFailureException e) {
+          this.finish();
+          throw new UncheckedFactoryFailureException(e);
+        }
+      }
+
+      /** Stops iterating and closes the input. */
+      private void finish() {
+        this.done = true;
+        try {
+          CSVParser.this.close();
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      }
+    };
+  }
+
+  /**
+   * Returns a lazy, sequential Stream of the created rows, backed by iterator(). Closing the stream
+   * closes the input, so it is best used in a try-with-resources block.
+   *
+   * @return A Stream over the created rows, in file order.
+   */
+  public Stream<T> stream() {
+    Spliterator<T> rows = Spliterators.spliteratorUnknownSize(this.iterator(), Spliterator.ORDERED);
+    return StreamSupport.stream(rows, false)
+        .onClose(
+            () -> {
+              try {
+                this.close();
+              } catch (IOException e) {
+                throw new UncheckedIOException(e);
+              }
+            });
+  }
+
+  /**
+   * Returns the file offset a sequential parse of a mapped file has read up to, for reporting
+   * progress and for resuming once rows are appended. Parsers built from a Reader do not track
+   * this, and a parallel parse, whose chunks read the file on their own, only knows it once done.
+   *
+   * @return The offset just past the last row parsed so far, or -1 if it is not known.
+   */
+  public long bytesRead() {
+    if (this.parallel) {
+      return this.parallelBytes;
+    }
+    return (this.rowSource instanceof MappedRowSource mapped) ? mapped.offset() : -1;
+  }
+
+  /**
+   * Closes the input. Parsing closes it automatically, so this is only needed when a stream or
+   * iterator is abandoned early.
    *
-   * @param row The specific row to format.
-   * @return The re-formatted row.
+   * @throws IOException If there is an error closing the input.
    */
-  private List<String> trimRow(String[] row) {
-    for (int i = 0; i < row.length; i++) {
-      row[i] = row[i].trim();
-      if (row[i].startsWith("\"") && row[i].endsWith("\"")) {
-        row[i] = row[i].substring(1, row[i].length() - 1);
+  public void close() throws IOException {
+    this.rowSource.close();
+  }
+
+  /**
+   * A helper method that uses the creator to build one row, telling the creator the size of the
+   * first row before it is created. A projected row is checked against the first row's width.
+   *
+   * @param parsedRow The cells of the row.
+   * @return The created row.
+   * @throws FactoryFailureException If the creator rejects the row.
+   */
+  private T createRow(List<String> parsedRow) throws FactoryFailureException {
+    // Update the first row in the creator on the first call.
+    if (this.firstRow) {
+      if (this.firstWidth < 0) {
+        this.firstWidth = this.rowSource.width();
       }
+      this.creatorFromRow.setRowSize(parsedRow.size());
+      this.firstRow = false;
+    }
+    if (this.projection != null) {
+      this.projection.check(parsedRow, this.rowSource.width(), this.firstWidth);
     }
-    return List.of(row);
+    return this.creatorFromRow.create(parsedRow);
+  }
+
+  /**
+   * Parses the CSV like parse(), but splits a mapped file into byte ranges that are parsed on a
+   * ForkJoinPool with the given number of threads and joined back in order. The creator's create
+   * method must be safe to call from several threads. Parsers built from a Reader, or a parallelism
+   * of 1, parse sequentially.
+   *
+   * @param parallelism The number of threads to parse with.
+   * @throws IOException If there is an error reading from the input.
+   * @throws FactoryFailureException If there is an issue in any row of the CSV.
+   * @return An ArrayList containing the parsed CSV data in the specified type.
+   */
+  public ArrayList<T> parse(int parallelism) throws IOException, FactoryFailureException {
+    if (this.path == null || parallelism <= 1) {
+      return this.parse();
+    }
+    // The chunks open the file themselves, so the sequential source is not needed.
+    this.rowSource.close();
+    this.parallel = true;
+    ParallelParse<T> parallelParse =
+        new ParallelParse<>(this.path, this.creatorFromRow, this.projection, parallelism);
+    ArrayList<T> data = parallelParse.parse();
+    this.parallelBytes = parallelParse.parsedBytes();
+    return data;
   }
 }
@@ -0,0 +1,164 @@
+package edu.brown.cs.student.main.csv.utilities;
+
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.Objects;
+
+/**
+ * A read-only row of cells that still live in a block of UTF-8 bytes. A cell is only decoded into a
+ * String the first time it is asked for, so creators that ignore some columns never pay for them.
+ * Numeric cells can also be parsed straight from the bytes, without a String or a boxed number.
+ */
+public class CSVRow extends AbstractList<String> {
+  // Powers of ten up to the largest one a double holds exactly.
+  private static final double[] POWERS_OF_TEN = {
+    1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15, 1e16,
+    1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+  };
+  // The largest number of significant digits a long, and so a double's fast path, holds exactly.
+  private static final int MAX_EXACT_DIGITS = 15;
+  private final byte[] bytes; // The block the row was scanned from.
+  private final int[] bounds; // Start and end offset of each cell, already trimmed and unquoted.
+
+  /**
+   * The constructor stores the block and the bounds of each cell within it.
+   *
+   * @param bytes The block holding the row's bytes.
+   * @param bounds Pairs of start and end offsets, one pair per cell.
+   */
+  CSVRow(byte[] bytes, int[] bounds) {
+    this.bytes = bytes;
+    this.bounds = bounds;
+  }
+
+  /**
+   * Decodes and returns the cell at the given index.
+   *
+   * @param index The index of the cell.
+   * @return The cell as a String.
+   */
+  @Override
+  public String get(int index) {
+    Objects.checkIndex(index, this.size());
+    int start = this.bounds[2 * index];
+    return new String(
+        this.bytes, start, this.bounds[2 * index + 1] - start, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Decodes every cell of the row at once, which is how ArrayList and List.copyOf copy a row.
+   *
+   * @return An array of the decoded cells.
+   */
+  @Override
+  public Object[] toArray() {
+    Object[] cells = new Object[this.size()];
+    for (int i = 0; i < cells.length; i++) {
+      cells[i] = this.get(i);
+    }
+    return cells;
+  }
+
+  /**
+   * Parses the cell at the given index as an int, reading its digits straight from the bytes.
+   *
+   * @param index The index of the cell.
+   * @return The cell's value.
+   * @throws NumberFormatException If the cell is not an integer, or does not fit in an int.
+   */
+  public int getInt(int index) {
+    long value = this.getLong(index);
+    if (value != (int) value) {
+      throw new NumberFormatException("Out of range for an int: " + this.get(index));
+    }
+    return (int) value;
+  }
+
+  /**
+   * Parses the cell at the given index as a long, reading its digits straight from the bytes. Like
+   * Long.parseLong, a leading sign is allowed but nothing else besides digits.
+   *
+   * @param index The index of the cell.
+   * @return The cell's value.
+   * @throws NumberFormatException If the cell is not an integer, or does not fit in a long.
+   */
+  public long getLong(int index) {
+    Objects.checkIndex(index, this.size());
+    int start = this.bounds[2 * index];
+    int end = this.bounds[2 * index + 1];
+    boolean negative = start < end && this.bytes[start] == '-';
+    int i = (start < end && (negative || this.bytes[start] == '+')) ? start + 1 : start;
+    if (i == end) {
+      throw new NumberFormatException("Not an integer: " + this.get(index));
+    }
+    // Accumulate as a negative number, which has the larger range, like Long.parseLong.
+    long value = 0;
+    long limit = negative ? Long.MIN_VALUE : -Long.MAX_VALUE;
+    for (; i < end; i++) {
+      int digit = this.bytes[i] - '0';
+      if (digit < 0 || digit > 9) {
+        throw new NumberFormatException("Not an integer: " + this.get(index));
+      }
+      if (value < (limit + digit) / 10) {
+        throw new NumberFormatException("Out of range for a long: " + this.get(index));
+      }
+      value = value * 10 - digit;
+    }
+    return negative ? value : -value;
+  }
+
+  /**
+   * Parses the cell at the given index as a double. Plain decimals, an optional sign followed by
+   * digits with at most one point and at most 15 significant digits, are read straight from the
+   * bytes: the digits are gathered as a long and divided once by an exact power of ten, which is
+   * correctly rounded and so gives the same result as Double.parseDouble. Every other cell,
+   * including any with an exponent, is decoded and handed to Double.parseDouble.
+   *
+   * @param index The index of the cell.
+   * @return The cell's value.
+   * @throws NumberFormatException If the cell is not a number.
+   */
+  public double getDouble(int index) {
+    Objects.checkIndex(index, this.size());
+    int start = this.bounds[2 * index];
+    int end = this.bounds[2 * index + 1];
+    boolean negative = start < end && this.bytes[start] == '-';
+    int i = (start < end && (negative || this.bytes[start] == '+')) ? start + 1 : start;
+    long digits = 0;
+    int digitCount = 0;
+    int fractionDigits = 0;
+    boolean point = false;
+    for (; i < end; i++) {
+      byte b = this.bytes[i];
+      if (b >= '0' && b <= '9') {
+        if (digits == 0 && b == '0' && !point) {
+          continue; // Leading zeros are not significant.
+        }
+        if (++digitCount > MAX_EXACT_DIGITS) {
+          break;
+        }
+        digits = digits * 10 + (b - '0');
+        if (point) {
+          fractionDigits++;
+        }
+      } else if (b == '.' && !point) {
+        point = true;
+      } else {
+        break;
+      }
+    }
+    boolean hasDigit = i > start && (digitCount > 0 || this.bytes[i - 1] == '0');
+    if (i < end || !hasDigit || fractionDigits >= POWERS_OF_TEN.length) {
+      // Exponents, long mantissas, and anything that is not a plain decimal take the slow path.
+      return Double.parseDouble(this.get(index));
+    }
+    double value = digits / POWERS_OF_TEN[fractionDigits];
+    return negative ? -value : value;
+  }
+
+  /** Returns the number of cells in the row. */
+  @Override
+  public int size() {
+    return this.bounds.length / 2;
+  }
+}
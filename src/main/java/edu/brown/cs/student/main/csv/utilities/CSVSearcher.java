@@ -1,19 +1,57 @@
 package edu.brown.cs.student.main.csv.utilities;
 
+import edu.brown.cs.student.main.csv.exceptions.ColumnTypeException;
 import edu.brown.cs.student.main.csv.exceptions.FactoryFailureException;
 import edu.brown.cs.student.main.csv.exceptions.InvalidIndexException;
+import edu.brown.cs.student.main.csv.exceptions.UncheckedFactoryFailureException;
+import edu.brown.cs.student.main.csv.index.CaseFolding;
+import edu.brown.cs.student.main.csv.index.ColumnIndex;
+import edu.brown.cs.student.main.csv.index.InvertedIndex;
+import edu.brown.cs.student.main.csv.index.NumericIndex;
+import edu.brown.cs.student.main.csv.index.RowBitmap;
+import edu.brown.cs.student.main.csv.index.TextIndex;
+import edu.brown.cs.student.main.csv.storage.ColumnType;
+import edu.brown.cs.student.main.csv.storage.ColumnarTable;
+import edu.brown.cs.student.main.csv.storage.DictionaryColumn;
+import edu.brown.cs.student.main.csv.storage.SnapshotReader;
+import edu.brown.cs.student.main.csv.storage.SnapshotWriter;
 import edu.brown.cs.student.main.server.handlers.csvhandlers.exceptions.HeaderNotFoundException;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * A class that works with a CSVParser in order to parse and search a CSV File whose rows are
- * formatted as an Array of Strings.
+ * formatted as an Array of Strings. Rows are stored in a ColumnarTable, where each column is an
+ * array of int codes into a dictionary of that column's distinct values. Results are read-only
+ * views over the table, so no row is copied when it is returned. Column searches go through a
+ * per-column ColumnIndex, which is built the first time a column is searched or up front with
+ * buildIndexes. Whole-table searches scan each column's dictionary, unless buildInvertedIndex has
+ * been called. Each column's type is inferred from its dictionary once the rows are loaded, and
+ * range searches of a numeric column go through its NumericIndex, built the same way as a
+ * ColumnIndex. Compound queries combine the rows each index finds as compressed RowBitmaps. Prefix,
+ * substring and fuzzy searches of a column, and suggestions of its values, go through its
+ * TextIndex, built over its ColumnIndex.
  */
 public class CSVSearcher {
-  private final ArrayList<ArrayList<String>> data;
-  private boolean hasHeader;
+  private static final int PROGRESS_INTERVAL = 1 << 14; // Rows between reports to a listener.
+  private final List<String> header; // The header row, or null if the CSV has none.
+  private final ColumnarTable table; // Every row after the header.
+  private final AtomicReferenceArray<ColumnIndex> indexes; // Built on the first search of a column.
+  private final ColumnType[] types; // The type of each column, inferred once the table is finished.
+  private final AtomicReferenceArray<NumericIndex>
+      numericIndexes; // Built on the first range search.
+  private final AtomicReferenceArray<TextIndex> textIndexes; // Built on the first text search.
+  private volatile InvertedIndex invertedIndex; // Null unless buildInvertedIndex has been called.
+  private volatile long tableBytes = -1; // The table's estimated size, or -1 until first measured.
+  private final boolean hasHeader;
 
   /**
    * The constructor parses the file and initializes instance variables.
@@ -25,8 +63,220 @@ public class CSVSearcher {
    */
   public CSVSearcher(CSVParser<ArrayList<String>> parser, boolean hasHeader)
       throws FactoryFailureException, IOException {
-    this.data = parser.parse();
+    this(parser, hasHeader, 1);
+  }
+
+  /**
+   * An alternate constructor that parses the file with the given number of threads. A sequential
+   * parse encodes each row as it is read, so the parsed rows are never all held at once.
+   *
+   * @param parser The CSVParser used to parse the data.
+   * @param hasHeader A boolean for whether the CSV file has a header.
+   * @param parallelism The number of threads the parser may use.
+   * @throws FactoryFailureException If the parser encounters malformed rows.
+   * @throws IOException If the parser has issues while reading the file.
+   */
+  public CSVSearcher(CSVParser<ArrayList<String>> parser, boolean hasHeader, int parallelism)
+      throws FactoryFailureException, IOException {
+    this(parser, hasHeader, parallelism, LoadListener.NONE);
+  }
+
+  /**
+   * An alternate constructor that also reports its progress to a listener every PROGRESS_INTERVAL
+   * rows, so a load running in the background can be watched. A parallel parse reads the whole file
+   * before any row is stored, so its bytes are reported all at once.
+   *
+   * @param parser The CSVParser used to parse the data.
+   * @param hasHeader A boolean for whether the CSV file has a header.
+   * @param parallelism The number of threads the parser may use.
+   * @param listener The listener to report the rows and bytes read to.
+   * @throws FactoryFailureException If the parser encounters malformed rows.
+   * @throws IOException If the parser has issues while reading the file.
+   */
+  public CSVSearcher(
+      CSVParser<ArrayList<String>> parser,
+      boolean hasHeader,
+      int parallelism,
+      LoadListener listener)
+      throws FactoryFailureException, IOException {
+    Iterator<ArrayList<String>> rows =
+        (parallelism > 1) ? parser.parse(parallelism).iterator() : parser.iterator();
     this.hasHeader = hasHeader;
+    try {
+      List<String> first = rows.hasNext() ? rows.next() : List.of();
+      this.header = hasHeader ? List.copyOf(first) : null;
+      this.table = new ColumnarTable(first.size());
+      if (!hasHeader && !first.isEmpty()) {
+        this.table.addRow(first);
+      }
+      long read = first.isEmpty() ? 0 : 1;
+      while (rows.hasNext()) {
+        this.table.addRow(rows.next());
+        if (++read % PROGRESS_INTERVAL == 0) {
+          listener.progress(read, parser.bytesRead());
+        }
+      }
+      listener.progress(read, parser.bytesRead());
+    } catch (UncheckedFactoryFailureException e) {
+      throw e.getCause();
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+    this.table.finish();
+    this.indexes = new AtomicReferenceArray<>(this.table.width());
+    this.types = inferTypes(this.table);
+    this.numericIndexes = new AtomicReferenceArray<>(this.table.width());
+    this.textIndexes = new AtomicReferenceArray<>(this.table.width());
+  }
+
+  /**
+   * A private constructor for a searcher restored from a snapshot, whose table is already finished.
+   *
+   * @param header The header row, or null if the CSV has none.
+   * @param table The finished table of rows.
+   */
+  private CSVSearcher(List<String> header, ColumnarTable table) {
+    this.hasHeader = header != null;
+    this.header = header;
+    this.table = table;
+    this.indexes = new AtomicReferenceArray<>(table.width());
+    this.types = inferTypes(table);
+    this.numericIndexes = new AtomicReferenceArray<>(table.width());
+    this.textIndexes = new AtomicReferenceArray<>(table.width());
+  }
+
+  /**
+   * Parses rows appended to the file this searcher was loaded from, returning a new searcher over
+   * the old rows followed by the new ones. This searcher is left unchanged, so it can keep serving
+   * searches meanwhile. The new searcher shares the old dictionaries' Strings and folded keys, but
+   * copies every column's codes and rebuilds its map from values to codes. Column types are
+   * inferred again, column and text indexes built so far are rebuilt over every row, numeric
+   * indexes are rebuilt while their columns stay numeric, and an inverted index is extended by
+   * copying its existing posting lists. Only the appended rows are parsed, but the rest of the work
+   * still grows with the whole table.
+   *
+   * @param parser The CSVParser positioned at the first appended row.
+   * @param listener The listener to report the appended rows and bytes read to.
+   * @return A searcher over every row, or this searcher if no rows were appended.
+   * @throws FactoryFailureException If an appended row is malformed or has the wrong width.
+   * @throws IOException If the parser has issues while reading the file.
+   */
+  public CSVSearcher append(CSVParser<ArrayList<String>> parser, LoadListener listener)
+      throws FactoryFailureException, IOException {
+    ColumnarTable appended = null;
+    int fromRow = this.table.rowCount();
+    try {
+      Iterator<ArrayList<String>> rows = parser.iterator();
+      if (!rows.hasNext()) {
+        listener.progress(0, parser.bytesRead());
+        return this;
+      }
+      appended = this.table.reopen();
+      long read = 0;
+      while (rows.hasNext()) {
+        ArrayList<String> row = rows.next();
+        if (row.size() != appended.width()) {
+          throw new FactoryFailureException("Incorrect Number of Items:", row);
+        }
+        appended.addRow(row);
+        if (++read % PROGRESS_INTERVAL == 0) {
+          listener.progress(read, parser.bytesRead());
+        }
+      }
+      listener.progress(read, parser.bytesRead());
+    } catch (UncheckedFactoryFailureException e) {
+      throw e.getCause();
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    } finally {
+      parser.close();
+    }
+    appended.finish();
+
+    CSVSearcher searcher = new CSVSearcher(this.header, appended);
+    for (int i = 0; i < this.indexes.length(); i++) {
+      if (this.indexes.get(i) != null) {
+        searcher.indexes.set(i, new ColumnIndex(appended.column(i)));
+      }
+      if (this.numericIndexes.get(i) != null && searcher.types[i] != ColumnType.TEXT) {
+        searcher.numericIndexes.set(i, new NumericIndex(appended.column(i)));
+      }
+      if (this.textIndexes.get(i) != null) {
+        searcher.textIndex(i);
+      }
+    }
+    InvertedIndex inverted = this.invertedIndex;
+    if (inverted != null) {
+      searcher.invertedIndex = inverted.extend(appended, fromRow);
+    }
+    return searcher;
+  }
+
+  /**
+   * Reads back a searcher written by writeSnapshot, with the indexes it had then, so a CSV that has
+   * not changed can be loaded without being parsed. Numeric and text indexes are rebuilt from the
+   * restored columns rather than stored, since building one only reads the column's distinct
+   * values.
+   *
+   * @param in The snapshot to read from.
+   * @return The restored searcher.
+   */
+  public static CSVSearcher readSnapshot(SnapshotReader in) {
+    List<String> header = null;
+    if (in.readBoolean()) {
+      String[] cells = new String[in.readInt()];
+      for (int i = 0; i < cells.length; i++) {
+        cells[i] = in.readString();
+      }
+      header = List.of(cells);
+    }
+    CSVSearcher searcher = new CSVSearcher(header, ColumnarTable.readFrom(in));
+    for (int i = 0; i < searcher.table.width(); i++) {
+      if (in.readBoolean()) {
+        searcher.indexes.set(i, ColumnIndex.readFrom(in, searcher.table.column(i)));
+      }
+      if (in.readBoolean()) {
+        searcher.numericIndex(i);
+      }
+      if (in.readBoolean()) {
+        searcher.textIndex(i);
+      }
+    }
+    if (in.readBoolean()) {
+      searcher.invertedIndex = InvertedIndex.readFrom(in, searcher.table);
+    }
+    return searcher;
+  }
+
+  /**
+   * Writes the header, the table and any indexes built so far to a snapshot.
+   *
+   * @param out The snapshot to write to.
+   * @throws IOException If the snapshot cannot be written.
+   */
+  public void writeSnapshot(SnapshotWriter out) throws IOException {
+    out.writeBoolean(this.hasHeader);
+    if (this.hasHeader) {
+      out.writeInt(this.header.size());
+      for (String cell : this.header) {
+        out.writeString(cell);
+      }
+    }
+    this.table.writeTo(out);
+    for (int i = 0; i < this.indexes.length(); i++) {
+      ColumnIndex index = this.indexes.get(i);
+      out.writeBoolean(index != null);
+      if (index != null) {
+        index.writeTo(out);
+      }
+      out.writeBoolean(this.numericIndexes.get(i) != null);
+      out.writeBoolean(this.textIndexes.get(i) != null);
+    }
+    InvertedIndex inverted = this.invertedIndex;
+    out.writeBoolean(inverted != null);
+    if (inverted != null) {
+      inverted.writeTo(out);
+    }
   }
 
   /**
@@ -40,12 +290,12 @@ public class CSVSearcher {
     if (!this.hasHeader) {
       throw new HeaderNotFoundException();
     }
-    for (int i = 0; i < data.get(0).size(); i++) {
-      if (data.get(0).get(i).equalsIgnoreCase(column)) {
+    for (int i = 0; i < this.header.size(); i++) {
+      if (this.header.get(i).equalsIgnoreCase(column)) {
         return i;
       }
     }
-    throw new HeaderNotFoundException(column, new ArrayList<>(data.get(0)));
+    throw new HeaderNotFoundException(column, new ArrayList<>(this.header));
   }
 
   /**
@@ -53,19 +303,59 @@ public class CSVSearcher {
    * instance of the specified value.
    *
    * @param value The String value to find in the CSV data.
-   * @return An ArrayList of ArrayLists of Strings with the rows found.
+   * @return A read-only view of the rows found.
    */
   public List<List<String>> searchAllData(String value) {
-    ArrayList<ArrayList<String>> results = new ArrayList<>();
-    for (int i = (this.hasHeader) ? 1 : 0; i < data.size(); i++) {
-      for (int j = 0; j < data.get(0).size(); j++) {
-        if (data.get(i).get(j).equalsIgnoreCase(value.trim())) {
-          results.add(data.get(i));
+    return this.searchAllData(value, 0, 0, Integer.MAX_VALUE).rows();
+  }
+
+  /**
+   * Searches the data for one page of rows that contain at least one instance of the specified
+   * value, stopping as soon as the page is full. With an inverted index, the rows are looked up
+   * directly. Otherwise, the value is folded once and checked against each column's precomputed
+   * folded keys, then rows from fromRow on are matched by comparing codes.
+   *
+   * @param value The String value to find in the CSV data.
+   * @param fromRow The first row to search, such as the nextRow of an earlier page.
+   * @param skip The number of matching rows to skip before the page starts.
+   * @param limit The most rows to put on the page.
+   * @return The page of rows found, and the row the next page starts from.
+   */
+  public Page searchAllData(String value, int fromRow, int skip, int limit) {
+    String target = value.trim();
+    int wanted = wanted(skip, limit);
+    InvertedIndex inverted = this.invertedIndex;
+    if (inverted != null) {
+      return this.page(inverted.rowsMatching(target, fromRow, wanted), skip, limit);
+    }
+
+    // Only the columns holding the value need to be checked row by row.
+    String key = CaseFolding.fold(target);
+    DictionaryColumn[] columns = new DictionaryColumn[this.table.width()];
+    boolean[][] columnMatches = new boolean[this.table.width()][];
+    int matchingColumns = 0;
+    for (int j = 0; j < this.table.width(); j++) {
+      boolean[] matches = matchingCodes(this.table.column(j), key);
+      if (matches != null) {
+        columns[matchingColumns] = this.table.column(j);
+        columnMatches[matchingColumns++] = matches;
+      }
+    }
+    int count = 0;
+    int[] rows = new int[Math.min(wanted, 64)];
+    int end = (matchingColumns == 0) ? 0 : this.table.rowCount();
+    for (int i = Math.max(fromRow, 0); i < end && count < wanted; i++) {
+      for (int j = 0; j < matchingColumns; j++) {
+        if (columnMatches[j][columns[j].code(i)]) {
+          if (count == rows.length) {
+            rows = Arrays.copyOf(rows, (int) Math.min(wanted, 2L * count));
+          }
+          rows[count++] = i;
           break;
         }
       }
     }
-    return new ArrayList<>(results);
+    return this.page(Arrays.copyOf(rows, count), skip, limit);
   }
 
   /**
@@ -74,30 +364,540 @@ public class CSVSearcher {
    *
    * @param value The String value to find in the CSV data.
    * @param index The column index in which to search for the value.
-   * @return An ArrayList of ArrayLists of Strings with the rows found.
+   * @return A read-only view of the rows found.
    */
   public List<List<String>> searchColByIndex(String value, int index) throws InvalidIndexException {
+    return this.searchColByIndex(value, index, 0, 0, Integer.MAX_VALUE).rows();
+  }
+
+  /**
+   * Searches the data for one page of rows that contain the specified value in the specified
+   * column. The lookup goes through the column's index, so it costs time in proportion to the size
+   * of the page once the index is built.
+   *
+   * @param value The String value to find in the CSV data.
+   * @param index The column index in which to search for the value.
+   * @param fromRow The first row to search, such as the nextRow of an earlier page.
+   * @param skip The number of matching rows to skip before the page starts.
+   * @param limit The most rows to put on the page.
+   * @return The page of rows found, and the row the next page starts from.
+   */
+  public Page searchColByIndex(String value, int index, int fromRow, int skip, int limit)
+      throws InvalidIndexException {
+    // Check valid index.
+    if (index < 0 || index >= this.table.width()) {
+      throw new InvalidIndexException("Index \"" + index + "\" is not valid!");
+    }
+    // Look up the matching rows in the column's index.
+    int[] rows = this.columnIndex(index).rowsMatching(value.trim(), fromRow, wanted(skip, limit));
+    return this.page(rows, skip, limit);
+  }
+
+  /**
+   * Searches the data for one page of rows whose value in the specified column starts with, or
+   * contains, the specified value, ignoring case. The matching distinct values are found in the
+   * column's TextIndex, by binary search for a prefix and through its trigrams for a substring, and
+   * only then are their rows read.
+   *
+   * @param value The String value to find in the CSV data.
+   * @param index The column index in which to search for the value.
+   * @param match Whether cells must start with the value or only contain it.
+   * @param fromRow The first row to search, such as the nextRow of an earlier page.
+   * @param skip The number of matching rows to skip before the page starts.
+   * @param limit The most rows to put on the page.
+   * @return The page of rows found, and the row the next page starts from.
+   * @throws InvalidIndexException If the index is not a column.
+   */
+  public Page searchText(String value, int index, TextMatch match, int fromRow, int skip, int limit)
+      throws InvalidIndexException {
     // Check valid index.
-    if (index < 0 || index >= data.get(0).size()) {
+    if (index < 0 || index >= this.table.width()) {
+      throw new InvalidIndexException("Index \"" + index + "\" is not valid!");
+    }
+    TextIndex text = this.textIndex(index);
+    int wanted = wanted(skip, limit);
+    int[] rows =
+        (match == TextMatch.PREFIX)
+            ? text.rowsWithPrefix(value.trim(), fromRow, wanted)
+            : text.rowsContaining(value.trim(), fromRow, wanted);
+    return this.page(rows, skip, limit);
+  }
+
+  /**
+   * Searches the data for one page of rows whose value in the specified column is within an edit
+   * distance of the specified value, ignoring case, so a misspelling such as "Barington" still
+   * finds "Barrington". Rows are ranked by the distance of their value, closest first, and then by
+   * row. The column's TextIndex narrows the distinct values to those sharing enough trigrams with
+   * the value before any distance is measured. As the rows are ranked, fromRow and the nextRow of
+   * the page are positions in the ranking rather than rows.
+   *
+   * @param value The String value to find in the CSV data.
+   * @param index The column index in which to search for the value.
+   * @param maxDistance The most single-character insertions, deletions and substitutions a matching
+   *     value may be from the value, from 0 to TextIndex.MAX_DISTANCE.
+   * @param fromRow The position in the ranking to search from, such as the nextRow of an earlier
+   *     page.
+   * @param skip The number of matching rows to skip before the page starts.
+   * @param limit The most rows to put on the page.
+   * @return The page of rows found, and the position the next page starts from.
+   * @throws InvalidIndexException If the index is not a column.
+   * @throws IllegalArgumentException If maxDistance is out of range.
+   */
+  public Page searchFuzzy(
+      String value, int index, int maxDistance, int fromRow, int skip, int limit)
+      throws InvalidIndexException {
+    // Check valid index and distance.
+    if (index < 0 || index >= this.table.width()) {
+      throw new InvalidIndexException("Index \"" + index + "\" is not valid!");
+    }
+    if (maxDistance < 0 || maxDistance > TextIndex.MAX_DISTANCE) {
+      throw new IllegalArgumentException(
+          "Distance \"" + maxDistance + "\" must be from 0 to " + TextIndex.MAX_DISTANCE + "!");
+    }
+    int from = Math.max(fromRow, 0);
+    int[] rows =
+        this.textIndex(index).rowsWithin(value.trim(), maxDistance, from, wanted(skip, limit));
+    int start = Math.min(skip, rows.length);
+    int end = (int) Math.min(rows.length, (long) start + limit);
+    int nextRow = (end < rows.length) ? from + end : -1;
+    return new Page(this.table.rows(Arrays.copyOfRange(rows, start, end)), nextRow);
+  }
+
+  /**
+   * Suggests the values of a column that start with a prefix, ignoring case, most common first, for
+   * completing what a user is typing. The column's TextIndex finds the prefix's run of distinct
+   * values by binary search and the most common of them through a segment tree, so no row is read
+   * and the cost does not grow with the length of the run.
+   *
+   * @param prefix The prefix typed so far, whose leading whitespace is ignored.
+   * @param index The column index to suggest values from.
+   * @param limit The most values to suggest.
+   * @return The values with the row count of each, by descending count and then in order.
+   * @throws InvalidIndexException If the index is not a column.
+   */
+  public List<Suggestion> suggest(String prefix, int index, int limit)
+      throws InvalidIndexException {
+    // Check valid index.
+    if (index < 0 || index >= this.table.width()) {
+      throw new InvalidIndexException("Index \"" + index + "\" is not valid!");
+    }
+    TextIndex text = this.textIndex(index);
+    List<Suggestion> suggestions = new ArrayList<>();
+    for (int key : text.mostCommonWithPrefix(prefix.stripLeading(), limit)) {
+      suggestions.add(new Suggestion(text.keyValue(key), text.keyRows(key)));
+    }
+    return suggestions;
+  }
+
+  /**
+   * Searches a numeric column for one page of rows whose number is between min and max, inclusive.
+   * The matching rows are found by binary search in the column's NumericIndex, so no row's value is
+   * parsed or compared. Rows with an empty cell in the column never match.
+   *
+   * @param index The column index in which to search.
+   * @param min The smallest number to match, or negative infinity for no lower bound.
+   * @param max The largest number to match, or positive infinity for no upper bound.
+   * @param fromRow The first row to search, such as the nextRow of an earlier page.
+   * @param skip The number of matching rows to skip before the page starts.
+   * @param limit The most rows to put on the page.
+   * @return The page of rows found, and the row the next page starts from.
+   * @throws InvalidIndexException If the index is not a column.
+   * @throws ColumnTypeException If the column is not numeric.
+   */
+  public Page searchRange(int index, double min, double max, int fromRow, int skip, int limit)
+      throws InvalidIndexException, ColumnTypeException {
+    // Check valid index.
+    if (index < 0 || index >= this.table.width()) {
+      throw new InvalidIndexException("Index \"" + index + "\" is not valid!");
+    }
+    if (this.types[index] == ColumnType.TEXT) {
+      throw new ColumnTypeException("Column \"" + index + "\" is not numeric!");
+    }
+    int[] rows = this.numericIndex(index).rowsBetween(min, max, fromRow, wanted(skip, limit));
+    return this.page(rows, skip, limit);
+  }
+
+  /**
+   * Searches the data for one page of rows matching a compound query, such as {@code State=RI AND
+   * Year>=2021 AND NOT Flag=no}. Each predicate is looked up in its column's index as a compressed
+   * RowBitmap, and the bitmaps are combined with AND, OR and NOT, so no row is read until the page
+   * is cut from the result. See BooleanQuery for the syntax.
+   *
+   * @param query The query.
+   * @param fromRow The first row to search, such as the nextRow of an earlier page.
+   * @param skip The number of matching rows to skip before the page starts.
+   * @param limit The most rows to put on the page.
+   * @return The page of rows found, and the row the next page starts from.
+   * @throws IllegalArgumentException If the query is not written as BooleanQuery describes.
+   * @throws InvalidIndexException If a column index is not valid.
+   * @throws HeaderNotFoundException If a column header is not found.
+   * @throws ColumnTypeException If a column compared by <, <=, > or >= is not numeric.
+   */
+  public Page searchQuery(String query, int fromRow, int skip, int limit)
+      throws InvalidIndexException, HeaderNotFoundException, ColumnTypeException {
+    RowBitmap matches = new BooleanQuery(this, query).evaluate();
+    return this.page(matches.rows(fromRow, wanted(skip, limit)), skip, limit);
+  }
+
+  /**
+   * Finds every row holding a value in a column, ignoring case, for a BooleanQuery.
+   *
+   * @param index The column index.
+   * @param value The value to match.
+   * @return The matching rows.
+   * @throws InvalidIndexException If the index is not a column.
+   */
+  RowBitmap rowsEqual(int index, String value) throws InvalidIndexException {
+    if (index < 0 || index >= this.table.width()) {
       throw new InvalidIndexException("Index \"" + index + "\" is not valid!");
     }
-    // Search through data.
-    ArrayList<ArrayList<String>> results = new ArrayList<>();
-    for (int i = (this.hasHeader) ? 1 : 0; i < data.size(); i++) {
-      if (data.get(i).get(index).equalsIgnoreCase(value.trim())) {
-        results.add(data.get(i));
+    return RowBitmap.of(this.columnIndex(index).rowsMatching(value.trim(), 0, Integer.MAX_VALUE));
+  }
+
+  /**
+   * Finds every row whose number in a numeric column is between min and max, inclusive, for a
+   * BooleanQuery.
+   *
+   * @param index The column index.
+   * @param min The smallest number to match, or negative infinity for no lower bound.
+   * @param max The largest number to match, or positive infinity for no upper bound.
+   * @return The matching rows.
+   * @throws InvalidIndexException If the index is not a column.
+   * @throws ColumnTypeException If the column is not numeric.
+   */
+  RowBitmap rowsBetween(int index, double min, double max)
+      throws InvalidIndexException, ColumnTypeException {
+    if (index < 0 || index >= this.table.width()) {
+      throw new InvalidIndexException("Index \"" + index + "\" is not valid!");
+    }
+    if (this.types[index] == ColumnType.TEXT) {
+      throw new ColumnTypeException("Column \"" + index + "\" is not numeric!");
+    }
+    return this.numericIndex(index).bitmapBetween(min, max);
+  }
+
+  /**
+   * Groups the rows by the values in some columns and computes aggregates over each group, such as
+   * the count of its rows or the average of a numeric column. Rows are grouped by exact value, and
+   * each aggregated column is read through its NumericIndex, so no cell is parsed. Large tables are
+   * aggregated on several threads.
+   *
+   * @param groupBy The columns to group by, or none to aggregate every row as one group.
+   * @param aggregates The aggregates to compute, whose columns must be numeric.
+   * @param parallelism The number of threads that may be used.
+   * @return A row per group in the order of the group's first row: the group's values in the
+   *     group-by columns, then each aggregate's value, or null where a group has no numbers.
+   * @throws InvalidIndexException If a column is not valid.
+   * @throws ColumnTypeException If an aggregated column is not numeric.
+   */
+  public List<List<Object>> aggregate(int[] groupBy, List<Aggregate> aggregates, int parallelism)
+      throws InvalidIndexException, ColumnTypeException {
+    for (int column : groupBy) {
+      if (column < 0 || column >= this.table.width()) {
+        throw new InvalidIndexException("Index \"" + column + "\" is not valid!");
+      }
+    }
+    NumericIndex[] numbers = new NumericIndex[aggregates.size()];
+    for (int i = 0; i < numbers.length; i++) {
+      Aggregate aggregate = aggregates.get(i);
+      if (aggregate.function() == Aggregate.Function.COUNT) {
+        continue;
+      }
+      int column = aggregate.column();
+      if (column < 0 || column >= this.table.width()) {
+        throw new InvalidIndexException("Index \"" + column + "\" is not valid!");
+      }
+      if (this.types[column] == ColumnType.TEXT) {
+        throw new ColumnTypeException("Column \"" + column + "\" is not numeric!");
+      }
+      numbers[i] = this.numericIndex(column);
+    }
+    return new GroupBy(this.table, groupBy).aggregate(aggregates, numbers, parallelism);
+  }
+
+  /**
+   * Returns the type of each column, as inferred from its values when the rows were loaded.
+   *
+   * @return an unmodifiable List with the type of each column.
+   */
+  public List<ColumnType> columnTypes() {
+    return List.of(this.types);
+  }
+
+  /**
+   * Builds the index and text index of every column now, rather than on each column's first search,
+   * along with the numeric index of every numeric column.
+   */
+  public void buildIndexes() {
+    for (int i = 0; i < this.table.width(); i++) {
+      this.textIndex(i);
+      if (this.types[i] != ColumnType.TEXT) {
+        this.numericIndex(i);
+      }
+    }
+  }
+
+  /**
+   * Builds an inverted index over every column, so whole-table searches cost time in proportion to
+   * the number of matching rows rather than the size of the table. Does nothing if one is built.
+   */
+  public void buildInvertedIndex() {
+    if (this.invertedIndex == null) {
+      this.invertedIndex = new InvertedIndex(this.table);
+    }
+  }
+
+  /**
+   * A helper method that returns how many matching rows a page needs: those to skip, those on the
+   * page, and one more to know where the next page starts.
+   *
+   * @param skip The number of matching rows to skip.
+   * @param limit The most rows to put on the page.
+   * @return The number of matching rows to find, capped at Integer.MAX_VALUE.
+   */
+  private static int wanted(int skip, int limit) {
+    return (int) Math.min(Integer.MAX_VALUE, (long) skip + limit + 1);
+  }
+
+  /**
+   * A helper method that cuts a page out of the first matching rows.
+   *
+   * @param rows The first matching rows from where the search started, in ascending order.
+   * @param skip The number of matching rows to skip.
+   * @param limit The most rows to put on the page.
+   * @return The page, whose nextRow is the first match after it, or -1 if there is none.
+   */
+  private Page page(int[] rows, int skip, int limit) {
+    int start = Math.min(skip, rows.length);
+    int end = (int) Math.min(rows.length, (long) start + limit);
+    int nextRow = (end < rows.length) ? rows[end] : -1;
+    return new Page(this.table.rows(Arrays.copyOfRange(rows, start, end)), nextRow);
+  }
+
+  /**
+   * A helper method that returns a column's index, building it if this is the first search of the
+   * column. Concurrent first searches may both build it, but only one index is kept.
+   *
+   * @param column The column to get the index of.
+   * @return The column's index.
+   */
+  private ColumnIndex columnIndex(int column) {
+    ColumnIndex index = this.indexes.get(column);
+    if (index == null) {
+      this.indexes.compareAndSet(column, null, new ColumnIndex(this.table.column(column)));
+      index = this.indexes.get(column);
+    }
+    return index;
+  }
+
+  /**
+   * A helper method that returns a numeric column's index, building it if this is the first range
+   * search of the column. Concurrent first searches may both build it, but only one index is kept.
+   *
+   * @param column The numeric column to get the index of.
+   * @return The column's numeric index.
+   */
+  private NumericIndex numericIndex(int column) {
+    NumericIndex index = this.numericIndexes.get(column);
+    if (index == null) {
+      this.numericIndexes.compareAndSet(column, null, new NumericIndex(this.table.column(column)));
+      index = this.numericIndexes.get(column);
+    }
+    return index;
+  }
+
+  /**
+   * A helper method that returns a column's text index, building it and the column's index if this
+   * is the first text search of the column. Concurrent first searches may both build it, but only
+   * one index is kept.
+   *
+   * @param column The column to get the text index of.
+   * @return The column's text index.
+   */
+  private TextIndex textIndex(int column) {
+    TextIndex index = this.textIndexes.get(column);
+    if (index == null) {
+      this.textIndexes.compareAndSet(
+          column, null, new TextIndex(this.table.column(column), this.columnIndex(column)));
+      index = this.textIndexes.get(column);
+    }
+    return index;
+  }
+
+  /**
+   * A helper method that infers the type of each column of a finished table.
+   *
+   * @param table The finished table.
+   * @return The type of each column.
+   */
+  private static ColumnType[] inferTypes(ColumnarTable table) {
+    ColumnType[] types = new ColumnType[table.width()];
+    for (int i = 0; i < types.length; i++) {
+      types[i] = ColumnType.infer(table.column(i));
+    }
+    return types;
+  }
+
+  /**
+   * A helper method that finds which of a column's distinct values equal the target, ignoring case.
+   * Keys are compared by hash first, so only likely matches are compared character by character.
+   *
+   * @param column The column to check.
+   * @param key The trimmed value to look for, already folded with CaseFolding.fold.
+   * @return An array marking each matching code, or null if no value matches.
+   */
+  private static boolean[] matchingCodes(DictionaryColumn column, String key) {
+    int hash = key.hashCode();
+    boolean[] matches = null;
+    for (int code = 0; code < column.distinctCount(); code++) {
+      if (column.foldedHash(code) == hash && column.foldedKey(code).equals(key)) {
+        if (matches == null) {
+          matches = new boolean[column.distinctCount()];
+        }
+        matches[code] = true;
+      }
+    }
+    return matches;
+  }
+
+  /**
+   * Searches a stream of rows for every row containing the specified value, without loading the
+   * stream. Only the matching rows are kept, so a file can be searched once in constant memory by
+   * passing it CSVParser.stream(). The stream is not closed.
+   *
+   * @param rows The rows to search, such as those from CSVParser.stream().
+   * @param value The String value to find in the CSV data.
+   * @param hasHeader A boolean for whether the first row is a header to skip.
+   * @return A List of the rows found.
+   */
+  public static List<List<String>> searchAllData(
+      Stream<? extends List<String>> rows, String value, boolean hasHeader) {
+    String target = value.trim();
+    return rows.skip(hasHeader ? 1 : 0)
+        .filter(row -> row.stream().anyMatch(cell -> cell.equalsIgnoreCase(target)))
+        .collect(Collectors.toList());
+  }
+
+  /**
+   * Searches a stream of rows for every row containing the specified value in the specified column,
+   * without loading the stream. The index is checked against the width of the first row. The stream
+   * is not closed.
+   *
+   * @param rows The rows to search, such as those from CSVParser.stream().
+   * @param value The String value to find in the CSV data.
+   * @param index The column index in which to search for the value.
+   * @param hasHeader A boolean for whether the first row is a header to skip.
+   * @return A List of the rows found.
+   * @throws InvalidIndexException If the index is outside the first row.
+   */
+  public static List<List<String>> searchColByIndex(
+      Stream<? extends List<String>> rows, String value, int index, boolean hasHeader)
+      throws InvalidIndexException {
+    String target = value.trim();
+    List<List<String>> results = new ArrayList<>();
+    Iterator<? extends List<String>> iterator = rows.iterator();
+    boolean firstRow = true;
+    while (iterator.hasNext()) {
+      List<String> row = iterator.next();
+      if (firstRow) {
+        // Check valid index.
+        if (index < 0 || index >= row.size()) {
+          throw new InvalidIndexException("Index \"" + index + "\" is not valid!");
+        }
+        firstRow = false;
+        if (hasHeader) {
+          continue;
+        }
+      }
+      if (row.get(index).equalsIgnoreCase(target)) {
+        results.add(row);
       }
     }
-    return new ArrayList<>(results);
+    return results;
   }
 
   /**
-   * A getter method for the parsed csv data. Creates a defensive copy of the data to avoid
-   * tampering.
+   * A getter method for the parsed csv data, including the header row. The result is a read-only
+   * view over the loaded columns, so it costs no copy and may be shared between threads.
    *
    * @return the data parsed with the parser given in the constructor.
    */
   public List<List<String>> getData() {
-    return new ArrayList<>(this.data);
+    List<List<String>> rows = this.table.rows();
+    if (!this.hasHeader) {
+      return rows;
+    }
+    List<String> header = this.header;
+    return new AbstractList<>() {
+      @Override
+      public List<String> get(int index) {
+        return (index == 0) ? header : rows.get(index - 1);
+      }
+
+      @Override
+      public int size() {
+        return rows.size() + 1;
+      }
+    };
+  }
+
+  /**
+   * Returns one page of the parsed csv data, counting the header as the first row if there is one.
+   *
+   * @param fromRow The first row of the page before skipping, such as the nextRow of an earlier
+   *     page.
+   * @param skip The number of rows to skip before the page starts.
+   * @param limit The most rows to put on the page.
+   * @return The page of rows, and the row the next page starts from.
+   */
+  public Page getData(int fromRow, int skip, int limit) {
+    List<List<String>> data = this.getData();
+    int start = (int) Math.min(data.size(), Math.max(fromRow, 0) + (long) skip);
+    int end = (int) Math.min(data.size(), (long) start + limit);
+    return new Page(data.subList(start, end), (end < data.size()) ? end : -1);
+  }
+
+  /**
+   * Returns the number of rows loaded, not counting the header.
+   *
+   * @return the row count.
+   */
+  public int rowCount() {
+    return this.table.rowCount();
+  }
+
+  /**
+   * Estimates the heap used by the loaded data and any indexes built so far. The table does not
+   * change once loaded, so its size is measured once and this stays cheap enough to call after
+   * every search.
+   *
+   * @return the estimated size in bytes.
+   */
+  public long estimatedBytes() {
+    long bytes = this.tableBytes;
+    if (bytes < 0) {
+      bytes = this.table.estimatedBytes();
+      this.tableBytes = bytes;
+    }
+    return bytes + this.indexBytes();
+  }
+
+  /**
+   * Estimates the heap used by the indexes built so far, without the loaded data.
+   *
+   * @return the estimated size in bytes.
+   */
+  public long indexBytes() {
+    long bytes = 0;
+    for (int i = 0; i < this.indexes.length(); i++) {
+      ColumnIndex index = this.indexes.get(i);
+      bytes += (index == null) ? 0 : index.estimatedBytes();
+      NumericIndex numeric = this.numericIndexes.get(i);
+      bytes += (numeric == null) ? 0 : numeric.estimatedBytes();
+      TextIndex text = this.textIndexes.get(i);
+      bytes += (text == null) ? 0 : text.estimatedBytes();
+    }
+    InvertedIndex inverted = this.invertedIndex;
+    return bytes + ((inverted == null) ? 0 : inverted.estimatedBytes());
   }
 }
@@ -0,0 +1,112 @@
+package edu.brown.cs.student.main.csv.utilities;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A hand-written state machine that splits one line of a CSV into its cells in a single pass.
+ * Commas inside double quotes do not split a cell. Each cell is trimmed of surrounding whitespace
+ * and a single pair of enclosing quotes is removed, with only one substring made per cell.
+ */
+public class CSVTokenizer {
+  private int expectedWidth; // Width of the last row, used to size the next one.
+
+  /** Constructor initializes the expected row width. */
+  public CSVTokenizer() {
+    this.expectedWidth = 10;
+  }
+
+  /**
+   * Splits the given line into its trimmed, unquoted cells. Unlike String.split, trailing empty
+   * cells are kept, so "a,b," has three cells.
+   *
+   * @param line The line of the CSV to split.
+   * @return A list of the cells in the line.
+   */
+  public List<String> tokenize(String line) {
+    List<String> cells = new ArrayList<>(this.expectedWidth);
+    boolean inQuotes = false;
+    int cellStart = 0;
+    int length = line.length();
+    for (int i = 0; i < length; i++) {
+      char c = line.charAt(i);
+      if (c == '"') {
+        inQuotes = !inQuotes;
+      } else if (c == ',' && !inQuotes) {
+        cells.add(cell(line, cellStart, i));
+        cellStart = i + 1;
+      }
+    }
+    cells.add(cell(line, cellStart, length));
+    this.expectedWidth = cells.size();
+    return cells;
+  }
+
+  /**
+   * Splits the given line like tokenize, but only trims and copies the cells in a projection,
+   * returning them in the projection's order. Projected cells the line does not have are empty.
+   *
+   * @param line The line of the CSV to split.
+   * @param projection The columns to keep.
+   * @return A list of the projected cells in the line.
+   */
+  List<String> tokenize(String line, Projection projection) {
+    String[] cells = new String[projection.width()];
+    Arrays.fill(cells, "");
+    boolean inQuotes = false;
+    int cellStart = 0;
+    int column = 0;
+    int length = line.length();
+    for (int i = 0; i < length; i++) {
+      char c = line.charAt(i);
+      if (c == '"') {
+        inQuotes = !inQuotes;
+      } else if (c == ',' && !inQuotes) {
+        int slot = projection.slot(column++);
+        if (slot >= 0) {
+          cells[slot] = cell(line, cellStart, i);
+        }
+        cellStart = i + 1;
+      }
+    }
+    int slot = projection.slot(column++);
+    if (slot >= 0) {
+      cells[slot] = cell(line, cellStart, length);
+    }
+    this.expectedWidth = column;
+    return Arrays.asList(cells);
+  }
+
+  /**
+   * Returns the number of cells in the line split last, including any a projection left out.
+   *
+   * @return The width of the last line.
+   */
+  int width() {
+    return this.expectedWidth;
+  }
+
+  /**
+   * Builds a single cell from the line, skipping surrounding whitespace and one pair of enclosing
+   * quotes before taking the substring.
+   *
+   * @param line The line the cell is in.
+   * @param start The index of the first character of the cell.
+   * @param end The index just past the last character of the cell.
+   * @return The trimmed and unquoted cell.
+   */
+  private static String cell(String line, int start, int end) {
+    while (start < end && line.charAt(start) <= ' ') {
+      start++;
+    }
+    while (end > start && line.charAt(end - 1) <= ' ') {
+      end--;
+    }
+    if (end - start >= 2 && line.charAt(start) == '"' && line.charAt(end - 1) == '"') {
+      start++;
+      end--;
+    }
+    return line.substring(start, end);
+  }
+}
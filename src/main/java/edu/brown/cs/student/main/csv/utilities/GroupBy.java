@@ -0,0 +1,325 @@
+package edu.brown.cs.student.main.csv.utilities;
+
+import edu.brown.cs.student.main.csv.index.NumericIndex;
+import edu.brown.cs.student.main.csv.storage.ColumnarTable;
+import edu.brown.cs.student.main.csv.storage.DictionaryColumn;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Groups the rows of a finished ColumnarTable by the values of some columns and aggregates each
+ * group, column by column. The group-by columns' dictionary codes are combined into one group id
+ * per row, so rows are grouped by exact value without reading a String. Each aggregated column is
+ * then read in a single pass over its codes, as numbers from its NumericIndex. Tables with at least
+ * PARALLEL_ROWS rows are aggregated in row-range chunks across a ForkJoinPool, whose partial
+ * results are merged in chunk order, unless there are so many groups that each thread's partial
+ * results would outweigh its rows. Groups are listed in the order of their first row.
+ */
+final class GroupBy {
+  static final int PARALLEL_ROWS = 1 << 16; // Smaller tables are aggregated on one thread.
+  private final ColumnarTable table;
+  private final int[] columns; // The group-by columns.
+  private final int[] groupOf; // The group id of each row, or null if there is one group.
+  private final int groups; // The number of group ids, some of which may have no rows.
+
+  /**
+   * The constructor assigns each row its group id. Codes are combined as digits of a mixed-radix
+   * number while the ids that could result stay few. Past that, the ids seen so far are renumbered
+   * densely with a hash table, so ids never outnumber the rows.
+   *
+   * @param table The finished table.
+   * @param columns The valid columns to group by, which may be empty.
+   */
+  GroupBy(ColumnarTable table, int[] columns) {
+    this.table = table;
+    this.columns = columns.clone();
+    if (columns.length == 0) {
+      this.groupOf = null;
+      this.groups = 1;
+      return;
+    }
+    int rows = table.rowCount();
+    int denseLimit = Math.max(1 << 16, rows);
+    DictionaryColumn first = table.column(columns[0]);
+    int[] ids = new int[rows];
+    for (int row = 0; row < rows; row++) {
+      ids[row] = first.code(row);
+    }
+    long groups = first.distinctCount();
+    for (int i = 1; i < columns.length; i++) {
+      DictionaryColumn column = table.column(columns[i]);
+      long distinct = column.distinctCount();
+      if (groups * distinct <= denseLimit) {
+        for (int row = 0; row < rows; row++) {
+          ids[row] = (int) (ids[row] * distinct + column.code(row));
+        }
+        groups *= distinct;
+      } else {
+        groups = renumber(ids, column, distinct);
+      }
+    }
+    this.groupOf = ids;
+    this.groups = (int) groups;
+  }
+
+  /**
+   * Aggregates every group.
+   *
+   * @param aggregates The functions to compute, in the order their values are listed.
+   * @param numbers The NumericIndex of each aggregate's column, or null for COUNT.
+   * @param parallelism The number of threads to aggregate with.
+   * @return A row per group: its values in the group-by columns, then each aggregate's value.
+   */
+  List<List<Object>> aggregate(
+      List<Aggregate> aggregates, NumericIndex[] numbers, int parallelism) {
+    // Each column is read once, however many functions of it are asked for.
+    int[] read =
+        aggregates.stream()
+            .filter(aggregate -> aggregate.function() != Aggregate.Function.COUNT)
+            .mapToInt(Aggregate::column)
+            .distinct()
+            .toArray();
+    NumericIndex[] readNumbers = new NumericIndex[read.length];
+    for (int i = 0; i < aggregates.size(); i++) {
+      if (numbers[i] != null) {
+        readNumbers[indexOf(read, aggregates.get(i).column())] = numbers[i];
+      }
+    }
+
+    int rows = this.table.rowCount();
+    Partial total;
+    if (parallelism <= 1 || rows < PARALLEL_ROWS || (long) this.groups * parallelism > rows) {
+      total = this.partial(read, readNumbers, 0, rows);
+    } else {
+      total = this.parallel(read, readNumbers, parallelism);
+    }
+
+    // List the groups with rows in the order of their first row.
+    List<Integer> order = new ArrayList<>();
+    for (int group = 0; group < this.groups; group++) {
+      if (total.counts[group] > 0) {
+        order.add(group);
+      }
+    }
+    order.sort((a, b) -> Integer.compare(total.firstRows[a], total.firstRows[b]));
+    List<List<Object>> result = new ArrayList<>(order.size());
+    for (int group : order) {
+      List<Object> row = new ArrayList<>(this.columns.length + aggregates.size());
+      for (int column : this.columns) {
+        row.add(this.table.get(total.firstRows[group], column));
+      }
+      for (int i = 0; i < aggregates.size(); i++) {
+        int slot = indexOf(read, aggregates.get(i).column());
+        row.add(total.value(aggregates.get(i).function(), slot, group, numbers[i]));
+      }
+      result.add(row);
+    }
+    return result;
+  }
+
+  /**
+   * A helper method that aggregates row-range chunks on a ForkJoinPool and merges them in order.
+   * There are no more chunks than processors, and the pool has one thread per chunk.
+   *
+   * @param read The columns to read.
+   * @param numbers The NumericIndex of each column to read.
+   * @param parallelism The most threads to aggregate with.
+   * @return The merged aggregates of every row.
+   */
+  private Partial parallel(int[] read, NumericIndex[] numbers, int parallelism) {
+    int rows = this.table.rowCount();
+    int threads = Math.min(parallelism, Runtime.getRuntime().availableProcessors());
+    int chunks = Math.max(1, Math.min(threads, rows / (PARALLEL_ROWS / 2)));
+    ForkJoinPool pool = new ForkJoinPool(chunks);
+    try {
+      List<ForkJoinTask<Partial>> tasks = new ArrayList<>();
+      for (int i = 0; i < chunks; i++) {
+        int start = (int) ((long) rows * i / chunks);
+        int end = (int) ((long) rows * (i + 1) / chunks);
+        tasks.add(pool.submit(() -> this.partial(read, numbers, start, end)));
+      }
+      Partial total = tasks.get(0).get();
+      for (int i = 1; i < tasks.size(); i++) {
+        total.merge(tasks.get(i).get());
+      }
+      return total;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while aggregating", e);
+    } catch (ExecutionException e) {
+      throw new IllegalStateException("Failed to aggregate", e.getCause());
+    } finally {
+      pool.shutdownNow();
+    }
+  }
+
+  /**
+   * A helper method that aggregates one range of rows: a pass counting the rows of each group, then
+   * a pass over each column to read.
+   *
+   * @param read The columns to read.
+   * @param numbers The NumericIndex of each column to read.
+   * @param start The first row of the range.
+   * @param end The row after the range.
+   * @return The aggregates of the range.
+   */
+  private Partial partial(int[] read, NumericIndex[] numbers, int start, int end) {
+    Partial partial = new Partial(this.groups, read.length);
+    for (int row = start; row < end; row++) {
+      int group = (this.groupOf == null) ? 0 : this.groupOf[row];
+      if (partial.counts[group]++ == 0) {
+        partial.firstRows[group] = row;
+      }
+    }
+    for (int i = 0; i < read.length; i++) {
+      DictionaryColumn column = this.table.column(read[i]);
+      NumericIndex index = numbers[i];
+      long[] seen = partial.seen[i];
+      double[] sums = partial.sums[i];
+      double[] mins = partial.mins[i];
+      double[] maxes = partial.maxes[i];
+      for (int row = start; row < end; row++) {
+        double number = index.number(column.code(row));
+        if (Double.isNaN(number)) {
+          continue;
+        }
+        int group = (this.groupOf == null) ? 0 : this.groupOf[row];
+        seen[group]++;
+        sums[group] += number;
+        mins[group] = Math.min(mins[group], number);
+        maxes[group] = Math.max(maxes[group], number);
+      }
+    }
+    return partial;
+  }
+
+  /**
+   * A helper method that combines the group ids so far with one more column, renumbering the
+   * combinations densely in order of first row with an open-addressing hash table.
+   *
+   * @param ids The group id of each row so far, replaced with the new ids.
+   * @param column The next column to group by.
+   * @param distinct The number of distinct values in the column.
+   * @return The number of new group ids.
+   */
+  private static int renumber(int[] ids, DictionaryColumn column, long distinct) {
+    int capacity = Integer.highestOneBit(Math.max(2 * ids.length, 16) - 1) << 1;
+    long[] keys = new long[capacity];
+    int[] values = new int[capacity];
+    Arrays.fill(keys, -1);
+    int mask = capacity - 1;
+    int next = 0;
+    for (int row = 0; row < ids.length; row++) {
+      long key = ids[row] * distinct + column.code(row);
+      int slot = (int) (key * 0x9E3779B97F4A7C15L >>> 33) & mask;
+      while (keys[slot] != -1 && keys[slot] != key) {
+        slot = (slot + 1) & mask;
+      }
+      if (keys[slot] == -1) {
+        keys[slot] = key;
+        values[slot] = next++;
+      }
+      ids[row] = values[slot];
+    }
+    return next;
+  }
+
+  /**
+   * A helper method that finds a column in the columns to read.
+   *
+   * @param read The columns to read.
+   * @param column The column, or -1 for none.
+   * @return The column's position in read, or -1 if it is not there.
+   */
+  private static int indexOf(int[] read, int column) {
+    for (int i = 0; i < read.length; i++) {
+      if (read[i] == column) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /** The aggregates of each group over some range of rows. */
+  private static final class Partial {
+    private final long[] counts; // The rows of each group.
+    private final int[] firstRows; // The first row of each group, if it has any.
+    private final long[][] seen; // The numbers read in each column, by group.
+    private final double[][] sums; // The sum of each column's numbers, by group.
+    private final double[][] mins; // The smallest of each column's numbers, by group.
+    private final double[][] maxes; // The largest of each column's numbers, by group.
+
+    /**
+     * Constructor creates empty aggregates.
+     *
+     * @param groups The number of group ids.
+     * @param columns The number of columns read.
+     */
+    private Partial(int groups, int columns) {
+      this.counts = new long[groups];
+      this.firstRows = new int[groups];
+      this.seen = new long[columns][groups];
+      this.sums = new double[columns][groups];
+      this.mins = new double[columns][groups];
+      this.maxes = new double[columns][groups];
+      for (int i = 0; i < columns; i++) {
+        Arrays.fill(this.mins[i], Double.POSITIVE_INFINITY);
+        Arrays.fill(this.maxes[i], Double.NEGATIVE_INFINITY);
+      }
+    }
+
+    /**
+     * Adds the aggregates of a later range of rows to these.
+     *
+     * @param later The aggregates of rows after every row in these.
+     */
+    private void merge(Partial later) {
+      for (int group = 0; group < this.counts.length; group++) {
+        if (this.counts[group] == 0) {
+          this.firstRows[group] = later.firstRows[group];
+        }
+        this.counts[group] += later.counts[group];
+      }
+      for (int i = 0; i < this.seen.length; i++) {
+        for (int group = 0; group < this.counts.length; group++) {
+          this.seen[i][group] += later.seen[i][group];
+          this.sums[i][group] += later.sums[i][group];
+          this.mins[i][group] = Math.min(this.mins[i][group], later.mins[i][group]);
+          this.maxes[i][group] = Math.max(this.maxes[i][group], later.maxes[i][group]);
+        }
+      }
+    }
+
+    /**
+     * Computes one aggregate of a group. Sums, minimums and maximums of a column of whole numbers
+     * are given as Longs while they are exact, and as Doubles otherwise.
+     *
+     * @param function The function to compute.
+     * @param slot The position of its column in the columns read, or -1 for COUNT.
+     * @param group The group.
+     * @param numbers The NumericIndex of its column, or null for COUNT.
+     * @return The value, or null if the group has no numbers in the column.
+     */
+    private Object value(Aggregate.Function function, int slot, int group, NumericIndex numbers) {
+      if (function == Aggregate.Function.COUNT) {
+        return this.counts[group];
+      }
+      if (this.seen[slot][group] == 0) {
+        return null;
+      }
+      double value =
+          switch (function) {
+            case SUM -> this.sums[slot][group];
+            case MIN -> this.mins[slot][group];
+            case MAX -> this.maxes[slot][group];
+            default -> this.sums[slot][group] / this.seen[slot][group];
+          };
+      boolean exact = numbers.integral() && Math.abs(value) <= (1L << 53);
+      return (exact && function != Aggregate.Function.AVG) ? (Object) (long) value : value;
+    }
+  }
+}
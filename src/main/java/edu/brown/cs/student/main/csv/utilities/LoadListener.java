@@ -0,0 +1,16 @@
+package edu.brown.cs.student.main.csv.utilities;
+
+/** A callback that a CSVSearcher reports its progress to while it loads a CSV. */
+@FunctionalInterface
+public interface LoadListener {
+  // A listener that ignores every report.
+  LoadListener NONE = (rows, bytes) -> {};
+
+  /**
+   * Called from the loading thread every few thousand rows, and once more after the last row.
+   *
+   * @param rows The number of rows read so far, including any header.
+   * @param bytes The number of bytes of the file parsed so far, or -1 if it is not known.
+   */
+  void progress(long rows, long bytes);
+}
@@ -0,0 +1,242 @@
+package edu.brown.cs.student.main.csv.utilities;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * A RowSource that reads a memory-mapped file as raw UTF-8 bytes, without decoding it through a
+ * Reader. The file is mapped through a sliding window, and bytes are bulk-copied out of the mapping
+ * into blocks that are scanned for rows with the same rules as CSVTokenizer. Cells are handed out
+ * as lazy CSVRows over the block, so nothing is decoded until a creator asks for it. With a
+ * Projection, only the projected cells are trimmed and recorded.
+ */
+class MappedRowSource implements RowSource {
+  static final int DEFAULT_WINDOW_SIZE = 1 << 28; // 256 MB per mapping.
+  static final int BLOCK_SIZE = 1 << 20; // 1 MB of bytes scanned at a time.
+  private final FileChannel channel;
+  private final long fileSize; // File offset at which to stop reading.
+  private final int windowSize;
+  private MappedByteBuffer window; // The currently mapped region of the file, if any.
+  private long windowStart; // File offset of the start of the window.
+  private long readOffset; // File offset of the next byte to copy into a block.
+  private byte[] block; // The bytes currently being scanned.
+  private int blockLimit; // Number of valid bytes in the block.
+  private int position; // Offset of the next row within the block.
+  private int[] bounds; // Scratch space for cell bounds, sized to the widest row so far.
+  private final Projection projection; // The cells to record, or null for every cell.
+  private int width; // The number of cells in the last row, recorded or not.
+
+  /**
+   * The constructor opens the file; regions are mapped as they are reached.
+   *
+   * @param path The path of the file to read.
+   * @param windowSize The largest number of bytes to map at once.
+   * @throws IOException If the file cannot be opened.
+   */
+  MappedRowSource(Path path, int windowSize) throws IOException {
+    this(path, 0, Long.MAX_VALUE, windowSize);
+  }
+
+  /**
+   * An alternate constructor that only reads the rows in a byte range of the file. The range must
+   * start at the beginning of a row and end just after a line break or at the end of the file.
+   *
+   * @param path The path of the file to read.
+   * @param start The file offset of the first row to read.
+   * @param end The file offset to stop reading at, clipped to the size of the file.
+   * @param windowSize The largest number of bytes to map at once.
+   * @throws IOException If the file cannot be opened.
+   */
+  MappedRowSource(Path path, long start, long end, int windowSize) throws IOException {
+    this(path, start, end, windowSize, null);
+  }
+
+  /**
+   * An alternate constructor that reads a byte range of the file, recording only the cells in a
+   * projection.
+   *
+   * @param path The path of the file to read.
+   * @param start The file offset of the first row to read.
+   * @param end The file offset to stop reading at, clipped to the size of the file.
+   * @param windowSize The largest number of bytes to map at once.
+   * @param projection The columns to record, or null for every column.
+   * @throws IOException If the file cannot be opened.
+   */
+  MappedRowSource(Path path, long start, long end, int windowSize, Projection projection)
+      throws IOException {
+    try {
+      this.channel = FileChannel.open(path, StandardOpenOption.READ);
+    } catch (NoSuchFileException e) {
+      // Match the exception a FileReader would throw for a missing file.
+      throw new FileNotFoundException(path + " (No such file or directory)");
+    }
+    this.fileSize = Math.min(end, this.channel.size());
+    this.windowSize = windowSize;
+    this.readOffset = start;
+    this.block = new byte[0];
+    this.projection = projection;
+    this.bounds = new int[(projection == null) ? 20 : Math.max(2, 2 * projection.width())];
+  }
+
+  /** An implementation of nextRow as defined in RowSource. */
+  @Override
+  public CSVRow nextRow() throws IOException {
+    CSVRow row;
+    while ((row = this.scanRow()) == null) {
+      if (this.readOffset >= this.fileSize) {
+        return null; // Nothing left in the block or the file.
+      }
+      this.refill();
+    }
+    return row;
+  }
+
+  /** An implementation of width as defined in RowSource. */
+  @Override
+  public int width() {
+    return this.width;
+  }
+
+  /**
+   * Returns the file offset of the next row to be read.
+   *
+   * @return The offset of the start of the next row.
+   */
+  long offset() {
+    return this.readOffset - (this.blockLimit - this.position);
+  }
+
+  /** Closes the underlying channel. */
+  @Override
+  public void close() throws IOException {
+    this.channel.close();
+  }
+
+  /**
+   * Starts a new block holding the unscanned end of the current block followed by as many bytes of
+   * the file as fit. A fresh array is used so rows handed out earlier stay valid, and the block
+   * doubles in size if a single row fills it.
+   *
+   * @throws IOException If a region of the file cannot be mapped.
+   */
+  private void refill() throws IOException {
+    int carry = this.blockLimit - this.position;
+    byte[] next = new byte[Math.max(BLOCK_SIZE, 2 * carry)];
+    System.arraycopy(this.block, this.position, next, 0, carry);
+    int filled = carry;
+    while (filled < next.length && this.readOffset < this.fileSize) {
+      long windowEnd = this.windowStart + (this.window == null ? 0 : this.window.limit());
+      if (this.readOffset >= windowEnd) {
+        this.windowStart = this.readOffset;
+        this.window =
+            this.channel.map(
+                FileChannel.MapMode.READ_ONLY,
+                this.windowStart,
+                Math.min(this.windowSize, this.fileSize - this.windowStart));
+        windowEnd = this.windowStart + this.window.limit();
+      }
+      int length = (int) Math.min(next.length - filled, windowEnd - this.readOffset);
+      this.window.get((int) (this.readOffset - this.windowStart), next, filled, length);
+      filled += length;
+      this.readOffset += length;
+    }
+    this.block = next;
+    this.blockLimit = filled;
+    this.position = 0;
+  }
+
+  /**
+   * Scans one row starting at the current position, recording the bounds of each cell.
+   *
+   * @return The row, or null if the row is not complete within the current block.
+   */
+  private CSVRow scanRow() {
+    if (this.position >= this.blockLimit) {
+      return null;
+    }
+    byte[] bytes = this.block;
+    int limit = this.blockLimit;
+    boolean atEndOfFile = this.readOffset >= this.fileSize;
+    boolean inQuotes = false;
+    int cellStart = this.position;
+    int cellCount = 0;
+    int i = this.position;
+    int next = -1; // Offset of the row after this one.
+    if (this.projection != null) {
+      // Projected cells the row does not have are left empty.
+      Arrays.fill(this.bounds, 0);
+    }
+    for (; i < limit; i++) {
+      byte b = bytes[i];
+      if (b == '"') {
+        inQuotes = !inQuotes;
+      } else if (b == ',' && !inQuotes) {
+        cellCount = this.addCell(bytes, cellCount, cellStart, i);
+        cellStart = i + 1;
+      } else if (b == '\n') {
+        next = i + 1;
+        break;
+      } else if (b == '\r') {
+        if (i + 1 < limit) {
+          next = (bytes[i + 1] == '\n') ? i + 2 : i + 1;
+          break;
+        }
+        if (!atEndOfFile) {
+          return null; // Cannot tell yet if this is a \r\n pair.
+        }
+        next = i + 1;
+        break;
+      }
+    }
+    if (next < 0) {
+      if (!atEndOfFile) {
+        return null;
+      }
+      next = limit;
+    }
+    cellCount = this.addCell(bytes, cellCount, cellStart, i);
+    this.position = next;
+    this.width = cellCount;
+    int recorded = (this.projection == null) ? cellCount : this.projection.width();
+    return new CSVRow(bytes, Arrays.copyOf(this.bounds, 2 * recorded));
+  }
+
+  /**
+   * Records the bounds of one cell after trimming whitespace and a pair of enclosing quotes. A cell
+   * outside the projection is only counted.
+   *
+   * @param bytes The block the cell is in.
+   * @param cellCount The number of cells recorded so far.
+   * @param start The offset of the first byte of the cell.
+   * @param end The offset just past the last byte of the cell.
+   * @return The new number of cells recorded.
+   */
+  private int addCell(byte[] bytes, int cellCount, int start, int end) {
+    int slot = (this.projection == null) ? cellCount : this.projection.slot(cellCount);
+    if (slot < 0) {
+      return cellCount + 1;
+    }
+    while (start < end && (bytes[start] & 0xff) <= ' ') {
+      start++;
+    }
+    while (end > start && (bytes[end - 1] & 0xff) <= ' ') {
+      end--;
+    }
+    if (end - start >= 2 && bytes[start] == '"' && bytes[end - 1] == '"') {
+      start++;
+      end--;
+    }
+    if (2 * slot + 2 > this.bounds.length) {
+      this.bounds = Arrays.copyOf(this.bounds, 2 * this.bounds.length);
+    }
+    this.bounds[2 * slot] = start;
+    this.bounds[2 * slot + 1] = end;
+    return cellCount + 1;
+  }
+}
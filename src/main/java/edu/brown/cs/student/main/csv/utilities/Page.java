@@ -0,0 +1,11 @@
+package edu.brown.cs.student.main.csv.utilities;
+
+import java.util.List;
+
+/**
+ * Page is a record of one page of rows from a CSVSearcher, along with where the next page starts.
+ *
+ * @param rows are the rows on this page.
+ * @param nextRow is the table row the next page starts from, or -1 if this is the last page.
+ */
+public record Page(List<List<String>> rows, int nextRow) {}
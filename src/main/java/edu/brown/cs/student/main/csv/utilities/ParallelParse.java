@@ -0,0 +1,216 @@
+package edu.brown.cs.student.main.csv.utilities;
+
+import edu.brown.cs.student.main.csv.creators.CreatorFromRow;
+import edu.brown.cs.student.main.csv.exceptions.FactoryFailureException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Parses a file in byte-range chunks across a ForkJoinPool. The first row is parsed on the calling
+ * thread so setRowSize is called before any other row is created. The rest of the file is cut into
+ * ranges whose split points are moved forward to the next line break. Rows never span lines (quote
+ * state resets at every line break, just like on the reader path), so a line break is always a row
+ * boundary that is not inside a quote. Chunks are joined back together in file order.
+ */
+class ParallelParse<T> {
+  static final int CHUNKS_PER_THREAD = 4; // Extra chunks so uneven rows still balance.
+  private final Path path;
+  private final CreatorFromRow<T> creatorFromRow;
+  private final Projection projection; // The columns the creator needs, or null for every column.
+  private final int parallelism;
+  private int firstWidth; // The width of the first row, which a projected row must match.
+  private long parsedBytes; // The length of the file that was parsed, once parse is done.
+
+  /**
+   * The constructor stores the file, creator and number of threads to parse with. The threads are
+   * capped at the number of processors, since more only add chunks and contention.
+   *
+   * @param path The path of the CSV file to parse.
+   * @param creatorFromRow The creator to build each row with, which must allow concurrent calls.
+   * @param projection The columns the creator needs, or null for every column.
+   * @param parallelism The number of threads to parse with, at least 1.
+   */
+  ParallelParse(
+      Path path, CreatorFromRow<T> creatorFromRow, Projection projection, int parallelism) {
+    this.path = path;
+    this.creatorFromRow = creatorFromRow;
+    this.projection = projection;
+    this.parallelism = Math.min(parallelism, Runtime.getRuntime().availableProcessors());
+  }
+
+  /**
+   * Parses the whole file.
+   *
+   * @return The created rows, in file order.
+   * @throws IOException If there is an error reading the file.
+   * @throws FactoryFailureException If there is an issue in any row, reporting the earliest chunk.
+   */
+  ArrayList<T> parse() throws IOException, FactoryFailureException {
+    ArrayList<T> data = new ArrayList<>();
+    long firstRowEnd;
+    try (MappedRowSource first = this.source(0, Long.MAX_VALUE)) {
+      List<String> firstRow = first.nextRow();
+      if (firstRow == null) {
+        return data;
+      }
+      this.firstWidth = first.width();
+      this.creatorFromRow.setRowSize(firstRow.size());
+      data.add(this.create(firstRow, first));
+      firstRowEnd = first.offset();
+    }
+
+    long[] splits = this.splitPoints(firstRowEnd);
+    ForkJoinPool pool = new ForkJoinPool(this.parallelism);
+    try {
+      List<ForkJoinTask<ArrayList<T>>> chunks = new ArrayList<>();
+      for (int i = 0; i + 1 < splits.length; i++) {
+        long start = splits[i];
+        long end = splits[i + 1];
+        chunks.add(pool.submit(() -> this.parseChunk(start, end)));
+      }
+      for (ForkJoinTask<ArrayList<T>> chunk : chunks) {
+        data.addAll(chunk.get());
+      }
+      this.parsedBytes = splits[splits.length - 1];
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while parsing " + this.path, e);
+    } catch (ExecutionException e) {
+      // The pool wraps checked exceptions from a chunk, so look through the causes for them.
+      for (Throwable cause = e.getCause(); cause != null; cause = cause.getCause()) {
+        if (cause instanceof FactoryFailureException) {
+          throw (FactoryFailureException) cause;
+        } else if (cause instanceof IOException) {
+          throw (IOException) cause;
+        }
+      }
+      throw new IOException("Failed to parse " + this.path, e.getCause());
+    } finally {
+      pool.shutdownNow();
+    }
+    return data;
+  }
+
+  /**
+   * Returns how much of the file was parsed, which is the file's size when parsing began.
+   *
+   * @return The number of bytes parsed, or 0 before parse is done or if the file was empty.
+   */
+  long parsedBytes() {
+    return this.parsedBytes;
+  }
+
+  /**
+   * Parses the rows in one byte range of the file.
+   *
+   * @param start The offset of the first row in the range.
+   * @param end The offset just past the last row in the range.
+   * @return The created rows in the range.
+   */
+  private ArrayList<T> parseChunk(long start, long end)
+      throws IOException, FactoryFailureException {
+    ArrayList<T> rows = new ArrayList<>();
+    try (MappedRowSource source = this.source(start, end)) {
+      List<String> row;
+      while ((row = source.nextRow()) != null) {
+        rows.add(this.create(row, source));
+      }
+    }
+    return rows;
+  }
+
+  /**
+   * Opens a row source over one byte range of the file, with the creator's projection.
+   *
+   * @param start The offset of the first row in the range.
+   * @param end The offset just past the last row in the range.
+   * @return The row source.
+   */
+  private MappedRowSource source(long start, long end) throws IOException {
+    return new MappedRowSource(
+        this.path, start, end, MappedRowSource.DEFAULT_WINDOW_SIZE, this.projection);
+  }
+
+  /**
+   * Builds one row with the creator, checking a projected row against the first row's width.
+   *
+   * @param row The cells of the row.
+   * @param source The source the row was read from.
+   * @return The created row.
+   */
+  private T create(List<String> row, MappedRowSource source) throws FactoryFailureException {
+    if (this.projection != null) {
+      this.projection.check(row, source.width(), this.firstWidth);
+    }
+    return this.creatorFromRow.create(row);
+  }
+
+  /**
+   * Cuts the file after the first row into evenly sized ranges, then moves each split point forward
+   * to the start of the next row.
+   *
+   * @param start The offset of the second row of the file.
+   * @return The sorted, distinct offsets bounding each range, from start to the end of the file.
+   */
+  private long[] splitPoints(long start) throws IOException {
+    try (FileChannel channel = FileChannel.open(this.path, StandardOpenOption.READ)) {
+      long size = channel.size();
+      int chunks = Math.max(1, this.parallelism * CHUNKS_PER_THREAD);
+      long step = Math.max(1, (size - start) / chunks);
+      List<Long> splits = new ArrayList<>();
+      splits.add(start);
+      for (int i = 1; i < chunks; i++) {
+        long split = nextRowStart(channel, start + i * step, size);
+        if (split > splits.get(splits.size() - 1) && split < size) {
+          splits.add(split);
+        }
+      }
+      splits.add(size);
+      return splits.stream().mapToLong(Long::longValue).toArray();
+    }
+  }
+
+  /**
+   * Finds the start of the first row that begins at or after the given offset.
+   *
+   * @param channel The open file.
+   * @param offset The offset to move forward from.
+   * @param size The size of the file.
+   * @return The offset just past the line break ending the row that contains offset - 1.
+   */
+  private static long nextRowStart(FileChannel channel, long offset, long size) throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate(8192);
+    long position = offset - 1;
+    while (position < size) {
+      buffer.clear();
+      int read = channel.read(buffer, position);
+      if (read <= 0) {
+        break;
+      }
+      for (int i = 0; i < read; i++) {
+        byte b = buffer.get(i);
+        if (b == '\n') {
+          return position + i + 1;
+        } else if (b == '\r') {
+          // Keep a \r\n pair together, even if it straddles two reads.
+          if (i + 1 < read) {
+            return position + i + ((buffer.get(i + 1) == '\n') ? 2 : 1);
+          }
+          ByteBuffer peek = ByteBuffer.allocate(1);
+          boolean pair = channel.read(peek, position + i + 1) == 1 && peek.get(0) == '\n';
+          return position + i + (pair ? 2 : 1);
+        }
+      }
+      position += read;
+    }
+    return size;
+  }
+}
@@ -0,0 +1,13 @@
+package edu.brown.cs.student.main.csv.utilities;
+
+/** The strategies CSVParser can use to split a line of the CSV into its cells. */
+public enum ParseEngine {
+  /** A single-pass, quote-aware character tokenizer. This is the default engine. */
+  TOKENIZER,
+
+  /**
+   * The original lookahead regex splitter. Kept for comparison; it re-scans the rest of the line at
+   * every comma and, like String.split, drops trailing empty cells.
+   */
+  REGEX
+}
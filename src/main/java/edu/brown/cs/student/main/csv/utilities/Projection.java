@@ -0,0 +1,95 @@
+package edu.brown.cs.student.main.csv.utilities;
+
+import edu.brown.cs.student.main.csv.exceptions.FactoryFailureException;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The columns a CreatorFromRow asked for, so that row sources only trim and copy the cells in those
+ * columns. The cells are handed to the creator in the order the columns were asked for.
+ */
+final class Projection {
+  private final int[] columns; // The projected columns, in the order they are handed out.
+  private final int[] slots; // The position of each column in the projected row, or -1.
+
+  /**
+   * The constructor maps each column to its position in the projected row.
+   *
+   * @param columns The distinct, non-negative column indexes to keep.
+   */
+  private Projection(int[] columns) {
+    this.columns = columns;
+    this.slots = new int[Arrays.stream(columns).max().orElse(-1) + 1];
+    Arrays.fill(this.slots, -1);
+    for (int i = 0; i < columns.length; i++) {
+      if (this.slots[columns[i]] >= 0) {
+        throw new IllegalArgumentException("Column " + columns[i] + " is projected twice");
+      }
+      this.slots[columns[i]] = i;
+    }
+  }
+
+  /**
+   * Builds the projection a creator asked for.
+   *
+   * @param columns The column indexes from CreatorFromRow.columns.
+   * @return The projection, or null if every column is kept.
+   * @throws IllegalArgumentException If an index is negative or listed twice.
+   */
+  static Projection of(int[] columns) {
+    if (columns == null) {
+      return null;
+    }
+    for (int column : columns) {
+      if (column < 0) {
+        throw new IllegalArgumentException("Column " + column + " is not a valid index");
+      }
+    }
+    return new Projection(columns.clone());
+  }
+
+  /**
+   * Finds where a column goes in the projected row.
+   *
+   * @param column The index of the column in the full row.
+   * @return The index of the column in the projected row, or -1 if it is not projected.
+   */
+  int slot(int column) {
+    return (column < this.slots.length) ? this.slots[column] : -1;
+  }
+
+  /** Returns the number of projected columns. */
+  int width() {
+    return this.columns.length;
+  }
+
+  /**
+   * Projects a full row, for row sources that split every cell anyway.
+   *
+   * @param row The full row.
+   * @return The projected cells, with cells the row is missing left empty.
+   */
+  List<String> project(List<String> row) {
+    String[] cells = new String[this.columns.length];
+    for (int i = 0; i < cells.length; i++) {
+      cells[i] = (this.columns[i] < row.size()) ? row.get(this.columns[i]) : "";
+    }
+    return Arrays.asList(cells);
+  }
+
+  /**
+   * Checks a row before it is handed to the creator. The creator only sees the projected cells, so
+   * it cannot tell a malformed row itself; instead every row must be as wide as the first, which
+   * must have all the projected columns.
+   *
+   * @param row The projected row.
+   * @param width The number of cells in the full row.
+   * @param expectedWidth The number of cells in the first row.
+   * @throws FactoryFailureException If the row is the wrong width or misses a projected column.
+   */
+  void check(List<String> row, int width, int expectedWidth) throws FactoryFailureException {
+    if (width != expectedWidth || width < this.slots.length) {
+      throw new FactoryFailureException("Incorrect Number of Items:", row);
+    }
+  }
+}
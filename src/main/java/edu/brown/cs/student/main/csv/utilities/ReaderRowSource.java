@@ -0,0 +1,82 @@
+package edu.brown.cs.student.main.csv.utilities;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/** A RowSource that reads lines from a BufferedReader and splits them with a ParseEngine. */
+class ReaderRowSource implements RowSource {
+  static final Pattern regexSplitCSVRow =
+      Pattern.compile(",(?=([^\\\"]*\\\"[^\\\"]*\\\")*(?![^\\\"]*\\\"))");
+  private final BufferedReader bufferedReader;
+  private final ParseEngine engine;
+  private final CSVTokenizer tokenizer;
+  private final Projection projection; // The columns to keep, or null for every column.
+  private int width; // The number of cells in the last row.
+
+  /**
+   * The constructor stores the reader, the engine used to split its lines and the columns to keep.
+   *
+   * @param bufferedReader The reader to take lines from.
+   * @param engine The ParseEngine used to split each line into cells.
+   * @param projection The columns to keep, or null for every column.
+   */
+  ReaderRowSource(BufferedReader bufferedReader, ParseEngine engine, Projection projection) {
+    this.bufferedReader = bufferedReader;
+    this.engine = engine;
+    this.tokenizer = new CSVTokenizer();
+    this.projection = projection;
+  }
+
+  /** An implementation of nextRow as defined in RowSource. */
+  @Override
+  public List<String> nextRow() throws IOException {
+    String line = this.bufferedReader.readLine();
+    if (line == null) {
+      return null;
+    }
+    if (this.engine == ParseEngine.REGEX) {
+      List<String> row = trimRow(regexSplitCSVRow.split(line));
+      this.width = row.size();
+      return (this.projection == null) ? row : this.projection.project(row);
+    }
+    if (this.projection == null) {
+      List<String> row = this.tokenizer.tokenize(line);
+      this.width = row.size();
+      return row;
+    }
+    List<String> row = this.tokenizer.tokenize(line, this.projection);
+    this.width = this.tokenizer.width();
+    return row;
+  }
+
+  /** An implementation of width as defined in RowSource. */
+  @Override
+  public int width() {
+    return this.width;
+  }
+
+  /** Closes the underlying reader. */
+  @Override
+  public void close() throws IOException {
+    this.bufferedReader.close();
+  }
+
+  /**
+   * A helper method to trim the whitespace on each row element and convert the row from an Array to
+   * a List.
+   *
+   * @param row The specific row to format.
+   * @return The re-formatted row.
+   */
+  private static List<String> trimRow(String[] row) {
+    for (int i = 0; i < row.length; i++) {
+      row[i] = row[i].trim();
+      if (row[i].startsWith("\"") && row[i].endsWith("\"")) {
+        row[i] = row[i].substring(1, row[i].length() - 1);
+      }
+    }
+    return List.of(row);
+  }
+}
@@ -0,0 +1,25 @@
+package edu.brown.cs.student.main.csv.utilities;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.List;
+
+/** A source of split and trimmed CSV rows that CSVParser hands to its CreatorFromRow. */
+interface RowSource extends Closeable {
+
+  /**
+   * Reads the next row of the CSV.
+   *
+   * @return The cells of the next row, or null if there are no rows left.
+   * @throws IOException If there is an error reading the underlying input.
+   */
+  List<String> nextRow() throws IOException;
+
+  /**
+   * Returns the width of the row last returned by nextRow, counting the cells a Projection left
+   * out.
+   *
+   * @return The number of cells in the row as it appears in the file.
+   */
+  int width();
+}
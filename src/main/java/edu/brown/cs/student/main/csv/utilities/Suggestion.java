@@ -0,0 +1,9 @@
+package edu.brown.cs.student.main.csv.utilities;
+
+/**
+ * Suggestion is a record of one value suggested by a CSVSearcher for a prefix.
+ *
+ * @param value is the value, as it appears in the CSV.
+ * @param count is the number of rows holding it, ignoring case.
+ */
+public record Suggestion(String value, int count) {}
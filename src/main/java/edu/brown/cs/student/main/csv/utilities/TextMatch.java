@@ -0,0 +1,9 @@
+package edu.brown.cs.student.main.csv.utilities;
+
+/** How a text search compares a value with each cell of a column, always ignoring case. */
+public enum TextMatch {
+  /** The cell starts with the value. */
+  PREFIX,
+  /** The cell contains the value anywhere. */
+  SUBSTRING
+}
@@ -1,16 +1,23 @@
 package edu.brown.cs.student.main.server;
 
-import static spark.Spark.after;
+import static spark.Spark.before;
 
 import edu.brown.cs.student.main.server.handlers.census.BroadbandDatasource;
 import edu.brown.cs.student.main.server.handlers.census.BroadbandHandler;
 import edu.brown.cs.student.main.server.handlers.census.CensusAPISource;
 import edu.brown.cs.student.main.server.handlers.census.caching.CachingCensusSource;
+import edu.brown.cs.student.main.server.handlers.csvhandlers.AggregateCSVHandler;
 import edu.brown.cs.student.main.server.handlers.csvhandlers.CSVDatasource;
 import edu.brown.cs.student.main.server.handlers.csvhandlers.CSVSharedSource;
 import edu.brown.cs.student.main.server.handlers.csvhandlers.LoadCSVHandler;
+import edu.brown.cs.student.main.server.handlers.csvhandlers.LoadJobs;
+import edu.brown.cs.student.main.server.handlers.csvhandlers.LoadStatusHandler;
 import edu.brown.cs.student.main.server.handlers.csvhandlers.SearchCSVHandler;
+import edu.brown.cs.student.main.server.handlers.csvhandlers.SnapshotCache;
+import edu.brown.cs.student.main.server.handlers.csvhandlers.SuggestHandler;
 import edu.brown.cs.student.main.server.handlers.csvhandlers.ViewCSVHandler;
+import edu.brown.cs.student.main.server.handlers.csvhandlers.WatchStatusHandler;
+import java.nio.file.Path;
 import spark.Spark;
 
 /**
@@ -41,7 +48,11 @@ public class Server {
    * @param args is unused.
    */
   public static void main(String[] args) {
-    new Server(new CSVSharedSource(), new CachingCensusSource(new CensusAPISource()));
+    // Loaded CSVs may use half the heap, and are snapshotted so restarts can skip parsing them.
+    CSVSharedSource csvSource =
+        new CSVSharedSource(
+            Runtime.getRuntime().maxMemory() / 2, new SnapshotCache(Path.of("snapshots")));
+    new Server(csvSource, new CachingCensusSource(new CensusAPISource()));
   }
 
   /**
@@ -52,23 +63,32 @@ public class Server {
     int port = 3232;
     Spark.port(port);
 
-    // Only allow access from certain addresses.
-    after(
+    // Only allow access from certain addresses. The headers are set before the handlers run, since
+    // viewcsv and searchcsv stream their results and may send the headers before an after filter.
+    before(
         (request, response) -> {
           response.header("Access-Control-Allow-Origin", "http://localhost:3232");
           response.header("Access-Control-Allow-Methods", "GET");
         });
 
-    // Setting up the handler for the GET /____csv and /broadband endpoints
-    Spark.get("loadcsv", new LoadCSVHandler(this.csvSource));
+    // Setting up the handlers for the GET /____csv, /loadstatus, /watchstatus, /suggest and
+    // /broadband endpoints. Loads started with async=true run on loadJobs, where loadstatus looks
+    // them up.
+    LoadJobs loadJobs = new LoadJobs();
+    Spark.get("loadcsv", new LoadCSVHandler(this.csvSource, loadJobs));
+    Spark.get("loadstatus", new LoadStatusHandler(loadJobs));
+    Spark.get("watchstatus", new WatchStatusHandler(this.csvSource));
     Spark.get("searchcsv", new SearchCSVHandler(this.csvSource));
     Spark.get("viewcsv", new ViewCSVHandler(this.csvSource));
+    Spark.get("aggregatecsv", new AggregateCSVHandler(this.csvSource));
+    Spark.get("suggest", new SuggestHandler(this.csvSource));
     Spark.get("broadband", new BroadbandHandler(this.broadbandSource));
     Spark.init();
     Spark.awaitInitialization();
 
     System.out.println("Server started at http://localhost:" + port);
     System.out.println(
-        "Valid endpoints are \"loadcsv\", \"searchcsv\", " + "\"viewcsv\", and \"broadband\"!");
+        "Valid endpoints are \"loadcsv\", \"loadstatus\", \"watchstatus\", "
+            + "\"searchcsv\", \"viewcsv\", \"aggregatecsv\", \"suggest\", and \"broadband\"!");
   }
 }
@@ -0,0 +1,124 @@
+package edu.brown.cs.student.main.server.handlers.csvhandlers;
+
+import edu.brown.cs.student.main.server.serializers.MapSerializer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import spark.Request;
+import spark.Response;
+import spark.Route;
+
+/**
+ * AggregateCSVHandler handles the aggregatecsv endpoint in the Server, grouping the rows of a
+ * loaded CSV by the values in the groupby columns and computing the requested aggregates over each
+ * group, so only one row per group is sent back. Columns are given by index or header. The
+ * aggregates are "count" and sum, min, max or avg of a numeric column, such as "avg:4", and default
+ * to count.
+ */
+public class AggregateCSVHandler implements Route {
+  // The parameters the endpoint optionally accepts.
+  private static final List<String> OPTIONAL_PARAMS =
+      List.of("id", "groupby", "aggregates", "parallelism");
+  private final CSVDatasource sharedCSVData; // The shared CSVDatasource.
+
+  /**
+   * Constructor initializes the datasource for the CSV.
+   *
+   * @param state is the polymorphic implementation of CSVDatasource.
+   */
+  public AggregateCSVHandler(CSVDatasource state) {
+    this.sharedCSVData = state;
+  }
+
+  /**
+   * Override the handle method specified in Route. Attempts to aggregate the CSV, returning a
+   * descriptive error message for bad inputs or failures, and the name of each column with a row
+   * per group if successful. The parallelism parameter caps the threads used, which default to the
+   * number of processors.
+   *
+   * @param request contains the parameters of the aggregate request.
+   * @param response is left unused.
+   * @return a hash map of response data with the result of the aggregate attempt.
+   */
+  @Override
+  public Object handle(Request request, Response response) {
+    // Initialize the response format.
+    Map<String, Object> responseData = new HashMap<>();
+
+    // Check that only the optional parameters were specified.
+    Set<String> params = request.queryParams();
+    if (!OPTIONAL_PARAMS.containsAll(params)) {
+      responseData.put("result", "error");
+      responseData.put("error_type", "Invalid parameters specified!");
+      responseData.put("params_given", params);
+      responseData.put("optional_params", OPTIONAL_PARAMS);
+      return new MapSerializer().serialize(responseData);
+    }
+
+    // Add inputs to the response data.
+    String id = request.queryParams("id");
+    String groupBy = request.queryParams("groupby");
+    String aggregates = request.queryParams("aggregates");
+    String parallelism = request.queryParams("parallelism");
+    for (String param : params) {
+      responseData.put("query_" + param, request.queryParams(param));
+    }
+
+    // Check that parallelism, if given, is a positive number, and use no more threads than there
+    // are processors.
+    int threads = Runtime.getRuntime().availableProcessors();
+    if (parallelism != null) {
+      try {
+        threads = Integer.parseInt(parallelism.trim());
+      } catch (NumberFormatException e) {
+        threads = 0;
+      }
+      if (threads < 1) {
+        responseData.put("result", "error");
+        responseData.put("error_type", "Invalid parallelism value!");
+        responseData.put("valid_inputs", "a positive integer");
+        return new MapSerializer().serialize(responseData);
+      }
+      threads = Math.min(threads, Runtime.getRuntime().availableProcessors());
+    }
+
+    try {
+      // Aggregate the CSV data, timing it so the cost of a query can be judged.
+      long start = System.nanoTime();
+      String dataset = (id == null) ? CSVDatasource.DEFAULT_ID : id;
+      AggregateResult result =
+          this.sharedCSVData.aggregateCSV(
+              dataset, split(groupBy), split((aggregates == null) ? "count" : aggregates), threads);
+
+      // Add the groups to the result.
+      responseData.put("result", "success");
+      responseData.put("aggregate_millis", (System.nanoTime() - start) / 1_000_000);
+      responseData.put("columns", result.columns());
+      responseData.put("data", result.rows());
+      responseData.put("dataset_version", result.version());
+
+    } catch (Exception e) {
+      // Add descriptive error message to the result.
+      responseData.put("result", "error");
+      String[] parts = e.getClass().toString().split("\\.");
+      responseData.put("exception", parts[parts.length - 1]);
+      responseData.put("error_message", e.getMessage());
+    }
+    return new MapSerializer().serialize(responseData);
+  }
+
+  /**
+   * Private helper-method that splits a comma-separated parameter.
+   *
+   * @param param is the parameter, or null if it was not given.
+   * @return the non-blank entries of the parameter, or none if it was not given.
+   */
+  private static List<String> split(String param) {
+    if (param == null) {
+      return List.of();
+    }
+    return Arrays.stream(param.split(",")).filter(entry -> !entry.isBlank()).toList();
+  }
+}
@@ -0,0 +1,12 @@
+package edu.brown.cs.student.main.server.handlers.csvhandlers;
+
+import java.util.List;
+
+/**
+ * AggregateResult is a record of the groups returned by a CSVDatasource's aggregateCSV.
+ *
+ * @param columns names each column of the rows: the group-by columns, then the aggregates.
+ * @param rows are the groups, each with its group-by values and then its aggregate values.
+ * @param version is the version of the dataset the groups were computed from.
+ */
+public record AggregateResult(List<String> columns, List<List<Object>> rows, long version) {}
@@ -1,15 +1,27 @@
 package edu.brown.cs.student.main.server.handlers.csvhandlers;
 
+import edu.brown.cs.student.main.csv.exceptions.ColumnTypeException;
 import edu.brown.cs.student.main.csv.exceptions.FactoryFailureException;
 import edu.brown.cs.student.main.csv.exceptions.InvalidIndexException;
+import edu.brown.cs.student.main.csv.utilities.LoadListener;
+import edu.brown.cs.student.main.csv.utilities.TextMatch;
 import edu.brown.cs.student.main.server.handlers.csvhandlers.exceptions.CSVNotFoundException;
+import edu.brown.cs.student.main.server.handlers.csvhandlers.exceptions.DatasetTooLargeException;
 import edu.brown.cs.student.main.server.handlers.csvhandlers.exceptions.HeaderNotFoundException;
+import edu.brown.cs.student.main.server.handlers.csvhandlers.exceptions.InvalidCursorException;
 import edu.brown.cs.student.main.server.handlers.csvhandlers.exceptions.InvalidFilepathException;
 import java.io.IOException;
 import java.util.List;
+import java.util.Map;
 
-/** Interface to define the three actionable methods on a CSV datasource. */
+/**
+ * Interface to define the three actionable methods on a CSV datasource. Each CSV is loaded under a
+ * dataset id, and the methods without one use DEFAULT_ID. Searches and views can also be paged,
+ * resuming from the opaque cursor returned with the previous page.
+ */
 public interface CSVDatasource {
+  // The dataset id used when none is given.
+  String DEFAULT_ID = "default";
 
   /**
    * Given a filepath, load the CSV, including headers if applicable.
@@ -19,9 +31,82 @@ public interface CSVDatasource {
    * @throws IOException
    * @throws FactoryFailureException
    * @throws InvalidFilepathException
+   * @throws DatasetTooLargeException
    */
-  void loadCSV(String filepath, boolean hasHeader)
-      throws IOException, FactoryFailureException, InvalidFilepathException;
+  default void loadCSV(String filepath, boolean hasHeader)
+      throws IOException, FactoryFailureException, InvalidFilepathException,
+          DatasetTooLargeException {
+    this.loadCSV(DEFAULT_ID, filepath, hasHeader, LoadOptions.defaults());
+  }
+
+  /**
+   * Given a filepath, load the CSV, including headers if applicable, with the given options.
+   *
+   * @param filepath is the filepath to the CSV.
+   * @param hasHeader is whether the CSV contains headers.
+   * @param options are the optional settings for the load.
+   * @return statistics about the load, such as the time and memory spent on indexes.
+   * @throws IOException
+   * @throws FactoryFailureException
+   * @throws InvalidFilepathException
+   * @throws DatasetTooLargeException
+   */
+  default Map<String, Object> loadCSV(String filepath, boolean hasHeader, LoadOptions options)
+      throws IOException, FactoryFailureException, InvalidFilepathException,
+          DatasetTooLargeException {
+    return this.loadCSV(DEFAULT_ID, filepath, hasHeader, options);
+  }
+
+  /**
+   * Given a filepath, load the CSV under a dataset id, including headers if applicable, with the
+   * given options. Any CSV already loaded under the id is replaced.
+   *
+   * @param id is the dataset id to load the CSV under.
+   * @param filepath is the filepath to the CSV.
+   * @param hasHeader is whether the CSV contains headers.
+   * @param options are the optional settings for the load.
+   * @return statistics about the load, such as the time and memory spent on indexes.
+   * @throws IOException
+   * @throws FactoryFailureException
+   * @throws InvalidFilepathException
+   * @throws DatasetTooLargeException
+   */
+  default Map<String, Object> loadCSV(
+      String id, String filepath, boolean hasHeader, LoadOptions options)
+      throws IOException, FactoryFailureException, InvalidFilepathException,
+          DatasetTooLargeException {
+    return this.loadCSV(id, filepath, hasHeader, options, LoadListener.NONE);
+  }
+
+  /**
+   * Loads the CSV under a dataset id as in loadCSV, reporting the rows and bytes read to a listener
+   * as the file is parsed. The dataset already under the id stays in use until the load is done.
+   *
+   * @param id is the dataset id to load the CSV under.
+   * @param filepath is the filepath to the CSV.
+   * @param hasHeader is whether the CSV contains headers.
+   * @param options are the optional settings for the load.
+   * @param listener is told how far the load has read.
+   * @return statistics about the load, such as the time and memory spent on indexes.
+   * @throws IOException
+   * @throws FactoryFailureException
+   * @throws InvalidFilepathException
+   * @throws DatasetTooLargeException
+   */
+  Map<String, Object> loadCSV(
+      String id, String filepath, boolean hasHeader, LoadOptions options, LoadListener listener)
+      throws IOException, FactoryFailureException, InvalidFilepathException,
+          DatasetTooLargeException;
+
+  /**
+   * Reports on the datasets loaded with the watch option, which are reloaded whenever their files
+   * change: how often each has been reloaded or failed to, and how its last reload went.
+   *
+   * @return a map of each watched dataset's reload status, by dataset id, empty if none are.
+   */
+  default Map<String, Object> watchStatus() {
+    return Map.of();
+  }
 
   /**
    * Given a string to search for and a header or index to search through, use the byIndex or
@@ -36,14 +121,186 @@ public interface CSVDatasource {
    * @throws InvalidIndexException
    * @throws HeaderNotFoundException
    */
-  List<List<String>> searchCSV(String value, String header, boolean byIndex, boolean byValue)
+  default List<List<String>> searchCSV(
+      String value, String header, boolean byIndex, boolean byValue)
+      throws CSVNotFoundException, InvalidIndexException, HeaderNotFoundException {
+    try {
+      return this.searchCSV(DEFAULT_ID, value, header, byIndex, byValue, PageRequest.all()).rows();
+    } catch (InvalidCursorException e) {
+      // PageRequest.all() has no cursor to be invalid.
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * Searches the CSV loaded under a dataset id as in searchCSV, but returns only the requested page
+   * of matching rows, with a cursor for the next page if there are more.
+   *
+   * @param id is the dataset id of the CSV to search.
+   * @param value is the string to search for.
+   * @param header is the header or column index to search in.
+   * @param byIndex is whether the search will be done on a specific column.
+   * @param byValue is whether the header is a column name.
+   * @param page is the page of matching rows to return.
+   * @return the page of matching rows, and the cursor for the next page.
+   * @throws CSVNotFoundException
+   * @throws InvalidIndexException
+   * @throws HeaderNotFoundException
+   * @throws InvalidCursorException
+   */
+  ResultPage searchCSV(
+      String id, String value, String header, boolean byIndex, boolean byValue, PageRequest page)
+      throws CSVNotFoundException, InvalidIndexException, HeaderNotFoundException,
+          InvalidCursorException;
+
+  /**
+   * Searches a column of the CSV loaded under a dataset id for the rows whose value starts with, or
+   * contains, the given value, ignoring case, returning only the requested page of them, with a
+   * cursor for the next page if there are more.
+   *
+   * @param id is the dataset id of the CSV to search.
+   * @param value is the string to search for.
+   * @param header is the header or column index to search in.
+   * @param byValue is whether the header is a column name.
+   * @param match is whether cells must start with the value or only contain it.
+   * @param page is the page of matching rows to return.
+   * @return the page of matching rows, and the cursor for the next page.
+   * @throws CSVNotFoundException
+   * @throws InvalidIndexException
+   * @throws HeaderNotFoundException
+   * @throws InvalidCursorException
+   */
+  ResultPage searchText(
+      String id, String value, String header, boolean byValue, TextMatch match, PageRequest page)
+      throws CSVNotFoundException, InvalidIndexException, HeaderNotFoundException,
+          InvalidCursorException;
+
+  /**
+   * Searches a column of the CSV loaded under a dataset id for the rows whose value is within an
+   * edit distance of the given value, ignoring case, ranked by that distance, returning only the
+   * requested page of them, with a cursor for the next page if there are more.
+   *
+   * @param id is the dataset id of the CSV to search.
+   * @param value is the string to search for.
+   * @param header is the header or column index to search in.
+   * @param byValue is whether the header is a column name.
+   * @param maxDistance is the most single-character edits a matching value may be from the value.
+   * @param page is the page of matching rows to return.
+   * @return the page of matching rows, and the cursor for the next page.
+   * @throws CSVNotFoundException
+   * @throws InvalidIndexException
+   * @throws HeaderNotFoundException
+   * @throws InvalidCursorException
+   */
+  ResultPage searchFuzzy(
+      String id, String value, String header, boolean byValue, int maxDistance, PageRequest page)
+      throws CSVNotFoundException, InvalidIndexException, HeaderNotFoundException,
+          InvalidCursorException;
+
+  /**
+   * Searches a numeric column of the CSV loaded under a dataset id for the rows whose number is
+   * between min and max, inclusive, returning only the requested page of them, with a cursor for
+   * the next page if there are more.
+   *
+   * @param id is the dataset id of the CSV to search.
+   * @param header is the header or column index to search in.
+   * @param byValue is whether the header is a column name.
+   * @param min is the smallest number to match, or negative infinity for no lower bound.
+   * @param max is the largest number to match, or positive infinity for no upper bound.
+   * @param page is the page of matching rows to return.
+   * @return the page of matching rows, and the cursor for the next page.
+   * @throws CSVNotFoundException
+   * @throws InvalidIndexException
+   * @throws HeaderNotFoundException
+   * @throws InvalidCursorException
+   * @throws ColumnTypeException
+   */
+  ResultPage searchRange(
+      String id, String header, boolean byValue, double min, double max, PageRequest page)
+      throws CSVNotFoundException, InvalidIndexException, HeaderNotFoundException,
+          InvalidCursorException, ColumnTypeException;
+
+  /**
+   * Searches the CSV loaded under a dataset id for the rows matching a compound query of column
+   * predicates joined by AND, OR and NOT, such as "State=RI AND Year>=2021 AND NOT Flag=no",
+   * returning only the requested page of them, with a cursor for the next page if there are more.
+   *
+   * @param id is the dataset id of the CSV to search.
+   * @param query is the query.
+   * @param page is the page of matching rows to return.
+   * @return the page of matching rows, and the cursor for the next page.
+   * @throws CSVNotFoundException
+   * @throws InvalidIndexException
+   * @throws HeaderNotFoundException
+   * @throws InvalidCursorException
+   * @throws ColumnTypeException
+   */
+  ResultPage searchQuery(String id, String query, PageRequest page)
+      throws CSVNotFoundException, InvalidIndexException, HeaderNotFoundException,
+          InvalidCursorException, ColumnTypeException;
+
+  /**
+   * Suggests the values of a column of the CSV loaded under a dataset id that start with a prefix,
+   * ignoring case, most common first.
+   *
+   * @param id is the dataset id of the CSV to suggest values from.
+   * @param prefix is the prefix typed so far.
+   * @param header is the header or column index to suggest values from.
+   * @param byValue is whether the header is a column name.
+   * @param limit is the most values to suggest.
+   * @return the values with the row count of each.
+   * @throws CSVNotFoundException
+   * @throws InvalidIndexException
+   * @throws HeaderNotFoundException
+   */
+  SuggestResult suggest(String id, String prefix, String header, boolean byValue, int limit)
       throws CSVNotFoundException, InvalidIndexException, HeaderNotFoundException;
 
+  /**
+   * Groups the rows of the CSV loaded under a dataset id by the values in some columns, and
+   * computes aggregates over each group, on the server rather than by returning every row.
+   *
+   * @param id is the dataset id of the CSV to aggregate.
+   * @param groupBy are the columns to group by, each an index or a header, or none for one group.
+   * @param aggregates are the aggregates to compute, each "count" or a function of sum, min, max or
+   *     avg followed by a colon and a numeric column's index or header, such as "avg:4".
+   * @param parallelism is the number of threads that may be used.
+   * @return the name of each column of the result, and a row per group.
+   * @throws CSVNotFoundException
+   * @throws InvalidIndexException
+   * @throws HeaderNotFoundException
+   * @throws ColumnTypeException
+   */
+  AggregateResult aggregateCSV(
+      String id, List<String> groupBy, List<String> aggregates, int parallelism)
+      throws CSVNotFoundException, InvalidIndexException, HeaderNotFoundException,
+          ColumnTypeException;
+
   /**
    * Will return the entire CSV file to be viewed.
    *
    * @return a two-dimensional list representing each row and its components.
    * @throws CSVNotFoundException
    */
-  List<List<String>> viewCSV() throws CSVNotFoundException;
+  default List<List<String>> viewCSV() throws CSVNotFoundException {
+    try {
+      return this.viewCSV(DEFAULT_ID, PageRequest.all()).rows();
+    } catch (InvalidCursorException e) {
+      // PageRequest.all() has no cursor to be invalid.
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * Will return the requested page of the CSV loaded under a dataset id, with a cursor for the next
+   * page if there are more rows.
+   *
+   * @param id is the dataset id of the CSV to view.
+   * @param page is the page of rows to return.
+   * @return the page of rows, and the cursor for the next page.
+   * @throws CSVNotFoundException
+   * @throws InvalidCursorException
+   */
+  ResultPage viewCSV(String id, PageRequest page)
+      throws CSVNotFoundException, InvalidCursorException;
 }
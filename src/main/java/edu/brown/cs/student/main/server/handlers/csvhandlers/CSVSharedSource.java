@@ -1,107 +1,668 @@
 package edu.brown.cs.student.main.server.handlers.csvhandlers;
 
 import edu.brown.cs.student.main.csv.creators.SearcherCreator;
+import edu.brown.cs.student.main.csv.exceptions.ColumnTypeException;
 import edu.brown.cs.student.main.csv.exceptions.FactoryFailureException;
 import edu.brown.cs.student.main.csv.exceptions.InvalidIndexException;
+import edu.brown.cs.student.main.csv.utilities.Aggregate;
 import edu.brown.cs.student.main.csv.utilities.CSVParser;
 import edu.brown.cs.student.main.csv.utilities.CSVSearcher;
+import edu.brown.cs.student.main.csv.utilities.LoadListener;
+import edu.brown.cs.student.main.csv.utilities.Page;
+import edu.brown.cs.student.main.csv.utilities.Suggestion;
+import edu.brown.cs.student.main.csv.utilities.TextMatch;
 import edu.brown.cs.student.main.server.handlers.csvhandlers.exceptions.CSVNotFoundException;
+import edu.brown.cs.student.main.server.handlers.csvhandlers.exceptions.DatasetTooLargeException;
 import edu.brown.cs.student.main.server.handlers.csvhandlers.exceptions.HeaderNotFoundException;
+import edu.brown.cs.student.main.server.handlers.csvhandlers.exceptions.InvalidCursorException;
 import edu.brown.cs.student.main.server.handlers.csvhandlers.exceptions.InvalidFilepathException;
-import java.io.FileReader;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Base64;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
- * CSVSharedSource will load the CSV and provide implementations necessary for the CSV handlers to
- * all access the same CSV file through association.
+ * CSVSharedSource will load CSVs and provide implementations necessary for the CSV handlers to all
+ * access the same CSV files through association. Each CSV is kept in a DatasetCatalog under its
+ * dataset id, until the catalog's memory budget forces it out. CSVs loaded with the watch option
+ * are reloaded by a DatasetWatcher whenever their files change.
  */
 public class CSVSharedSource implements CSVDatasource {
+  // How long a watched file must be quiet before it is reloaded, unless another delay is given.
+  private static final long WATCH_DEBOUNCE_MILLIS = 500;
+  private final DatasetCatalog catalog; // The loaded CSVs, by dataset id.
+  private final SnapshotCache snapshots; // Snapshots of loaded CSVs, or null to always parse.
+  private final DatasetWatcher watcher; // Reloads the watched CSVs when their files change.
+  private final Map<String, Object> loadLocks; // Held while a dataset id is loaded, by id.
 
-  private boolean fileLoaded; // Has a file been loaded yet.
-  private CSVSearcher searcher; // To use for searching the CSV.
-
-  /** Constructor initializes the instance variables. */
+  /** Constructor initializes the catalog with a budget of half the maximum heap. */
   public CSVSharedSource() {
-    this.fileLoaded = false;
-    this.searcher = null;
+    this(Runtime.getRuntime().maxMemory() / 2);
+  }
+
+  /**
+   * Alternate constructor initializes the catalog with the given memory budget.
+   *
+   * @param budgetBytes is the most estimated heap the loaded CSVs may use together.
+   */
+  public CSVSharedSource(long budgetBytes) {
+    this(budgetBytes, null);
+  }
+
+  /**
+   * Alternate constructor initializes the catalog with the given memory budget, and reads and saves
+   * snapshots of the loaded CSVs in the given SnapshotCache.
+   *
+   * @param budgetBytes is the most estimated heap the loaded CSVs may use together.
+   * @param snapshots is the cache of snapshots, or null to always parse.
+   */
+  public CSVSharedSource(long budgetBytes, SnapshotCache snapshots) {
+    this(budgetBytes, snapshots, WATCH_DEBOUNCE_MILLIS);
+  }
+
+  /**
+   * Alternate constructor initializes the catalog with the given memory budget and SnapshotCache,
+   * and waits the given delay after a watched file last changes before reloading it.
+   *
+   * @param budgetBytes is the most estimated heap the loaded CSVs may use together.
+   * @param snapshots is the cache of snapshots, or null to always parse.
+   * @param watchDebounceMillis is how long a watched file must be quiet before it is reloaded.
+   */
+  public CSVSharedSource(long budgetBytes, SnapshotCache snapshots, long watchDebounceMillis) {
+    this.catalog = new DatasetCatalog(budgetBytes);
+    this.snapshots = snapshots;
+    this.loadLocks = new ConcurrentHashMap<>();
+    // A watched dataset that has since been evicted, or loaded again from elsewhere while the
+    // reload waited for the id, is not reloaded.
+    this.watcher =
+        new DatasetWatcher(
+            (id, filepath, hasHeader, options, current) -> {
+              synchronized (this.loadLock(id)) {
+                return (current.getAsBoolean() && this.catalog.contains(id))
+                    ? this.load(id, filepath, hasHeader, options, LoadListener.NONE)
+                    : null;
+              }
+            },
+            watchDebounceMillis);
   }
 
   /**
    * Implements loadCSV as specified in CSVDatasource. Attempts to load the CSV with file path
-   * protections. Creates a FileReader and CSVParser to build the CSV Searcher.
+   * protections. Creates a memory-mapped CSVParser over the file to build the CSV Searcher, parsing
+   * with as many threads as the options allow and building the indexes they ask for. The time and
+   * estimated memory of each index are reported, so they can be weighed for each dataset. The CSV
+   * then replaces any dataset with the same id, which may evict the least recently used others.
+   * Until then, the dataset already under the id keeps serving requests.
+   *
+   * <p>With a SnapshotCache, an unchanged CSV is restored from its snapshot, with the indexes it
+   * was saved with, instead of being parsed. A parsed CSV, or a restored one that needed more
+   * indexes built, is saved as the new snapshot. A snapshot that can't be saved does not fail the
+   * load.
+   *
+   * <p>If the dataset already under the id was loaded from the same file, and the file has only had
+   * rows appended since, just the appended rows are parsed. They are added to a copy of the old
+   * dataset's table, over which the indexes it had are rebuilt, except an inverted index, which is
+   * extended. Copying and reindexing still grow with the whole table, so the stats report their
+   * cost as append_millis and reindexed_bytes. Any snapshot is replaced. A file that was truncated
+   * or rewritten is loaded in full.
+   *
+   * <p>With the columns option, only the listed columns are trimmed and stored, in the order they
+   * are listed, so a few columns of a very wide file can be loaded without paying for the rest.
+   * Appends and snapshots are only reused for a load of the same columns.
+   *
+   * <p>With the watch option, the CSV is reloaded in the same way, in the background, whenever its
+   * file changes, until it is loaded again without the option or evicted. Loads and reloads of an
+   * id run one at a time, and the watch is changed before the load starts, so a reload of the old
+   * file can never be published over this load.
    *
+   * @param id is the dataset id to load the CSV under.
    * @param filepath is the filepath to the CSV.
    * @param hasHeader is whether the CSV contains headers.
+   * @param options are the optional settings for the load.
+   * @param listener is told how far the parse has read.
+   * @return the row count and data size, the build time and size of any indexes built, and the
+   *     datasets left in the catalog.
    * @throws IOException
    * @throws FactoryFailureException
    * @throws InvalidFilepathException
+   * @throws DatasetTooLargeException
    */
   @Override
-  public void loadCSV(String filepath, boolean hasHeader)
-      throws IOException, FactoryFailureException, InvalidFilepathException {
+  public Map<String, Object> loadCSV(
+      String id, String filepath, boolean hasHeader, LoadOptions options, LoadListener listener)
+      throws IOException, FactoryFailureException, InvalidFilepathException,
+          DatasetTooLargeException {
+    synchronized (this.loadLock(id)) {
+      if (options.watch()) {
+        this.watcher.watch(id, filepath, hasHeader, options);
+      } else {
+        this.watcher.unwatch(id);
+      }
+      Map<String, Object> stats = this.load(id, filepath, hasHeader, options, listener);
+      stats.put("watching", options.watch());
+      return stats;
+    }
+  }
+
+  /**
+   * Private helper-method that returns the lock held while a dataset id is loaded, so a client's
+   * load and the watcher's reloads of one id never overlap, while other ids load in parallel.
+   *
+   * @param id is the dataset id.
+   * @return the id's lock.
+   */
+  private Object loadLock(String id) {
+    return this.loadLocks.computeIfAbsent(id, key -> new Object());
+  }
+
+  /**
+   * Implements watchStatus as specified in CSVDatasource, reporting the reloads of each watched
+   * dataset.
+   *
+   * @return a map of each watched dataset's reload status, by dataset id.
+   */
+  @Override
+  public Map<String, Object> watchStatus() {
+    return this.watcher.status();
+  }
+
+  /**
+   * Private helper-method that loads a CSV as described in loadCSV, without changing whether it is
+   * watched. Watched CSVs are reloaded through it.
+   *
+   * @param id is the dataset id to load the CSV under.
+   * @param filepath is the filepath to the CSV.
+   * @param hasHeader is whether the CSV contains headers.
+   * @param options are the optional settings for the load.
+   * @param listener is told how far the parse has read.
+   * @return the statistics of the load.
+   * @throws IOException
+   * @throws FactoryFailureException
+   * @throws InvalidFilepathException
+   * @throws DatasetTooLargeException
+   */
+  private Map<String, Object> load(
+      String id, String filepath, boolean hasHeader, LoadOptions options, LoadListener listener)
+      throws IOException, FactoryFailureException, InvalidFilepathException,
+          DatasetTooLargeException {
 
     // Protect against the user attempting to access external files.
     if (!(filepath.startsWith("data/") || filepath.startsWith("/data/"))) {
       throw new InvalidFilepathException(filepath);
     }
 
-    // Create file-reader, parser, and searcher.
-    FileReader reader = new FileReader(filepath);
-    CSVParser<ArrayList<String>> parser = new CSVParser<>(new SearcherCreator(), reader);
-    this.searcher = new CSVSearcher(parser, hasHeader);
-    this.fileLoaded = true;
+    // If the dataset under the id was loaded from this file, which has only grown since, parse
+    // just the appended rows onto a copy of it.
+    Path path = Path.of(filepath);
+    Map<String, Object> stats = new LinkedHashMap<>();
+    CSVSearcher loaded = null;
+    long parsedBytes = -1;
+    boolean parsed = false; // Whether any rows were parsed, so the snapshot is out of date.
+    Dataset previous = this.catalog.get(id);
+    FileHash hash = new FileHash(path); // Shared by every check of the file, so it is read once.
+    if (previous != null && previous.source() != null && Files.isRegularFile(path)) {
+      long offset = previous.source().appendOffset(path, hasHeader, options.columns(), hash);
+      if (offset >= 0) {
+        CSVParser<ArrayList<String>> parser =
+            new CSVParser<>(new SearcherCreator(options.projection()), path, offset);
+        long start = System.nanoTime();
+        loaded = previous.searcher().append(parser, listener);
+        parsedBytes = Math.max(offset, parser.bytesRead());
+        stats.put("reload", "incremental");
+        stats.put("appended_rows", loaded.rowCount() - previous.searcher().rowCount());
+        stats.put("appended_bytes", parsedBytes - previous.source().bytes());
+        stats.put("append_millis", (System.nanoTime() - start) / 1_000_000);
+        stats.put("reindexed_bytes", (loaded == previous.searcher()) ? 0 : loaded.indexBytes());
+        parsed = loaded != previous.searcher();
+      }
+    }
+
+    // Otherwise restore the CSV from its snapshot if it is unchanged, or parse all of it. The key
+    // is taken after an incremental reload too, so the grown CSV's snapshot can be saved.
+    SnapshotCache.Key key = null;
+    if (this.snapshots != null) {
+      long start = System.nanoTime();
+      key = this.snapshots.key(path, hasHeader, options.columns(), hash);
+      if (loaded == null) {
+        loaded = this.snapshots.load(key);
+        if (loaded != null) {
+          parsedBytes = key.size();
+          stats.put("snapshot", "loaded");
+          stats.put("snapshot_millis", (System.nanoTime() - start) / 1_000_000);
+          listener.progress(loaded.rowCount() + (hasHeader ? 1 : 0), key.size());
+        }
+      }
+    }
+    if (loaded == null) {
+      // Create the mapped parser and searcher.
+      CSVParser<ArrayList<String>> parser =
+          new CSVParser<>(new SearcherCreator(options.projection()), path);
+      loaded = new CSVSearcher(parser, hasHeader, options.parallelism(), listener);
+      parsedBytes = parser.bytesRead();
+      parsed = true;
+    }
+    stats.put("rows", loaded.rowCount());
+    stats.put(
+        "column_types",
+        loaded.columnTypes().stream().map(t -> t.name().toLowerCase(Locale.ROOT)).toList());
+    stats.put("data_bytes", loaded.estimatedBytes());
+
+    // Build the requested indexes, measuring what each one costs.
+    long restoredBytes = loaded.estimatedBytes();
+    if (options.buildIndex()) {
+      long start = System.nanoTime();
+      long before = loaded.estimatedBytes();
+      loaded.buildIndexes();
+      stats.put("column_index_millis", (System.nanoTime() - start) / 1_000_000);
+      stats.put("column_index_bytes", loaded.estimatedBytes() - before);
+    }
+    if (options.invertedIndex()) {
+      long start = System.nanoTime();
+      long before = loaded.estimatedBytes();
+      loaded.buildInvertedIndex();
+      stats.put("inverted_index_millis", (System.nanoTime() - start) / 1_000_000);
+      stats.put("inverted_index_bytes", loaded.estimatedBytes() - before);
+    }
+
+    // Save a snapshot if rows were parsed or indexes built, and the file didn't grow meanwhile.
+    if (key != null
+        && key.size() == parsedBytes
+        && (parsed || loaded.estimatedBytes() != restoredBytes)) {
+      try {
+        stats.put("snapshot", this.snapshots.save(key, loaded) ? "saved" : "skipped");
+      } catch (IOException e) {
+        stats.put("snapshot", "failed");
+      }
+    }
+
+    // Add the dataset to the catalog, reporting what the catalog holds afterwards.
+    LoadedFile source =
+        (parsedBytes < 0)
+            ? null
+            : LoadedFile.of(path, hasHeader, options.columns(), parsedBytes, hash);
+    stats.put("dataset_version", this.catalog.put(id, loaded, source).version());
+    stats.put("datasets", this.catalog.ids());
+    stats.put("catalog_bytes", this.catalog.totalBytes());
+    stats.put("budget_bytes", this.catalog.budgetBytes());
+    return stats;
   }
 
   /**
-   * Implements searchCSV as specified in CSVDatasource. Checks if the file is loaded and performs
-   * the specified search operation on the CSV.
+   * Implements the paged searchCSV as specified in CSVDatasource. Checks if the dataset is loaded
+   * and performs the specified search operation on the CSV, starting from the cursor's row and
+   * stopping once the page is full. The dataset is fetched once, so a reload during the search does
+   * not affect it.
    *
+   * @param id is the dataset id of the CSV to search.
    * @param value is the string to search for.
    * @param header is the header or column index to search in.
    * @param byIndex is whether the search will be done on a specific column.
    * @param byValue is whether the header is a column name.
-   * @return a two-dimensional list of matching rows and their values.
+   * @param page is the page of matching rows to return.
+   * @return the page of matching rows, and the cursor for the next page.
    * @throws CSVNotFoundException
    * @throws InvalidIndexException
    * @throws HeaderNotFoundException
+   * @throws InvalidCursorException
    */
   @Override
-  public List<List<String>> searchCSV(String value, String header, boolean byIndex, boolean byValue)
+  public ResultPage searchCSV(
+      String id, String value, String header, boolean byIndex, boolean byValue, PageRequest page)
       throws CSVNotFoundException, InvalidIndexException, HeaderNotFoundException,
-          NumberFormatException {
+          InvalidCursorException, NumberFormatException {
 
-    if (!fileLoaded) {
-      throw new CSVNotFoundException();
-    }
+    Dataset dataset = this.dataset(id);
+    CSVSearcher searcher = dataset.searcher();
 
     // If searching by index:
     if (byIndex) {
       int index;
       // If searching by header value:
       if (byValue) {
-        index = this.searcher.getIndexFromHeader(header);
+        index = searcher.getIndexFromHeader(header);
       } else index = Integer.parseInt(header.trim());
       // Search with the index found above:
-      return this.searcher.searchColByIndex(value, index);
+      String query = "search:" + index + ":" + value.trim();
+      int fromRow = this.cursorRow(dataset, page.cursor(), query);
+      Page found = searcher.searchColByIndex(value, index, fromRow, page.offset(), page.limit());
+      this.catalog.reweigh(id, dataset);
+      return new ResultPage(
+          found.rows(), this.cursor(dataset, found.nextRow(), query), dataset.version());
     } else {
       // Search the entire dataset:
-      return this.searcher.searchAllData(value);
+      String query = "search::" + value.trim();
+      int fromRow = this.cursorRow(dataset, page.cursor(), query);
+      Page found = searcher.searchAllData(value, fromRow, page.offset(), page.limit());
+      this.catalog.reweigh(id, dataset);
+      return new ResultPage(
+          found.rows(), this.cursor(dataset, found.nextRow(), query), dataset.version());
     }
   }
 
   /**
-   * Implements the viewCSV method as specified in CSVDatasource, if the CSV is loaded.
+   * Implements searchText as specified in CSVDatasource. Checks if the dataset is loaded and
+   * searches the column's text index, starting from the cursor's row and stopping once the page is
+   * full.
+   *
+   * @param id is the dataset id of the CSV to search.
+   * @param value is the string to search for.
+   * @param header is the header or column index to search in.
+   * @param byValue is whether the header is a column name.
+   * @param match is whether cells must start with the value or only contain it.
+   * @param page is the page of matching rows to return.
+   * @return the page of matching rows, and the cursor for the next page.
+   * @throws CSVNotFoundException
+   * @throws InvalidIndexException
+   * @throws HeaderNotFoundException
+   * @throws InvalidCursorException
+   */
+  @Override
+  public ResultPage searchText(
+      String id, String value, String header, boolean byValue, TextMatch match, PageRequest page)
+      throws CSVNotFoundException, InvalidIndexException, HeaderNotFoundException,
+          InvalidCursorException, NumberFormatException {
+    Dataset dataset = this.dataset(id);
+    CSVSearcher searcher = dataset.searcher();
+    int index = byValue ? searcher.getIndexFromHeader(header) : Integer.parseInt(header.trim());
+    String query = match.name().toLowerCase(Locale.ROOT) + ":" + index + ":" + value.trim();
+    int fromRow = this.cursorRow(dataset, page.cursor(), query);
+    Page found = searcher.searchText(value, index, match, fromRow, page.offset(), page.limit());
+    this.catalog.reweigh(id, dataset);
+    return new ResultPage(
+        found.rows(), this.cursor(dataset, found.nextRow(), query), dataset.version());
+  }
+
+  /**
+   * Implements searchFuzzy as specified in CSVDatasource. Checks if the dataset is loaded and
+   * searches the column's text index. The rows are ranked rather than in row order, so the cursor
+   * holds the position in the ranking that the next page starts from.
    *
-   * @return a two-dimensional array with all the rows in the CSV.
+   * @param id is the dataset id of the CSV to search.
+   * @param value is the string to search for.
+   * @param header is the header or column index to search in.
+   * @param byValue is whether the header is a column name.
+   * @param maxDistance is the most single-character edits a matching value may be from the value.
+   * @param page is the page of matching rows to return.
+   * @return the page of matching rows, and the cursor for the next page.
    * @throws CSVNotFoundException
+   * @throws InvalidIndexException
+   * @throws HeaderNotFoundException
+   * @throws InvalidCursorException
    */
   @Override
-  public List<List<String>> viewCSV() throws CSVNotFoundException {
-    if (!fileLoaded) {
-      throw new CSVNotFoundException();
+  public ResultPage searchFuzzy(
+      String id, String value, String header, boolean byValue, int maxDistance, PageRequest page)
+      throws CSVNotFoundException, InvalidIndexException, HeaderNotFoundException,
+          InvalidCursorException, NumberFormatException {
+    Dataset dataset = this.dataset(id);
+    CSVSearcher searcher = dataset.searcher();
+    int index = byValue ? searcher.getIndexFromHeader(header) : Integer.parseInt(header.trim());
+    String query = "fuzzy:" + index + ":" + maxDistance + ":" + value.trim();
+    int from = this.cursorRow(dataset, page.cursor(), query);
+    Page found = searcher.searchFuzzy(value, index, maxDistance, from, page.offset(), page.limit());
+    this.catalog.reweigh(id, dataset);
+    return new ResultPage(
+        found.rows(), this.cursor(dataset, found.nextRow(), query), dataset.version());
+  }
+
+  /**
+   * Implements suggest as specified in CSVDatasource. Checks if the dataset is loaded and asks the
+   * searcher for the column's most common values with the prefix.
+   *
+   * @param id is the dataset id of the CSV to suggest values from.
+   * @param prefix is the prefix typed so far.
+   * @param header is the header or column index to suggest values from.
+   * @param byValue is whether the header is a column name.
+   * @param limit is the most values to suggest.
+   * @return the values with the row count of each.
+   * @throws CSVNotFoundException
+   * @throws InvalidIndexException
+   * @throws HeaderNotFoundException
+   */
+  @Override
+  public SuggestResult suggest(String id, String prefix, String header, boolean byValue, int limit)
+      throws CSVNotFoundException, InvalidIndexException, HeaderNotFoundException,
+          NumberFormatException {
+    Dataset dataset = this.dataset(id);
+    CSVSearcher searcher = dataset.searcher();
+    int index = byValue ? searcher.getIndexFromHeader(header) : Integer.parseInt(header.trim());
+    List<Suggestion> suggestions = searcher.suggest(prefix, index, limit);
+    this.catalog.reweigh(id, dataset);
+    return new SuggestResult(suggestions, dataset.version());
+  }
+
+  /**
+   * Implements searchRange as specified in CSVDatasource. Checks if the dataset is loaded and
+   * searches the column's numeric index, starting from the cursor's row and stopping once the page
+   * is full.
+   *
+   * @param id is the dataset id of the CSV to search.
+   * @param header is the header or column index to search in.
+   * @param byValue is whether the header is a column name.
+   * @param min is the smallest number to match, or negative infinity for no lower bound.
+   * @param max is the largest number to match, or positive infinity for no upper bound.
+   * @param page is the page of matching rows to return.
+   * @return the page of matching rows, and the cursor for the next page.
+   * @throws CSVNotFoundException
+   * @throws InvalidIndexException
+   * @throws HeaderNotFoundException
+   * @throws InvalidCursorException
+   * @throws ColumnTypeException
+   */
+  @Override
+  public ResultPage searchRange(
+      String id, String header, boolean byValue, double min, double max, PageRequest page)
+      throws CSVNotFoundException, InvalidIndexException, HeaderNotFoundException,
+          InvalidCursorException, ColumnTypeException, NumberFormatException {
+    Dataset dataset = this.dataset(id);
+    CSVSearcher searcher = dataset.searcher();
+    int index = byValue ? searcher.getIndexFromHeader(header) : Integer.parseInt(header.trim());
+    String query = "range:" + index + ":" + min + ":" + max;
+    int fromRow = this.cursorRow(dataset, page.cursor(), query);
+    Page found = searcher.searchRange(index, min, max, fromRow, page.offset(), page.limit());
+    this.catalog.reweigh(id, dataset);
+    return new ResultPage(
+        found.rows(), this.cursor(dataset, found.nextRow(), query), dataset.version());
+  }
+
+  /**
+   * Implements searchQuery as specified in CSVDatasource. Checks if the dataset is loaded and
+   * evaluates the query over the searcher's column indexes, starting the page from the cursor's
+   * row.
+   *
+   * @param id is the dataset id of the CSV to search.
+   * @param query is the query.
+   * @param page is the page of matching rows to return.
+   * @return the page of matching rows, and the cursor for the next page.
+   * @throws CSVNotFoundException
+   * @throws InvalidIndexException
+   * @throws HeaderNotFoundException
+   * @throws InvalidCursorException
+   * @throws ColumnTypeException
+   * @throws IllegalArgumentException if the query is not written as described.
+   */
+  @Override
+  public ResultPage searchQuery(String id, String query, PageRequest page)
+      throws CSVNotFoundException, InvalidIndexException, HeaderNotFoundException,
+          InvalidCursorException, ColumnTypeException {
+    Dataset dataset = this.dataset(id);
+    String key = "query:" + query.trim();
+    int fromRow = this.cursorRow(dataset, page.cursor(), key);
+    Page found = dataset.searcher().searchQuery(query, fromRow, page.offset(), page.limit());
+    this.catalog.reweigh(id, dataset);
+    return new ResultPage(
+        found.rows(), this.cursor(dataset, found.nextRow(), key), dataset.version());
+  }
+
+  /**
+   * Implements aggregateCSV as specified in CSVDatasource. Checks if the dataset is loaded, finds
+   * the columns named by index or header, and aggregates the searcher's columns. The result's
+   * columns are named as they were given.
+   *
+   * @param id is the dataset id of the CSV to aggregate.
+   * @param groupBy are the columns to group by, each an index or a header.
+   * @param aggregates are the aggregates to compute, such as "count" or "avg:4".
+   * @param parallelism is the number of threads that may be used.
+   * @return the name of each column of the result, and a row per group.
+   * @throws CSVNotFoundException
+   * @throws InvalidIndexException
+   * @throws HeaderNotFoundException
+   * @throws ColumnTypeException
+   * @throws IllegalArgumentException if an aggregate is not written as described.
+   */
+  @Override
+  public AggregateResult aggregateCSV(
+      String id, List<String> groupBy, List<String> aggregates, int parallelism)
+      throws CSVNotFoundException, InvalidIndexException, HeaderNotFoundException,
+          ColumnTypeException {
+    Dataset dataset = this.dataset(id);
+    CSVSearcher searcher = dataset.searcher();
+    List<String> columns = new ArrayList<>();
+    int[] groupColumns = new int[groupBy.size()];
+    for (int i = 0; i < groupColumns.length; i++) {
+      groupColumns[i] = this.columnIndex(searcher, groupBy.get(i));
+      columns.add(groupBy.get(i).trim());
+    }
+    List<Aggregate> functions = new ArrayList<>();
+    for (String aggregate : aggregates) {
+      String[] parts = aggregate.trim().split(":", 2);
+      Aggregate.Function function;
+      try {
+        function = Aggregate.Function.valueOf(parts[0].trim().toUpperCase(Locale.ROOT));
+      } catch (IllegalArgumentException e) {
+        function = null;
+      }
+      if (function == null || (function == Aggregate.Function.COUNT) != (parts.length == 1)) {
+        throw new IllegalArgumentException(
+            "Aggregate \""
+                + aggregate
+                + "\" must be count, or sum, min, max or avg with a column, such as avg:4!");
+      }
+      functions.add(
+          (parts.length == 1)
+              ? Aggregate.count()
+              : new Aggregate(function, this.columnIndex(searcher, parts[1])));
+      columns.add(aggregate.trim());
+    }
+    List<List<Object>> groups = searcher.aggregate(groupColumns, functions, parallelism);
+    this.catalog.reweigh(id, dataset);
+    return new AggregateResult(columns, groups, dataset.version());
+  }
+
+  /**
+   * Implements the paged viewCSV method as specified in CSVDatasource, if the CSV is loaded. The
+   * rows are a read-only view of the loaded data rather than a copy.
+   *
+   * @param id is the dataset id of the CSV to view.
+   * @param page is the page of rows to return.
+   * @return the page of rows, and the cursor for the next page.
+   * @throws CSVNotFoundException
+   * @throws InvalidCursorException
+   */
+  @Override
+  public ResultPage viewCSV(String id, PageRequest page)
+      throws CSVNotFoundException, InvalidCursorException {
+    Dataset dataset = this.dataset(id);
+    int fromRow = this.cursorRow(dataset, page.cursor(), "view");
+    Page rows = dataset.searcher().getData(fromRow, page.offset(), page.limit());
+    return new ResultPage(
+        rows.rows(), this.cursor(dataset, rows.nextRow(), "view"), dataset.version());
+  }
+
+  /**
+   * Private helper-method that finds a column given by its index, or otherwise by its header.
+   *
+   * @param searcher is the searcher of the dataset.
+   * @param column is the column's index or header.
+   * @return the column's index, which may not be valid.
+   * @throws HeaderNotFoundException if the column is not an index and no header matches it.
+   */
+  private int columnIndex(CSVSearcher searcher, String column) throws HeaderNotFoundException {
+    try {
+      return Integer.parseInt(column.trim());
+    } catch (NumberFormatException e) {
+      return searcher.getIndexFromHeader(column.trim());
+    }
+  }
+
+  /**
+   * Private helper-method that finds the dataset loaded under an id.
+   *
+   * @param id is the dataset id.
+   * @return the dataset.
+   * @throws CSVNotFoundException if nothing is loaded under the id, or it was evicted.
+   */
+  private Dataset dataset(String id) throws CSVNotFoundException {
+    Dataset dataset = this.catalog.get(id);
+    if (dataset == null) {
+      throw DEFAULT_ID.equals(id) ? new CSVNotFoundException() : new CSVNotFoundException(id);
+    }
+    // Count any indexes built by an earlier request that failed before it was weighed again.
+    this.catalog.reweigh(id, dataset);
+    return dataset;
+  }
+
+  /**
+   * Private helper-method that builds the opaque cursor for the next page of a query. The cursor
+   * holds the version of the loaded CSV, the row to resume from, and a hash of the query.
+   *
+   * @param dataset is the dataset being paged through.
+   * @param nextRow is the row the next page starts from, or -1 if there is no next page.
+   * @param query describes the query, so its cursor cannot be used for another.
+   * @return the cursor, or null if there is no next page.
+   */
+  private String cursor(Dataset dataset, int nextRow, String query) {
+    if (nextRow < 0) {
+      return null;
+    }
+    String cursor = dataset.version() + ":" + nextRow + ":" + Integer.toHexString(query.hashCode());
+    return Base64.getUrlEncoder()
+        .withoutPadding()
+        .encodeToString(cursor.getBytes(StandardCharsets.UTF_8));
+  }
+
+  /**
+   * Private helper-method that finds the row a cursor resumes from, checking that it was built for
+   * the same query on the CSV that is loaded now.
+   *
+   * @param dataset is the dataset being paged through.
+   * @param cursor is the cursor given, or null to start from the first row.
+   * @param query describes the query being paged.
+   * @return the row to resume from.
+   * @throws InvalidCursorException if the cursor is malformed, for another query, or stale.
+   */
+  private int cursorRow(Dataset dataset, String cursor, String query)
+      throws InvalidCursorException {
+    if (cursor == null) {
+      return 0;
+    }
+    String[] parts;
+    long version;
+    int row;
+    try {
+      parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split(":");
+      version = Long.parseLong(parts[0]);
+      row = Integer.parseInt(parts[1]);
+    } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+      throw new InvalidCursorException(cursor, "is not a valid cursor!");
+    }
+    if (parts.length != 3 || row < 0) {
+      throw new InvalidCursorException(cursor, "is not a valid cursor!");
+    }
+    if (version != dataset.version()) {
+      throw new InvalidCursorException(
+          cursor, "is from an earlier load! Start from the first page.");
+    }
+    if (!parts[2].equals(Integer.toHexString(query.hashCode()))) {
+      throw new InvalidCursorException(cursor, "belongs to a different query!");
     }
-    return new ArrayList<>(this.searcher.getData());
+    return row;
   }
 }
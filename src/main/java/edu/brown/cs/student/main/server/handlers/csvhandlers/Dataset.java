@@ -0,0 +1,16 @@
+package edu.brown.cs.student.main.server.handlers.csvhandlers;
+
+import edu.brown.cs.student.main.csv.utilities.CSVSearcher;
+
+/**
+ * Dataset is a record of one loaded CSV in a DatasetCatalog. It is an immutable snapshot: the
+ * searcher is never changed once loaded, and a reload replaces the whole Dataset.
+ *
+ * @param searcher is the searcher holding the loaded rows.
+ * @param version is unique to this load, so cursors from other loads can be told apart.
+ * @param bytes is the estimated heap used by the searcher and its indexes when it was last weighed,
+ *     at load or by DatasetCatalog.reweigh after a search built more indexes.
+ * @param source is how much of the CSV's file was loaded, so appended rows can be loaded on their
+ *     own, or null if that is not known.
+ */
+public record Dataset(CSVSearcher searcher, long version, long bytes, LoadedFile source) {}
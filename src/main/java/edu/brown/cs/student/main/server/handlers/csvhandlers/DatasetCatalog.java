@@ -0,0 +1,148 @@
+package edu.brown.cs.student.main.server.handlers.csvhandlers;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import edu.brown.cs.student.main.csv.utilities.CSVSearcher;
+import edu.brown.cs.student.main.server.handlers.csvhandlers.exceptions.DatasetTooLargeException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * DatasetCatalog holds loaded CSVs by id in a Guava cache weighed by each dataset's estimated size.
+ * Once the datasets pass the memory budget, the least recently used ones are evicted. Searches
+ * build indexes lazily, so a dataset is weighed again by reweigh once its indexes have grown. The
+ * cache uses a single segment, so eviction follows use across every dataset rather than within a
+ * segment.
+ *
+ * <p>Each entry is an immutable Dataset, built completely before it is published by an atomic swap
+ * of the entry, so readers see either the old dataset or the new one and never part of either. A
+ * request that has fetched a Dataset keeps using that snapshot even if the id is reloaded.
+ */
+public class DatasetCatalog {
+  private final Cache<String, Dataset> datasets; // The loaded datasets, weighed in kilobytes.
+  private final long budgetBytes; // The most estimated heap the datasets may use.
+  private final AtomicLong versions; // Gives each load its own version.
+
+  /**
+   * Constructor creates an empty catalog with the given memory budget.
+   *
+   * @param budgetBytes is the most estimated heap the datasets may use together.
+   */
+  public DatasetCatalog(long budgetBytes) {
+    this.budgetBytes = budgetBytes;
+    this.versions = new AtomicLong();
+    this.datasets =
+        CacheBuilder.newBuilder()
+            .concurrencyLevel(1)
+            .maximumWeight(Math.max(1, budgetBytes / 1024))
+            .weigher((String id, Dataset dataset) -> kilobytes(dataset.bytes()))
+            .build();
+  }
+
+  /**
+   * Adds a loaded CSV under an id, atomically replacing any dataset already there and evicting the
+   * least recently used datasets if the budget is passed. The version is taken as part of the swap,
+   * so later swaps of an id always carry higher versions.
+   *
+   * @param id is the id to load the CSV under.
+   * @param searcher is the loaded CSV.
+   * @param source is how much of the CSV's file was loaded, or null if that is not known.
+   * @return the Dataset added, with its new version.
+   * @throws DatasetTooLargeException if the CSV alone is larger than the budget.
+   */
+  public Dataset put(String id, CSVSearcher searcher, LoadedFile source)
+      throws DatasetTooLargeException {
+    long bytes = searcher.estimatedBytes();
+    if (bytes > this.budgetBytes) {
+      throw new DatasetTooLargeException(id, bytes, this.budgetBytes);
+    }
+    return this.datasets
+        .asMap()
+        .compute(
+            id,
+            (key, old) -> new Dataset(searcher, this.versions.incrementAndGet(), bytes, source));
+  }
+
+  /**
+   * Weighs a dataset again after its searcher has built more indexes, so the budget counts them.
+   * The entry is replaced by one with the same searcher and version, so cursors stay valid, and the
+   * least recently used datasets are evicted if the budget is now passed, which may be this one if
+   * it alone no longer fits. Nothing changes if the id has since been reloaded or evicted, or if
+   * the estimate has not changed.
+   *
+   * @param id is the id the dataset is loaded under.
+   * @param dataset is the dataset, as fetched by get.
+   */
+  public void reweigh(String id, Dataset dataset) {
+    long bytes = dataset.searcher().estimatedBytes();
+    if (bytes == dataset.bytes()) {
+      return;
+    }
+    this.datasets
+        .asMap()
+        .computeIfPresent(
+            id,
+            (key, current) ->
+                (current.version() != dataset.version() || current.bytes() == bytes)
+                    ? current
+                    : new Dataset(current.searcher(), current.version(), bytes, current.source()));
+  }
+
+  /**
+   * Retrieves the dataset loaded under an id, marking it as recently used.
+   *
+   * @param id is the id to look for.
+   * @return the dataset if it is loaded, null if not.
+   */
+  public Dataset get(String id) {
+    return this.datasets.getIfPresent(id);
+  }
+
+  /**
+   * Checks whether a dataset is loaded under an id, without marking it as recently used.
+   *
+   * @param id is the id to look for.
+   * @return whether a dataset is loaded under the id.
+   */
+  public boolean contains(String id) {
+    return this.datasets.asMap().containsKey(id);
+  }
+
+  /**
+   * Lists the ids of the loaded datasets.
+   *
+   * @return a copy of the ids, in no particular order.
+   */
+  public List<String> ids() {
+    return new ArrayList<>(this.datasets.asMap().keySet());
+  }
+
+  /**
+   * Adds up the estimated size of the loaded datasets.
+   *
+   * @return the estimated heap they use, in bytes.
+   */
+  public long totalBytes() {
+    long total = 0;
+    for (Dataset dataset : this.datasets.asMap().values()) {
+      total += dataset.bytes();
+    }
+    return total;
+  }
+
+  /** Returns the memory budget, in bytes. */
+  public long budgetBytes() {
+    return this.budgetBytes;
+  }
+
+  /**
+   * Converts a size to whole kilobytes, rounding up so small datasets still have weight.
+   *
+   * @param bytes is the size in bytes.
+   * @return the size in kilobytes, capped at Integer.MAX_VALUE.
+   */
+  private static int kilobytes(long bytes) {
+    return (int) Math.min(Integer.MAX_VALUE, (bytes + 1023) / 1024);
+  }
+}
@@ -0,0 +1,311 @@
+package edu.brown.cs.student.main.server.handlers.csvhandlers;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+/**
+ * DatasetWatcher reloads watched datasets in the background whenever their files change. A single
+ * WatchService watches the directories of the watched files, and its events are debounced per file,
+ * so a file being written in many pieces is reloaded once, after it has been quiet for the debounce
+ * delay. Reloads run one at a time on their own thread, through the Loader given by the datasource,
+ * which publishes each reloaded dataset with the same atomic swap as loadcsv. The Loader is also
+ * given a check of whether the dataset is still watched from the same file with the same settings,
+ * so a reload that a newer load of the id overtook can be dropped rather than published.
+ *
+ * <p>The time, outcome and error of each dataset's reloads are kept, so they can be reported by the
+ * watchstatus endpoint. A failed reload leaves the dataset that was already loaded serving
+ * requests. The watching thread is only started by the first watched dataset.
+ */
+public class DatasetWatcher {
+
+  /** Loader reloads a watched dataset, as loadcsv would. */
+  @FunctionalInterface
+  public interface Loader {
+    /**
+     * Reloads a dataset from its file, unless it is no longer loaded or no longer current.
+     *
+     * @param id is the dataset id to reload.
+     * @param filepath is the filepath to the CSV.
+     * @param hasHeader is whether the CSV contains headers.
+     * @param options are the settings the dataset was loaded with.
+     * @param current is whether the dataset is still watched with these settings, which the Loader
+     *     checks once no other load of the id can run.
+     * @return the statistics of the load, or null if the dataset was not reloaded.
+     * @throws Exception if the reload fails.
+     */
+    Map<String, Object> reload(
+        String id, String filepath, boolean hasHeader, LoadOptions options, BooleanSupplier current)
+        throws Exception;
+  }
+
+  private final Loader loader; // Reloads the datasets.
+  private final long debounceMillis; // How long a file must be quiet before it is reloaded.
+  private final Map<String, Watch> watches; // The watched datasets, by dataset id.
+  private final Map<Path, ScheduledFuture<?>> pending; // The reloads waiting out the debounce.
+  private final ScheduledExecutorService reloader; // Runs the reloads, one at a time.
+  private final Map<Path, WatchKey> directories; // The directories registered, by path.
+  private WatchService watchService; // Watches the directories, once something is watched.
+
+  /**
+   * Constructor creates a watcher that has nothing to watch yet.
+   *
+   * @param loader reloads the datasets.
+   * @param debounceMillis is how long a file must be quiet before it is reloaded.
+   */
+  public DatasetWatcher(Loader loader, long debounceMillis) {
+    this.loader = loader;
+    this.debounceMillis = debounceMillis;
+    this.watches = new ConcurrentHashMap<>();
+    this.pending = new ConcurrentHashMap<>();
+    this.directories = new ConcurrentHashMap<>();
+    this.reloader =
+        Executors.newSingleThreadScheduledExecutor(
+            task -> {
+              // Reloads must not keep the server from shutting down.
+              Thread thread = new Thread(task, "csv-reload");
+              thread.setDaemon(true);
+              return thread;
+            });
+  }
+
+  /**
+   * Watches the file of a dataset, reloading it with the given settings whenever it changes. A
+   * dataset that is watched again from the same file keeps its reload history.
+   *
+   * @param id is the dataset id.
+   * @param filepath is the filepath to the CSV.
+   * @param hasHeader is whether the CSV contains headers.
+   * @param options are the settings to reload the dataset with.
+   * @throws IOException if the file's directory can't be watched.
+   */
+  public synchronized void watch(String id, String filepath, boolean hasHeader, LoadOptions options)
+      throws IOException {
+    Path file = Path.of(filepath).toAbsolutePath().normalize();
+    Path directory = file.getParent();
+    if (this.watchService == null) {
+      this.watchService = FileSystems.getDefault().newWatchService();
+      Thread thread = new Thread(this::run, "csv-watch");
+      thread.setDaemon(true);
+      thread.start();
+    }
+    if (!this.directories.containsKey(directory)) {
+      // Files replaced by a rename show up as created, rather than modified.
+      this.directories.put(
+          directory,
+          directory.register(
+              this.watchService,
+              StandardWatchEventKinds.ENTRY_CREATE,
+              StandardWatchEventKinds.ENTRY_MODIFY));
+    }
+    Watch old = this.watches.get(id);
+    if (old != null && old.file.equals(file) && old.hasHeader == hasHeader) {
+      old.options = options;
+    } else {
+      this.watches.put(id, new Watch(filepath, file, hasHeader, options));
+    }
+  }
+
+  /**
+   * Stops reloading a dataset. Its directory stays registered, since other files in it may be
+   * watched later.
+   *
+   * @param id is the dataset id.
+   */
+  public void unwatch(String id) {
+    this.watches.remove(id);
+  }
+
+  /**
+   * Describes each watched dataset for the watchstatus endpoint: its file, how many times it has
+   * been reloaded or failed to, and the time, outcome and statistics or error of its last reload.
+   *
+   * @return a map of each watched dataset's status, by dataset id.
+   */
+  public Map<String, Object> status() {
+    Map<String, Object> status = new TreeMap<>();
+    this.watches.forEach((id, watch) -> status.put(id, watch.status()));
+    return status;
+  }
+
+  /** Private helper-method that runs on the watching thread, debouncing each changed file. */
+  private void run() {
+    while (true) {
+      WatchKey key;
+      try {
+        key = this.watchService.take();
+      } catch (InterruptedException | ClosedWatchServiceException e) {
+        return;
+      }
+      Path directory = (Path) key.watchable();
+      for (WatchEvent<?> event : key.pollEvents()) {
+        if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+          // Events were lost, so any file in the directory may have changed.
+          this.watches.values().stream()
+              .filter(watch -> watch.file.getParent().equals(directory))
+              .forEach(watch -> this.changed(watch.file));
+        } else {
+          this.changed(directory.resolve((Path) event.context()));
+        }
+      }
+      key.reset();
+    }
+  }
+
+  /**
+   * Private helper-method that schedules a reload of a changed file, replacing any reload of it
+   * still waiting out the debounce.
+   *
+   * @param file is the absolute path of the file that changed.
+   */
+  private void changed(Path file) {
+    if (this.watches.values().stream().noneMatch(watch -> watch.file.equals(file))) {
+      return;
+    }
+    this.pending.compute(
+        file,
+        (path, waiting) -> {
+          if (waiting != null) {
+            waiting.cancel(false);
+          }
+          return this.reloader.schedule(
+              () -> this.reload(path), this.debounceMillis, TimeUnit.MILLISECONDS);
+        });
+  }
+
+  /**
+   * Private helper-method that runs on the reloading thread, reloading each dataset watching a
+   * file. A dataset that is no longer loaded is no longer watched. A reload overtaken by a newer
+   * load of the dataset is dropped, leaving whatever that load watches.
+   *
+   * @param file is the absolute path of the file that changed.
+   */
+  private void reload(Path file) {
+    this.pending.remove(file);
+    this.watches.forEach(
+        (id, watch) -> {
+          if (!watch.file.equals(file)) {
+            return;
+          }
+          long start = System.nanoTime();
+          LoadOptions options = watch.options;
+          BooleanSupplier current =
+              () -> this.watches.get(id) == watch && watch.options.equals(options);
+          try {
+            Map<String, Object> stats =
+                this.loader.reload(id, watch.filepath, watch.hasHeader, options, current);
+            if (stats == null) {
+              // Only a dataset that was evicted stops being watched; a newer load keeps its watch.
+              if (current.getAsBoolean()) {
+                this.watches.remove(id, watch);
+              }
+              return;
+            }
+            watch.succeeded(System.nanoTime() - start, stats);
+          } catch (Exception e) {
+            watch.failed(System.nanoTime() - start, e);
+          }
+        });
+  }
+
+  /**
+   * Watch is one watched dataset and the history of its reloads. Its reload fields are written by
+   * the reloading thread and read by the watchstatus endpoint, so they are guarded by the watch's
+   * lock.
+   */
+  private static final class Watch {
+    private final String filepath; // The filepath the dataset was loaded from.
+    private final Path file; // The absolute path of the file.
+    private final boolean hasHeader; // Whether the CSV contains headers.
+    private volatile LoadOptions options; // The settings to reload the dataset with.
+    private long reloads; // How many reloads succeeded.
+    private long failures; // How many reloads failed.
+    private long lastReloadAt; // When the last reload finished, or 0 if none has.
+    private long lastReloadMillis; // How long the last reload took.
+    private Map<String, Object> lastStats; // The statistics of the last good reload.
+    private Exception lastError; // The error of the last reload, if it failed.
+
+    /**
+     * Constructor creates a watch that has not reloaded yet.
+     *
+     * @param filepath is the filepath the dataset was loaded from.
+     * @param file is the absolute path of the file.
+     * @param hasHeader is whether the CSV contains headers.
+     * @param options are the settings to reload the dataset with.
+     */
+    private Watch(String filepath, Path file, boolean hasHeader, LoadOptions options) {
+      this.filepath = filepath;
+      this.file = file;
+      this.hasHeader = hasHeader;
+      this.options = options;
+    }
+
+    /**
+     * Records a reload that succeeded.
+     *
+     * @param nanos is how long the reload took.
+     * @param stats are the statistics of the load.
+     */
+    private synchronized void succeeded(long nanos, Map<String, Object> stats) {
+      this.lastReloadMillis = nanos / 1_000_000;
+      this.lastStats = stats;
+      this.lastError = null;
+      this.reloads++;
+      this.lastReloadAt = System.currentTimeMillis();
+    }
+
+    /**
+     * Records a reload that failed.
+     *
+     * @param nanos is how long the reload took.
+     * @param error is the reload's error.
+     */
+    private synchronized void failed(long nanos, Exception error) {
+      this.lastReloadMillis = nanos / 1_000_000;
+      this.lastError = error;
+      this.failures++;
+      this.lastReloadAt = System.currentTimeMillis();
+    }
+
+    /**
+     * Describes the watch, with the outcome of its last reload if there has been one.
+     *
+     * @return a map of the watch's status.
+     */
+    private synchronized Map<String, Object> status() {
+      Map<String, Object> status = new LinkedHashMap<>();
+      status.put("filepath", this.filepath);
+      status.put("reloads", this.reloads);
+      status.put("failures", this.failures);
+      if (this.lastReloadAt == 0) {
+        return status;
+      }
+      status.put("last_reload_at", this.lastReloadAt);
+      status.put("last_reload_millis", this.lastReloadMillis);
+      if (this.lastError == null) {
+        status.put("last_result", "success");
+        status.put("last_load", this.lastStats);
+      } else {
+        status.put("last_result", "error");
+        String[] parts = this.lastError.getClass().toString().split("\\.");
+        status.put("exception", parts[parts.length - 1]);
+        status.put("error_message", this.lastError.getMessage());
+      }
+      return status;
+    }
+  }
+}
@@ -0,0 +1,56 @@
+package edu.brown.cs.student.main.server.handlers.csvhandlers;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32C;
+
+/**
+ * FileHash is a running CRC32C of the start of a file, read through a memory map. A load checks the
+ * part of the file it parsed before, keys its snapshot on the whole file and records the part it
+ * parsed now, and each of these hashes a longer prefix than the last, so one FileHash carries on
+ * from where the previous hash stopped and each byte is read once. Hashing does no parsing, so it
+ * costs a small part of a load.
+ */
+final class FileHash {
+  private static final long WINDOW = 1L << 26; // Bytes of the file mapped at once to hash.
+  private final Path file; // The file being hashed.
+  private final CRC32C crc; // The hash of the first hashed bytes.
+  private long hashed; // How many bytes from the start of the file have been hashed.
+
+  /**
+   * Constructor starts a hash of a file that has hashed nothing yet.
+   *
+   * @param file is the file to hash.
+   */
+  FileHash(Path file) {
+    this.file = file;
+    this.crc = new CRC32C();
+  }
+
+  /**
+   * Hashes the first bytes of the file, carrying on from the bytes already hashed if there are no
+   * more of them than asked for, and starting again otherwise.
+   *
+   * @param bytes is the length of the part of the file to hash, at most the file's size.
+   * @return the CRC32C of that part of the file.
+   * @throws IOException if the file cannot be read.
+   */
+  long prefix(long bytes) throws IOException {
+    if (bytes < this.hashed) {
+      this.crc.reset();
+      this.hashed = 0;
+    }
+    if (bytes > this.hashed) {
+      try (FileChannel channel = FileChannel.open(this.file, StandardOpenOption.READ)) {
+        for (long start = this.hashed; start < bytes; start += WINDOW) {
+          this.crc.update(
+              channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(WINDOW, bytes - start)));
+        }
+      }
+      this.hashed = bytes;
+    }
+    return this.crc.getValue();
+  }
+}
@@ -1,27 +1,52 @@
 package edu.brown.cs.student.main.server.handlers.csvhandlers;
 
 import edu.brown.cs.student.main.server.serializers.MapSerializer;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.RejectedExecutionException;
 import spark.Request;
 import spark.Response;
 import spark.Route;
 
 /**
  * LoadCSVHandler handles the loadcsv endpoint in the Server, attempting to load the CSV file from
- * the given path via the CSVDataSource.
+ * the given path via the CSVDataSource. With async=true, the load is queued on LoadJobs instead and
+ * a job id is returned right away, whose progress the loadstatus endpoint reports. With columns,
+ * only the listed column indexes are loaded, in the order listed. With watch=true, the CSV is
+ * reloaded in the background whenever its file changes, as the watchstatus endpoint reports.
  */
 public class LoadCSVHandler implements Route {
+  // The parameters the endpoint requires, and those it optionally accepts.
+  private static final List<String> REQUIRED_PARAMS = List.of("filepath", "header");
+  private static final List<String> OPTIONAL_PARAMS =
+      List.of("id", "parallelism", "buildindex", "invertedindex", "async", "watch", "columns");
   private final CSVDatasource sharedCSVData; // The shared CSVDatasource.
+  private final LoadJobs loadJobs; // Runs the asynchronous loads.
 
   /**
-   * Constructor initializes the datasource for the CSV.
+   * Constructor initializes the datasource for the CSV, with its own LoadJobs for asynchronous
+   * loads.
    *
    * @param state is the polymorphic implementation of CSVDatasource.
    */
   public LoadCSVHandler(CSVDatasource state) {
+    this(state, new LoadJobs());
+  }
+
+  /**
+   * Alternate constructor initializes the datasource for the CSV and the LoadJobs that asynchronous
+   * loads are queued on, which should be shared with the LoadStatusHandler.
+   *
+   * @param state is the polymorphic implementation of CSVDatasource.
+   * @param loadJobs runs the asynchronous loads.
+   */
+  public LoadCSVHandler(CSVDatasource state, LoadJobs loadJobs) {
     this.sharedCSVData = state;
+    this.loadJobs = loadJobs;
   }
 
   /**
@@ -37,16 +62,27 @@ public class LoadCSVHandler implements Route {
     // Initialize the response format.
     Map<String, Object> responseData = new HashMap<>();
 
-    // Store the filepath and header of the request.
+    // Store the filepath, header and optional settings of the request.
     String path = request.queryParams("filepath");
+    String id = request.queryParams("id");
     String header = request.queryParams("header");
+    String parallelism = request.queryParams("parallelism");
+    String buildIndex = request.queryParams("buildindex");
+    String invertedIndex = request.queryParams("invertedindex");
+    String async = request.queryParams("async");
+    String watch = request.queryParams("watch");
+    String columns = request.queryParams("columns");
 
-    // Check that two parameters were specified.
-    if (request.queryParams().size() != 2) {
+    // Check that two parameters, plus any optional ones, were specified.
+    Set<String> params = request.queryParams();
+    if (params.size() < 2
+        || !params.stream()
+            .allMatch(p -> REQUIRED_PARAMS.contains(p) || OPTIONAL_PARAMS.contains(p))) {
       responseData.put("result", "error");
       responseData.put("error_type", "Invalid number of parameters specified!");
-      responseData.put("params_given", request.queryParams());
-      responseData.put("params_required", List.of("filepath", "header"));
+      responseData.put("params_given", params);
+      responseData.put("params_required", REQUIRED_PARAMS);
+      responseData.put("optional_params", OPTIONAL_PARAMS);
       return new MapSerializer().serialize(responseData);
     }
 
@@ -62,21 +98,104 @@ public class LoadCSVHandler implements Route {
       return new MapSerializer().serialize(responseData);
     }
 
-    // Check that header has a valid value.
+    // Check that header, and the index flags if given, have valid values.
     if (!(header.equals("true") || header.equals("false"))) {
-      responseData.put("result", "error");
-      responseData.put("error_type", "Invalid header value!");
-      responseData.put("valid_inputs", List.of("true", "false"));
+      return this.invalidValue(responseData, "header", List.of("true", "false"));
+    }
+    if (buildIndex != null) {
+      responseData.put("query_buildindex", buildIndex);
+      if (!(buildIndex.equals("true") || buildIndex.equals("false"))) {
+        return this.invalidValue(responseData, "buildindex", List.of("true", "false"));
+      }
+    }
+    if (invertedIndex != null) {
+      responseData.put("query_invertedindex", invertedIndex);
+      if (!(invertedIndex.equals("true") || invertedIndex.equals("false"))) {
+        return this.invalidValue(responseData, "invertedindex", List.of("true", "false"));
+      }
+    }
+
+    if (async != null) {
+      responseData.put("query_async", async);
+      if (!(async.equals("true") || async.equals("false"))) {
+        return this.invalidValue(responseData, "async", List.of("true", "false"));
+      }
+    }
+    if (watch != null) {
+      responseData.put("query_watch", watch);
+      if (!(watch.equals("true") || watch.equals("false"))) {
+        return this.invalidValue(responseData, "watch", List.of("true", "false"));
+      }
+    }
+
+    // Check that the dataset id, if given, is not blank.
+    if (id != null) {
+      responseData.put("query_id", id);
+      if (id.isBlank()) {
+        return this.invalidValue(responseData, "id", "a non-empty dataset id");
+      }
+    }
+
+    // Check that parallelism, if given, is a positive number, and cap it at the number of
+    // processors, so one request cannot start thousands of parsing threads.
+    int threads = 1;
+    if (parallelism != null) {
+      responseData.put("query_parallelism", parallelism);
+      try {
+        threads = Integer.parseInt(parallelism.trim());
+      } catch (NumberFormatException e) {
+        threads = 0;
+      }
+      if (threads < 1) {
+        return this.invalidValue(responseData, "parallelism", "a positive integer");
+      }
+      threads = Math.min(threads, Runtime.getRuntime().availableProcessors());
+    }
+
+    // Check that columns, if given, lists distinct column indexes.
+    List<Integer> projection = null;
+    if (columns != null) {
+      responseData.put("query_columns", columns);
+      projection = this.parseColumns(columns);
+      if (projection == null) {
+        return this.invalidValue(
+            responseData, "columns", "a comma-separated list of distinct column indexes");
+      }
+    }
+
+    boolean headerBool = (header.equals("true")) ? true : false;
+    LoadOptions options =
+        new LoadOptions(
+            threads,
+            "true".equals(buildIndex),
+            "true".equals(invertedIndex),
+            "true".equals(watch),
+            projection);
+    String dataset = (id == null) ? CSVDatasource.DEFAULT_ID : id;
+
+    // Queue an asynchronous load, returning its job id for the loadstatus endpoint.
+    if ("true".equals(async)) {
+      try {
+        LoadJob job = this.loadJobs.submit(this.sharedCSVData, dataset, path, headerBool, options);
+        responseData.put("result", "success");
+        responseData.put("job_id", job.jobId());
+        responseData.put("status", job.state().name().toLowerCase(Locale.ROOT));
+      } catch (RejectedExecutionException e) {
+        responseData.put("result", "error");
+        responseData.put("error_type", "Too many loads in progress! Try again later.");
+      }
       return new MapSerializer().serialize(responseData);
     }
 
     try {
-      // Load the CSV data.
-      boolean headerBool = (header.equals("true")) ? true : false;
-      this.sharedCSVData.loadCSV(path, headerBool);
+      // Load the CSV data, timing the load so parallel speedups can be measured.
+      long start = System.nanoTime();
+      Map<String, Object> stats = this.sharedCSVData.loadCSV(dataset, path, headerBool, options);
 
-      // Inform the user of successful load.
+      // Inform the user of successful load, with what the data and its indexes cost.
       responseData.put("result", "success");
+      responseData.put("load_millis", (System.nanoTime() - start) / 1_000_000);
+      responseData.putAll(stats);
 
     } catch (Exception e) {
       // Add descriptive error message to the result.
@@ -87,4 +206,43 @@ public class LoadCSVHandler implements Route {
     }
     return new MapSerializer().serialize(responseData);
   }
+
+  /**
+   * Private helper-method that parses the columns parameter.
+   *
+   * @param columns is the comma-separated list of column indexes.
+   * @return the column indexes, or null if any is not a non-negative integer or one is repeated.
+   */
+  private List<Integer> parseColumns(String columns) {
+    List<Integer> indexes = new ArrayList<>();
+    for (String column : columns.split(",", -1)) {
+      int index;
+      try {
+        index = Integer.parseInt(column.trim());
+      } catch (NumberFormatException e) {
+        return null;
+      }
+      if (index < 0 || indexes.contains(index)) {
+        return null;
+      }
+      indexes.add(index);
+    }
+    return List.copyOf(indexes);
+  }
+
+  /**
+   * Private helper-method used to build a descriptive return map if a parameter had an invalid
+   * value.
+   *
+   * @param responseData is the map of response data.
+   * @param param is the name of the parameter.
+   * @param validInputs describes the values the parameter accepts.
+   * @return the serialized responseData map.
+   */
+  private String invalidValue(Map<String, Object> responseData, String param, Object validInputs) {
+    responseData.put("result", "error");
+    responseData.put("error_type", "Invalid " + param + " value!");
+    responseData.put("valid_inputs", validInputs);
+    return new MapSerializer().serialize(responseData);
+  }
 }
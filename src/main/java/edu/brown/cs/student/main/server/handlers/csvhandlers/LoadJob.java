@@ -0,0 +1,167 @@
+package edu.brown.cs.student.main.server.handlers.csvhandlers;
+
+import edu.brown.cs.student.main.csv.utilities.LoadListener;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * LoadJob is one CSV load run in the background by LoadJobs. It listens to the load as the file is
+ * parsed, so its status can report how far the load has read and how fast, and it keeps the load's
+ * statistics or error once it is done. Its fields are written by the loading thread and read by the
+ * loadstatus endpoint, so each is volatile, and the state is written last.
+ */
+public class LoadJob implements LoadListener {
+
+  /** The states a job moves through, in order. */
+  public enum State {
+    QUEUED,
+    RUNNING,
+    SUCCEEDED,
+    FAILED
+  }
+
+  private final String jobId; // The id the job's status is looked up by.
+  private final String datasetId; // The dataset id the CSV is loaded under.
+  private final String filepath; // The filepath of the CSV.
+  private volatile State state; // How far the job has got.
+  private volatile long totalBytes; // The size of the file, or -1 until the parse starts.
+  private volatile long bytesRead; // The bytes parsed so far, or -1 if the parse can't tell.
+  private volatile long rows; // The rows read so far.
+  private volatile long startNanos; // When the job started running.
+  private volatile long endNanos; // When the job finished.
+  private volatile Map<String, Object> result; // The load's statistics, once it succeeds.
+  private volatile Throwable error; // The load's error, if it fails.
+
+  /**
+   * Constructor creates a queued job.
+   *
+   * @param jobId is the id the job's status is looked up by.
+   * @param datasetId is the dataset id the CSV is loaded under.
+   * @param filepath is the filepath to the CSV.
+   */
+  LoadJob(String jobId, String datasetId, String filepath) {
+    this.jobId = jobId;
+    this.datasetId = datasetId;
+    this.filepath = filepath;
+    this.state = State.QUEUED;
+    this.totalBytes = -1;
+  }
+
+  /**
+   * Runs the load on the calling thread, recording its statistics or error. Errors such as an
+   * OutOfMemoryError on a large file are recorded too, so the job never stays running after its
+   * thread has given up on it.
+   *
+   * @param source is the datasource to load the CSV into.
+   * @param hasHeader is whether the CSV contains headers.
+   * @param options are the optional settings for the load.
+   */
+  void run(CSVDatasource source, boolean hasHeader, LoadOptions options) {
+    this.startNanos = System.nanoTime();
+    this.state = State.RUNNING;
+    try {
+      Map<String, Object> stats =
+          source.loadCSV(this.datasetId, this.filepath, hasHeader, options, this);
+      this.endNanos = System.nanoTime();
+      // Once the load is done the whole file has been read, even if the parse couldn't tell.
+      this.bytesRead = this.totalBytes;
+      this.result = stats;
+      this.state = State.SUCCEEDED;
+    } catch (Throwable e) {
+      this.endNanos = System.nanoTime();
+      this.error = e;
+      this.state = State.FAILED;
+    }
+  }
+
+  /**
+   * Implements progress as specified in LoadListener. The file's size is only looked up once the
+   * parse has started, since by then the datasource has accepted the filepath.
+   *
+   * @param rows is the number of rows read so far.
+   * @param bytes is the number of bytes parsed so far, or -1 if it is not known.
+   */
+  @Override
+  public void progress(long rows, long bytes) {
+    if (this.totalBytes < 0) {
+      try {
+        this.totalBytes = Files.size(Path.of(this.filepath));
+      } catch (IOException e) {
+        // Leave the size unknown, to be looked up again at the next report.
+      }
+    }
+    this.rows = rows;
+    this.bytesRead = bytes;
+  }
+
+  /**
+   * Returns the id the job's status is looked up by.
+   *
+   * @return the job id.
+   */
+  public String jobId() {
+    return this.jobId;
+  }
+
+  /**
+   * Returns how far the job has got.
+   *
+   * @return the job's state.
+   */
+  public State state() {
+    return this.state;
+  }
+
+  /**
+   * Describes the job for the loadstatus endpoint: its state, the rows and bytes read so far and
+   * the rate they were read at, and the load's statistics or error once it is done.
+   *
+   * @return a map of the job's status.
+   */
+  public Map<String, Object> status() {
+    // Read the state first, so everything written before it is visible.
+    State state = this.state;
+    Map<String, Object> status = new LinkedHashMap<>();
+    status.put("job_id", this.jobId);
+    status.put("id", this.datasetId);
+    status.put("filepath", this.filepath);
+    status.put("status", state.name().toLowerCase(Locale.ROOT));
+    if (state == State.QUEUED) {
+      return status;
+    }
+
+    // Report progress, and the rate of progress while running or over the whole load.
+    long rows = this.rows;
+    long bytes = this.bytesRead;
+    long total = this.totalBytes;
+    long elapsed = ((state == State.RUNNING) ? System.nanoTime() : this.endNanos) - this.startNanos;
+    status.put("rows_read", rows);
+    status.put("elapsed_millis", elapsed / 1_000_000);
+    if (elapsed > 0) {
+      status.put("rows_per_second", Math.round(rows / (elapsed / 1e9)));
+    }
+    if (total >= 0) {
+      status.put("total_bytes", total);
+    }
+    if (bytes >= 0) {
+      status.put("bytes_read", bytes);
+      if (elapsed > 0) {
+        status.put("bytes_per_second", Math.round(bytes / (elapsed / 1e9)));
+      }
+    }
+
+    // Report the outcome of a finished load.
+    if (state == State.SUCCEEDED) {
+      status.put("load", this.result);
+    } else if (state == State.FAILED) {
+      String[] parts = this.error.getClass().toString().split("\\.");
+      status.put("exception", parts[parts.length - 1]);
+      status.put("error_message", this.error.getMessage());
+    }
+    return status;
+  }
+}
@@ -0,0 +1,96 @@
+package edu.brown.cs.student.main.server.handlers.csvhandlers;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import edu.brown.cs.student.main.server.handlers.csvhandlers.exceptions.JobNotFoundException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * LoadJobs runs CSV loads in the background on a dedicated, bounded pool of threads, so a loadcsv
+ * request can return as soon as its load is queued. Loads beyond the pool's threads wait in a
+ * bounded queue, and once that is full new loads are rejected rather than piling up. Each load is a
+ * LoadJob whose status can be looked up by its job id, and the most recent jobs are kept in a Guava
+ * cache after they finish.
+ */
+public class LoadJobs {
+  // The most jobs kept for status lookups, which is more than can be queued or running at once.
+  private static final int MAX_JOBS = 100;
+  private final ThreadPoolExecutor executor; // Runs the loads.
+  private final Cache<String, LoadJob> jobs; // The recent jobs, by job id.
+  private final AtomicLong jobIds; // Gives each job its own id.
+
+  /** Constructor runs one load at a time, with up to 16 more waiting. */
+  public LoadJobs() {
+    this(1, 16);
+  }
+
+  /**
+   * Alternate constructor runs loads on the given number of threads, with a bounded queue.
+   *
+   * @param threads is the number of loads that may run at once.
+   * @param queueCapacity is the number of loads that may wait for a thread.
+   */
+  public LoadJobs(int threads, int queueCapacity) {
+    AtomicInteger threadIds = new AtomicInteger();
+    this.executor =
+        new ThreadPoolExecutor(
+            threads,
+            threads,
+            0L,
+            TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(queueCapacity),
+            task -> {
+              // Loads must not keep the server from shutting down.
+              Thread thread = new Thread(task, "csv-load-" + threadIds.incrementAndGet());
+              thread.setDaemon(true);
+              return thread;
+            });
+    this.jobs = CacheBuilder.newBuilder().maximumSize(MAX_JOBS).build();
+    this.jobIds = new AtomicLong();
+  }
+
+  /**
+   * Queues a load of the CSV into the datasource. The dataset already under the id keeps serving
+   * requests until the load is done.
+   *
+   * @param source is the datasource to load the CSV into.
+   * @param id is the dataset id to load the CSV under.
+   * @param filepath is the filepath to the CSV.
+   * @param hasHeader is whether the CSV contains headers.
+   * @param options are the optional settings for the load.
+   * @return the queued job.
+   * @throws RejectedExecutionException if the queue of loads is full.
+   */
+  public LoadJob submit(
+      CSVDatasource source, String id, String filepath, boolean hasHeader, LoadOptions options) {
+    LoadJob job = new LoadJob("load-" + this.jobIds.incrementAndGet(), id, filepath);
+    this.jobs.put(job.jobId(), job);
+    try {
+      this.executor.execute(() -> job.run(source, hasHeader, options));
+    } catch (RejectedExecutionException e) {
+      this.jobs.invalidate(job.jobId());
+      throw e;
+    }
+    return job;
+  }
+
+  /**
+   * Retrieves a job by its id.
+   *
+   * @param jobId is the id of the job.
+   * @return the job.
+   * @throws JobNotFoundException if there is no job with the id, or it has been forgotten.
+   */
+  public LoadJob get(String jobId) throws JobNotFoundException {
+    LoadJob job = this.jobs.getIfPresent(jobId);
+    if (job == null) {
+      throw new JobNotFoundException(jobId);
+    }
+    return job;
+  }
+}
@@ -0,0 +1,63 @@
+package edu.brown.cs.student.main.server.handlers.csvhandlers;
+
+import java.util.List;
+
+/**
+ * LoadOptions is a record of the optional settings a CSVDatasource can be given when loading a CSV.
+ *
+ * @param parallelism is the number of threads to parse the file with.
+ * @param buildIndex is whether to index every column while loading, instead of on first search.
+ * @param invertedIndex is whether to build an inverted index for searches across every column.
+ * @param watch is whether to reload the CSV in the background whenever its file changes.
+ * @param columns are the indexes of the only columns to load, in order, or null to load them all.
+ */
+public record LoadOptions(
+    int parallelism,
+    boolean buildIndex,
+    boolean invertedIndex,
+    boolean watch,
+    List<Integer> columns) {
+
+  /**
+   * Constructor for options that load every column.
+   *
+   * @param parallelism is the number of threads to parse the file with.
+   * @param buildIndex is whether to index every column while loading.
+   * @param invertedIndex is whether to build an inverted index.
+   * @param watch is whether to reload the CSV whenever its file changes.
+   */
+  public LoadOptions(int parallelism, boolean buildIndex, boolean invertedIndex, boolean watch) {
+    this(parallelism, buildIndex, invertedIndex, watch, null);
+  }
+
+  /**
+   * Constructor for options that do not watch the file.
+   *
+   * @param parallelism is the number of threads to parse the file with.
+   * @param buildIndex is whether to index every column while loading.
+   * @param invertedIndex is whether to build an inverted index.
+   */
+  public LoadOptions(int parallelism, boolean buildIndex, boolean invertedIndex) {
+    this(parallelism, buildIndex, invertedIndex, false);
+  }
+
+  /**
+   * The columns to load, as the array a SearcherCreator takes.
+   *
+   * @return the indexes of the columns to load, or null to load every column.
+   */
+  public int[] projection() {
+    return (this.columns == null)
+        ? null
+        : this.columns.stream().mapToInt(Integer::intValue).toArray();
+  }
+
+  /**
+   * The options used when none are given.
+   *
+   * @return the default LoadOptions.
+   */
+  public static LoadOptions defaults() {
+    return new LoadOptions(1, false, false);
+  }
+}
@@ -0,0 +1,69 @@
+package edu.brown.cs.student.main.server.handlers.csvhandlers;
+
+import edu.brown.cs.student.main.server.serializers.MapSerializer;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import spark.Request;
+import spark.Response;
+import spark.Route;
+
+/**
+ * LoadStatusHandler handles the loadstatus endpoint in the Server, reporting the progress of a load
+ * started by loadcsv with async=true, and its result once it is done.
+ */
+public class LoadStatusHandler implements Route {
+  // The parameters the endpoint requires.
+  private static final List<String> REQUIRED_PARAMS = List.of("job");
+  private final LoadJobs loadJobs; // The LoadJobs the loads were queued on.
+
+  /**
+   * Constructor initializes the LoadJobs to look jobs up in.
+   *
+   * @param loadJobs is the LoadJobs shared with the LoadCSVHandler.
+   */
+  public LoadStatusHandler(LoadJobs loadJobs) {
+    this.loadJobs = loadJobs;
+  }
+
+  /**
+   * Override the handle method specified in Route. Looks up the job, returning its status, the rows
+   * and bytes read so far with their rates, and the load's statistics or error once it is done.
+   *
+   * @param request contains the parameters of the status request (only job).
+   * @param response is left unused.
+   * @return a hash map of response data with the status of the job.
+   */
+  @Override
+  public Object handle(Request request, Response response) {
+    // Initialize the response format.
+    Map<String, Object> responseData = new HashMap<>();
+
+    // Check that only the job id was specified.
+    Set<String> params = request.queryParams();
+    String jobId = request.queryParams("job");
+    if (params.size() != 1 || jobId == null) {
+      responseData.put("result", "error");
+      responseData.put("error_type", "Invalid number of parameters specified!");
+      responseData.put("params_given", params);
+      responseData.put("params_required", REQUIRED_PARAMS);
+      return new MapSerializer().serialize(responseData);
+    }
+    responseData.put("query_job", jobId);
+
+    try {
+      // Add the job's status to the result.
+      responseData.put("result", "success");
+      responseData.putAll(this.loadJobs.get(jobId).status());
+
+    } catch (Exception e) {
+      // Add descriptive error message to the result.
+      responseData.put("result", "error");
+      String[] parts = e.getClass().toString().split("\\.");
+      responseData.put("exception", parts[parts.length - 1]);
+      responseData.put("error_message", e.getMessage());
+    }
+    return new MapSerializer().serialize(responseData);
+  }
+}
@@ -0,0 +1,103 @@
+package edu.brown.cs.student.main.server.handlers.csvhandlers;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * LoadedFile is a record of how much of a CSV file a Dataset was parsed from, so a later load of
+ * the same file can tell whether it has only grown since, and parse just the appended rows. The
+ * file is taken to be unchanged up to the parsed length only if everything before that point still
+ * hashes the same, so a truncated file, or one rewritten anywhere before its appended rows, is
+ * parsed in full. The hashes go through the load's FileHash, which the snapshot key and the new
+ * record then carry on from, so the load reads each byte once to hash it.
+ *
+ * @param path is the absolute path of the CSV.
+ * @param hasHeader is whether the CSV was loaded with a header.
+ * @param columns are the columns that were loaded, or null if every column was.
+ * @param bytes is the length of the file that was parsed.
+ * @param prefixHash is the CRC32C of the first bytes of the file.
+ */
+public record LoadedFile(
+    String path, boolean hasHeader, List<Integer> columns, long bytes, long prefixHash) {
+
+  /**
+   * Records how much of a file was parsed.
+   *
+   * @param path is the path of the CSV.
+   * @param hasHeader is whether the CSV was loaded with a header.
+   * @param columns are the columns that were loaded, or null if every column was.
+   * @param bytes is the length of the file that was parsed.
+   * @param hash is the load's hash of the file, which is reused if it already covers the bytes.
+   * @return the record of the load.
+   * @throws IOException if the file cannot be read.
+   */
+  static LoadedFile of(
+      Path path, boolean hasHeader, List<Integer> columns, long bytes, FileHash hash)
+      throws IOException {
+    return new LoadedFile(
+        absolute(path), hasHeader, columns, bytes, hash.prefix(Math.min(bytes, Files.size(path))));
+  }
+
+  /**
+   * Finds where to resume parsing a file that rows have been appended to since this load. If the
+   * last row parsed had no line break, the appended rows must start with one, which is skipped.
+   *
+   * @param path is the path of the CSV being loaded.
+   * @param hasHeader is whether the CSV is being loaded with a header.
+   * @param columns are the columns being loaded, or null if every column is.
+   * @param hash is the load's hash of the file, which hashes the parsed part of it.
+   * @return the offset of the first appended row, or -1 if the file is a different one, or was
+   *     truncated or rewritten, or other columns are being loaded, and it must be parsed in full.
+   * @throws IOException if the file cannot be read.
+   */
+  long appendOffset(Path path, boolean hasHeader, List<Integer> columns, FileHash hash)
+      throws IOException {
+    if (this.bytes == 0
+        || hasHeader != this.hasHeader
+        || !Objects.equals(columns, this.columns)
+        || !absolute(path).equals(this.path)) {
+      return -1;
+    }
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      long size = channel.size();
+      if (size < this.bytes || hash.prefix(this.bytes) != this.prefixHash) {
+        return -1;
+      }
+      ByteBuffer around = ByteBuffer.allocate(3);
+      channel.read(around, this.bytes - 1);
+      byte last = around.get(0);
+      if (around.position() == 1 || last == '\n') {
+        return this.bytes;
+      }
+      byte next = around.get(1);
+      if (last == '\r') {
+        return (next == '\n') ? this.bytes + 1 : this.bytes;
+      }
+
+      // The last row parsed had no line break, so the appended rows must start with one.
+      if (next == '\n') {
+        return this.bytes + 1;
+      } else if (next == '\r') {
+        return (around.position() == 3 && around.get(2) == '\n') ? this.bytes + 2 : this.bytes + 1;
+      }
+      // Otherwise the last row parsed was continued, so it has changed.
+      return -1;
+    }
+  }
+
+  /**
+   * Returns the absolute form of a path, so a file is recognized however it is named.
+   *
+   * @param path is the path.
+   * @return the absolute, normalized path as a String.
+   */
+  private static String absolute(Path path) {
+    return path.toAbsolutePath().normalize().toString();
+  }
+}
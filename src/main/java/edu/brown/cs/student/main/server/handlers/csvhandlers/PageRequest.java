@@ -0,0 +1,62 @@
+package edu.brown.cs.student.main.server.handlers.csvhandlers;
+
+import java.util.List;
+
+/**
+ * PageRequest is a record of which page of rows a CSVDatasource should return.
+ *
+ * @param offset is the number of rows to skip, counted from the cursor if there is one.
+ * @param limit is the most rows to return.
+ * @param cursor is a token from an earlier page to resume after, or null to start at the top.
+ */
+public record PageRequest(int offset, int limit, String cursor) {
+  // The query parameters that select a page.
+  public static final List<String> PARAMS = List.of("limit", "offset", "cursor");
+
+  /**
+   * The request used when no page is asked for.
+   *
+   * @return a PageRequest for every row.
+   */
+  public static PageRequest all() {
+    return new PageRequest(0, Integer.MAX_VALUE, null);
+  }
+
+  /**
+   * Builds a PageRequest from the paging query parameters, any of which may be missing.
+   *
+   * @param limit is the limit parameter, which must be a positive integer if given.
+   * @param offset is the offset parameter, which must be a non-negative integer if given.
+   * @param cursor is the cursor parameter.
+   * @return the PageRequest, which asks for every row if no parameter is given.
+   * @throws IllegalArgumentException if the limit or offset is not a valid number.
+   */
+  public static PageRequest fromParams(String limit, String offset, String cursor) {
+    int limitValue = (limit == null) ? Integer.MAX_VALUE : parse("limit", limit, 1);
+    int offsetValue = (offset == null) ? 0 : parse("offset", offset, 0);
+    return new PageRequest(offsetValue, limitValue, cursor);
+  }
+
+  /**
+   * Parses one paging parameter.
+   *
+   * @param name is the name of the parameter.
+   * @param value is the value given.
+   * @param min is the smallest value allowed.
+   * @return the parsed value.
+   * @throws IllegalArgumentException if the value is not a number of at least min.
+   */
+  private static int parse(String name, String value, int min) {
+    int parsed;
+    try {
+      parsed = Integer.parseInt(value.trim());
+    } catch (NumberFormatException e) {
+      parsed = min - 1;
+    }
+    if (parsed < min) {
+      throw new IllegalArgumentException(
+          name + " must be " + ((min > 0) ? "a positive" : "a non-negative") + " integer!");
+    }
+    return parsed;
+  }
+}
@@ -0,0 +1,12 @@
+package edu.brown.cs.student.main.server.handlers.csvhandlers;
+
+import java.util.List;
+
+/**
+ * ResultPage is a record of one page of rows returned by a CSVDatasource.
+ *
+ * @param rows are the rows on this page.
+ * @param nextCursor is the token to pass back for the next page, or null if this is the last.
+ * @param version is the version of the dataset the rows were read from.
+ */
+public record ResultPage(List<List<String>> rows, String nextCursor, long version) {}
@@ -1,8 +1,13 @@
 package edu.brown.cs.student.main.server.handlers.csvhandlers;
 
+import edu.brown.cs.student.main.csv.index.TextIndex;
+import edu.brown.cs.student.main.csv.storage.ColumnType;
+import edu.brown.cs.student.main.csv.utilities.TextMatch;
 import edu.brown.cs.student.main.server.serializers.MapSerializer;
+import java.io.IOException;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
 import spark.Request;
@@ -11,11 +16,32 @@ import spark.Route;
 
 /**
  * SearchCSVHandler handles the searchcsv endpoint in the Server, attempting to search the CSV file
- * for the given parameters using the shared CSVDatasource.
+ * for the given parameters using the shared CSVDatasource. With min and/or max instead of a value,
+ * a numeric column given by index or header is searched for the rows between them. With a query
+ * instead, such as "State=RI AND Year>=2021 AND NOT Flag=no", the rows matching every predicate it
+ * joins are found in one request. With match=prefix or match=substring, a column is searched for
+ * the cells starting with, or containing, the value, and with match=fuzzy for the cells within the
+ * distance parameter's number of edits of it, closest first.
  */
 public class SearchCSVHandler implements Route {
+  // The most edits a fuzzy match may make by default.
+  private static final int DEFAULT_DISTANCE = 2;
   private final CSVDatasource sharedCSVData; // The shared CSVDatasource.
 
+  /** A search of one dataset for one page of matches, run on the shared CSVDatasource. */
+  @FunctionalInterface
+  private interface Search {
+    /**
+     * Searches the dataset for the page of matches.
+     *
+     * @param dataset is the dataset id.
+     * @param page is the page of results requested.
+     * @return the page of matching rows.
+     * @throws Exception if the search fails.
+     */
+    ResultPage search(String dataset, PageRequest page) throws Exception;
+  }
+
   /**
    * Constructor initializes the datasource for the CSV.
    *
@@ -28,14 +54,22 @@ public class SearchCSVHandler implements Route {
   /**
    * Override the handle method specified in Route. Attempts to search the CSV file, returning a
    * descriptive error message for bad inputs or failures, and a hash map containing a
-   * two-dimensional array of the results if successful.
+   * two-dimensional array of the results if successful. The optional limit, offset and cursor
+   * parameters select one page of results, and the search stops once that page is full. The id
+   * parameter selects the dataset to search. The min and max parameters search a numeric column for
+   * a range of numbers instead of a value, and the query parameter replaces the value and column
+   * with a compound query. The match parameter chooses between exact, prefix, substring and fuzzy
+   * matches of a value in a column, and the distance parameter gives the most edits a fuzzy match
+   * may be from the value, which defaults to 2.
    *
    * @param request contains the parameters of the search request.
-   * @param response is left unused.
-   * @return a hash map of response data with the result of the search attempt.
+   * @param response is the response that successful results are streamed to.
+   * @return a hash map of response data with the result of the search attempt, or an empty body if
+   *     the result was streamed to the response.
+   * @throws IOException if the result cannot be written to the response.
    */
   @Override
-  public Object handle(Request request, Response response) {
+  public Object handle(Request request, Response response) throws IOException {
     // Initialize the response format.
     Map<String, Object> responseData = new HashMap<>();
 
@@ -43,10 +77,33 @@ public class SearchCSVHandler implements Route {
     String value = request.queryParams("value");
     String index = request.queryParams("index");
     String header = request.queryParams("header");
+    String min = request.queryParams("min");
+    String max = request.queryParams("max");
+    String query = request.queryParams("query");
+    String match = request.queryParams("match");
+    String distance = request.queryParams("distance");
+    boolean byRange = min != null || max != null;
 
-    // Check that either one and two parameters were specified.
-    int numParams = request.queryParams().size();
-    if (numParams > 2 || numParams < 1) {
+    // Check that either one and two parameters were specified, besides the id, paging and range
+    // ones. A range search takes the column, but no value, and a query takes neither.
+    int numParams = 0;
+    for (String param : request.queryParams()) {
+      numParams +=
+          (param.equals("id")
+                  || param.equals("match")
+                  || param.equals("distance")
+                  || PageRequest.PARAMS.contains(param)
+                  || param.equals("min")
+                  || param.equals("max"))
+              ? 0
+              : 1;
+    }
+    if (numParams > 2
+        || numParams < 1
+        || (byRange && (numParams != 1 || (index == null && header == null)))
+        || (query != null && (numParams != 1 || byRange))
+        || (match != null && (query != null || byRange))
+        || (distance != null && (match == null || !match.trim().equalsIgnoreCase("fuzzy")))) {
       return this.invalidParams(request.queryParams(), responseData);
     }
 
@@ -54,6 +111,25 @@ public class SearchCSVHandler implements Route {
     responseData.put("query_value", value);
     responseData.put("query_index", index);
     responseData.put("query_header", header);
+    String id = request.queryParams("id");
+    if (id != null) {
+      responseData.put("query_id", id);
+    }
+    if (match != null) {
+      responseData.put("query_match", match);
+    }
+    if (distance != null) {
+      responseData.put("query_distance", distance);
+    }
+    if (query != null) {
+      responseData.put("query_query", query);
+      return this.searchQuery(request, response, responseData, id, query);
+    }
+    if (byRange) {
+      responseData.put("query_min", min);
+      responseData.put("query_max", max);
+      return this.searchRange(request, response, responseData, id, index, header, min, max);
+    }
 
     // Check that the value was given.
     if (value == null) {
@@ -81,13 +157,224 @@ public class SearchCSVHandler implements Route {
       }
     }
 
+    // Prefix, substring and fuzzy matches search one column through its text index.
+    if (match != null && !match.trim().equalsIgnoreCase("exact")) {
+      String kind = match.trim().toLowerCase(Locale.ROOT);
+      TextMatch textMatch =
+          switch (kind) {
+            case "prefix" -> TextMatch.PREFIX;
+            case "substring" -> TextMatch.SUBSTRING;
+            default -> null;
+          };
+      if (textMatch == null && !kind.equals("fuzzy")) {
+        responseData.put("result", "error");
+        responseData.put("error_type", "Invalid match value!");
+        responseData.put("valid_inputs", List.of("exact", "prefix", "substring", "fuzzy"));
+        return new MapSerializer().serialize(responseData);
+      }
+      if (!byIndex) {
+        return this.invalidParams(request.queryParams(), responseData);
+      }
+      if (textMatch != null) {
+        return this.searchText(
+            request, response, responseData, id, value, headerSearch, byHeader, textMatch);
+      }
+
+      // Check that the distance, if given, is in range.
+      int maxDistance = DEFAULT_DISTANCE;
+      if (distance != null) {
+        try {
+          maxDistance = Integer.parseInt(distance.trim());
+        } catch (NumberFormatException e) {
+          maxDistance = -1;
+        }
+        if (maxDistance < 0 || maxDistance > TextIndex.MAX_DISTANCE) {
+          responseData.put("result", "error");
+          responseData.put("error_type", "Invalid distance value!");
+          responseData.put("valid_inputs", "an integer from 0 to " + TextIndex.MAX_DISTANCE);
+          return new MapSerializer().serialize(responseData);
+        }
+      }
+      return this.searchFuzzy(
+          request, response, responseData, id, value, headerSearch, byHeader, maxDistance);
+    }
+
+    // Copy the column chosen above, so the search can capture it.
+    boolean byColumn = byIndex;
+    boolean columnIsHeader = byHeader;
+    String column = headerSearch;
+    return this.search(
+        request,
+        response,
+        responseData,
+        id,
+        (dataset, page) ->
+            this.sharedCSVData.searchCSV(dataset, value, column, byColumn, columnIsHeader, page));
+  }
+
+  /**
+   * Private helper-method that runs a range search of a numeric column, given by index or header,
+   * for the rows whose number is between min and max, inclusive. A missing bound leaves that side
+   * of the range open.
+   *
+   * @param request contains the paging parameters, if any.
+   * @param response is the response that successful results are streamed to.
+   * @param responseData is the map of response data.
+   * @param id is the dataset id, or null for the default dataset.
+   * @param index is the column index, or null if a header is given.
+   * @param header is the column header, or null if an index is given.
+   * @param min is the smallest number to match, or null for no lower bound.
+   * @param max is the largest number to match, or null for no upper bound.
+   * @return the serialized response data, or an empty body if the result was streamed.
+   * @throws IOException if the result cannot be written to the response.
+   */
+  private Object searchRange(
+      Request request,
+      Response response,
+      Map<String, Object> responseData,
+      String id,
+      String index,
+      String header,
+      String min,
+      String max)
+      throws IOException {
+    return this.search(
+        request,
+        response,
+        responseData,
+        id,
+        (dataset, page) ->
+            this.sharedCSVData.searchRange(
+                dataset,
+                (index == null) ? header : index,
+                index == null,
+                (min == null) ? Double.NEGATIVE_INFINITY : parseBound("min", min),
+                (max == null) ? Double.POSITIVE_INFINITY : parseBound("max", max),
+                page));
+  }
+
+  /**
+   * Private helper-method that runs a prefix or substring search of a column, given by index or
+   * header.
+   *
+   * @param request contains the paging parameters, if any.
+   * @param response is the response that successful results are streamed to.
+   * @param responseData is the map of response data.
+   * @param id is the dataset id, or null for the default dataset.
+   * @param value is the string to search for.
+   * @param column is the column index or header.
+   * @param byHeader is whether the column is a header.
+   * @param match is whether cells must start with the value or only contain it.
+   * @return the serialized response data, or an empty body if the result was streamed.
+   * @throws IOException if the result cannot be written to the response.
+   */
+  private Object searchText(
+      Request request,
+      Response response,
+      Map<String, Object> responseData,
+      String id,
+      String value,
+      String column,
+      boolean byHeader,
+      TextMatch match)
+      throws IOException {
+    return this.search(
+        request,
+        response,
+        responseData,
+        id,
+        (dataset, page) ->
+            this.sharedCSVData.searchText(dataset, value, column, byHeader, match, page));
+  }
+
+  /**
+   * Private helper-method that runs a fuzzy search of a column, given by index or header, for the
+   * cells within an edit distance of the value, closest first.
+   *
+   * @param request contains the paging parameters, if any.
+   * @param response is the response that successful results are streamed to.
+   * @param responseData is the map of response data.
+   * @param id is the dataset id, or null for the default dataset.
+   * @param value is the string to search for.
+   * @param column is the column index or header.
+   * @param byHeader is whether the column is a header.
+   * @param maxDistance is the most single-character edits a match may be from the value.
+   * @return the serialized response data, or an empty body if the result was streamed.
+   * @throws IOException if the result cannot be written to the response.
+   */
+  private Object searchFuzzy(
+      Request request,
+      Response response,
+      Map<String, Object> responseData,
+      String id,
+      String value,
+      String column,
+      boolean byHeader,
+      int maxDistance)
+      throws IOException {
+    return this.search(
+        request,
+        response,
+        responseData,
+        id,
+        (dataset, page) ->
+            this.sharedCSVData.searchFuzzy(dataset, value, column, byHeader, maxDistance, page));
+  }
+
+  /**
+   * Private helper-method that runs a compound query, whose predicates are combined as row bitmaps
+   * by the searcher.
+   *
+   * @param request contains the paging parameters, if any.
+   * @param response is the response that successful results are streamed to.
+   * @param responseData is the map of response data.
+   * @param id is the dataset id, or null for the default dataset.
+   * @param query is the query.
+   * @return the serialized response data, or an empty body if the result was streamed.
+   * @throws IOException if the result cannot be written to the response.
+   */
+  private Object searchQuery(
+      Request request, Response response, Map<String, Object> responseData, String id, String query)
+      throws IOException {
+    return this.search(
+        request,
+        response,
+        responseData,
+        id,
+        (dataset, page) -> this.sharedCSVData.searchQuery(dataset, query, page));
+  }
+
+  /**
+   * Private helper-method that runs one kind of search for the requested page of a dataset, adding
+   * the page of matches to the response data, or a descriptive error message if the search failed.
+   *
+   * @param request contains the paging parameters, if any.
+   * @param response is the response that successful results are streamed to.
+   * @param responseData is the map of response data.
+   * @param id is the dataset id, or null for the default dataset.
+   * @param search runs the search on the shared CSVDatasource.
+   * @return the serialized response data, or an empty body if the result was streamed.
+   * @throws IOException if the result cannot be written to the response.
+   */
+  private Object search(
+      Request request,
+      Response response,
+      Map<String, Object> responseData,
+      String id,
+      Search search)
+      throws IOException {
     try {
-      List<List<String>> results =
-          this.sharedCSVData.searchCSV(value, headerSearch, byIndex, byHeader);
+      PageRequest pageRequest = this.pageRequest(request, responseData);
+      String dataset = (id == null) ? CSVDatasource.DEFAULT_ID : id;
+      ResultPage page = search.search(dataset, pageRequest);
 
-      // Add relevant fields to the result.
+      // Add relevant fields to the result, with a cursor if there are more matches.
       responseData.put("result", "success");
-      responseData.put("data", results);
+      responseData.put("data", page.rows());
+      responseData.put("dataset_version", page.version());
+      if (page.nextCursor() != null) {
+        responseData.put("next_cursor", page.nextCursor());
+      }
 
     } catch (Exception e) {
       // Add descriptive error message to the result.
@@ -96,6 +383,40 @@ public class SearchCSVHandler implements Route {
       responseData.put("exception", parts[parts.length - 1]);
       responseData.put("error_message", e.getMessage());
     }
+    return this.respond(response, responseData);
+  }
+
+  /**
+   * Private helper-method that parses a bound of a range search, which may be written with commas
+   * between groups of three digits, as in the CSV.
+   *
+   * @param name is the name of the parameter.
+   * @param value is the value given.
+   * @return the parsed bound.
+   * @throws IllegalArgumentException if the value is not a number.
+   */
+  private static double parseBound(String name, String value) {
+    double bound = ColumnType.parse(value);
+    if (Double.isNaN(bound)) {
+      throw new IllegalArgumentException(name + " must be a number!");
+    }
+    return bound;
+  }
+
+  /**
+   * Private helper-method that sends the response data. A successful result is streamed straight to
+   * the response, so the rows are written one at a time instead of being built into one String.
+   *
+   * @param response is the response that successful results are streamed to.
+   * @param responseData is the map of response data.
+   * @return the serialized response data, or an empty body if the result was streamed.
+   * @throws IOException if the result cannot be written to the response.
+   */
+  private Object respond(Response response, Map<String, Object> responseData) throws IOException {
+    if (responseData.containsKey("data")) {
+      new MapSerializer().serialize(responseData, response.raw().getOutputStream());
+      return "";
+    }
     return new MapSerializer().serialize(responseData);
   }
 
@@ -112,7 +433,38 @@ public class SearchCSVHandler implements Route {
     responseData.put("error_type", "Invalid parameters specified!");
     responseData.put("params_given", params);
     responseData.put("params_required", "value");
-    responseData.put("optional_params", List.of("index", "header"));
+    responseData.put(
+        "optional_params",
+        List.of(
+            "index",
+            "header",
+            "match",
+            "distance",
+            "min",
+            "max",
+            "query",
+            "id",
+            "limit",
+            "offset",
+            "cursor"));
     return new MapSerializer().serialize(responseData);
   }
+
+  /**
+   * Private helper-method that reads the paging parameters, echoing those given in the response.
+   *
+   * @param request contains the paging parameters, if any.
+   * @param responseData is the map of response data.
+   * @return the page of results requested.
+   * @throws IllegalArgumentException if the limit or offset is not a valid number.
+   */
+  private PageRequest pageRequest(Request request, Map<String, Object> responseData) {
+    for (String param : PageRequest.PARAMS) {
+      if (request.queryParams(param) != null) {
+        responseData.put("query_" + param, request.queryParams(param));
+      }
+    }
+    return PageRequest.fromParams(
+        request.queryParams("limit"), request.queryParams("offset"), request.queryParams("cursor"));
+  }
 }
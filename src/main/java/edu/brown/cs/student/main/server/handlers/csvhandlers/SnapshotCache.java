@@ -0,0 +1,212 @@
+package edu.brown.cs.student.main.server.handlers.csvhandlers;
+
+import edu.brown.cs.student.main.csv.storage.SnapshotReader;
+import edu.brown.cs.student.main.csv.storage.SnapshotWriter;
+import edu.brown.cs.student.main.csv.utilities.CSVSearcher;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * SnapshotCache keeps a binary snapshot of each loaded CSV, with its indexes, in a local directory,
+ * so a CSV that has not changed since it was last loaded, even by a server that has since
+ * restarted, is read back from its memory-mapped snapshot instead of being parsed again. Each
+ * snapshot is keyed by the CSV's path, header flag, loaded columns, size, modification time and a
+ * CRC32C of its contents, and is only used if all of them still match. Snapshots are written to a
+ * temporary file and moved into place, so a load never sees one half written.
+ */
+public class SnapshotCache {
+  private static final int MAGIC = 0x43535653; // "CSVS", the first bytes of every snapshot.
+  private static final int FORMAT_VERSION = 5; // Changed whenever the snapshot layout changes.
+  private final Path directory; // Where the snapshots are kept.
+
+  /**
+   * Key is a record of what a snapshot was taken from. A snapshot is only used for a load whose Key
+   * is equal to its own.
+   *
+   * @param path is the absolute path of the CSV.
+   * @param hasHeader is whether the CSV was loaded with a header.
+   * @param columns are the columns that were loaded, or null if every column was.
+   * @param size is the size of the CSV in bytes.
+   * @param modified is the CSV's last modification time in milliseconds.
+   * @param hash is the CRC32C of the CSV's contents.
+   */
+  public record Key(
+      String path, boolean hasHeader, List<Integer> columns, long size, long modified, long hash) {}
+
+  /**
+   * Constructor initializes the cache, whose directory is created when the first snapshot is saved.
+   *
+   * @param directory is the directory to keep the snapshots in.
+   */
+  public SnapshotCache(Path directory) {
+    this.directory = directory;
+  }
+
+  /**
+   * Computes the key of a CSV as it is now, hashing its whole contents.
+   *
+   * @param csv is the path of the CSV.
+   * @param hasHeader is whether the CSV is being loaded with a header.
+   * @param columns are the columns being loaded, or null if every column is.
+   * @return the CSV's key.
+   * @throws IOException if the CSV cannot be read.
+   */
+  public Key key(Path csv, boolean hasHeader, List<Integer> columns) throws IOException {
+    return this.key(csv, hasHeader, columns, new FileHash(csv));
+  }
+
+  /**
+   * Computes the key of a CSV as it is now, carrying on from whatever prefix of it a load has
+   * already hashed.
+   *
+   * @param csv is the path of the CSV.
+   * @param hasHeader is whether the CSV is being loaded with a header.
+   * @param columns are the columns being loaded, or null if every column is.
+   * @param hash is the load's hash of the CSV.
+   * @return the CSV's key.
+   * @throws IOException if the CSV cannot be read.
+   */
+  Key key(Path csv, boolean hasHeader, List<Integer> columns, FileHash hash) throws IOException {
+    Path path = csv.toAbsolutePath().normalize();
+    if (!Files.isRegularFile(path)) {
+      throw new FileNotFoundException(csv + " (No such file or directory)");
+    }
+    long size = Files.size(path);
+    long modified = Files.getLastModifiedTime(path).toMillis();
+    List<Integer> copy = (columns == null) ? null : List.copyOf(columns);
+    return new Key(path.toString(), hasHeader, copy, size, modified, hash.prefix(size));
+  }
+
+  /**
+   * Reads the snapshot for a key, if there is one. A snapshot that is missing, was taken from a
+   * different version of the CSV, or is truncated or unreadable counts as a miss.
+   *
+   * @param key is the key of the CSV being loaded.
+   * @return the restored searcher, or null if there is no usable snapshot.
+   */
+  public CSVSearcher load(Key key) {
+    Path file = this.file(key);
+    if (!Files.isRegularFile(file)) {
+      return null;
+    }
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      if (channel.size() > Integer.MAX_VALUE) {
+        return null;
+      }
+      SnapshotReader in =
+          new SnapshotReader(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+      if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION || !key.equals(readKey(in))) {
+        return null;
+      }
+      return CSVSearcher.readSnapshot(in);
+    } catch (IOException | RuntimeException e) {
+      // The CSV will be parsed instead, and a fresh snapshot saved over this one.
+      return null;
+    }
+  }
+
+  /**
+   * Saves a snapshot of a loaded searcher under its key, replacing any older snapshot of the same
+   * CSV. Nothing is saved if the CSV's size or modification time have changed since the key was
+   * taken, since the searcher may not match the key, or if the snapshot would be too large to map.
+   *
+   * @param key is the key of the CSV the searcher was loaded from.
+   * @param searcher is the loaded searcher, with any indexes it should be saved with.
+   * @return whether the snapshot was saved.
+   * @throws IOException if the snapshot cannot be written.
+   */
+  public boolean save(Key key, CSVSearcher searcher) throws IOException {
+    Path csv = Path.of(key.path());
+    if (Files.size(csv) != key.size()
+        || Files.getLastModifiedTime(csv).toMillis() != key.modified()) {
+      return false;
+    }
+    Files.createDirectories(this.directory);
+    Path temp = Files.createTempFile(this.directory, "snapshot", ".tmp");
+    try {
+      try (SnapshotWriter out = new SnapshotWriter(temp)) {
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+        writeKey(out, key);
+        searcher.writeSnapshot(out);
+      }
+      if (Files.size(temp) > Integer.MAX_VALUE) {
+        return false;
+      }
+      Files.move(
+          temp,
+          this.file(key),
+          StandardCopyOption.ATOMIC_MOVE,
+          StandardCopyOption.REPLACE_EXISTING);
+      return true;
+    } finally {
+      Files.deleteIfExists(temp);
+    }
+  }
+
+  /**
+   * Returns the snapshot file for a key. Every version of a CSV shares one file, so a newer
+   * snapshot replaces an older one, and the stored key tells them apart. Loads of different columns
+   * of the CSV get their own files.
+   *
+   * @param key is the key of the CSV.
+   * @return the path of its snapshot.
+   */
+  private Path file(Key key) {
+    String columns =
+        (key.columns() == null) ? "" : String.format("-%08x", key.columns().hashCode());
+    String name =
+        String.format(
+            "%08x-%s%s.snapshot", key.path().hashCode(), key.hasHeader() ? "h" : "n", columns);
+    return this.directory.resolve(name);
+  }
+
+  /**
+   * Private helper-method that writes a key at the start of a snapshot.
+   *
+   * @param out is the snapshot to write to.
+   * @param key is the key to write.
+   * @throws IOException if the snapshot cannot be written.
+   */
+  private static void writeKey(SnapshotWriter out, Key key) throws IOException {
+    out.writeString(key.path());
+    out.writeBoolean(key.hasHeader());
+    out.writeBoolean(key.columns() != null);
+    if (key.columns() != null) {
+      out.writeInt(key.columns().size());
+      for (int column : key.columns()) {
+        out.writeInt(column);
+      }
+    }
+    out.writeLong(key.size());
+    out.writeLong(key.modified());
+    out.writeLong(key.hash());
+  }
+
+  /**
+   * Private helper-method that reads the key at the start of a snapshot.
+   *
+   * @param in is the snapshot to read from.
+   * @return the key read.
+   */
+  private static Key readKey(SnapshotReader in) {
+    String path = in.readString();
+    boolean hasHeader = in.readBoolean();
+    List<Integer> columns = null;
+    if (in.readBoolean()) {
+      columns = new ArrayList<>();
+      for (int i = in.readInt(); i > 0; i--) {
+        columns.add(in.readInt());
+      }
+      columns = List.copyOf(columns);
+    }
+    return new Key(path, hasHeader, columns, in.readLong(), in.readLong(), in.readLong());
+  }
+}
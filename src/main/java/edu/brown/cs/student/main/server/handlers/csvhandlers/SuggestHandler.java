@@ -0,0 +1,121 @@
+package edu.brown.cs.student.main.server.handlers.csvhandlers;
+
+import edu.brown.cs.student.main.csv.utilities.Suggestion;
+import edu.brown.cs.student.main.server.serializers.MapSerializer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import spark.Request;
+import spark.Response;
+import spark.Route;
+
+/**
+ * SuggestHandler handles the suggest endpoint in the Server, completing a prefix typed into a UI
+ * with the most common values of a loaded CSV's column that start with it, ignoring case. The
+ * column is given by index or header. Each suggestion comes with the number of rows holding it.
+ */
+public class SuggestHandler implements Route {
+  // The parameters the endpoint accepts besides the prefix, which needs one of index and header.
+  private static final List<String> OPTIONAL_PARAMS = List.of("index", "header", "limit", "id");
+  private static final int DEFAULT_LIMIT = 10; // The number of values suggested by default.
+  private static final int MAX_LIMIT = 100; // The most values that may be suggested.
+  private final CSVDatasource sharedCSVData; // The shared CSVDatasource.
+
+  /**
+   * Constructor initializes the datasource for the CSV.
+   *
+   * @param state is the polymorphic implementation of CSVDatasource.
+   */
+  public SuggestHandler(CSVDatasource state) {
+    this.sharedCSVData = state;
+  }
+
+  /**
+   * Override the handle method specified in Route. Attempts to suggest values for the prefix,
+   * returning a descriptive error message for bad inputs or failures, and the values with their row
+   * counts, most common first, if successful. The limit parameter caps the number of values.
+   *
+   * @param request contains the parameters of the suggest request.
+   * @param response is left unused.
+   * @return a hash map of response data with the result of the suggest attempt.
+   */
+  @Override
+  public Object handle(Request request, Response response) {
+    // Initialize the response format.
+    Map<String, Object> responseData = new HashMap<>();
+
+    // Check that the prefix and exactly one of index and header were given, with nothing unknown.
+    Set<String> params = request.queryParams();
+    String prefix = request.queryParams("prefix");
+    String index = request.queryParams("index");
+    String header = request.queryParams("header");
+    String limit = request.queryParams("limit");
+    String id = request.queryParams("id");
+    if (!params.stream().allMatch(p -> p.equals("prefix") || OPTIONAL_PARAMS.contains(p))
+        || (index == null) == (header == null)) {
+      responseData.put("result", "error");
+      responseData.put("error_type", "Invalid parameters specified!");
+      responseData.put("params_given", params);
+      responseData.put("params_required", List.of("prefix", "index or header"));
+      responseData.put("optional_params", List.of("limit", "id"));
+      return new MapSerializer().serialize(responseData);
+    }
+
+    // Add inputs to the response data.
+    for (String param : params) {
+      responseData.put("query_" + param, request.queryParams(param));
+    }
+    if (prefix == null) {
+      responseData.put("result", "error");
+      responseData.put("error_type", "Missing parameter!");
+      responseData.put("error_arg", "prefix");
+      return new MapSerializer().serialize(responseData);
+    }
+
+    // Check that limit, if given, is in range.
+    int count = DEFAULT_LIMIT;
+    if (limit != null) {
+      try {
+        count = Integer.parseInt(limit.trim());
+      } catch (NumberFormatException e) {
+        count = 0;
+      }
+      if (count < 1 || count > MAX_LIMIT) {
+        responseData.put("result", "error");
+        responseData.put("error_type", "Invalid limit value!");
+        responseData.put("valid_inputs", "an integer from 1 to " + MAX_LIMIT);
+        return new MapSerializer().serialize(responseData);
+      }
+    }
+
+    try {
+      String dataset = (id == null) ? CSVDatasource.DEFAULT_ID : id;
+      SuggestResult result =
+          this.sharedCSVData.suggest(
+              dataset, prefix, (index == null) ? header : index, index == null, count);
+
+      // Add each value and its row count to the result.
+      List<Map<String, Object>> suggestions = new ArrayList<>();
+      for (Suggestion suggestion : result.suggestions()) {
+        Map<String, Object> entry = new LinkedHashMap<>();
+        entry.put("value", suggestion.value());
+        entry.put("count", suggestion.count());
+        suggestions.add(entry);
+      }
+      responseData.put("result", "success");
+      responseData.put("suggestions", suggestions);
+      responseData.put("dataset_version", result.version());
+
+    } catch (Exception e) {
+      // Add descriptive error message to the result.
+      responseData.put("result", "error");
+      String[] parts = e.getClass().toString().split("\\.");
+      responseData.put("exception", parts[parts.length - 1]);
+      responseData.put("error_message", e.getMessage());
+    }
+    return new MapSerializer().serialize(responseData);
+  }
+}
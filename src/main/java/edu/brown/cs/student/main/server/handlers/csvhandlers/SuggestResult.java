@@ -0,0 +1,12 @@
+package edu.brown.cs.student.main.server.handlers.csvhandlers;
+
+import edu.brown.cs.student.main.csv.utilities.Suggestion;
+import java.util.List;
+
+/**
+ * SuggestResult is a record of the values returned by a CSVDatasource's suggest.
+ *
+ * @param suggestions are the values, most common first.
+ * @param version is the version of the dataset the values were found in.
+ */
+public record SuggestResult(List<Suggestion> suggestions, long version) {}
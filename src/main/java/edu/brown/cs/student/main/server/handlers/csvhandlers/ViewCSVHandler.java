@@ -1,9 +1,11 @@
 package edu.brown.cs.student.main.server.handlers.csvhandlers;
 
 import edu.brown.cs.student.main.server.serializers.MapSerializer;
+import java.io.IOException;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import spark.Request;
 import spark.Response;
 import spark.Route;
@@ -13,6 +15,8 @@ import spark.Route;
  * the shared CSVDatasource.
  */
 public class ViewCSVHandler implements Route {
+  // The parameters the endpoint optionally accepts.
+  private static final List<String> OPTIONAL_PARAMS = List.of("id", "limit", "offset", "cursor");
   private final CSVDatasource sharedCSVData; // The shared CSVDatasource
 
   /**
@@ -27,30 +31,46 @@ public class ViewCSVHandler implements Route {
   /**
    * Override the handle method specified in Route. Attempts to view the CSV file, returning a
    * descriptive error message for bad inputs or failures, and a hash map including a
-   * two-dimensional list of the CSV if successful.
+   * two-dimensional list of the CSV if successful. The optional limit, offset and cursor parameters
+   * select one page of rows, and id selects the dataset to view.
    *
-   * @param request contains the parameters of the view request (should be none).
-   * @param response is left unused.
-   * @return a hash map of response data with the result of the view attempt.
+   * @param request contains the parameters of the view request (only id, limit, offset and cursor).
+   * @param response is the response that successful results are streamed to.
+   * @return a hash map of response data with the result of the view attempt, or an empty body if
+   *     the result was streamed to the response.
+   * @throws IOException if the result cannot be written to the response.
    */
   @Override
-  public Object handle(Request request, Response response) {
+  public Object handle(Request request, Response response) throws IOException {
     // Initialize the response format.
     Map<String, Object> responseData = new HashMap<>();
 
-    if (request.queryParams().size() > 0) {
+    // Only the dataset id and paging parameters are accepted.
+    Set<String> params = request.queryParams();
+    if (!params.stream().allMatch(p -> p.equals("id") || PageRequest.PARAMS.contains(p))) {
       responseData.put("result", "error");
       responseData.put("error_type", "Too many parameters!");
-      responseData.put("params_given", request.queryParams());
+      responseData.put("params_given", params);
+      responseData.put("optional_params", OPTIONAL_PARAMS);
       return new MapSerializer().serialize(responseData);
     }
+    String id = request.queryParams("id");
+    if (id != null) {
+      responseData.put("query_id", id);
+    }
 
     try {
-      List<List<String>> data = this.sharedCSVData.viewCSV();
+      PageRequest pageRequest = this.pageRequest(request, responseData);
+      String dataset = (id == null) ? CSVDatasource.DEFAULT_ID : id;
+      ResultPage page = this.sharedCSVData.viewCSV(dataset, pageRequest);
 
-      // Add relevant fields to the result.
+      // Add relevant fields to the result, with a cursor if there are more rows.
       responseData.put("result", "success");
-      responseData.put("data", data);
+      responseData.put("data", page.rows());
+      responseData.put("dataset_version", page.version());
+      if (page.nextCursor() != null) {
+        responseData.put("next_cursor", page.nextCursor());
+      }
 
     } catch (Exception e) {
       // Add descriptive error message to the result.
@@ -59,6 +79,31 @@ public class ViewCSVHandler implements Route {
       responseData.put("exception", parts[parts.length - 1]);
       responseData.put("error_message", e.getMessage());
     }
+
+    // Stream a successful result straight to the response, so the rows are written one at a time
+    // instead of being built into one String.
+    if (responseData.containsKey("data")) {
+      new MapSerializer().serialize(responseData, response.raw().getOutputStream());
+      return "";
+    }
     return new MapSerializer().serialize(responseData);
   }
+
+  /**
+   * Private helper-method that reads the paging parameters, echoing those given in the response.
+   *
+   * @param request contains the paging parameters, if any.
+   * @param responseData is the map of response data.
+   * @return the page of rows requested.
+   * @throws IllegalArgumentException if the limit or offset is not a valid number.
+   */
+  private PageRequest pageRequest(Request request, Map<String, Object> responseData) {
+    for (String param : PageRequest.PARAMS) {
+      if (request.queryParams(param) != null) {
+        responseData.put("query_" + param, request.queryParams(param));
+      }
+    }
+    return PageRequest.fromParams(
+        request.queryParams("limit"), request.queryParams("offset"), request.queryParams("cursor"));
+  }
 }
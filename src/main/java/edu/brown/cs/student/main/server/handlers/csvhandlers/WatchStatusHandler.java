@@ -0,0 +1,54 @@
+package edu.brown.cs.student.main.server.handlers.csvhandlers;
+
+import edu.brown.cs.student.main.server.serializers.MapSerializer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import spark.Request;
+import spark.Response;
+import spark.Route;
+
+/**
+ * WatchStatusHandler handles the watchstatus endpoint in the Server, reporting the background
+ * reloads of each dataset loaded by loadcsv with watch=true: how many succeeded or failed, and the
+ * time, duration and statistics or error of the last one.
+ */
+public class WatchStatusHandler implements Route {
+  private final CSVDatasource sharedCSVData; // The shared CSVDatasource.
+
+  /**
+   * Constructor initializes the datasource whose watched datasets are reported.
+   *
+   * @param state is the polymorphic implementation of CSVDatasource.
+   */
+  public WatchStatusHandler(CSVDatasource state) {
+    this.sharedCSVData = state;
+  }
+
+  /**
+   * Override the handle method specified in Route. Returns the reload status of every watched
+   * dataset, by dataset id.
+   *
+   * @param request should contain no parameters.
+   * @param response is left unused.
+   * @return a hash map of response data with the status of the watched datasets.
+   */
+  @Override
+  public Object handle(Request request, Response response) {
+    // Initialize the response format.
+    Map<String, Object> responseData = new HashMap<>();
+
+    // Check that no parameters were specified.
+    Set<String> params = request.queryParams();
+    if (!params.isEmpty()) {
+      responseData.put("result", "error");
+      responseData.put("error_type", "Invalid number of parameters specified!");
+      responseData.put("params_given", params);
+      return new MapSerializer().serialize(responseData);
+    }
+
+    responseData.put("result", "success");
+    responseData.put("datasets", this.sharedCSVData.watchStatus());
+    return new MapSerializer().serialize(responseData);
+  }
+}
@@ -7,4 +7,16 @@ public class CSVNotFoundException extends Exception {
   public CSVNotFoundException() {
     super("There is no CSV file loaded! Try \'loadcsv\'!");
   }
+
+  /**
+   * Constructs a new Exception with the message that no CSV is loaded under the given id.
+   *
+   * @param id is the id that was asked for.
+   */
+  public CSVNotFoundException(String id) {
+    super(
+        "There is no CSV file loaded with id \""
+            + id
+            + "\"! It may have been evicted; try 'loadcsv'!");
+  }
 }
@@ -0,0 +1,23 @@
+package edu.brown.cs.student.main.server.handlers.csvhandlers.exceptions;
+
+/** Basic Exception to be thrown when a CSV is too large to fit in the memory budget on its own. */
+public class DatasetTooLargeException extends Exception {
+
+  /**
+   * Creates a new Exception with the message that the CSV does not fit in the budget.
+   *
+   * @param id is the id the CSV was being loaded under.
+   * @param bytes is the estimated size of the CSV.
+   * @param budgetBytes is the memory budget.
+   */
+  public DatasetTooLargeException(String id, long bytes, long budgetBytes) {
+    super(
+        "Dataset \""
+            + id
+            + "\" needs about "
+            + bytes
+            + " bytes, which is more than the budget of "
+            + budgetBytes
+            + " bytes!");
+  }
+}
@@ -0,0 +1,18 @@
+package edu.brown.cs.student.main.server.handlers.csvhandlers.exceptions;
+
+/**
+ * Basic Exception to be thrown when a cursor token cannot be used, because it is malformed, belongs
+ * to a different query, or was issued before the current CSV was loaded.
+ */
+public class InvalidCursorException extends Exception {
+
+  /**
+   * Creates a new Exception with the reason the cursor was rejected.
+   *
+   * @param cursor is the cursor token that was given.
+   * @param reason describes why it cannot be used.
+   */
+  public InvalidCursorException(String cursor, String reason) {
+    super("Cursor \"" + cursor + "\" " + reason);
+  }
+}
@@ -0,0 +1,17 @@
+package edu.brown.cs.student.main.server.handlers.csvhandlers.exceptions;
+
+/** Basic exception to be thrown when the status of an unknown load job is asked for. */
+public class JobNotFoundException extends Exception {
+
+  /**
+   * Constructs a new Exception with the message that there is no load job with the given id.
+   *
+   * @param jobId is the job id that was asked for.
+   */
+  public JobNotFoundException(String jobId) {
+    super(
+        "There is no load job with id \""
+            + jobId
+            + "\"! Finished jobs are only kept for a while; try 'loadcsv' with async=true!");
+  }
+}
@@ -3,8 +3,12 @@ package edu.brown.cs.student.main.server.serializers;
 import com.squareup.moshi.JsonAdapter;
 import com.squareup.moshi.Moshi;
 import com.squareup.moshi.Types;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.lang.reflect.Type;
 import java.util.Map;
+import okio.BufferedSink;
+import okio.Okio;
 
 /** A class used to serialize user outputs in each handler class. */
 public class MapSerializer {
@@ -29,4 +33,18 @@ public class MapSerializer {
   public String serialize(Map<String, Object> map) {
     return this.adapter.toJson(map);
   }
+
+  /**
+   * Serializes the input Map as JSON straight to an output stream. Lists in the map are written one
+   * element at a time through a small buffer, so the JSON is never held in memory all at once.
+   *
+   * @param map the Map to serialize.
+   * @param out the stream to write the JSON to, which is flushed but not closed.
+   * @throws IOException if the stream cannot be written to.
+   */
+  public void serialize(Map<String, Object> map, OutputStream out) throws IOException {
+    BufferedSink sink = Okio.buffer(Okio.sink(out));
+    this.adapter.toJson(sink, map);
+    sink.flush();
+  }
 }
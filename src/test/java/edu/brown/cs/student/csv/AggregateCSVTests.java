@@ -0,0 +1,161 @@
+package edu.brown.cs.student.csv;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.squareup.moshi.JsonAdapter;
+import com.squareup.moshi.Moshi;
+import com.squareup.moshi.Types;
+import edu.brown.cs.student.main.server.handlers.csvhandlers.AggregateCSVHandler;
+import edu.brown.cs.student.main.server.handlers.csvhandlers.CSVDatasource;
+import edu.brown.cs.student.main.server.handlers.csvhandlers.CSVSharedSource;
+import edu.brown.cs.student.main.server.handlers.csvhandlers.LoadCSVHandler;
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import okio.Buffer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.testng.annotations.BeforeClass;
+import spark.Spark;
+
+/** Test class to run UNIT tests on the aggregatecsv endpoint and handler. */
+public class AggregateCSVTests {
+
+  /** Set up the server port. */
+  @BeforeClass
+  public static void setupOnce() {
+    // Pick an arbitrary free port
+    Spark.port(0);
+    // Eliminate logger spam in console for test suite
+    Logger.getLogger("").setLevel(Level.WARNING); // empty name = root
+  }
+
+  // Helping Moshi serialize Json responses.
+  private final Type mapStringObject =
+      Types.newParameterizedType(Map.class, String.class, Object.class);
+  private JsonAdapter<Map<String, Object>> adapter;
+  private CSVDatasource sharedState;
+
+  /** Set up the load and aggregate handlers necessary. */
+  @BeforeEach
+  public void setup() {
+    sharedState = new CSVSharedSource();
+    Spark.get("/loadcsv", new LoadCSVHandler(this.sharedState));
+    Spark.get("/aggregatecsv", new AggregateCSVHandler(this.sharedState));
+    Spark.awaitInitialization(); // don't continue until the server is listening
+
+    // New Moshi adapter for responses and requests
+    Moshi moshi = new Moshi.Builder().build();
+    adapter = moshi.adapter(mapStringObject);
+  }
+
+  /** Clean up after tests. */
+  @AfterEach
+  public void tearDown() {
+    // Gracefully stop Spark listening on both endpoints
+    Spark.unmap("/loadcsv");
+    Spark.unmap("/aggregatecsv");
+    Spark.awaitStop(); // don't proceed until the server is stopped
+  }
+
+  /**
+   * Helper to start a connection to a specific API endpoint/params
+   *
+   * <p>The "throws" clause doesn't matter below -- JUnit will fail if an exception is thrown that
+   * hasn't been declared as a parameter to @Test.
+   *
+   * @param apiCall the call string, including endpoint (Note: this would be better if it had more
+   *     structure!)
+   * @return the connection for the given URL, just after connecting
+   * @throws IOException if the connection fails for some reason
+   */
+  private HttpURLConnection tryRequest(String apiCall) throws IOException {
+    // Configure the connection (but don't actually send a request yet)
+    URL requestURL = new URL("http://localhost:" + Spark.port() + "/" + apiCall);
+    HttpURLConnection clientConnection = (HttpURLConnection) requestURL.openConnection();
+    // The request body contains a Json object
+    clientConnection.setRequestProperty("Content-Type", "application/json");
+    // We're expecting a Json object in the response body
+    clientConnection.setRequestProperty("Accept", "application/json");
+
+    clientConnection.connect();
+    return clientConnection;
+  }
+
+  /**
+   * Helper to make a request and read its response body.
+   *
+   * @param apiCall the call string, including endpoint
+   * @return the response body
+   * @throws IOException if the connection fails for some reason
+   */
+  private Map<String, Object> getResponse(String apiCall) throws IOException {
+    HttpURLConnection connection = tryRequest(apiCall);
+    assertEquals(200, connection.getResponseCode());
+    Map<String, Object> body = adapter.fromJson(new Buffer().readFrom(connection.getInputStream()));
+    connection.disconnect();
+    return body;
+  }
+
+  /**
+   * Test counting, summing and averaging by group, with columns given by index and by header.
+   *
+   * @throws IOException
+   */
+  @Test
+  public void testAggregateCSVSuccess() throws IOException {
+    String load = "loadcsv?filepath=data/census/income_by_race.csv&header=true";
+    assertEquals("success", getResponse(load).get("result"));
+
+    Map<String, Object> byRace =
+        getResponse("aggregatecsv?groupby=Race&aggregates=count,min:4,max:4,avg:4");
+    assertEquals("success", byRace.get("result"));
+    assertEquals(List.of("Race", "count", "min:4", "max:4", "avg:4"), byRace.get("columns"));
+    List<?> groups = (List<?>) byRace.get("data");
+    assertEquals("Total", ((List<?>) groups.get(0)).get(0));
+    double rows = 0;
+    for (Object group : groups) {
+      rows += (Double) ((List<?>) group).get(1);
+    }
+
+    // With no groupby there is one group of every row, counted by default.
+    Map<String, Object> total = getResponse("aggregatecsv");
+    assertEquals(List.of(List.of(rows)), total.get("data"));
+    assertEquals(
+        getResponse("aggregatecsv?groupby=1,3&aggregates=sum:4").get("data"),
+        getResponse("aggregatecsv?groupby=Race,Year&aggregates=sum:Household%20Income%20by%20Race")
+            .get("data"));
+  }
+
+  /**
+   * Test the errors for a text column, an unknown function, a missing header, a bad parallelism and
+   * an unknown parameter.
+   *
+   * @throws IOException
+   */
+  @Test
+  public void testAggregateCSVFail() throws IOException {
+    assertEquals("CSVNotFoundException", getResponse("aggregatecsv").get("exception"));
+    String load = "loadcsv?filepath=data/census/income_by_race.csv&header=true";
+    assertEquals("success", getResponse(load).get("result"));
+    assertEquals(
+        "ColumnTypeException", getResponse("aggregatecsv?aggregates=sum:1").get("exception"));
+    assertEquals(
+        "IllegalArgumentException",
+        getResponse("aggregatecsv?aggregates=median:4").get("exception"));
+    assertEquals(
+        "IllegalArgumentException", getResponse("aggregatecsv?aggregates=sum").get("exception"));
+    assertEquals(
+        "HeaderNotFoundException", getResponse("aggregatecsv?groupby=Town").get("exception"));
+    assertEquals(
+        "Invalid parallelism value!", getResponse("aggregatecsv?parallelism=0").get("error_type"));
+    assertEquals(
+        "Invalid parameters specified!", getResponse("aggregatecsv?value=1").get("error_type"));
+  }
+}
@@ -0,0 +1,350 @@
+package edu.brown.cs.student.csv;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import edu.brown.cs.student.main.csv.creators.DoubleArrayCreator;
+import edu.brown.cs.student.main.csv.creators.IntArrayCreator;
+import edu.brown.cs.student.main.csv.creators.IntegerArrayCreator;
+import edu.brown.cs.student.main.csv.creators.LongArrayCreator;
+import edu.brown.cs.student.main.csv.creators.SearcherCreator;
+import edu.brown.cs.student.main.csv.exceptions.FactoryFailureException;
+import edu.brown.cs.student.main.csv.exceptions.UncheckedFactoryFailureException;
+import edu.brown.cs.student.main.csv.storage.ColumnMajor;
+import edu.brown.cs.student.main.csv.utilities.CSVParser;
+import edu.brown.cs.student.main.csv.utilities.CSVTokenizer;
+import edu.brown.cs.student.main.csv.utilities.ParseEngine;
+import java.io.FileNotFoundException;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+
+/** Unit tests for CSVParser and its row tokenizer. */
+public class CSVParserTests {
+
+  /** This method tests splitting on commas outside of quotes. */
+  @Test
+  public void testTokenizeQuotes() {
+    CSVTokenizer tokenizer = new CSVTokenizer();
+    assertEquals(
+        List.of("Rhode Island", "74,489.00", "95,198.00"),
+        tokenizer.tokenize("Rhode Island,\"74,489.00\",\"95,198.00\""));
+    assertEquals(
+        List.of("Bristol County, RI", "x"), tokenizer.tokenize("\"Bristol County, RI\",x"));
+    assertEquals(List.of("\""), tokenizer.tokenize("\""));
+  }
+
+  /** This method tests trimming whitespace and keeping empty cells. */
+  @Test
+  public void testTokenizeWhitespaceAndEmpty() {
+    CSVTokenizer tokenizer = new CSVTokenizer();
+    assertEquals(List.of("1", "2", "30"), tokenizer.tokenize("      1     ,   2       , 30"));
+    assertEquals(List.of(" $1,058.47 ", "x"), tokenizer.tokenize(" \" $1,058.47 \" ,x"));
+    assertEquals(List.of("Libra", "", ""), tokenizer.tokenize("Libra,,"));
+    assertEquals(List.of(""), tokenizer.tokenize(""));
+  }
+
+  /**
+   * This method tests that both engines agree on every well-formed file in the data directory.
+   *
+   * @throws IOException
+   * @throws FactoryFailureException
+   */
+  @Test
+  public void testEnginesAgree() throws IOException, FactoryFailureException {
+    String[] files = {
+      "data/server/RI-Town-Income-Data.csv",
+      "data/census/dol_ri_earnings_disparity.csv",
+      "data/census/income_by_race.csv",
+      "data/census/postsecondary_education.csv",
+      "data/tests/pets.csv",
+      "data/tests/whitespace.csv",
+      "data/stars/ten-star.csv"
+    };
+    for (String file : files) {
+      ArrayList<ArrayList<String>> tokenized =
+          new CSVParser<>(new SearcherCreator(), new FileReader(file)).parse();
+      ArrayList<ArrayList<String>> regex =
+          new CSVParser<>(new SearcherCreator(), new FileReader(file), ParseEngine.REGEX).parse();
+      assertEquals(regex, tokenized, file);
+    }
+  }
+
+  /**
+   * This method tests that the memory-mapped path produces the same rows as the reader path.
+   *
+   * @throws IOException
+   * @throws FactoryFailureException
+   */
+  @Test
+  public void testMappedMatchesReader() throws IOException, FactoryFailureException {
+    String[] files = {
+      "data/server/RI-Town-Income-Data.csv",
+      "data/census/dol_ri_earnings_disparity.csv",
+      "data/census/income_by_race.csv",
+      "data/tests/whitespace.csv",
+      "data/stars/ten-star.csv"
+    };
+    for (String file : files) {
+      ArrayList<ArrayList<String>> read =
+          new CSVParser<>(new SearcherCreator(), new FileReader(file)).parse();
+      ArrayList<ArrayList<String>> mapped =
+          new CSVParser<>(new SearcherCreator(), Path.of(file)).parse();
+      assertEquals(read, mapped, file);
+    }
+  }
+
+  /**
+   * This method tests the mapped path on line endings, multi-byte characters and a missing file.
+   *
+   * @throws IOException
+   * @throws FactoryFailureException
+   */
+  @Test
+  public void testMappedEdgeCases() throws IOException, FactoryFailureException {
+    Path file = Files.createTempFile("mapped", ".csv");
+    Files.writeString(file, "caf\u00e9, \"\u00fcber, alles\" \r\n\r\nlast,row");
+    ArrayList<ArrayList<String>> rows = new CSVParser<>(new AnyWidthCreator(), file).parse();
+    assertEquals(
+        List.of(List.of("caf\u00e9", "\u00fcber, alles"), List.of(""), List.of("last", "row")),
+        rows);
+    Files.delete(file);
+    assertThrows(
+        FileNotFoundException.class,
+        () -> new CSVParser<>(new SearcherCreator(), Path.of("data/nothing.csv")));
+  }
+
+  /**
+   * This method tests that parallel parsing returns the same rows, in order, as a sequential parse,
+   * and still rejects rows that do not match the first row.
+   *
+   * @throws IOException
+   * @throws FactoryFailureException
+   */
+  @Test
+  public void testParallelMatchesSequential() throws IOException, FactoryFailureException {
+    Path file = Files.createTempFile("parallel", ".csv");
+    StringBuilder csv = new StringBuilder("id,name,income\r\n");
+    for (int i = 0; i < 5000; i++) {
+      csv.append(i).append(",\"Town ").append(i % 7).append(", RI\",\"").append(i * 3);
+      csv.append(",000.00\"").append(i % 2 == 0 ? "\r\n" : "\n");
+    }
+    Files.writeString(file, csv);
+    ArrayList<ArrayList<String>> sequential = new CSVParser<>(new SearcherCreator(), file).parse();
+    ArrayList<ArrayList<String>> parallel = new CSVParser<>(new SearcherCreator(), file).parse(4);
+    assertEquals(5001, parallel.size());
+    assertEquals(sequential, parallel);
+
+    Files.writeString(file, csv.append("5000,too,many,cells\n"));
+    assertThrows(
+        FactoryFailureException.class, () -> new CSVParser<>(new SearcherCreator(), file).parse(4));
+    Files.delete(file);
+  }
+
+  /**
+   * This method tests that stream() yields the same rows as parse() one at a time, and reports bad
+   * rows through an unchecked wrapper.
+   *
+   * @throws IOException
+   * @throws FactoryFailureException
+   */
+  @Test
+  public void testStream() throws IOException, FactoryFailureException {
+    String file = "data/census/income_by_race.csv";
+    ArrayList<ArrayList<String>> parsed =
+        new CSVParser<>(new SearcherCreator(), Path.of(file)).parse();
+    try (Stream<ArrayList<String>> rows =
+        new CSVParser<>(new SearcherCreator(), new FileReader(file)).stream()) {
+      assertEquals(parsed, rows.collect(Collectors.toList()));
+    }
+    try (Stream<ArrayList<String>> rows =
+        new CSVParser<>(new SearcherCreator(), Path.of(file)).stream()) {
+      assertEquals(parsed.subList(0, 3), rows.limit(3).collect(Collectors.toList()));
+    }
+
+    Iterator<ArrayList<String>> rows =
+        new CSVParser<>(new SearcherCreator(), new StringReader("a,b\nc\n")).iterator();
+    assertEquals(List.of("a", "b"), rows.next());
+    assertTrue(rows.hasNext());
+    assertThrows(UncheckedFactoryFailureException.class, rows::next);
+    assertFalse(rows.hasNext());
+  }
+
+  /** A creator that accepts rows of any width, used to check raw row splitting. */
+  private static class AnyWidthCreator extends SearcherCreator {
+    @Override
+    public ArrayList<String> create(List<String> row) {
+      return new ArrayList<>(row);
+    }
+  }
+
+  /** This method tests that trailing empty cells now count toward the row size. */
+  @Test
+  public void testTrailingEmptyCellsMalformed() {
+    CSVParser<ArrayList<String>> parser =
+        new CSVParser<>(new SearcherCreator(), new StringReader("a,b,\nc,d\n"));
+    assertThrows(FactoryFailureException.class, parser::parse);
+  }
+
+  /**
+   * This method tests that a creator's projection gives the same cells as projecting whole rows, on
+   * every engine and in parallel, and that the parser checks the widths the creator can't see.
+   *
+   * @throws IOException
+   * @throws FactoryFailureException
+   */
+  @Test
+  public void testProjection() throws IOException, FactoryFailureException {
+    String file = "data/census/income_by_race.csv";
+    int[] columns = {6, 0, 3};
+    List<List<String>> expected = new ArrayList<>();
+    for (ArrayList<String> row : new CSVParser<>(new SearcherCreator(), Path.of(file)).parse()) {
+      expected.add(List.of(row.get(6), row.get(0), row.get(3)));
+    }
+    assertEquals(expected, new CSVParser<>(new SearcherCreator(columns), Path.of(file)).parse());
+    assertEquals(expected, new CSVParser<>(new SearcherCreator(columns), Path.of(file)).parse(3));
+    assertEquals(
+        expected, new CSVParser<>(new SearcherCreator(columns), new FileReader(file)).parse());
+    assertEquals(
+        expected,
+        new CSVParser<>(new SearcherCreator(columns), new FileReader(file), ParseEngine.REGEX)
+            .parse());
+
+    // Rows of another width, and a first row without a projected column, are malformed.
+    int[] first = {0};
+    assertThrows(
+        FactoryFailureException.class,
+        () ->
+            new CSVParser<>(new SearcherCreator(first), new StringReader("a,b\nc,d,e\n")).parse());
+    assertThrows(
+        FactoryFailureException.class,
+        () ->
+            new CSVParser<>(new SearcherCreator(new int[] {2}), new StringReader("a,b\n")).parse());
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> new CSVParser<>(new SearcherCreator(new int[] {1, 1}), new StringReader("a,b\n")));
+  }
+
+  /**
+   * This method tests that the primitive creators read the same numbers as the boxed creator, from
+   * the bytes of a mapped file and from a Reader, and reject cells that are not numbers.
+   *
+   * @throws IOException
+   * @throws FactoryFailureException
+   */
+  @Test
+  public void testPrimitiveCreators() throws IOException, FactoryFailureException {
+    String file = "data/tests/integers.csv";
+    ArrayList<Integer[]> boxed = new CSVParser<>(new IntegerArrayCreator(), Path.of(file)).parse();
+    ArrayList<int[]> mapped = new CSVParser<>(new IntArrayCreator(), Path.of(file)).parse();
+    ArrayList<long[]> read = new CSVParser<>(new LongArrayCreator(), new FileReader(file)).parse();
+    assertEquals(boxed.size(), mapped.size());
+    for (int i = 0; i < boxed.size(); i++) {
+      for (int j = 0; j < boxed.get(i).length; j++) {
+        assertEquals((int) boxed.get(i)[j], mapped.get(i)[j]);
+        assertEquals((long) boxed.get(i)[j], read.get(i)[j]);
+      }
+    }
+
+    Path numbers = Files.createTempFile("numbers", ".csv");
+    try {
+      Files.writeString(numbers, "-2147483648, +7 ,\"-0\"\n9223372036854775807,0,1\n");
+      assertEquals(
+          Integer.MIN_VALUE, new CSVParser<>(new IntArrayCreator(), numbers).iterator().next()[0]);
+      assertThrows(
+          FactoryFailureException.class,
+          () -> new CSVParser<>(new IntArrayCreator(), numbers).parse());
+      assertEquals(
+          Long.MAX_VALUE, new CSVParser<>(new LongArrayCreator(), numbers).parse().get(1)[0]);
+      Files.writeString(numbers, "9223372036854775808\n");
+      assertThrows(
+          FactoryFailureException.class,
+          () -> new CSVParser<>(new LongArrayCreator(), numbers).parse());
+      Files.writeString(numbers, "1,2\n3,x\n");
+      assertThrows(
+          FactoryFailureException.class,
+          () -> new CSVParser<>(new DoubleArrayCreator(), numbers).parse());
+    } finally {
+      Files.delete(numbers);
+    }
+  }
+
+  /**
+   * This method tests that doubles parsed from the bytes, on the fast path or not, equal the ones
+   * Double.parseDouble gives for the same cells.
+   *
+   * @throws IOException
+   * @throws FactoryFailureException
+   */
+  @Test
+  public void testDoubleCreatorMatchesParseDouble() throws IOException, FactoryFailureException {
+    Random random = new Random(19);
+    List<String> cells = new ArrayList<>(List.of("0", "-0", "0.0", ".5", "5.", "1e3", "-2.5E-3"));
+    cells.addAll(List.of("0.1", "0.30000000000000004", "123456789012345678", "NaN", "-Infinity"));
+    for (int i = 0; i < 5000; i++) {
+      String digits = Long.toString(random.nextLong() >>> (1 + random.nextInt(63)));
+      int point = random.nextInt(digits.length() + 1);
+      cells.add(
+          (random.nextBoolean() ? "-" : "")
+              + digits.substring(0, point)
+              + "."
+              + digits.substring(point));
+    }
+    Path numbers = Files.createTempFile("doubles", ".csv");
+    try {
+      Files.writeString(numbers, String.join("\n", cells) + "\n");
+      ArrayList<double[]> parsed = new CSVParser<>(new DoubleArrayCreator(), numbers).parse();
+      for (int i = 0; i < cells.size(); i++) {
+        assertEquals(Double.parseDouble(cells.get(i)), parsed.get(i)[0], cells.get(i));
+      }
+    } finally {
+      Files.delete(numbers);
+    }
+  }
+
+  /**
+   * This method tests building a column-major matrix of each primitive type.
+   *
+   * @throws IOException
+   * @throws FactoryFailureException
+   */
+  @Test
+  public void testColumnMajor() throws IOException, FactoryFailureException {
+    String csv = "1,2,3\n4,5,6\n";
+    assertArrayEquals(
+        new int[][] {{1, 4}, {2, 5}, {3, 6}},
+        ColumnMajor.ints(new CSVParser<>(new IntArrayCreator(), new StringReader(csv))));
+    assertArrayEquals(
+        new long[][] {{1, 4}, {2, 5}, {3, 6}},
+        ColumnMajor.longs(new CSVParser<>(new LongArrayCreator(), new StringReader(csv))));
+    assertArrayEquals(
+        new double[][] {{1, 4}, {2, 5}, {3, 6}},
+        ColumnMajor.doubles(new CSVParser<>(new DoubleArrayCreator(), new StringReader(csv))));
+    assertEquals(
+        0, ColumnMajor.ints(new CSVParser<>(new IntArrayCreator(), new StringReader(""))).length);
+
+    int[][] matrix =
+        ColumnMajor.ints(
+            new CSVParser<>(new IntArrayCreator(), Path.of("data/tests/integers.csv")));
+    ArrayList<int[]> rows =
+        new CSVParser<>(new IntArrayCreator(), Path.of("data/tests/integers.csv")).parse();
+    assertEquals(rows.size(), matrix[0].length);
+    assertEquals(rows.get(rows.size() - 1)[2], matrix[2][rows.size() - 1]);
+    assertThrows(
+        FactoryFailureException.class,
+        () ->
+            ColumnMajor.ints(new CSVParser<>(new IntArrayCreator(), new StringReader("1,2\n3\n"))));
+  }
+}
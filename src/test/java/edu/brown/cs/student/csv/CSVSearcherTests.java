@@ -0,0 +1,1006 @@
+package edu.brown.cs.student.csv;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import edu.brown.cs.student.main.csv.creators.SearcherCreator;
+import edu.brown.cs.student.main.csv.exceptions.ColumnTypeException;
+import edu.brown.cs.student.main.csv.exceptions.FactoryFailureException;
+import edu.brown.cs.student.main.csv.exceptions.InvalidIndexException;
+import edu.brown.cs.student.main.csv.index.CaseFolding;
+import edu.brown.cs.student.main.csv.index.RowBitmap;
+import edu.brown.cs.student.main.csv.storage.ColumnType;
+import edu.brown.cs.student.main.csv.utilities.Aggregate;
+import edu.brown.cs.student.main.csv.utilities.CSVParser;
+import edu.brown.cs.student.main.csv.utilities.CSVSearcher;
+import edu.brown.cs.student.main.csv.utilities.LoadListener;
+import edu.brown.cs.student.main.csv.utilities.Page;
+import edu.brown.cs.student.main.csv.utilities.Suggestion;
+import edu.brown.cs.student.main.csv.utilities.TextMatch;
+import edu.brown.cs.student.main.server.handlers.csvhandlers.SnapshotCache;
+import edu.brown.cs.student.main.server.handlers.csvhandlers.exceptions.HeaderNotFoundException;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Predicate;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/** Unit tests for CSVSearcher. */
+public class CSVSearcherTests {
+  private static final String INCOME = "data/census/income_by_race.csv";
+  private static final String TOWNS = "data/server/RI-Town-Income-Data.csv";
+
+  /**
+   * Helper to build a searcher over a file in the data directory.
+   *
+   * @param file is the path of the CSV.
+   * @param hasHeader is whether the CSV has a header row.
+   * @return the loaded searcher.
+   */
+  private static CSVSearcher load(String file, boolean hasHeader)
+      throws IOException, FactoryFailureException {
+    return new CSVSearcher(new CSVParser<>(new SearcherCreator(), Path.of(file)), hasHeader);
+  }
+
+  /**
+   * Helper to stream a file in the data directory.
+   *
+   * @param file is the path of the CSV.
+   * @return a lazy stream of its rows.
+   */
+  private static Stream<ArrayList<String>> stream(String file) throws IOException {
+    return new CSVParser<>(new SearcherCreator(), Path.of(file)).stream();
+  }
+
+  /**
+   * Helper to build a searcher over 5,000 mostly distinct generated names, each of one to four
+   * syllables. Column 0 holds the name, and column 1 the same name followed by a space and a number
+   * below 500 in all but every seventh row.
+   *
+   * @param seed is the seed of the random syllables and numbers.
+   * @return the loaded searcher, without a header.
+   */
+  private static CSVSearcher syllableSearcher(long seed)
+      throws IOException, FactoryFailureException {
+    Random random = new Random(seed);
+    String[] syllables = {"bar", "ring", "ton", "New", "port", "wick", "ly", "a", "Ω"};
+    StringBuilder csv = new StringBuilder();
+    for (int row = 0; row < 5_000; row++) {
+      StringBuilder name = new StringBuilder();
+      for (int i = random.nextInt(4); i >= 0; i--) {
+        name.append(syllables[random.nextInt(syllables.length)]);
+      }
+      csv.append(name).append(',').append(name);
+      csv.append(row % 7 == 0 ? "" : " " + random.nextInt(500)).append("\n");
+    }
+    return new CSVSearcher(
+        new CSVParser<>(new SearcherCreator(), new StringReader(csv.toString())), false);
+  }
+
+  /**
+   * This method tests that a searcher loaded with only some columns holds just those columns, in
+   * the order given, and searches them like the full searcher does.
+   *
+   * @throws Exception
+   */
+  @Test
+  public void testProjectedColumns() throws Exception {
+    CSVSearcher full = load(INCOME, true);
+    CSVSearcher projected =
+        new CSVSearcher(
+            new CSVParser<>(new SearcherCreator(new int[] {6, 1}), Path.of(INCOME)), true);
+    assertEquals(full.rowCount(), projected.rowCount());
+    assertEquals(List.of("Kent County, RI", "Total"), projected.getData().get(2));
+    assertEquals(0, projected.getIndexFromHeader("Geography"));
+    assertEquals(1, projected.getIndexFromHeader("Race"));
+    assertThrows(HeaderNotFoundException.class, () -> projected.getIndexFromHeader("Year"));
+    assertEquals(
+        full.searchColByIndex("Kent County, RI", 6).size(),
+        projected.searchColByIndex("Kent County, RI", 0).size());
+    assertThrows(InvalidIndexException.class, () -> projected.searchColByIndex("Total", 2));
+    assertTrue(projected.estimatedBytes() < full.estimatedBytes());
+  }
+
+  /**
+   * This method tests that streamed searches find the same rows as a loaded searcher.
+   *
+   * @throws IOException
+   * @throws FactoryFailureException
+   * @throws InvalidIndexException
+   */
+  @Test
+  public void testStreamSearchMatchesLoaded()
+      throws IOException, FactoryFailureException, InvalidIndexException {
+    CSVSearcher searcher = load(INCOME, true);
+    try (Stream<ArrayList<String>> rows = stream(INCOME)) {
+      List<List<String>> found = CSVSearcher.searchAllData(rows, " kent county, ri ", true);
+      assertEquals(searcher.searchAllData("Kent County, RI"), found);
+      assertEquals(false, found.isEmpty());
+    }
+    try (Stream<ArrayList<String>> rows = stream(INCOME)) {
+      assertEquals(
+          searcher.searchColByIndex("2020", 3),
+          CSVSearcher.searchColByIndex(rows, "2020", 3, true));
+    }
+    try (Stream<ArrayList<String>> rows = stream(INCOME)) {
+      assertEquals(List.of(), CSVSearcher.searchAllData(rows, "Race", true));
+    }
+    assertThrows(
+        InvalidIndexException.class,
+        () -> CSVSearcher.searchColByIndex(stream(INCOME), "x", 9, true));
+  }
+
+  /**
+   * This method tests that the columnar searches return the same rows as a scan over the parsed
+   * rows, in file order.
+   *
+   * @throws IOException
+   * @throws FactoryFailureException
+   * @throws InvalidIndexException
+   */
+  @Test
+  public void testColumnarSearchMatchesScan()
+      throws IOException, FactoryFailureException, InvalidIndexException {
+    CSVSearcher searcher = load(INCOME, true);
+    ArrayList<ArrayList<String>> rows =
+        new CSVParser<>(new SearcherCreator(), Path.of(INCOME)).parse();
+    assertEquals(rows, searcher.getData());
+    for (String value : new String[] {"2020", "black", "Kent County, RI", "none"}) {
+      List<List<String>> scanned = new ArrayList<>();
+      List<List<String>> scannedColumn = new ArrayList<>();
+      for (List<String> row : rows.subList(1, rows.size())) {
+        if (row.stream().anyMatch(cell -> cell.equalsIgnoreCase(value))) {
+          scanned.add(row);
+        }
+        if (row.get(1).equalsIgnoreCase(value)) {
+          scannedColumn.add(row);
+        }
+      }
+      assertEquals(scanned, searcher.searchAllData(value));
+      assertEquals(scannedColumn, searcher.searchColByIndex(value, 1));
+    }
+    assertEquals(
+        new CSVParser<>(new SearcherCreator(), Path.of("data/tests/noheader.csv")).parse(),
+        load("data/tests/noheader.csv", false).getData());
+  }
+
+  /**
+   * This method tests that indexed column searches ignore case and surrounding whitespace, return
+   * rows in file order, and give the same answers whether the index is built lazily or eagerly.
+   *
+   * @throws IOException
+   * @throws FactoryFailureException
+   * @throws InvalidIndexException
+   */
+  @Test
+  public void testColumnIndex() throws IOException, FactoryFailureException, InvalidIndexException {
+    CSVSearcher lazy = load(INCOME, true);
+    CSVSearcher eager = load(INCOME, true);
+    eager.buildIndexes();
+    List<List<String>> black = lazy.searchColByIndex("Black", 1);
+    assertEquals(false, black.isEmpty());
+    assertEquals(black, lazy.searchColByIndex("  bLACK ", 1));
+    assertEquals(black, eager.searchColByIndex("BLACK", 1));
+    for (List<String> row : black) {
+      assertEquals("Black", row.get(1));
+    }
+    List<List<String>> all = lazy.searchAllData("Black");
+    assertEquals(all, black);
+    assertEquals(List.of(), eager.searchColByIndex("Black", 0));
+    assertEquals(true, eager.estimatedBytes() > load(INCOME, true).estimatedBytes());
+  }
+
+  /**
+   * This method tests that whole-table searches through the inverted index find the same rows as
+   * the dictionary scan, list a row once when the value is in several of its columns, and decode
+   * row gaps that take more than one byte.
+   *
+   * @throws IOException
+   * @throws FactoryFailureException
+   */
+  @Test
+  public void testInvertedIndex() throws IOException, FactoryFailureException {
+    CSVSearcher scanned = load(INCOME, true);
+    CSVSearcher indexed = load(INCOME, true);
+    indexed.buildInvertedIndex();
+    for (String value : new String[] {"2020", " bLACK", "Kent County, RI", "none", ""}) {
+      assertEquals(scanned.searchAllData(value), indexed.searchAllData(value));
+    }
+    // "2020" is in both year columns of most rows, but each row is returned once.
+    List<List<String>> year = indexed.searchAllData("2020");
+    assertEquals(year.size(), year.stream().distinct().count());
+    assertEquals(true, indexed.estimatedBytes() > scanned.estimatedBytes());
+
+    // Rows far apart need multi-byte gaps between them.
+    StringBuilder csv = new StringBuilder();
+    for (int i = 0; i < 20_000; i++) {
+      csv.append((i == 0 || i == 200 || i == 19_999) ? "needle" : "hay" + (i % 7)).append(",x\n");
+    }
+    CSVSearcher wide =
+        new CSVSearcher(
+            new CSVParser<>(new SearcherCreator(), new StringReader(csv.toString())), false);
+    wide.buildInvertedIndex();
+    assertEquals(3, wide.searchAllData("NEEDLE").size());
+    assertEquals(20_000, wide.searchAllData("x").size());
+  }
+
+  /**
+   * This method tests that pages starting deep into long posting lists, which are decoded from the
+   * nearest skip entry, match a scan, and still do once rows are appended to the index and once it
+   * is restored from a snapshot.
+   *
+   * @throws Exception
+   */
+  @Test
+  public void testInvertedIndexSkips(@TempDir Path dir) throws Exception {
+    // "x" is in every row, "needle" in rows far apart, and "even" in every other row.
+    Path file = dir.resolve("long.csv");
+    StringBuilder csv = new StringBuilder();
+    for (int i = 0; i < 3000; i++) {
+      csv.append((i % 700 == 0) ? "needle" : (i % 2 == 0) ? "even" : "odd").append(",x\n");
+    }
+    Files.writeString(file, csv);
+    CSVParser<ArrayList<String>> parser = new CSVParser<>(new SearcherCreator(), file);
+    CSVSearcher indexed = new CSVSearcher(parser, false);
+    long offset = parser.bytesRead();
+    indexed.buildInvertedIndex();
+    this.assertSkippedPages(load(file.toString(), false), indexed);
+
+    Files.writeString(file, "needle,y\neven,x\n".repeat(400), StandardOpenOption.APPEND);
+    CSVSearcher appended =
+        indexed.append(new CSVParser<>(new SearcherCreator(), file, offset), LoadListener.NONE);
+    CSVSearcher scanned = load(file.toString(), false);
+    this.assertSkippedPages(scanned, appended);
+
+    SnapshotCache snapshots = new SnapshotCache(dir.resolve("snapshots"));
+    SnapshotCache.Key key = snapshots.key(file, false, null);
+    assertEquals(true, snapshots.save(key, appended));
+    this.assertSkippedPages(scanned, snapshots.load(key));
+  }
+
+  /**
+   * Private helper-method that checks pages of a searcher with an inverted index against a scan,
+   * starting at rows on either side of where skip entries fall.
+   *
+   * @param scanned is the searcher without an inverted index.
+   * @param indexed is the searcher with one.
+   */
+  private void assertSkippedPages(CSVSearcher scanned, CSVSearcher indexed) {
+    for (String value : List.of("x", "needle", "even", "y")) {
+      for (int fromRow : new int[] {0, 1, 127, 128, 129, 255, 256, 257, 700, 1401, 2999, 3500}) {
+        for (int limit : new int[] {1, 5, 300}) {
+          assertEquals(
+              scanned.searchAllData(value, fromRow, 0, limit),
+              indexed.searchAllData(value, fromRow, 0, limit));
+        }
+      }
+    }
+  }
+
+  /**
+   * This method tests that case folding agrees with equalsIgnoreCase whatever the default locale,
+   * and that searches match stored values through their folded keys.
+   *
+   * @throws IOException
+   * @throws FactoryFailureException
+   */
+  @Test
+  public void testCaseFolding() throws IOException, FactoryFailureException {
+    Locale original = Locale.getDefault();
+    try {
+      Locale.setDefault(Locale.forLanguageTag("tr"));
+      assertEquals("title", CaseFolding.fold("TITLE"));
+      String folded = "already folded";
+      assertSame(folded, CaseFolding.fold(folded));
+      String[] words = {
+        "i", "I", "İ", "ı", "ß", "SS", "Σ", "σ", "ς", "Straße", "STRASSE", "Ǆ", "ǅ"
+      };
+      for (String a : words) {
+        for (String b : words) {
+          assertEquals(a.equalsIgnoreCase(b), CaseFolding.fold(a).equals(CaseFolding.fold(b)));
+        }
+      }
+
+      String csv = "Istanbul,ΟΔΟΣ\nistanbul,οδος\nıstanbul,Straße\n";
+      CSVSearcher searcher =
+          new CSVSearcher(new CSVParser<>(new SearcherCreator(), new StringReader(csv)), false);
+      // equalsIgnoreCase upper-cases the dotless "ı" to "I", so all three rows match.
+      assertEquals(3, searcher.searchAllData("ISTANBUL").size());
+      assertEquals(2, searcher.searchAllData("Οδος").size());
+      assertEquals(1, searcher.searchAllData("straße").size());
+      assertEquals(0, searcher.searchAllData("STRASSE").size());
+    } finally {
+      Locale.setDefault(original);
+    }
+  }
+
+  /**
+   * This method tests that loaded data and search results are read-only views that match the parsed
+   * rows, and that repeated calls see the same data without copying it.
+   *
+   * @throws IOException
+   * @throws FactoryFailureException
+   * @throws InvalidIndexException
+   */
+  @Test
+  public void testReadOnlyViews()
+      throws IOException, FactoryFailureException, InvalidIndexException {
+    CSVSearcher searcher = load(INCOME, true);
+    List<List<String>> data = searcher.getData();
+    assertEquals(new CSVParser<>(new SearcherCreator(), Path.of(INCOME)).parse(), data);
+    assertEquals(data, searcher.getData());
+    assertThrows(UnsupportedOperationException.class, () -> data.add(List.of()));
+    assertThrows(UnsupportedOperationException.class, () -> data.get(1).set(0, "changed"));
+    assertThrows(IndexOutOfBoundsException.class, () -> data.get(data.size()));
+
+    List<List<String>> found = searcher.searchColByIndex("Black", 1);
+    assertThrows(UnsupportedOperationException.class, () -> found.remove(0));
+    assertThrows(UnsupportedOperationException.class, () -> found.get(0).set(1, "White"));
+    assertEquals("Black", searcher.searchColByIndex("Black", 1).get(0).get(1));
+  }
+
+  /**
+   * This method tests that paging through results, by following nextRow and by skipping rows, gives
+   * exactly the rows of an unpaged search, with and without indexes.
+   *
+   * @throws IOException
+   * @throws FactoryFailureException
+   * @throws InvalidIndexException
+   */
+  @Test
+  public void testPaging() throws IOException, FactoryFailureException, InvalidIndexException {
+    CSVSearcher scanned = load(INCOME, true);
+    CSVSearcher indexed = load(INCOME, true);
+    indexed.buildIndexes();
+    indexed.buildInvertedIndex();
+    for (CSVSearcher searcher : List.of(scanned, indexed)) {
+      List<List<String>> all = searcher.searchAllData("2020");
+      List<List<String>> column = searcher.searchColByIndex("Black", 1);
+      for (int limit : new int[] {1, 7, 50, all.size(), all.size() + 1}) {
+        List<List<String>> paged = new ArrayList<>();
+        List<List<String>> pagedColumn = new ArrayList<>();
+        List<List<String>> pagedData = new ArrayList<>();
+        for (int row = 0; row >= 0; ) {
+          Page page = searcher.searchAllData("2020", row, 0, limit);
+          assertEquals(true, page.rows().size() <= limit);
+          paged.addAll(page.rows());
+          row = page.nextRow();
+        }
+        for (int row = 0; row >= 0; ) {
+          Page page = searcher.searchColByIndex("Black", 1, row, 0, limit);
+          pagedColumn.addAll(page.rows());
+          row = page.nextRow();
+        }
+        for (int row = 0; row >= 0; ) {
+          Page page = searcher.getData(row, 0, limit);
+          pagedData.addAll(page.rows());
+          row = page.nextRow();
+        }
+        assertEquals(all, paged);
+        assertEquals(column, pagedColumn);
+        assertEquals(searcher.getData(), pagedData);
+      }
+      // Skipping rows is the same as slicing the full results, and a full page past the end has
+      // no next page.
+      assertEquals(all.subList(5, 15), searcher.searchAllData("2020", 0, 5, 10).rows());
+      assertEquals(column.subList(2, 3), searcher.searchColByIndex("Black", 1, 0, 2, 1).rows());
+      assertEquals(-1, searcher.searchAllData("2020", 0, 0, all.size()).nextRow());
+      assertEquals(List.of(), searcher.searchAllData("2020", 0, all.size(), 5).rows());
+      assertEquals(List.of(), searcher.searchAllData("none", 0, 0, 5).rows());
+    }
+  }
+
+  /**
+   * Tests that appending rows to a loaded searcher gives the same data and search results as
+   * loading the grown file from scratch, with indexes extended, and leaves the original unchanged.
+   */
+  @Test
+  public void testAppend(@TempDir Path dir)
+      throws IOException, FactoryFailureException, InvalidIndexException {
+    Path file = dir.resolve("growing.csv");
+    Files.writeString(file, "name,town\nAda,Providence\nBob,Warwick\n");
+    CSVParser<ArrayList<String>> parser = new CSVParser<>(new SearcherCreator(), file);
+    CSVSearcher original = new CSVSearcher(parser, true);
+    long offset = parser.bytesRead();
+    original.buildInvertedIndex();
+    original.searchColByIndex("warwick", 1);
+    List<List<String>> before = List.copyOf(original.getData());
+
+    // New rows repeat old values, add new ones, and fold onto old ones.
+    Files.writeString(
+        file,
+        "Cy,warwick\nDee,Newport\nNEWPORT,Newport\nAda,PROVIDENCE\n",
+        StandardOpenOption.APPEND);
+    CSVSearcher appended =
+        original.append(new CSVParser<>(new SearcherCreator(), file, offset), LoadListener.NONE);
+    CSVSearcher fresh = load(file.toString(), true);
+    fresh.buildInvertedIndex();
+    assertEquals(fresh.getData(), appended.getData());
+    assertEquals(before, original.getData());
+    for (String value : List.of("warwick", "Newport", "ada", "providence", "Cy", "none")) {
+      assertEquals(fresh.searchAllData(value), appended.searchAllData(value));
+      assertEquals(fresh.searchColByIndex(value, 1), appended.searchColByIndex(value, 1));
+    }
+
+    // A parser with nothing left to read leaves the searcher as it was.
+    long end = Files.size(file);
+    assertEquals(
+        appended,
+        appended.append(new CSVParser<>(new SearcherCreator(), file, end), LoadListener.NONE));
+
+    // Appended rows must be as wide as the loaded ones.
+    Files.writeString(file, "Eve,Bristol,RI\n", StandardOpenOption.APPEND);
+    assertThrows(
+        FactoryFailureException.class,
+        () ->
+            appended.append(new CSVParser<>(new SearcherCreator(), file, end), LoadListener.NONE));
+  }
+
+  /**
+   * Tests that column types are inferred from the values, including numbers written with commas,
+   * and that range searches find the same rows, in the same order, as checking every row, whether
+   * the range covers one number, a few or most of the column.
+   *
+   * @throws Exception
+   */
+  @Test
+  public void testRangeSearch() throws Exception {
+    CSVSearcher towns = load(TOWNS, true);
+    assertEquals(
+        List.of(ColumnType.TEXT, ColumnType.DECIMAL, ColumnType.DECIMAL, ColumnType.DECIMAL),
+        towns.columnTypes());
+    List<List<String>> rich =
+        towns.searchRange(1, 100_000, Double.POSITIVE_INFINITY, 0, 0, 100).rows();
+    assertEquals(rangeScan(towns, 1, 100_000, Double.POSITIVE_INFINITY), rich);
+    assertEquals("Barrington", rich.get(0).get(0));
+    assertThrows(ColumnTypeException.class, () -> towns.searchRange(0, 0, 1, 0, 0, 10));
+    assertThrows(InvalidIndexException.class, () -> towns.searchRange(4, 0, 1, 0, 0, 10));
+
+    CSVSearcher scanned = load(INCOME, true);
+    CSVSearcher indexed = load(INCOME, true);
+    indexed.buildIndexes();
+    assertEquals(ColumnType.INTEGER, scanned.columnTypes().get(4));
+    assertEquals(ColumnType.TEXT, scanned.columnTypes().get(1));
+    double[][] ranges = {{2020, 2020}, {60_000, 70_000}, {0, 1e9}, {5, 4}, {-1, -1}};
+    for (CSVSearcher searcher : List.of(scanned, indexed)) {
+      for (double[] range : ranges) {
+        int column = (range[0] == 2020) ? 3 : 4;
+        List<List<String>> expected = rangeScan(searcher, column, range[0], range[1]);
+        assertEquals(
+            expected, searcher.searchRange(column, range[0], range[1], 0, 0, 1 << 20).rows());
+        for (int limit : new int[] {1, 7, 50}) {
+          List<List<String>> paged = new ArrayList<>();
+          for (int row = 0; row >= 0; ) {
+            Page page = searcher.searchRange(column, range[0], range[1], row, 0, limit);
+            assertTrue(page.rows().size() <= limit);
+            paged.addAll(page.rows());
+            row = page.nextRow();
+          }
+          assertEquals(expected, paged);
+        }
+      }
+    }
+  }
+
+  /**
+   * Tests how single values are parsed, and that empty cells leave a column numeric but text in an
+   * appended row makes it text.
+   */
+  @Test
+  public void testColumnTypes(@TempDir Path dir) throws Exception {
+    assertEquals(1234.5, ColumnType.parse(" 1,234.5 "));
+    assertEquals(-1_000_000, ColumnType.parse("-1,000,000"));
+    for (String text : List.of("", "-", "1.", ".5", "12,34", "1,2345", ",123", "1e5", "NaN")) {
+      assertTrue(Double.isNaN(ColumnType.parse(text)), text);
+    }
+
+    Path file = dir.resolve("scores.csv");
+    Files.writeString(file, "name,score,year\nAda,12.5,2020\nBob,,2021\nCy,7,\n");
+    CSVParser<ArrayList<String>> parser = new CSVParser<>(new SearcherCreator(), file);
+    CSVSearcher searcher = new CSVSearcher(parser, true);
+    long offset = parser.bytesRead();
+    assertEquals(
+        List.of(ColumnType.TEXT, ColumnType.DECIMAL, ColumnType.INTEGER), searcher.columnTypes());
+    assertEquals(List.of(List.of("Cy", "7", "")), searcher.searchRange(1, 0, 10, 0, 0, 10).rows());
+    Files.writeString(file, "Dee,n/a,2022\n", StandardOpenOption.APPEND);
+    CSVSearcher appended =
+        searcher.append(new CSVParser<>(new SearcherCreator(), file, offset), LoadListener.NONE);
+    assertEquals(ColumnType.TEXT, appended.columnTypes().get(1));
+    assertEquals(2, appended.searchRange(2, 2021, 2022, 0, 0, 10).rows().size());
+  }
+
+  /**
+   * Helper that finds the rows in a numeric range by parsing every row's value.
+   *
+   * @param searcher is the searcher to check.
+   * @param column is the column to check.
+   * @param min is the smallest number to match.
+   * @param max is the largest number to match.
+   * @return the matching rows, in row order.
+   */
+  private static List<List<String>> rangeScan(
+      CSVSearcher searcher, int column, double min, double max) {
+    List<List<String>> rows = searcher.getData();
+    return rows.subList(1, rows.size()).stream()
+        .filter(
+            row -> {
+              double number = ColumnType.parse(row.get(column));
+              return number >= min && number <= max;
+            })
+        .toList();
+  }
+
+  /**
+   * Tests that aggregates match those computed row by row, grouping by one column, two columns, and
+   * none, and that empty cells are skipped and give no value to a group without numbers.
+   *
+   * @throws Exception
+   */
+  @Test
+  public void testAggregate() throws Exception {
+    CSVSearcher searcher = load(INCOME, true);
+    List<Aggregate> aggregates =
+        List.of(
+            Aggregate.count(),
+            new Aggregate(Aggregate.Function.SUM, 4),
+            new Aggregate(Aggregate.Function.MIN, 4),
+            new Aggregate(Aggregate.Function.MAX, 5),
+            new Aggregate(Aggregate.Function.AVG, 4));
+    for (int[] groupBy : new int[][] {{1}, {1, 3}, {}, {6, 1, 3}}) {
+      assertEquals(
+          aggregateScan(searcher, groupBy, aggregates), searcher.aggregate(groupBy, aggregates, 1));
+    }
+    List<List<Object>> all = searcher.aggregate(new int[0], List.of(Aggregate.count()), 1);
+    assertEquals(List.of(List.of((long) searcher.rowCount())), all);
+    assertThrows(
+        ColumnTypeException.class,
+        () ->
+            searcher.aggregate(
+                new int[] {3}, List.of(new Aggregate(Aggregate.Function.SUM, 1)), 1));
+    assertThrows(
+        InvalidIndexException.class,
+        () -> searcher.aggregate(new int[] {9}, List.of(Aggregate.count()), 1));
+  }
+
+  /**
+   * Tests that a table large enough to aggregate on several threads gives the same groups as one
+   * thread, including when two group-by columns have more combinations than the table has rows, and
+   * when more threads are asked for than there are processors.
+   *
+   * @throws Exception
+   */
+  @Test
+  public void testParallelAggregate(@TempDir Path dir) throws Exception {
+    StringBuilder csv = new StringBuilder("kind,a,b,value\n");
+    for (int i = 0; i < 100_000; i++) {
+      String value = (i % 50 == 0) ? "" : Integer.toString(i % 1000 - 300);
+      csv.append("k").append(i % 5).append(',').append(i % 997).append(',').append(i % 1009);
+      csv.append(',').append(value).append('\n');
+    }
+    Path file = dir.resolve("large.csv");
+    Files.writeString(file, csv);
+    CSVSearcher searcher = load(file.toString(), true);
+    List<Aggregate> aggregates =
+        List.of(
+            Aggregate.count(),
+            new Aggregate(Aggregate.Function.SUM, 3),
+            new Aggregate(Aggregate.Function.AVG, 3));
+    for (int[] groupBy : new int[][] {{0}, {}, {1, 2}}) {
+      List<List<Object>> expected = aggregateScan(searcher, groupBy, aggregates);
+      assertEquals(expected, searcher.aggregate(groupBy, aggregates, 1));
+      List<List<Object>> parallel = searcher.aggregate(groupBy, aggregates, 4);
+      assertEquals(expected.size(), parallel.size());
+      for (int i = 0; i < expected.size(); i++) {
+        // Only the average may differ in its last bits, from adding the chunks in another order.
+        int avg = groupBy.length + 2;
+        assertEquals(expected.get(i).subList(0, avg), parallel.get(i).subList(0, avg));
+        Double average = (Double) expected.get(i).get(avg);
+        if (average == null) {
+          assertEquals(null, parallel.get(i).get(avg));
+        } else {
+          assertEquals(average, (Double) parallel.get(i).get(avg), 1e-9);
+        }
+      }
+    }
+
+    // More threads than a ForkJoinPool allows are capped at the processor count.
+    List<Aggregate> count = List.of(Aggregate.count());
+    assertEquals(
+        searcher.aggregate(new int[0], count, 1), searcher.aggregate(new int[0], count, 100_000));
+  }
+
+  /**
+   * Helper that aggregates rows one at a time, keeping groups in the order of their first row.
+   *
+   * @param searcher is the searcher to aggregate.
+   * @param groupBy are the columns to group by.
+   * @param aggregates are the aggregates to compute.
+   * @return a row per group, as CSVSearcher.aggregate returns.
+   */
+  private static List<List<Object>> aggregateScan(
+      CSVSearcher searcher, int[] groupBy, List<Aggregate> aggregates) {
+    Map<List<String>, List<List<String>>> groups = new LinkedHashMap<>();
+    List<List<String>> rows = searcher.getData();
+    for (List<String> row : rows.subList(1, rows.size())) {
+      List<String> key = new ArrayList<>();
+      for (int column : groupBy) {
+        key.add(row.get(column));
+      }
+      groups.computeIfAbsent(key, k -> new ArrayList<>()).add(row);
+    }
+    List<List<Object>> result = new ArrayList<>();
+    groups.forEach(
+        (key, members) -> {
+          List<Object> row = new ArrayList<>(key);
+          for (Aggregate aggregate : aggregates) {
+            if (aggregate.function() == Aggregate.Function.COUNT) {
+              row.add((long) members.size());
+              continue;
+            }
+            double[] numbers =
+                members.stream()
+                    .mapToDouble(member -> ColumnType.parse(member.get(aggregate.column())))
+                    .filter(number -> !Double.isNaN(number))
+                    .toArray();
+            if (numbers.length == 0) {
+              row.add(null);
+              continue;
+            }
+            double sum = 0;
+            for (double number : numbers) {
+              sum += number;
+            }
+            switch (aggregate.function()) {
+              case SUM -> row.add((long) sum);
+              case MIN -> row.add((long) Arrays.stream(numbers).min().getAsDouble());
+              case MAX -> row.add((long) Arrays.stream(numbers).max().getAsDouble());
+              default -> row.add(sum / numbers.length);
+            }
+          }
+          result.add(row);
+        });
+    return result;
+  }
+
+  /**
+   * Tests that bitmap operations match those on plain sets of rows, across sparse and dense chunks
+   * and the boundaries between chunks.
+   */
+  @Test
+  public void testRowBitmap() {
+    Random random = new Random(22);
+    int rows = 300_000;
+    double[] densities = {0.001, 0.05, 0.5, 0.99};
+    for (double a : densities) {
+      for (double b : densities) {
+        boolean[] inA = new boolean[rows];
+        boolean[] inB = new boolean[rows];
+        for (int row = 0; row < rows; row++) {
+          inA[row] = random.nextDouble() < a;
+          inB[row] = random.nextDouble() < b;
+        }
+        RowBitmap bitmapA = RowBitmap.of(IntStream.range(0, rows).filter(r -> inA[r]).toArray());
+        RowBitmap bitmapB = RowBitmap.of(IntStream.range(0, rows).filter(r -> inB[r]).toArray());
+        assertEquals(
+            IntStream.range(0, rows).filter(r -> inA[r] && inB[r]).boxed().toList(),
+            IntStream.of(bitmapA.and(bitmapB).rows(0, rows)).boxed().toList());
+        assertEquals(
+            IntStream.range(0, rows).filter(r -> inA[r] || inB[r]).boxed().toList(),
+            IntStream.of(bitmapA.or(bitmapB).rows(0, rows)).boxed().toList());
+        assertEquals(
+            IntStream.range(0, rows).filter(r -> inA[r] && !inB[r]).boxed().toList(),
+            IntStream.of(bitmapA.andNot(bitmapB).rows(0, rows)).boxed().toList());
+        assertEquals(
+            IntStream.range(0, rows).filter(r -> !inA[r]).count(),
+            RowBitmap.range(rows).andNot(bitmapA).cardinality());
+        assertEquals(
+            IntStream.range(100_000, rows).filter(r -> inA[r]).limit(10).boxed().toList(),
+            IntStream.of(bitmapA.rows(100_000, 10)).boxed().toList());
+      }
+    }
+    assertEquals(0, RowBitmap.range(0).cardinality());
+    assertEquals(65_537, RowBitmap.range(65_537).cardinality());
+    assertEquals(
+        List.of(65_536), IntStream.of(RowBitmap.range(65_537).rows(65_536, 5)).boxed().toList());
+  }
+
+  /**
+   * Tests that compound queries match the rows found by checking each row's values, and that bad
+   * queries are reported.
+   *
+   * @throws Exception
+   */
+  @Test
+  public void testSearchQuery() throws Exception {
+    CSVSearcher searcher = load(INCOME, true);
+    Map<String, Predicate<List<String>>> queries = new LinkedHashMap<>();
+    queries.put(
+        "Race=Black AND Year=2021", row -> row.get(1).equals("Black") && row.get(3).equals("2021"));
+    queries.put(
+        "race=black and not 3=2021 OR \"Household Income by Race\">100000",
+        row ->
+            (row.get(1).equals("Black") && !row.get(3).equals("2021"))
+                || ColumnType.parse(row.get(4)) > 100_000);
+    queries.put(
+        "Race!=Total AND (Year<2019 OR Year>=2021) AND NOT Geography=\"Kent County, RI\"",
+        row ->
+            !row.get(1).equals("Total")
+                && (ColumnType.parse(row.get(3)) < 2019 || ColumnType.parse(row.get(3)) >= 2021)
+                && !row.get(6).equals("Kent County, RI"));
+    queries.put("Race=Martian", row -> false);
+    queries.put("NOT Race=Martian", row -> true);
+    List<List<String>> rows = searcher.getData();
+    for (Map.Entry<String, Predicate<List<String>>> query : queries.entrySet()) {
+      List<List<String>> expected =
+          rows.subList(1, rows.size()).stream().filter(query.getValue()).toList();
+      assertEquals(expected, searcher.searchQuery(query.getKey(), 0, 0, 1 << 20).rows());
+      List<List<String>> paged = new ArrayList<>();
+      for (int row = 0; row >= 0; ) {
+        Page page = searcher.searchQuery(query.getKey(), row, 0, 7);
+        paged.addAll(page.rows());
+        row = page.nextRow();
+      }
+      assertEquals(expected, paged, query.getKey());
+    }
+
+    for (String bad :
+        List.of(
+            "",
+            "Race=",
+            "Race Black",
+            "(Race=Black",
+            "Race=Black OR",
+            "Race!Black",
+            "Race=\"Black")) {
+      assertThrows(IllegalArgumentException.class, () -> searcher.searchQuery(bad, 0, 0, 10), bad);
+    }
+    assertThrows(IllegalArgumentException.class, () -> searcher.searchQuery("Year>soon", 0, 0, 10));
+    assertThrows(ColumnTypeException.class, () -> searcher.searchQuery("Race>1", 0, 0, 10));
+    assertThrows(InvalidIndexException.class, () -> searcher.searchQuery("9=1", 0, 0, 10));
+    assertThrows(
+        HeaderNotFoundException.class, () -> searcher.searchQuery("Planet=Mars", 0, 0, 10));
+
+    // Nesting is capped, so a deep query is rejected instead of overflowing the stack.
+    assertEquals(
+        searcher.searchQuery("Year=2020", 0, 0, 1 << 20).rows(),
+        searcher.searchQuery("(".repeat(99) + "Year=2020" + ")".repeat(99), 0, 0, 1 << 20).rows());
+    for (String deep :
+        List.of(
+            "(".repeat(100) + "Year=2020" + ")".repeat(100),
+            "(".repeat(3000) + "Year=2020" + ")".repeat(3000),
+            "NOT ".repeat(3000) + "Year=2020")) {
+      IllegalArgumentException e =
+          assertThrows(IllegalArgumentException.class, () -> searcher.searchQuery(deep, 0, 0, 10));
+      assertTrue(e.getMessage().contains("nest more than 100 deep"), e.getMessage());
+    }
+  }
+
+  /**
+   * Tests that prefix and substring searches match the rows found by checking each cell, ignoring
+   * case, with short, missing and multi-trigram values, and page the same way.
+   *
+   * @throws Exception
+   */
+  @Test
+  public void testTextSearch() throws Exception {
+    CSVSearcher searcher = load(INCOME, true);
+    List<List<String>> rows = searcher.getData();
+    List<String> values =
+        List.of("", "w", "WH", "hit", "county", "Kent C", "two or", "ty, r", "xyz", "S-R", "2020");
+    for (int column : new int[] {1, 3, 6, 8}) {
+      for (String value : values) {
+        String key = CaseFolding.fold(value);
+        for (TextMatch match : TextMatch.values()) {
+          List<List<String>> expected =
+              rows.subList(1, rows.size()).stream()
+                  .filter(
+                      row -> {
+                        String cell = CaseFolding.fold(row.get(column));
+                        return (match == TextMatch.PREFIX)
+                            ? cell.startsWith(key)
+                            : cell.contains(key);
+                      })
+                  .toList();
+          String label = match + " " + column + " " + value;
+          assertEquals(
+              expected, searcher.searchText(value, column, match, 0, 0, 1 << 20).rows(), label);
+          List<List<String>> paged = new ArrayList<>();
+          for (int row = 0; row >= 0; ) {
+            Page page = searcher.searchText(value, column, match, row, 0, 9);
+            paged.addAll(page.rows());
+            row = page.nextRow();
+          }
+          assertEquals(expected, paged, label);
+        }
+      }
+    }
+    assertThrows(
+        InvalidIndexException.class, () -> searcher.searchText("a", 9, TextMatch.PREFIX, 0, 0, 1));
+
+    // Mostly distinct values, so substrings are narrowed through the trigram lists.
+    CSVSearcher names = syllableSearcher(23);
+    List<List<String>> all = names.getData();
+    for (String value : List.of("ring", "barring", "ngt", "ω", "Y 4", "rt1", "a", "zz", "ton 12")) {
+      for (TextMatch match : TextMatch.values()) {
+        String key = CaseFolding.fold(value);
+        List<List<String>> expected =
+            all.stream()
+                .filter(
+                    row -> {
+                      String cell = CaseFolding.fold(row.get(1));
+                      return (match == TextMatch.PREFIX)
+                          ? cell.startsWith(key)
+                          : cell.contains(key);
+                    })
+                .toList();
+        assertEquals(expected, names.searchText(value, 1, match, 0, 0, 1 << 20).rows(), value);
+        assertEquals(
+            expected.subList(Math.min(3, expected.size()), Math.min(8, expected.size())),
+            names.searchText(value, 1, match, 0, 3, 5).rows(),
+            value);
+      }
+    }
+  }
+
+  /**
+   * Tests fuzzy searches against measuring every row's distance, both on census columns and on
+   * mostly distinct generated values, for every distance allowed, checking the ranking and paging.
+   */
+  @Test
+  public void testFuzzySearch() throws Exception {
+    CSVSearcher names = syllableSearcher(24);
+    CSVSearcher income = load(INCOME, true);
+    List<String> values =
+        List.of("Barington", "newprt", "ringtonbar", "", "a", "ΩLY", "Whte", "Kent Conty", "2O20");
+    for (CSVSearcher searcher : List.of(names, income)) {
+      List<List<String>> all = searcher.getData();
+      List<List<String>> rows = (searcher == income) ? all.subList(1, all.size()) : all;
+      for (int column : (searcher == income) ? new int[] {1, 3, 6} : new int[] {0}) {
+        for (String value : values) {
+          for (int distance = 0; distance <= 3; distance++) {
+            List<List<String>> expected = fuzzyScan(rows, column, value, distance);
+            String label = column + " " + value + " " + distance;
+            assertEquals(
+                expected,
+                searcher.searchFuzzy(value, column, distance, 0, 0, 1 << 20).rows(),
+                label);
+            List<List<String>> paged = new ArrayList<>();
+            for (int from = 0; from >= 0; ) {
+              Page page = searcher.searchFuzzy(value, column, distance, from, 1, 7);
+              paged.addAll(page.rows());
+              from = page.nextRow();
+            }
+            List<List<String>> skipped = new ArrayList<>();
+            for (int i = 0; i < expected.size(); i++) {
+              if (i % 8 != 0) {
+                skipped.add(expected.get(i));
+              }
+            }
+            assertEquals(skipped, paged, label);
+          }
+        }
+      }
+    }
+    assertThrows(InvalidIndexException.class, () -> names.searchFuzzy("a", 2, 1, 0, 0, 1));
+    assertThrows(IllegalArgumentException.class, () -> names.searchFuzzy("a", 0, 4, 0, 0, 1));
+    assertThrows(IllegalArgumentException.class, () -> names.searchFuzzy("a", 0, -1, 0, 0, 1));
+  }
+
+  /**
+   * Tests suggestions against counting every row's folded value, on census columns and on mostly
+   * distinct generated values, checking the ranking by count and then by value.
+   */
+  @Test
+  public void testSuggest() throws Exception {
+    CSVSearcher names = syllableSearcher(25);
+    CSVSearcher income = load(INCOME, true);
+    List<String> prefixes = List.of("", "b", "BAR", "new", "  nEwP", "Ω", "a", "w", "2", "zz");
+    for (CSVSearcher searcher : List.of(names, income)) {
+      List<List<String>> all = searcher.getData();
+      List<List<String>> rows = (searcher == income) ? all.subList(1, all.size()) : all;
+      for (int column : (searcher == income) ? new int[] {1, 3, 6, 8} : new int[] {0}) {
+        // Count the rows of each folded value, showing it by its first row's value.
+        Map<String, Suggestion> counts = new LinkedHashMap<>();
+        for (List<String> row : rows) {
+          String cell = row.get(column);
+          counts.merge(
+              CaseFolding.fold(cell),
+              new Suggestion(cell, 1),
+              (a, b) -> new Suggestion(a.value(), a.count() + 1));
+        }
+        for (String prefix : prefixes) {
+          String key = CaseFolding.fold(prefix.stripLeading());
+          for (int limit : new int[] {1, 5, 1 << 20}) {
+            List<Suggestion> expected =
+                counts.entrySet().stream()
+                    .filter(entry -> entry.getKey().startsWith(key))
+                    .sorted(
+                        (a, b) ->
+                            (a.getValue().count() != b.getValue().count())
+                                ? Integer.compare(b.getValue().count(), a.getValue().count())
+                                : a.getKey().compareTo(b.getKey()))
+                    .limit(limit)
+                    .map(Map.Entry::getValue)
+                    .toList();
+            assertEquals(
+                expected,
+                searcher.suggest(prefix, column, limit),
+                column + " " + prefix + " " + limit);
+          }
+        }
+      }
+    }
+    assertThrows(InvalidIndexException.class, () -> names.suggest("a", 2, 1));
+  }
+
+  /**
+   * A helper method that finds the rows within an edit distance of a value by measuring every row,
+   * ranked by distance and then by the first row holding the row's folded value.
+   *
+   * @param rows The rows to search, without a header.
+   * @param column The column to search.
+   * @param value The value to look for.
+   * @param distance The most edits a match may be from the value.
+   * @return The matching rows, ranked.
+   */
+  private static List<List<String>> fuzzyScan(
+      List<List<String>> rows, int column, String value, int distance) {
+    String target = CaseFolding.fold(value.trim());
+    Map<String, Integer> firstRows = new LinkedHashMap<>();
+    List<Integer> matches = new ArrayList<>();
+    int[] distances = new int[rows.size()];
+    for (int row = 0; row < rows.size(); row++) {
+      String key = CaseFolding.fold(rows.get(row).get(column));
+      firstRows.putIfAbsent(key, row);
+      distances[row] = levenshtein(target, key);
+      if (distances[row] <= distance) {
+        matches.add(row);
+      }
+    }
+    matches.sort(
+        (a, b) ->
+            (distances[a] != distances[b])
+                ? Integer.compare(distances[a], distances[b])
+                : Integer.compare(
+                    firstRows.get(CaseFolding.fold(rows.get(a).get(column))),
+                    firstRows.get(CaseFolding.fold(rows.get(b).get(column)))));
+    return matches.stream().map(rows::get).toList();
+  }
+
+  /**
+   * A helper method that measures the Levenshtein distance between two strings, filling in the
+   * distance between every pair of their prefixes.
+   *
+   * @param a The first string.
+   * @param b The second string.
+   * @return The fewest single-character insertions, deletions and substitutions between them.
+   */
+  private static int levenshtein(String a, String b) {
+    int[][] table = new int[a.length() + 1][b.length() + 1];
+    for (int i = 0; i <= a.length(); i++) {
+      for (int j = 0; j <= b.length(); j++) {
+        table[i][j] =
+            (i == 0 || j == 0)
+                ? i + j
+                : Math.min(
+                    table[i - 1][j - 1] + (a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1),
+                    Math.min(table[i - 1][j], table[i][j - 1]) + 1);
+      }
+    }
+    return table[a.length()][b.length()];
+  }
+}
@@ -1,16 +1,46 @@
 package edu.brown.cs.student.csv;
 
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import edu.brown.cs.student.main.csv.exceptions.ColumnTypeException;
 import edu.brown.cs.student.main.csv.exceptions.FactoryFailureException;
 import edu.brown.cs.student.main.csv.exceptions.InvalidIndexException;
+import edu.brown.cs.student.main.csv.utilities.LoadListener;
+import edu.brown.cs.student.main.csv.utilities.TextMatch;
+import edu.brown.cs.student.main.server.handlers.csvhandlers.AggregateResult;
+import edu.brown.cs.student.main.server.handlers.csvhandlers.CSVDatasource;
 import edu.brown.cs.student.main.server.handlers.csvhandlers.CSVSharedSource;
+import edu.brown.cs.student.main.server.handlers.csvhandlers.LoadJob;
+import edu.brown.cs.student.main.server.handlers.csvhandlers.LoadJobs;
+import edu.brown.cs.student.main.server.handlers.csvhandlers.LoadOptions;
+import edu.brown.cs.student.main.server.handlers.csvhandlers.PageRequest;
+import edu.brown.cs.student.main.server.handlers.csvhandlers.ResultPage;
+import edu.brown.cs.student.main.server.handlers.csvhandlers.SnapshotCache;
+import edu.brown.cs.student.main.server.handlers.csvhandlers.SuggestResult;
 import edu.brown.cs.student.main.server.handlers.csvhandlers.exceptions.CSVNotFoundException;
+import edu.brown.cs.student.main.server.handlers.csvhandlers.exceptions.DatasetTooLargeException;
 import edu.brown.cs.student.main.server.handlers.csvhandlers.exceptions.HeaderNotFoundException;
+import edu.brown.cs.student.main.server.handlers.csvhandlers.exceptions.InvalidCursorException;
 import edu.brown.cs.student.main.server.handlers.csvhandlers.exceptions.InvalidFilepathException;
 import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 /** Unit tests for CSVSharedSource. */
 public class CSVSharedStateTests {
@@ -18,7 +48,8 @@ public class CSVSharedStateTests {
   /** This method tests loading. */
   @Test
   public void testLoad()
-      throws InvalidFilepathException, IOException, FactoryFailureException, CSVNotFoundException {
+      throws InvalidFilepathException, IOException, FactoryFailureException, CSVNotFoundException,
+          DatasetTooLargeException {
     CSVSharedSource state = new CSVSharedSource();
     state.loadCSV("data/census/dol_ri_earnings_disparity.csv", true);
     assertTrue(state.viewCSV().size() > 0);
@@ -30,7 +61,8 @@ public class CSVSharedStateTests {
   /** This method tests viewing. */
   @Test
   public void testView()
-      throws InvalidFilepathException, IOException, FactoryFailureException, CSVNotFoundException {
+      throws InvalidFilepathException, IOException, FactoryFailureException, CSVNotFoundException,
+          DatasetTooLargeException {
     CSVSharedSource state = new CSVSharedSource();
     assertThrows(CSVNotFoundException.class, () -> state.viewCSV());
     state.loadCSV("data/census/dol_ri_earnings_disparity.csv", true);
@@ -41,7 +73,8 @@ public class CSVSharedStateTests {
   @Test
   public void testSearch()
       throws InvalidFilepathException, IOException, FactoryFailureException, CSVNotFoundException,
-          InvalidIndexException, HeaderNotFoundException, NumberFormatException {
+          DatasetTooLargeException, InvalidIndexException, HeaderNotFoundException,
+          NumberFormatException {
     CSVSharedSource state = new CSVSharedSource();
     assertThrows(CSVNotFoundException.class, () -> state.searchCSV("", "", false, false));
     state.loadCSV("data/census/dol_ri_earnings_disparity.csv", true);
@@ -50,4 +83,592 @@ public class CSVSharedStateTests {
     assertThrows(NumberFormatException.class, () -> state.searchCSV("", "hi", true, false));
     assertThrows(HeaderNotFoundException.class, () -> state.searchCSV("", "help", true, true));
   }
+
+  /** This method tests searching a file whose columns and values were indexed while loading. */
+  @Test
+  public void testSearchIndexed()
+      throws InvalidFilepathException, IOException, FactoryFailureException, CSVNotFoundException,
+          DatasetTooLargeException, InvalidIndexException, HeaderNotFoundException,
+          NumberFormatException {
+    CSVSharedSource state = new CSVSharedSource();
+    state.loadCSV("data/census/income_by_race.csv", true, new LoadOptions(1, true, true));
+    assertEquals(
+        state.searchCSV("kent county, ri", "Geography", true, true),
+        state.searchCSV("Kent County, RI", "6", true, false));
+    assertTrue(state.searchCSV("Kent County, RI", "Geography", true, true).size() > 0);
+    assertEquals(
+        state.searchCSV("Kent County, RI", "Geography", true, true),
+        state.searchCSV("KENT COUNTY, RI", "", false, false));
+  }
+
+  /** This method tests that datasets loaded under different ids are kept and searched apart. */
+  @Test
+  public void testDatasetIds()
+      throws InvalidFilepathException, IOException, FactoryFailureException, CSVNotFoundException,
+          DatasetTooLargeException, InvalidIndexException, HeaderNotFoundException,
+          InvalidCursorException {
+    CSVSharedSource state = new CSVSharedSource();
+    state.loadCSV("income", "data/census/income_by_race.csv", true, LoadOptions.defaults());
+    state.loadCSV("towns", "data/server/RI-Town-Income-Data.csv", true, LoadOptions.defaults());
+    PageRequest all = PageRequest.all();
+    assertEquals(324, state.viewCSV("income", all).rows().size());
+    assertTrue(state.searchCSV("towns", "Providence", "", false, false, all).rows().size() > 0);
+    assertEquals(0, state.searchCSV("income", "Providence", "", false, false, all).rows().size());
+    assertThrows(CSVNotFoundException.class, () -> state.viewCSV());
+    assertThrows(CSVNotFoundException.class, () -> state.viewCSV("other", all));
+  }
+
+  /**
+   * This method tests that the least recently used dataset is evicted once the budget is passed,
+   * and that a dataset larger than the whole budget is refused.
+   */
+  @Test
+  public void testDatasetEviction()
+      throws InvalidFilepathException, IOException, FactoryFailureException, CSVNotFoundException,
+          DatasetTooLargeException, InvalidCursorException {
+    String file = "data/census/income_by_race.csv";
+    long bytes =
+        (Long) new CSVSharedSource().loadCSV(file, true, LoadOptions.defaults()).get("data_bytes");
+
+    // Room for two copies of the file but not three.
+    CSVSharedSource state = new CSVSharedSource(bytes * 5 / 2);
+    state.loadCSV("a", file, true, LoadOptions.defaults());
+    state.loadCSV("b", file, true, LoadOptions.defaults());
+    state.viewCSV("a", PageRequest.all());
+    Map<String, Object> stats = state.loadCSV("c", file, true, LoadOptions.defaults());
+    assertEquals(List.of("a", "c"), ((List<?>) stats.get("datasets")).stream().sorted().toList());
+    assertThrows(CSVNotFoundException.class, () -> state.viewCSV("b", PageRequest.all()));
+    assertEquals(324, state.viewCSV("a", PageRequest.all()).rows().size());
+
+    CSVSharedSource tiny = new CSVSharedSource(bytes / 2);
+    assertThrows(
+        DatasetTooLargeException.class, () -> tiny.loadCSV(file, true, LoadOptions.defaults()));
+  }
+
+  /**
+   * This method tests that indexes built lazily by a search are counted against the budget, while
+   * the dataset keeps its version so cursors stay valid.
+   */
+  @Test
+  public void testDatasetReweighedAfterIndexing()
+      throws InvalidFilepathException, IOException, FactoryFailureException, CSVNotFoundException,
+          DatasetTooLargeException, InvalidCursorException, InvalidIndexException,
+          HeaderNotFoundException {
+    String file = "data/census/income_by_race.csv";
+    CSVSharedSource state = new CSVSharedSource();
+    long bytes = (Long) state.loadCSV("a", file, true, LoadOptions.defaults()).get("data_bytes");
+    ResultPage first =
+        state.searchCSV("a", "Total", "Race", true, true, new PageRequest(0, 1, null));
+    state.searchText("a", "county", "Geography", true, TextMatch.SUBSTRING, PageRequest.all());
+
+    // The second load reports the catalog with the first dataset weighed again.
+    Map<String, Object> stats = state.loadCSV("b", file, true, LoadOptions.defaults());
+    assertTrue((Long) stats.get("catalog_bytes") > 2 * bytes);
+    ResultPage next =
+        state.searchCSV(
+            "a", "Total", "Race", true, true, new PageRequest(0, 1, first.nextCursor()));
+    assertEquals(1, next.rows().size());
+  }
+
+  /**
+   * This method hammers one dataset id with reloads of two different files while other threads
+   * view, search and page through it. Every request must see all of one file or all of the other,
+   * and a cursor may only fail because the dataset was reloaded under it.
+   */
+  @Test
+  public void testConcurrentLoadAndSearch() throws Exception {
+    CSVSharedSource state = new CSVSharedSource();
+    String[] files = {"data/census/income_by_race.csv", "data/server/RI-Town-Income-Data.csv"};
+    int[] sizes = new int[files.length];
+    int[] matches = new int[files.length];
+    for (int i = 0; i < files.length; i++) {
+      state.loadCSV(files[i], true);
+      sizes[i] = state.viewCSV().size();
+      matches[i] = state.searchCSV("2020", "", false, false).size();
+    }
+
+    ExecutorService pool = Executors.newFixedThreadPool(4);
+    AtomicBoolean loading = new AtomicBoolean(true);
+    try {
+      Future<?> loader =
+          pool.submit(
+              () -> {
+                for (int i = 0; i < 200; i++) {
+                  state.loadCSV(files[i % 2], true);
+                }
+                loading.set(false);
+                return null;
+              });
+      List<Future<Integer>> readers = new ArrayList<>();
+      for (int t = 0; t < 3; t++) {
+        readers.add(
+            pool.submit(
+                () -> {
+                  int checks = 0;
+                  while (loading.get() || checks == 0) {
+                    // A whole view comes from one snapshot, so it has one file's rows.
+                    ResultPage view = state.viewCSV(CSVDatasource.DEFAULT_ID, PageRequest.all());
+                    int size = view.rows().size();
+                    assertTrue(size == sizes[0] || size == sizes[1]);
+                    int width = view.rows().get(0).size();
+                    assertTrue(view.rows().stream().allMatch(row -> row.size() == width));
+                    int found = state.searchCSV("2020", "", false, false).size();
+                    assertTrue(found == matches[0] || found == matches[1]);
+
+                    // Paging either sees one version throughout or is told its cursor is stale.
+                    try {
+                      ResultPage page =
+                          state.viewCSV(CSVDatasource.DEFAULT_ID, new PageRequest(0, 50, null));
+                      int seen = page.rows().size();
+                      while (page.nextCursor() != null) {
+                        page =
+                            state.viewCSV(
+                                CSVDatasource.DEFAULT_ID,
+                                new PageRequest(0, 50, page.nextCursor()));
+                        seen += page.rows().size();
+                      }
+                      assertTrue(seen == sizes[0] || seen == sizes[1]);
+                    } catch (InvalidCursorException e) {
+                      // The dataset was reloaded between pages.
+                    }
+                    checks++;
+                  }
+                  return checks;
+                }));
+      }
+      loader.get(60, TimeUnit.SECONDS);
+      for (Future<Integer> reader : readers) {
+        assertTrue(reader.get(60, TimeUnit.SECONDS) > 0);
+      }
+    } finally {
+      pool.shutdownNow();
+    }
+  }
+
+  /**
+   * This method tests that an asynchronous load reports its progress while running, and that the
+   * dataset it replaces keeps serving until it is done. The load is held after its first progress
+   * report, so it can be checked mid-load.
+   */
+  @Test
+  public void testAsyncLoadKeepsServing() throws Exception {
+    CSVSharedSource state = new CSVSharedSource();
+    state.loadCSV("data/server/RI-Town-Income-Data.csv", true);
+    int before = state.viewCSV().size();
+
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    CSVDatasource held =
+        new CSVDatasource() {
+          @Override
+          public Map<String, Object> loadCSV(
+              String id,
+              String filepath,
+              boolean hasHeader,
+              LoadOptions options,
+              LoadListener listener)
+              throws IOException, FactoryFailureException, InvalidFilepathException,
+                  DatasetTooLargeException {
+            return state.loadCSV(
+                id,
+                filepath,
+                hasHeader,
+                options,
+                (rows, bytes) -> {
+                  listener.progress(rows, bytes);
+                  started.countDown();
+                  try {
+                    release.await();
+                  } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                  }
+                });
+          }
+
+          @Override
+          public ResultPage searchCSV(
+              String id,
+              String value,
+              String header,
+              boolean byIndex,
+              boolean byValue,
+              PageRequest page)
+              throws CSVNotFoundException, InvalidIndexException, HeaderNotFoundException,
+                  InvalidCursorException {
+            return state.searchCSV(id, value, header, byIndex, byValue, page);
+          }
+
+          @Override
+          public ResultPage searchText(
+              String id,
+              String value,
+              String header,
+              boolean byValue,
+              TextMatch match,
+              PageRequest page)
+              throws CSVNotFoundException, InvalidIndexException, HeaderNotFoundException,
+                  InvalidCursorException {
+            return state.searchText(id, value, header, byValue, match, page);
+          }
+
+          @Override
+          public ResultPage searchFuzzy(
+              String id,
+              String value,
+              String header,
+              boolean byValue,
+              int maxDistance,
+              PageRequest page)
+              throws CSVNotFoundException, InvalidIndexException, HeaderNotFoundException,
+                  InvalidCursorException {
+            return state.searchFuzzy(id, value, header, byValue, maxDistance, page);
+          }
+
+          @Override
+          public ResultPage searchRange(
+              String id, String header, boolean byValue, double min, double max, PageRequest page)
+              throws CSVNotFoundException, InvalidIndexException, HeaderNotFoundException,
+                  InvalidCursorException, ColumnTypeException {
+            return state.searchRange(id, header, byValue, min, max, page);
+          }
+
+          @Override
+          public ResultPage searchQuery(String id, String query, PageRequest page)
+              throws CSVNotFoundException, InvalidIndexException, HeaderNotFoundException,
+                  InvalidCursorException, ColumnTypeException {
+            return state.searchQuery(id, query, page);
+          }
+
+          @Override
+          public AggregateResult aggregateCSV(
+              String id, List<String> groupBy, List<String> aggregates, int parallelism)
+              throws CSVNotFoundException, InvalidIndexException, HeaderNotFoundException,
+                  ColumnTypeException {
+            return state.aggregateCSV(id, groupBy, aggregates, parallelism);
+          }
+
+          @Override
+          public SuggestResult suggest(
+              String id, String prefix, String header, boolean byValue, int limit)
+              throws CSVNotFoundException, InvalidIndexException, HeaderNotFoundException {
+            return state.suggest(id, prefix, header, byValue, limit);
+          }
+
+          @Override
+          public ResultPage viewCSV(String id, PageRequest page)
+              throws CSVNotFoundException, InvalidCursorException {
+            return state.viewCSV(id, page);
+          }
+        };
+
+    LoadJob job =
+        new LoadJobs()
+            .submit(
+                held,
+                CSVDatasource.DEFAULT_ID,
+                "data/census/income_by_race.csv",
+                true,
+                LoadOptions.defaults());
+    assertTrue(started.await(10, TimeUnit.SECONDS));
+    assertEquals(LoadJob.State.RUNNING, job.state());
+    assertEquals(324L, job.status().get("rows_read"));
+    assertTrue((Long) job.status().get("total_bytes") > 0);
+    assertEquals(job.status().get("total_bytes"), job.status().get("bytes_read"));
+    assertEquals(before, state.viewCSV().size());
+
+    release.countDown();
+    for (int i = 0; i < 1000 && job.state() == LoadJob.State.RUNNING; i++) {
+      Thread.sleep(10);
+    }
+    assertEquals(LoadJob.State.SUCCEEDED, job.state());
+    assertEquals(324, state.viewCSV().size());
+  }
+
+  /**
+   * This method tests that a load failing with an Error, such as running out of memory, still
+   * finishes its job as failed and reports the error.
+   */
+  @Test
+  public void testLoadJobRecordsErrors() throws Exception {
+    CSVDatasource failing =
+        (CSVDatasource)
+            Proxy.newProxyInstance(
+                CSVDatasource.class.getClassLoader(),
+                new Class<?>[] {CSVDatasource.class},
+                (proxy, method, args) -> {
+                  throw new OutOfMemoryError("Java heap space");
+                });
+    LoadJob job =
+        new LoadJobs()
+            .submit(
+                failing,
+                CSVDatasource.DEFAULT_ID,
+                "data/census/income_by_race.csv",
+                true,
+                LoadOptions.defaults());
+    for (int i = 0; i < 1000 && job.state() != LoadJob.State.FAILED; i++) {
+      Thread.sleep(10);
+    }
+    assertEquals(LoadJob.State.FAILED, job.state());
+    assertEquals("OutOfMemoryError", job.status().get("exception"));
+    assertEquals("Java heap space", job.status().get("error_message"));
+  }
+
+  /**
+   * This method tests that an unchanged CSV is restored from its snapshot with its indexes, even by
+   * a new source, and that a changed CSV or a damaged snapshot is parsed again.
+   */
+  @Test
+  public void testSnapshotCache(@TempDir Path snapshotDir) throws Exception {
+    Path csv = Files.createTempFile(Path.of("data"), "snapshot", ".csv");
+    try {
+      Files.copy(Path.of("data/census/income_by_race.csv"), csv, REPLACE_EXISTING);
+      LoadOptions options = new LoadOptions(1, true, true);
+      SnapshotCache snapshots = new SnapshotCache(snapshotDir);
+      CSVSharedSource first = new CSVSharedSource(Long.MAX_VALUE, snapshots);
+      assertEquals("saved", first.loadCSV(csv.toString(), true, options).get("snapshot"));
+      List<List<String>> view = first.viewCSV();
+      List<List<String>> found = first.searchCSV("kent county, ri", "", false, false);
+      List<List<String>> column = first.searchCSV("2020", "Year", true, true);
+
+      // A new source, as after a restart, restores the same rows and indexes.
+      CSVSharedSource second = new CSVSharedSource(Long.MAX_VALUE, snapshots);
+      Map<String, Object> stats = second.loadCSV(csv.toString(), true, options);
+      assertEquals("loaded", stats.get("snapshot"));
+      assertEquals(323, stats.get("rows"));
+      assertEquals(view, second.viewCSV());
+      assertEquals(found, second.searchCSV("kent county, ri", "", false, false));
+      assertEquals(column, second.searchCSV("2020", "Year", true, true));
+
+      // A grown CSV is reloaded, and its new snapshot replaces the old one.
+      Files.writeString(
+          csv, "\n9,Other,2020,2020,1,1,\"Kent County, RI\",x,y", StandardOpenOption.APPEND);
+      stats = second.loadCSV(csv.toString(), true, options);
+      assertEquals("saved", stats.get("snapshot"));
+      assertEquals(324, stats.get("rows"));
+      assertEquals(found.size() + 1, second.searchCSV("Kent County, RI", "", false, false).size());
+      CSVSharedSource third = new CSVSharedSource(Long.MAX_VALUE, snapshots);
+      assertEquals("loaded", third.loadCSV(csv.toString(), true, options).get("snapshot"));
+      assertEquals(second.viewCSV(), third.viewCSV());
+
+      // A damaged snapshot is ignored.
+      try (var files = Files.list(snapshotDir)) {
+        for (Path snapshot : files.toList()) {
+          Files.write(snapshot, new byte[] {1, 2, 3});
+        }
+      }
+      CSVSharedSource fourth = new CSVSharedSource(Long.MAX_VALUE, snapshots);
+      assertEquals("saved", fourth.loadCSV(csv.toString(), true, options).get("snapshot"));
+      assertEquals(view.size() + 1, fourth.viewCSV().size());
+    } finally {
+      Files.deleteIfExists(csv);
+    }
+  }
+
+  /**
+   * This method tests that reloading a CSV that has only grown parses just the appended rows, and
+   * that a rewritten or truncated CSV, or one whose last row was continued, is loaded in full.
+   */
+  @Test
+  public void testIncrementalReload() throws Exception {
+    Path csv = Files.createTempFile(Path.of("data"), "growing", ".csv");
+    try {
+      // The copied file's last row has no line break, so the appended rows start with one.
+      Files.copy(Path.of("data/census/income_by_race.csv"), csv, REPLACE_EXISTING);
+      LoadOptions options = new LoadOptions(1, false, true);
+      CSVSharedSource state = new CSVSharedSource();
+      state.loadCSV(csv.toString(), true, options);
+      String row = "9,Other,2021,2021,1,1,\"Kent County, RI\",x,y";
+      Files.writeString(csv, "\n" + row + "\n" + row + "\n", StandardOpenOption.APPEND);
+
+      Map<String, Object> stats = state.loadCSV(csv.toString(), true, options);
+      assertEquals("incremental", stats.get("reload"));
+      assertEquals(2, stats.get("appended_rows"));
+      assertTrue((Long) stats.get("append_millis") >= 0);
+      assertTrue((Long) stats.get("reindexed_bytes") > 0);
+      CSVSharedSource fresh = new CSVSharedSource();
+      fresh.loadCSV(csv.toString(), true, options);
+      assertEquals(fresh.viewCSV(), state.viewCSV());
+      assertEquals(
+          fresh.searchCSV("kent county, ri", "", false, false),
+          state.searchCSV("kent county, ri", "", false, false));
+      assertEquals(
+          fresh.searchCSV("2021", "Year", true, true), state.searchCSV("2021", "Year", true, true));
+
+      // An unchanged file appends nothing.
+      stats = state.loadCSV(csv.toString(), true, options);
+      assertEquals("incremental", stats.get("reload"));
+      assertEquals(0, stats.get("appended_rows"));
+      assertEquals(0L, stats.get("reindexed_bytes"));
+
+      // A file rewritten in the middle, to the same length, then appended to is loaded in full.
+      String contents = Files.readString(csv);
+      int middle = contents.indexOf(",2016,", contents.length() / 2);
+      Files.writeString(
+          csv,
+          contents.substring(0, middle) + ",1999," + contents.substring(middle + 6) + row + "\n",
+          StandardOpenOption.TRUNCATE_EXISTING);
+      assertEquals(null, state.loadCSV(csv.toString(), true, options).get("reload"));
+      assertEquals(1, state.searchCSV("1999", "ID Year", true, true).size());
+      Files.writeString(csv, contents, StandardOpenOption.TRUNCATE_EXISTING);
+
+      // A continued last row, a truncated file and a rewritten file are all loaded in full.
+      Files.writeString(
+          csv, Files.readString(csv).strip() + "z", StandardOpenOption.TRUNCATE_EXISTING);
+      assertEquals(null, state.loadCSV(csv.toString(), true, options).get("reload"));
+      assertEquals(fresh.viewCSV().size(), state.viewCSV().size());
+      Files.writeString(csv, "a,b\n1,2\n", StandardOpenOption.TRUNCATE_EXISTING);
+      assertEquals(null, state.loadCSV(csv.toString(), true, options).get("reload"));
+      assertEquals(2, state.viewCSV().size());
+      Files.writeString(csv, "c,d\n3,4\n5,6\n", StandardOpenOption.TRUNCATE_EXISTING);
+      assertEquals(null, state.loadCSV(csv.toString(), true, options).get("reload"));
+      assertEquals(
+          List.of(List.of("c", "d"), List.of("3", "4"), List.of("5", "6")), state.viewCSV());
+
+      // A different header flag is loaded in full too.
+      assertEquals(null, state.loadCSV(csv.toString(), false, options).get("reload"));
+    } finally {
+      Files.deleteIfExists(csv);
+    }
+  }
+
+  /**
+   * Tests that a dataset loaded with only some columns keeps only those columns when rows are
+   * appended, and that a load of other columns parses the file in full.
+   *
+   * @throws Exception
+   */
+  @Test
+  public void testLoadColumns() throws Exception {
+    Path csv = Files.createTempFile(Path.of("data"), "columns", ".csv");
+    try {
+      Files.writeString(csv, "a,b,c\n1,2,3\n");
+      CSVSharedSource state = new CSVSharedSource();
+      LoadOptions columns = new LoadOptions(1, false, true, false, List.of(2, 0));
+      state.loadCSV(csv.toString(), true, columns);
+      assertEquals(List.of(List.of("c", "a"), List.of("3", "1")), state.viewCSV());
+
+      Files.writeString(csv, "4,5,6\n", StandardOpenOption.APPEND);
+      Map<String, Object> stats = state.loadCSV(csv.toString(), true, columns);
+      assertEquals("incremental", stats.get("reload"));
+      assertEquals(List.of(List.of("6", "4")), state.searchCSV("6", "", false, false));
+
+      LoadOptions other = new LoadOptions(1, false, true, false, List.of(1));
+      assertEquals(null, state.loadCSV(csv.toString(), true, other).get("reload"));
+      assertEquals(List.of(List.of("b"), List.of("2"), List.of("5")), state.viewCSV());
+
+      // A projected row that is the wrong width fails the load, even though its cells are dropped.
+      Files.writeString(csv, "7,8\n", StandardOpenOption.APPEND);
+      assertThrows(FactoryFailureException.class, () -> state.loadCSV(csv.toString(), true, other));
+    } finally {
+      Files.deleteIfExists(csv);
+    }
+  }
+
+  /**
+   * Tests that a dataset loaded with the watch option is reloaded when its file changes, that a
+   * failed reload keeps the old dataset and is reported, and that loading it without the option
+   * stops the watching.
+   *
+   * @throws Exception
+   */
+  @Test
+  public void testWatchReload() throws Exception {
+    Path csv = Files.createTempFile(Path.of("data"), "watched", ".csv");
+    try {
+      Files.writeString(csv, "a,b\n1,2\n");
+      CSVSharedSource state = new CSVSharedSource(Runtime.getRuntime().maxMemory() / 2, null, 50);
+      LoadOptions watch = new LoadOptions(1, false, false, true);
+      assertEquals(true, state.loadCSV("watched", csv.toString(), true, watch).get("watching"));
+      assertEquals(0L, this.watchStatus(state).get("reloads"));
+
+      // Appended rows are picked up without another load.
+      Files.writeString(csv, "3,4\n", StandardOpenOption.APPEND);
+      this.awaitWatch(state, "reloads");
+      assertEquals(
+          List.of(List.of("a", "b"), List.of("1", "2"), List.of("3", "4")),
+          state.viewCSV("watched", PageRequest.all()).rows());
+      assertEquals("success", this.watchStatus(state).get("last_result"));
+
+      // A malformed row fails the reload, leaving the loaded rows serving requests.
+      Files.writeString(csv, "5,6,7\n", StandardOpenOption.APPEND);
+      this.awaitWatch(state, "failures");
+      assertEquals("error", this.watchStatus(state).get("last_result"));
+      assertEquals(3, state.viewCSV("watched", PageRequest.all()).rows().size());
+
+      // Loading without the option stops the watching.
+      Files.writeString(csv, "c,d\n1,2\n", StandardOpenOption.TRUNCATE_EXISTING);
+      assertEquals(
+          false,
+          state.loadCSV("watched", csv.toString(), true, LoadOptions.defaults()).get("watching"));
+      assertTrue(state.watchStatus().isEmpty());
+    } finally {
+      Files.deleteIfExists(csv);
+    }
+  }
+
+  /**
+   * Tests that a load of another file under a watched dataset's id wins over a reload of the old
+   * file that was already running, so the id never ends up serving the old file.
+   *
+   * @throws Exception
+   */
+  @Test
+  public void testWatchReloadRacingLoad() throws Exception {
+    Path watched = Files.createTempFile(Path.of("data"), "watched", ".csv");
+    Path other = Files.createTempFile(Path.of("data"), "other", ".csv");
+    try {
+      StringBuilder rows = new StringBuilder("a,b\n");
+      for (int i = 0; i < 200_000; i++) {
+        rows.append(i).append(',').append(i % 97).append('\n');
+      }
+      Files.writeString(watched, rows);
+      Files.writeString(other, "c,d\n1,2\n");
+      CSVSharedSource state = new CSVSharedSource(Runtime.getRuntime().maxMemory() / 2, null, 10);
+      LoadOptions watch = new LoadOptions(1, false, false, true);
+      for (int round = 0; round < 3; round++) {
+        state.loadCSV("watched", watched.toString(), true, watch);
+
+        // Rewrite the first row, so the reload parses the whole file, and load the other file
+        // while it runs.
+        Files.writeString(watched, "a,b\n-" + round + rows.substring(5));
+        Thread.sleep(60);
+        state.loadCSV("watched", other.toString(), true, LoadOptions.defaults());
+        Thread.sleep(500);
+        assertEquals(2, state.viewCSV("watched", PageRequest.all()).rows().size());
+        assertEquals(List.of("1", "2"), state.viewCSV("watched", PageRequest.all()).rows().get(1));
+      }
+    } finally {
+      Files.deleteIfExists(watched);
+      Files.deleteIfExists(other);
+    }
+  }
+
+  /**
+   * Private helper-method that returns the watch status of the dataset in testWatchReload.
+   *
+   * @param state is the datasource watching it.
+   * @return the dataset's watch status.
+   */
+  @SuppressWarnings("unchecked")
+  private Map<String, Object> watchStatus(CSVDatasource state) {
+    return (Map<String, Object>) state.watchStatus().get("watched");
+  }
+
+  /**
+   * Private helper-method that waits for a counter in the watch status of the dataset in
+   * testWatchReload to go up, failing after ten seconds.
+   *
+   * @param state is the datasource watching it.
+   * @param counter is the name of the counter.
+   * @throws InterruptedException
+   */
+  private void awaitWatch(CSVDatasource state, String counter) throws InterruptedException {
+    long before = (Long) this.watchStatus(state).get(counter);
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+    while ((Long) this.watchStatus(state).get(counter) == before) {
+      assertTrue(System.nanoTime() < deadline, "The watched file was not reloaded");
+      Thread.sleep(20);
+    }
+  }
 }
@@ -7,6 +7,8 @@ import com.squareup.moshi.Moshi;
 import com.squareup.moshi.Types;
 import edu.brown.cs.student.main.server.handlers.csvhandlers.CSVSharedSource;
 import edu.brown.cs.student.main.server.handlers.csvhandlers.LoadCSVHandler;
+import edu.brown.cs.student.main.server.handlers.csvhandlers.LoadJobs;
+import edu.brown.cs.student.main.server.handlers.csvhandlers.LoadStatusHandler;
 import java.io.IOException;
 import java.lang.reflect.Type;
 import java.net.HttpURLConnection;
@@ -41,7 +43,9 @@ public class LoadCSVTests {
   /** Set up the testing objects in the server. */
   @BeforeEach
   public void setup() {
-    Spark.get("/loadcsv", new LoadCSVHandler(new CSVSharedSource()));
+    LoadJobs loadJobs = new LoadJobs();
+    Spark.get("/loadcsv", new LoadCSVHandler(new CSVSharedSource(), loadJobs));
+    Spark.get("/loadstatus", new LoadStatusHandler(loadJobs));
     Spark.awaitInitialization(); // don't continue until the server is listening
 
     // New Moshi adapter for responses and requests
@@ -54,6 +58,7 @@ public class LoadCSVTests {
   public void tearDown() {
     // Gracefully stop Spark listening on both endpoints
     Spark.unmap("/loadcsv");
+    Spark.unmap("/loadstatus");
     Spark.awaitStop(); // don't proceed until the server is stopped
   }
 
@@ -81,6 +86,41 @@ public class LoadCSVTests {
     return clientConnection;
   }
 
+  /**
+   * Helper to make a request and read its Json response.
+   *
+   * @param apiCall the call string, including endpoint
+   * @return the response body
+   * @throws IOException if the connection fails for some reason
+   */
+  private Map<String, Object> getResponse(String apiCall) throws IOException {
+    HttpURLConnection connection = tryRequest(apiCall);
+    assertEquals(200, connection.getResponseCode());
+    Map<String, Object> responseBody =
+        adapter.fromJson(new Buffer().readFrom(connection.getInputStream()));
+    connection.disconnect();
+    return responseBody;
+  }
+
+  /**
+   * Helper to poll the loadstatus endpoint until a job is done.
+   *
+   * @param jobId the id of the job
+   * @return the status of the finished job
+   * @throws IOException if the connection fails for some reason
+   * @throws InterruptedException if interrupted while waiting
+   */
+  private Map<String, Object> awaitJob(String jobId) throws IOException, InterruptedException {
+    for (int attempt = 0; attempt < 500; attempt++) {
+      Map<String, Object> status = getResponse("loadstatus?job=" + jobId);
+      if (!"queued".equals(status.get("status")) && !"running".equals(status.get("status"))) {
+        return status;
+      }
+      Thread.sleep(10);
+    }
+    throw new AssertionError("Job " + jobId + " did not finish");
+  }
+
   /**
    * Test of a successful loading.
    *
@@ -237,4 +277,136 @@ public class LoadCSVTests {
     assertEquals("success", responseBody2.get("result"));
     loadConnection.disconnect(); // close gracefully
   }
+
+  /**
+   * Test of a successful load parsed across several threads.
+   *
+   * @throws IOException
+   */
+  @Test
+  public void testLoadCSVSuccess_Parallel() throws IOException {
+    // Set up the request, make the request
+    HttpURLConnection loadConnection =
+        tryRequest("loadcsv?filepath=data/census/income_by_race.csv&header=true&parallelism=4");
+    // Get an OK response (the *connection* worked, the *API* provides an error response)
+    assertEquals(200, loadConnection.getResponseCode());
+    // Get the expected response: a success
+    Map<String, Object> responseBody =
+        adapter.fromJson(new Buffer().readFrom(loadConnection.getInputStream()));
+    assertEquals("success", responseBody.get("result"));
+    assertEquals("4", responseBody.get("query_parallelism"));
+
+    loadConnection.disconnect();
+  }
+
+  /**
+   * Test of a failed load because the parallelism was not a positive number.
+   *
+   * @throws IOException
+   */
+  @Test
+  public void testLoadCSVFail_BadParallelism() throws IOException {
+    // Setup with bad parameters (oops)
+    HttpURLConnection loadConnection =
+        tryRequest("loadcsv?filepath=data/census/income_by_race.csv&header=true&parallelism=0");
+    // Get an OK response (the *connection* worked, the *API* provides an error response)
+    assertEquals(200, loadConnection.getResponseCode());
+    // Get the expected response: an error
+    Map<String, Object> responseBody =
+        adapter.fromJson(new Buffer().readFrom(loadConnection.getInputStream()));
+    assertEquals("error", responseBody.get("result"));
+    assertEquals("Invalid parallelism value!", responseBody.get("error_type"));
+
+    loadConnection.disconnect();
+  }
+
+  /**
+   * Test of a successful load with an inverted index, which reports what the index cost.
+   *
+   * @throws IOException
+   */
+  @Test
+  public void testLoadCSVSuccess_InvertedIndex() throws IOException {
+    // Set up the request, make the request
+    HttpURLConnection loadConnection =
+        tryRequest(
+            "loadcsv?filepath=data/census/income_by_race.csv&header=true&invertedindex=true");
+    // Get an OK response (the *connection* worked, the *API* provides an error response)
+    assertEquals(200, loadConnection.getResponseCode());
+    // Get the expected response: a success with the index's build time and size
+    Map<String, Object> responseBody =
+        adapter.fromJson(new Buffer().readFrom(loadConnection.getInputStream()));
+    assertEquals("success", responseBody.get("result"));
+    assertEquals("true", responseBody.get("query_invertedindex"));
+    assertEquals(323.0, responseBody.get("rows"));
+    assertEquals(true, responseBody.containsKey("inverted_index_millis"));
+    assertEquals(true, ((Double) responseBody.get("inverted_index_bytes")) > 0);
+
+    loadConnection.disconnect();
+  }
+
+  /**
+   * Test of a successful asynchronous load, whose status reports its progress and result.
+   *
+   * @throws IOException
+   * @throws InterruptedException
+   */
+  @Test
+  public void testLoadCSVSuccess_Async() throws IOException, InterruptedException {
+    // The load returns a job id right away
+    Map<String, Object> responseBody =
+        getResponse("loadcsv?filepath=data/census/income_by_race.csv&header=true&async=true");
+    assertEquals("success", responseBody.get("result"));
+    assertEquals("true", responseBody.get("query_async"));
+    String jobId = (String) responseBody.get("job_id");
+
+    // Once done, the whole file has been read and the load's statistics are reported
+    Map<String, Object> status = awaitJob(jobId);
+    assertEquals("success", status.get("result"));
+    assertEquals("succeeded", status.get("status"));
+    assertEquals(324.0, status.get("rows_read"));
+    assertEquals(status.get("total_bytes"), status.get("bytes_read"));
+    assertEquals(true, ((Double) status.get("total_bytes")) > 0);
+    assertEquals(true, status.containsKey("rows_per_second"));
+    assertEquals(323.0, ((Map<?, ?>) status.get("load")).get("rows"));
+  }
+
+  /**
+   * Test of a failed asynchronous load, whose error is reported by its status.
+   *
+   * @throws IOException
+   * @throws InterruptedException
+   */
+  @Test
+  public void testLoadCSVFail_AsyncOutsideFilepath() throws IOException, InterruptedException {
+    Map<String, Object> responseBody =
+        getResponse("loadcsv?filepath=out/of/scope!&header=true&async=true");
+    assertEquals("success", responseBody.get("result"));
+
+    Map<String, Object> status = awaitJob((String) responseBody.get("job_id"));
+    assertEquals("success", status.get("result"));
+    assertEquals("failed", status.get("status"));
+    assertEquals("InvalidFilepathException", status.get("exception"));
+  }
+
+  /**
+   * Test of failed status requests, for an unknown job and a malformed async flag.
+   *
+   * @throws IOException
+   */
+  @Test
+  public void testLoadStatusFail() throws IOException {
+    Map<String, Object> responseBody = getResponse("loadstatus?job=load-999");
+    assertEquals("error", responseBody.get("result"));
+    assertEquals("JobNotFoundException", responseBody.get("exception"));
+
+    responseBody = getResponse("loadstatus");
+    assertEquals("error", responseBody.get("result"));
+    assertEquals("Invalid number of parameters specified!", responseBody.get("error_type"));
+
+    responseBody =
+        getResponse("loadcsv?filepath=data/census/income_by_race.csv&header=true&async=sus");
+    assertEquals("error", responseBody.get("result"));
+    assertEquals("Invalid async value!", responseBody.get("error_type"));
+  }
 }
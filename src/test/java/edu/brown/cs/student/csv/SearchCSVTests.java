@@ -13,6 +13,8 @@ import java.io.IOException;
 import java.lang.reflect.Type;
 import java.net.HttpURLConnection;
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -294,4 +296,191 @@ public class SearchCSVTests {
 
     loadConnection.disconnect();
   }
+
+  /**
+   * Helper to make a request and read its response body.
+   *
+   * @param apiCall the call string, including endpoint
+   * @return the response body
+   * @throws IOException if the connection fails for some reason
+   */
+  private Map<String, Object> getResponse(String apiCall) throws IOException {
+    HttpURLConnection connection = tryRequest(apiCall);
+    assertEquals(200, connection.getResponseCode());
+    Map<String, Object> body = adapter.fromJson(new Buffer().readFrom(connection.getInputStream()));
+    connection.disconnect();
+    return body;
+  }
+
+  /**
+   * Test paging through a search with cursors, and that a cursor is rejected once the CSV has been
+   * reloaded or when it is used for a different query.
+   *
+   * @throws IOException
+   */
+  @Test
+  public void testSearchCSVSuccess_Paged() throws IOException {
+    String load = "loadcsv?filepath=data/census/income_by_race.csv&header=true";
+    assertEquals("success", getResponse(load).get("result"));
+    List<?> all = (List<?>) getResponse("searchcsv?value=2020").get("data");
+
+    // Follow the cursors until there are no more pages.
+    List<Object> paged = new ArrayList<>();
+    Map<String, Object> page = getResponse("searchcsv?value=2020&limit=100");
+    paged.addAll((List<?>) page.get("data"));
+    String firstCursor = (String) page.get("next_cursor");
+    while (page.get("next_cursor") != null) {
+      assertEquals(100, ((List<?>) page.get("data")).size());
+      page = getResponse("searchcsv?value=2020&limit=100&cursor=" + page.get("next_cursor"));
+      assertEquals("success", page.get("result"));
+      paged.addAll((List<?>) page.get("data"));
+    }
+    assertEquals(all, paged);
+    assertEquals(
+        all.subList(10, 15), getResponse("searchcsv?value=2020&offset=10&limit=5").get("data"));
+
+    // The cursor only works for its own query, and only until the next load.
+    Map<String, Object> otherQuery = getResponse("searchcsv?value=2021&cursor=" + firstCursor);
+    assertEquals("InvalidCursorException", otherQuery.get("exception"));
+    assertEquals("success", getResponse(load).get("result"));
+    Map<String, Object> stale = getResponse("searchcsv?value=2020&cursor=" + firstCursor);
+    assertEquals("error", stale.get("result"));
+    assertEquals("InvalidCursorException", stale.get("exception"));
+    Map<String, Object> badLimit = getResponse("searchcsv?value=2020&limit=0");
+    assertEquals("IllegalArgumentException", badLimit.get("exception"));
+  }
+
+  /**
+   * Test range searches of a numeric column by index and by header, paging through them with a
+   * cursor, and the errors for a text column, a bad bound and a range with a value.
+   *
+   * @throws IOException
+   */
+  @Test
+  public void testSearchCSVSuccess_Range() throws IOException {
+    String load = "loadcsv?filepath=data/server/RI-Town-Income-Data.csv&header=true";
+    Map<String, Object> loaded = getResponse(load);
+    assertEquals("success", loaded.get("result"));
+    assertEquals(List.of("text", "decimal", "decimal", "decimal"), loaded.get("column_types"));
+
+    Map<String, Object> rich = getResponse("searchcsv?index=1&min=100,000");
+    assertEquals("success", rich.get("result"));
+    List<?> towns = (List<?>) rich.get("data");
+    assertEquals(List.of("Barrington", "130,455.00", "154,441.00", "69,917.00"), towns.get(0));
+    List<?> byHeader =
+        (List<?>) getResponse("searchcsv?header=Median%20Family%20Income&min=110000").get("data");
+    assertEquals(getResponse("searchcsv?index=2&min=110000").get("data"), byHeader);
+    assertEquals(false, byHeader.isEmpty());
+    Map<String, Object> band = getResponse("searchcsv?index=1&min=80000&max=90000&limit=2");
+    List<Object> paged = new ArrayList<>((List<?>) band.get("data"));
+    while (band.get("next_cursor") != null) {
+      band =
+          getResponse(
+              "searchcsv?index=1&min=80000&max=90000&limit=2&cursor=" + band.get("next_cursor"));
+      paged.addAll((List<?>) band.get("data"));
+    }
+    assertEquals(getResponse("searchcsv?index=1&min=80000&max=90000").get("data"), paged);
+
+    assertEquals("ColumnTypeException", getResponse("searchcsv?index=0&min=1").get("exception"));
+    assertEquals(
+        "IllegalArgumentException", getResponse("searchcsv?index=1&max=lots").get("exception"));
+    assertEquals(
+        "Invalid parameters specified!",
+        getResponse("searchcsv?value=Bristol&index=1&min=1").get("error_type"));
+    assertEquals("Invalid parameters specified!", getResponse("searchcsv?min=1").get("error_type"));
+  }
+
+  /**
+   * Tests that a compound query finds the rows matching all of its predicates, pages with a cursor,
+   * and reports bad queries and parameters.
+   *
+   * @throws IOException
+   */
+  @Test
+  public void testSearchCSVSuccess_Query() throws IOException {
+    assertEquals(
+        "success",
+        getResponse("loadcsv?filepath=data/census/income_by_race.csv&header=true").get("result"));
+    String query = "Race%3DBlack%20AND%20Year%3E%3D2019%20AND%20NOT%20%22ID%20Year%22%3D2020";
+    Map<String, Object> found = getResponse("searchcsv?query=" + query);
+    assertEquals("success", found.get("result"));
+    List<?> rows = (List<?>) found.get("data");
+    assertEquals(false, rows.isEmpty());
+    for (Object row : rows) {
+      assertEquals("Black", ((List<?>) row).get(1));
+      assertEquals("2019", ((List<?>) row).get(3));
+    }
+    Map<String, Object> page = getResponse("searchcsv?limit=2&query=" + query);
+    List<Object> paged = new ArrayList<>((List<?>) page.get("data"));
+    while (page.get("next_cursor") != null) {
+      page = getResponse("searchcsv?limit=2&query=" + query + "&cursor=" + page.get("next_cursor"));
+      paged.addAll((List<?>) page.get("data"));
+    }
+    assertEquals(rows, paged);
+
+    assertEquals(
+        "IllegalArgumentException",
+        getResponse("searchcsv?query=Race%3DBlack%20AND").get("exception"));
+    assertEquals(
+        "Invalid parameters specified!",
+        getResponse("searchcsv?query=Race%3DBlack&value=Black").get("error_type"));
+  }
+
+  /**
+   * Tests that match=prefix and match=substring find the cells starting with, or containing, the
+   * value in a column, and that bad match values and missing columns are reported.
+   *
+   * @throws IOException
+   */
+  @Test
+  public void testSearchCSVSuccess_Match() throws IOException {
+    String load = "loadcsv?filepath=data/server/RI-Town-Income-Data.csv&header=true";
+    assertEquals("success", getResponse(load).get("result"));
+    List<?> prefixed =
+        (List<?>) getResponse("searchcsv?value=bar&index=0&match=prefix").get("data");
+    assertEquals(List.of("Barrington", "130,455.00", "154,441.00", "69,917.00"), prefixed.get(0));
+    for (Object row : prefixed) {
+      assertEquals(true, ((String) ((List<?>) row).get(0)).toLowerCase().startsWith("bar"));
+    }
+    List<?> contained =
+        (List<?>) getResponse("searchcsv?value=ING&header=City/Town&match=substring").get("data");
+    assertEquals(false, contained.isEmpty());
+    for (Object row : contained) {
+      assertEquals(true, ((String) ((List<?>) row).get(0)).toLowerCase().contains("ing"));
+    }
+    assertEquals(
+        "Invalid match value!",
+        getResponse("searchcsv?value=bar&index=0&match=soundex").get("error_type"));
+    assertEquals(
+        "Invalid parameters specified!",
+        getResponse("searchcsv?value=bar&match=prefix").get("error_type"));
+  }
+
+  /**
+   * Tests that a fuzzy search finds a misspelled town, ranking the closest values first, and that
+   * the distance is checked.
+   *
+   * @throws IOException if the connection fails.
+   */
+  @Test
+  public void testSearchCSVSuccess_Fuzzy() throws IOException {
+    String load = "loadcsv?filepath=data/server/RI-Town-Income-Data.csv&header=true";
+    assertEquals("success", getResponse(load).get("result"));
+    assertEquals(List.of(), getResponse("searchcsv?value=Barington&index=0").get("data"));
+    List<?> found =
+        (List<?>) getResponse("searchcsv?value=Barington&index=0&match=fuzzy").get("data");
+    assertEquals(List.of("Barrington", "130,455.00", "154,441.00", "69,917.00"), found.get(0));
+    List<?> exact =
+        (List<?>)
+            getResponse("searchcsv?value=bristol&header=City/Town&match=fuzzy&distance=0")
+                .get("data");
+    assertEquals(1, exact.size());
+    assertEquals("Bristol", ((List<?>) exact.get(0)).get(0));
+    assertEquals(
+        "Invalid distance value!",
+        getResponse("searchcsv?value=bar&index=0&match=fuzzy&distance=9").get("error_type"));
+    assertEquals(
+        "Invalid parameters specified!",
+        getResponse("searchcsv?value=bar&index=0&distance=1").get("error_type"));
+  }
 }
@@ -0,0 +1,153 @@
+package edu.brown.cs.student.csv;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.squareup.moshi.JsonAdapter;
+import com.squareup.moshi.Moshi;
+import com.squareup.moshi.Types;
+import edu.brown.cs.student.main.server.handlers.csvhandlers.CSVDatasource;
+import edu.brown.cs.student.main.server.handlers.csvhandlers.CSVSharedSource;
+import edu.brown.cs.student.main.server.handlers.csvhandlers.LoadCSVHandler;
+import edu.brown.cs.student.main.server.handlers.csvhandlers.SuggestHandler;
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import okio.Buffer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.testng.annotations.BeforeClass;
+import spark.Spark;
+
+/** Test class to run UNIT tests on the suggest endpoint and handler. */
+public class SuggestTests {
+
+  /** Set up the server port. */
+  @BeforeClass
+  public static void setupOnce() {
+    // Pick an arbitrary free port
+    Spark.port(0);
+    // Eliminate logger spam in console for test suite
+    Logger.getLogger("").setLevel(Level.WARNING); // empty name = root
+  }
+
+  // Helping Moshi serialize Json responses.
+  private final Type mapStringObject =
+      Types.newParameterizedType(Map.class, String.class, Object.class);
+  private JsonAdapter<Map<String, Object>> adapter;
+  private CSVDatasource sharedState;
+
+  /** Set up the load and suggest handlers necessary. */
+  @BeforeEach
+  public void setup() {
+    sharedState = new CSVSharedSource();
+    Spark.get("/loadcsv", new LoadCSVHandler(this.sharedState));
+    Spark.get("/suggest", new SuggestHandler(this.sharedState));
+    Spark.awaitInitialization(); // don't continue until the server is listening
+
+    // New Moshi adapter for responses and requests
+    Moshi moshi = new Moshi.Builder().build();
+    adapter = moshi.adapter(mapStringObject);
+  }
+
+  /** Clean up after tests. */
+  @AfterEach
+  public void tearDown() {
+    // Gracefully stop Spark listening on both endpoints
+    Spark.unmap("/loadcsv");
+    Spark.unmap("/suggest");
+    Spark.awaitStop(); // don't proceed until the server is stopped
+  }
+
+  /**
+   * Helper to start a connection to a specific API endpoint/params
+   *
+   * <p>The "throws" clause doesn't matter below -- JUnit will fail if an exception is thrown that
+   * hasn't been declared as a parameter to @Test.
+   *
+   * @param apiCall the call string, including endpoint (Note: this would be better if it had more
+   *     structure!)
+   * @return the connection for the given URL, just after connecting
+   * @throws IOException if the connection fails for some reason
+   */
+  private HttpURLConnection tryRequest(String apiCall) throws IOException {
+    // Configure the connection (but don't actually send a request yet)
+    URL requestURL = new URL("http://localhost:" + Spark.port() + "/" + apiCall);
+    HttpURLConnection clientConnection = (HttpURLConnection) requestURL.openConnection();
+    // The request body contains a Json object
+    clientConnection.setRequestProperty("Content-Type", "application/json");
+    // We're expecting a Json object in the response body
+    clientConnection.setRequestProperty("Accept", "application/json");
+
+    clientConnection.connect();
+    return clientConnection;
+  }
+
+  /**
+   * Helper to make a request and read its response body.
+   *
+   * @param apiCall the call string, including endpoint
+   * @return the response body
+   * @throws IOException if the connection fails for some reason
+   */
+  private Map<String, Object> getResponse(String apiCall) throws IOException {
+    HttpURLConnection connection = tryRequest(apiCall);
+    assertEquals(200, connection.getResponseCode());
+    Map<String, Object> body = adapter.fromJson(new Buffer().readFrom(connection.getInputStream()));
+    connection.disconnect();
+    return body;
+  }
+
+  /**
+   * Test that values are suggested most common first, with ties in order, for a column given by
+   * header or index.
+   *
+   * @throws IOException
+   */
+  @Test
+  public void testSuggestSuccess() throws IOException {
+    String load = "loadcsv?filepath=data/census/income_by_race.csv&header=true";
+    assertEquals("success", getResponse(load).get("result"));
+
+    Map<String, Object> byHeader = getResponse("suggest?prefix=t&header=Race");
+    assertEquals("success", byHeader.get("result"));
+    assertEquals(
+        List.of(
+            Map.of("value", "Total", "count", 40.0), Map.of("value", "Two Or More", "count", 35.0)),
+        byHeader.get("suggestions"));
+    assertEquals(
+        List.of(Map.of("value", "White", "count", 40.0)),
+        getResponse("suggest?prefix=WH&index=1&limit=1").get("suggestions"));
+    assertEquals(List.of(), getResponse("suggest?prefix=zz&index=1").get("suggestions"));
+    assertEquals(10, ((List<?>) getResponse("suggest?prefix=&index=1").get("suggestions")).size());
+  }
+
+  /**
+   * Test the errors for a missing dataset, a missing prefix, a missing column, a bad limit and an
+   * unknown header.
+   *
+   * @throws IOException
+   */
+  @Test
+  public void testSuggestFail() throws IOException {
+    assertEquals("CSVNotFoundException", getResponse("suggest?prefix=a&index=1").get("exception"));
+    String load = "loadcsv?filepath=data/census/income_by_race.csv&header=true";
+    assertEquals("success", getResponse(load).get("result"));
+    assertEquals("Missing parameter!", getResponse("suggest?index=1").get("error_type"));
+    assertEquals(
+        "Invalid parameters specified!", getResponse("suggest?prefix=a").get("error_type"));
+    assertEquals(
+        "Invalid parameters specified!",
+        getResponse("suggest?prefix=a&index=1&header=Race").get("error_type"));
+    assertEquals(
+        "Invalid limit value!", getResponse("suggest?prefix=a&index=1&limit=0").get("error_type"));
+    assertEquals(
+        "HeaderNotFoundException", getResponse("suggest?prefix=a&header=Town").get("exception"));
+    assertEquals("InvalidIndexException", getResponse("suggest?prefix=a&index=9").get("exception"));
+  }
+}
@@ -8,11 +8,15 @@ import com.squareup.moshi.Types;
 import edu.brown.cs.student.main.server.handlers.csvhandlers.CSVDatasource;
 import edu.brown.cs.student.main.server.handlers.csvhandlers.CSVSharedSource;
 import edu.brown.cs.student.main.server.handlers.csvhandlers.LoadCSVHandler;
+import edu.brown.cs.student.main.server.handlers.csvhandlers.PageRequest;
+import edu.brown.cs.student.main.server.handlers.csvhandlers.ResultPage;
 import edu.brown.cs.student.main.server.handlers.csvhandlers.ViewCSVHandler;
+import edu.brown.cs.student.main.server.serializers.MapSerializer;
 import java.io.IOException;
 import java.lang.reflect.Type;
 import java.net.HttpURLConnection;
 import java.net.URL;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -165,4 +169,29 @@ public class ViewCSVTests {
 
     loadConnection.disconnect(); // close gracefully
   }
+
+  /**
+   * Tests that a streamed view is exactly the JSON the whole response would serialize to at once.
+   *
+   * @throws Exception
+   */
+  @Test
+  public void testViewCSVSuccess_StreamedMatchesSerialized() throws Exception {
+    HttpURLConnection loadConnection =
+        tryRequest("loadcsv?filepath=data/census/income_by_race.csv&header=true");
+    assertEquals(200, loadConnection.getResponseCode());
+    loadConnection.disconnect();
+
+    HttpURLConnection viewConnection = tryRequest("viewcsv");
+    assertEquals(200, viewConnection.getResponseCode());
+    String streamed = new Buffer().readFrom(viewConnection.getInputStream()).readUtf8();
+    ResultPage page = this.sharedState.viewCSV(CSVDatasource.DEFAULT_ID, PageRequest.all());
+    Map<String, Object> expected = new HashMap<>();
+    expected.put("result", "success");
+    expected.put("data", page.rows());
+    expected.put("dataset_version", page.version());
+    assertEquals(new MapSerializer().serialize(expected), streamed);
+
+    viewConnection.disconnect();
+  }
 }
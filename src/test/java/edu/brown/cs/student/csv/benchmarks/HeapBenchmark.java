@@ -0,0 +1,90 @@
+package edu.brown.cs.student.csv.benchmarks;
+
+import edu.brown.cs.student.main.csv.creators.SearcherCreator;
+import edu.brown.cs.student.main.csv.exceptions.FactoryFailureException;
+import edu.brown.cs.student.main.csv.utilities.CSVParser;
+import edu.brown.cs.student.main.csv.utilities.CSVSearcher;
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * A standalone benchmark (not run by the test suite) that reports the heap retained by a loaded
+ * dataset, comparing the parsed rows as ArrayLists of Strings with a CSVSearcher. Pass file paths
+ * to measure them, or a row count to measure a generated file of that many rows. Small files are
+ * loaded many times over and averaged so the measurement is not lost in noise. Run with a large
+ * enough -Xmx for the row representation.
+ */
+public class HeapBenchmark {
+  private static final long SMALL_FILE_BYTES = 1 << 20; // Files below this are loaded repeatedly.
+  private static Object[] retained; // Keeps the loaded copies reachable while measuring.
+
+  /**
+   * Measures each argument, which is either a path to a CSV or a number of rows to generate.
+   *
+   * @param args are the files or row counts to measure.
+   * @throws IOException
+   * @throws FactoryFailureException
+   */
+  public static void main(String[] args) throws IOException, FactoryFailureException {
+    for (String arg : args) {
+      Path file = arg.matches("\\d+") ? generate(Integer.parseInt(arg)) : Path.of(arg);
+      int copies = (Files.size(file) < SMALL_FILE_BYTES) ? 500 : 1;
+      retained = new Object[copies];
+      long base = usedHeap();
+      for (int i = 0; i < copies; i++) {
+        retained[i] = new CSVParser<>(new SearcherCreator(), file).parse();
+      }
+      long rowBytes = (usedHeap() - base) / copies;
+      retained = new Object[copies];
+      base = usedHeap();
+      CSVSearcher searcher = null;
+      for (int i = 0; i < copies; i++) {
+        searcher = new CSVSearcher(new CSVParser<>(new SearcherCreator(), file), true);
+        retained[i] = searcher;
+      }
+      long searcherBytes = (usedHeap() - base) / copies;
+      retained = null;
+      System.out.printf(
+          "%-40s rows %,14d bytes  searcher %,14d bytes (estimated %,d)%n",
+          file.getFileName(), rowBytes, searcherBytes, searcher.estimatedBytes());
+    }
+  }
+
+  /**
+   * Returns the heap in use after collecting garbage.
+   *
+   * @return the used heap in bytes.
+   */
+  static long usedHeap() {
+    Runtime runtime = Runtime.getRuntime();
+    for (int i = 0; i < 3; i++) {
+      System.gc();
+    }
+    return runtime.totalMemory() - runtime.freeMemory();
+  }
+
+  /**
+   * Writes a CSV shaped like the census data, with a few repeating text columns and a numeric one.
+   *
+   * @param rows is the number of rows to write.
+   * @return the path of the generated file.
+   */
+  static Path generate(int rows) throws IOException {
+    Path file = Files.createTempFile("synthetic-" + rows + "-", ".csv");
+    file.toFile().deleteOnExit();
+    String[] towns = {"Barrington", "Bristol", "Burrillville", "Central Falls", "Providence"};
+    try (BufferedWriter writer = new BufferedWriter(new FileWriter(file.toFile()))) {
+      writer.write("Town,Year,Flag,Income");
+      writer.newLine();
+      for (int i = 0; i < rows; i++) {
+        writer.write(towns[i % towns.length] + "," + (2000 + i % 24) + ",");
+        writer.write((i % 3 == 0 ? "yes" : "no") + "," + (i * 7919 % 100_000));
+        writer.newLine();
+      }
+    }
+    return file;
+  }
+}
@@ -0,0 +1,51 @@
+package edu.brown.cs.student.csv.benchmarks;
+
+import edu.brown.cs.student.main.csv.creators.DoubleArrayCreator;
+import edu.brown.cs.student.main.csv.creators.IntArrayCreator;
+import edu.brown.cs.student.main.csv.creators.IntegerArrayCreator;
+import edu.brown.cs.student.main.csv.creators.LongArrayCreator;
+import edu.brown.cs.student.main.csv.exceptions.FactoryFailureException;
+import edu.brown.cs.student.main.csv.storage.ColumnMajor;
+import edu.brown.cs.student.main.csv.utilities.CSVParser;
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A standalone benchmark (not run by the test suite) that compares the boxed IntegerArrayCreator
+ * with the primitive creators on a generated numeric file, in rows per second and bytes allocated
+ * per parse, measured the same way as ParserBenchmark. Run its main method from the IDE or with the
+ * test classpath.
+ */
+public class NumericBenchmark {
+
+  /**
+   * Generates the benchmark file and prints the results for each creator.
+   *
+   * @param args is unused.
+   * @throws IOException
+   * @throws FactoryFailureException
+   */
+  public static void main(String[] args) throws IOException, FactoryFailureException {
+    Path dir = Files.createTempDirectory("csv-bench");
+    dir.toFile().deleteOnExit();
+    Path numeric = ParserBenchmark.writeFile(dir.resolve("numeric.csv"), 200_000, 20, false);
+    Map<String, ParserBenchmark.ParseRun> parsers = new LinkedHashMap<>();
+    parsers.put(
+        "BOXED",
+        f -> new CSVParser<>(new IntegerArrayCreator(), new FileReader(f.toFile())).parse().size());
+    parsers.put("BOXED MAP", f -> new CSVParser<>(new IntegerArrayCreator(), f).parse().size());
+    parsers.put(
+        "INT",
+        f -> new CSVParser<>(new IntArrayCreator(), new FileReader(f.toFile())).parse().size());
+    parsers.put("INT MAP", f -> new CSVParser<>(new IntArrayCreator(), f).parse().size());
+    parsers.put("LONG MAP", f -> new CSVParser<>(new LongArrayCreator(), f).parse().size());
+    parsers.put("DOUBLE MAP", f -> new CSVParser<>(new DoubleArrayCreator(), f).parse().size());
+    parsers.put(
+        "INT COLS", f -> ColumnMajor.ints(new CSVParser<>(new IntArrayCreator(), f))[0].length);
+    ParserBenchmark.report(numeric, parsers);
+  }
+}
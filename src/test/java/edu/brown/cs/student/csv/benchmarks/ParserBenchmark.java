@@ -0,0 +1,122 @@
+package edu.brown.cs.student.csv.benchmarks;
+
+import edu.brown.cs.student.main.csv.creators.SearcherCreator;
+import edu.brown.cs.student.main.csv.exceptions.FactoryFailureException;
+import edu.brown.cs.student.main.csv.utilities.CSVParser;
+import edu.brown.cs.student.main.csv.utilities.ParseEngine;
+import java.io.BufferedWriter;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A standalone benchmark (not run by the test suite) that reports parsing throughput in rows per
+ * second, and bytes allocated per parse on the calling thread (so parallel parses only show the
+ * cost of joining their chunks), for each way of building a CSVParser on generated wide and
+ * quote-heavy files. Run its main method from the IDE or with the test classpath.
+ */
+public class ParserBenchmark {
+  private static final int WARMUP_RUNS = 3;
+  private static final int MEASURED_RUNS = 5;
+
+  /** One way of parsing a file, so each input path can be measured the same way. */
+  interface ParseRun {
+    /** Parses the file, returning the number of rows parsed. */
+    int parse(Path file) throws IOException, FactoryFailureException;
+  }
+
+  /**
+   * Generates the benchmark files and prints the results for each parser.
+   *
+   * @param args is unused.
+   * @throws IOException
+   * @throws FactoryFailureException
+   */
+  public static void main(String[] args) throws IOException, FactoryFailureException {
+    Path dir = Files.createTempDirectory("csv-bench");
+    dir.toFile().deleteOnExit();
+    Path wide = writeFile(dir.resolve("wide.csv"), 20_000, 200, false);
+    Path quoted = writeFile(dir.resolve("quoted.csv"), 50_000, 40, true);
+    Map<String, ParseRun> parsers = new LinkedHashMap<>();
+    for (ParseEngine engine : ParseEngine.values()) {
+      parsers.put(
+          engine.toString(),
+          f ->
+              new CSVParser<>(new SearcherCreator(), new FileReader(f.toFile()), engine)
+                  .parse()
+                  .size());
+    }
+    parsers.put("MAPPED", f -> new CSVParser<>(new SearcherCreator(), f).parse().size());
+    int threads = Math.max(4, Runtime.getRuntime().availableProcessors());
+    parsers.put(
+        "MAPPED x" + threads, f -> new CSVParser<>(new SearcherCreator(), f).parse(threads).size());
+    for (Path file : new Path[] {wide, quoted}) {
+      report(file, parsers);
+    }
+  }
+
+  /**
+   * Parses the file with each parser in interleaved rounds, so that no parser benefits from running
+   * later, and prints the best observed throughput and the bytes allocated by one parse.
+   *
+   * @param file is the CSV to parse.
+   * @param parsers maps the name to print for each parser to the way it parses.
+   */
+  static void report(Path file, Map<String, ParseRun> parsers)
+      throws IOException, FactoryFailureException {
+    com.sun.management.ThreadMXBean threads =
+        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    long threadId = Thread.currentThread().getId();
+    Map<String, Double> best = new LinkedHashMap<>();
+    Map<String, Long> allocated = new LinkedHashMap<>();
+    for (int run = 0; run < WARMUP_RUNS + MEASURED_RUNS; run++) {
+      for (Map.Entry<String, ParseRun> parser : parsers.entrySet()) {
+        long startBytes = threads.getThreadAllocatedBytes(threadId);
+        long start = System.nanoTime();
+        int rows = parser.getValue().parse(file);
+        double perSecond = rows / ((System.nanoTime() - start) / 1e9);
+        allocated.put(parser.getKey(), threads.getThreadAllocatedBytes(threadId) - startBytes);
+        if (run >= WARMUP_RUNS) {
+          best.merge(parser.getKey(), perSecond, Math::max);
+        }
+      }
+    }
+    for (String name : parsers.keySet()) {
+      System.out.printf(
+          "%-10s %-10s %,12.0f rows/sec %,8d MB allocated%n",
+          file.getFileName(), name, best.get(name), allocated.get(name) >> 20);
+    }
+  }
+
+  /**
+   * Writes a synthetic CSV in the shape of the RI income data.
+   *
+   * @param file is where to write the CSV.
+   * @param rows is the number of rows to write.
+   * @param columns is the number of columns in each row.
+   * @param quoted is whether every cell is a quoted number with a thousands separator.
+   * @return the path written to.
+   */
+  static Path writeFile(Path file, int rows, int columns, boolean quoted) throws IOException {
+    file.toFile().deleteOnExit();
+    try (BufferedWriter writer = new BufferedWriter(new FileWriter(file.toFile()))) {
+      for (int i = 0; i < rows; i++) {
+        for (int j = 0; j < columns; j++) {
+          if (j > 0) {
+            writer.write(',');
+          }
+          int value = (i * 31 + j * 17) % 1_000_000;
+          writer.write(
+              quoted ? "\"" + (value / 1000) + "," + (value % 1000) + ".00\"" : "" + value);
+        }
+        writer.newLine();
+      }
+    }
+    return file;
+  }
+}